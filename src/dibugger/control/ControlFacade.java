@@ -125,6 +125,21 @@ public class ControlFacade {
         }
     }
 
+    /**
+     * Continues Debugging backward in all programs until a Breakpoint or
+     * Conditional Breakpoint is reached.
+     * 
+     * @see DebugLogicController#reverseContinueDebug()
+     */
+    public void reverseContinueDebug() {
+        try {
+            ensureInDebugMode();
+            debugLogicController.reverseContinueDebug();
+        } catch (IllegalStateException e) {
+            exceptionHandler.handle(e);
+        }
+    }
+
     /**
      * Executes a normal step of size 1 in a given program
      * 
@@ -136,6 +151,8 @@ public class ControlFacade {
         try{
         	ensureInDebugMode();
             debugLogicController.singleStep(programNameId);
+        } catch (DIbuggerLogicException exception) {
+            exceptionHandler.handle(exception);
         } catch (IllegalStateException e){
         	exceptionHandler.handle(e);
         	//e.printStackTrace();
@@ -162,6 +162,16 @@ public class DebugLogicController {
         debugLogicFacade.continueDebug();
     }
 
+    /**
+     * Continues Debugging backward in all programs until a Breakpoint or
+     * Conditional Breakpoint is reached.
+     *
+     * @see DebugLogicFacade#reverseContinueDebug()
+     */
+    public void reverseContinueDebug() {
+        debugLogicFacade.reverseContinueDebug();
+    }
+
     /**
      * Executes a normal step of size 1 in a given program.
      *
@@ -169,7 +179,7 @@ public class DebugLogicController {
      *            the id of program to do a step in
      * @see DebugLogicFacade#singleStep(int)
      */
-    public void singleStep(String programNameId) {
+    public void singleStep(String programNameId) throws DIbuggerLogicException {
         if (isKnownId(programNameId)) {
             debugLogicFacade.singleStep(getProgramId(programNameId));
         }
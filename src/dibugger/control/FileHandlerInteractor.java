@@ -2,10 +2,12 @@ package dibugger.control;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Observable;
+import java.util.Set;
 
 import dibugger.debuglogic.debugger.ProgramInput;
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
@@ -22,6 +24,8 @@ import dibugger.userinterface.GUIFacade;
  * DIbugger-configurations, managing UI's (user -) language and more.
  */
 public class FileHandlerInteractor extends Observable {
+    private static final String TRACE_FILE_EXTENSION = ".dbtrace";
+
     private FileHandlerFacade fileHandlerFacade;
     private GUIFacade guiFacade;
 
@@ -127,9 +131,6 @@ public class FileHandlerInteractor extends Observable {
             List<String> variablesOfInspector = configFile.getVariablesOfInspector(i);
             guiFacade.setHiddenVariables(programIdentifier, variablesOfInspector);
 
-            // Notiz: "configFile.getLatestExecutionLine" muss noch verwendet
-            // werden
-
             int stepSize = configFile.getStepSize(i);
             debugLogicController.setStepSize(programIdentifier, stepSize);
 
@@ -144,13 +145,30 @@ public class FileHandlerInteractor extends Observable {
         debugLogicController.createWatchExpressions(expressions);
         
         debugLogicController.saveText(input, programTexts, pids);
-        debugLogicController.getDebugLogicFacade().launchRun(debugLogicController.getProgramInput());      
-        debugLogicController.getDebugLogicFacade().notifyAllObservers();
+        // the saved traces are read instead of running the programs again
+        List<File> traceFiles = new ArrayList<>();
+        File directory = configFile.getSystemFile() != null ? configFile.getSystemFile().getAbsoluteFile().getParentFile()
+                : null;
+        for (int i = 0; i < numberOfPrograms; i++) {
+            String traceFile = configFile.getTraceFile(i);
+            traceFiles.add(traceFile != null ? new File(directory, traceFile) : null);
+        }
+        debugLogicController.getDebugLogicFacade().launchRun(debugLogicController.getProgramInput(), traceFiles);
+
+        // the program counters saved in the configuration
+        int[] steps = new int[numberOfPrograms];
+        for (int i = 0; i < numberOfPrograms; i++) {
+            steps[i] = configFile.getLatestExecutionLine(i);
+        }
+        debugLogicController.getDebugLogicFacade().seekAll(steps);
     }
 
     /**
      * Saves some of Dibugger's model- and presentation-component's state to a
-     * specified {@code File}.
+     * specified {@code File}. The complete traces of the run are saved next to
+     * it, so loading the configuration resumes the run without running the
+     * programs again. Traces which are still generated lazily are not saved
+     * and are generated again when the configuration is loaded.
      * 
      * @param configurationFile
      *            a {@code File} to save DIbugger's state to
@@ -158,8 +176,39 @@ public class FileHandlerInteractor extends Observable {
     public void saveConfiguration(File file) {    	
         ConfigurationFile configurationFile = new ConfigurationFile(file);
         gatherConfiguration(configurationFile);
+        saveTraces(configurationFile);
         fileHandlerFacade.saveConfig(configurationFile);
     }
+
+    private void saveTraces(ConfigurationFile configuration) {
+        File file = configuration.getSystemFile().getAbsoluteFile();
+        Set<String> saved = new HashSet<>();
+        for (int i = 0; i < configuration.getNumPrograms(); i++) {
+            File traceFile = new File(file.getParentFile(), file.getName() + "." + i + TRACE_FILE_EXTENSION);
+            try {
+                if (debugLogicController.getDebugLogicFacade().saveTrace(i, traceFile)) {
+                    configuration.setTraceFile(i, traceFile.getName());
+                    saved.add(traceFile.getName());
+                }
+            } catch (DIbuggerLogicException e) {
+                // the trace is generated again when the configuration is
+                // loaded
+            }
+        }
+        // the traces of an earlier save of this configuration which are not
+        // referred to anymore
+        File[] traceFiles = file.getParentFile().listFiles((directory, name) -> name.startsWith(file.getName() + ".")
+                && name.endsWith(TRACE_FILE_EXTENSION) && !saved.contains(name));
+        if (traceFiles != null) {
+            for (File traceFile : traceFiles) {
+                String index = traceFile.getName().substring(file.getName().length() + 1,
+                        traceFile.getName().length() - TRACE_FILE_EXTENSION.length());
+                if (index.matches("[0-9]+")) {
+                    traceFile.delete();
+                }
+            }
+        }
+    }
     
     public void gatherConfiguration(ConfigurationFile configuration) {
         List<ProgramInput> currentInput = debugLogicController.getProgramInput();
@@ -0,0 +1,100 @@
+package dibugger.debuglogic.batch;
+
+import java.util.List;
+
+import dibugger.debuglogic.interpreter.TermValue;
+
+/**
+ * The result of a single run of a batch: the value returned by the program or
+ * the exception it failed with, and the number of steps it took.
+ *
+ * @author scheler
+ *
+ */
+public final class BatchResult {
+
+    private final long index;
+    private final List<TermValue> input;
+    private final TermValue returnValue;
+    private final long steps;
+    private final Exception exception;
+
+    /**
+     * Creates the result of a run.
+     *
+     * @param index
+     *            the position of the input in the batch
+     * @param input
+     *            the input of the run
+     * @param returnValue
+     *            the value returned by the program, null if it returned
+     *            nothing or failed
+     * @param steps
+     *            the number of states the run passed through
+     * @param exception
+     *            the exception the run failed with, null if it succeeded
+     */
+    BatchResult(long index, List<TermValue> input, TermValue returnValue, long steps, Exception exception) {
+        this.index = index;
+        this.input = input;
+        this.returnValue = returnValue;
+        this.steps = steps;
+        this.exception = exception;
+    }
+
+    /**
+     * Returns the position of the input in the batch, starting at 0.
+     *
+     * @return the index
+     */
+    public long getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Returns the input of the run.
+     *
+     * @return the values of the parameters of the main routine
+     */
+    public List<TermValue> getInput() {
+        return this.input;
+    }
+
+    /**
+     * Returns the value returned by the program.
+     *
+     * @return the value, null if the program returned nothing or failed
+     */
+    public TermValue getReturnValue() {
+        return this.returnValue;
+    }
+
+    /**
+     * Returns the number of steps of the run, i.e. the number of states a
+     * trace of the run would have. If the run failed, the steps until the
+     * failure are counted.
+     *
+     * @return the number of steps
+     */
+    public long getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * Returns the exception the run failed with.
+     *
+     * @return the exception, null if the run succeeded
+     */
+    public Exception getException() {
+        return this.exception;
+    }
+
+    /**
+     * Returns true if the run succeeded.
+     *
+     * @return true if the run did not fail
+     */
+    public boolean isSuccessful() {
+        return this.exception == null;
+    }
+}
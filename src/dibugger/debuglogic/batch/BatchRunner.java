@@ -0,0 +1,247 @@
+package dibugger.debuglogic.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.interpreter.CompiledProgram;
+import dibugger.debuglogic.interpreter.CountingTraceSink;
+import dibugger.debuglogic.interpreter.TermValue;
+
+/**
+ * Runs a compiled program with many inputs in parallel. The runs only count
+ * their steps, no traces are recorded.
+ *
+ * The inputs are taken from an iterator while the batch runs and at most
+ * {@link #getMaxPending()} inputs are taken ahead of the results consumed, so
+ * neither the inputs nor the results of a batch have to fit into memory.
+ *
+ * @author scheler
+ *
+ */
+public class BatchRunner {
+
+    /**
+     * Maximum number of iterations of a loop by default.
+     */
+    public static final int DEFAULT_MAX_ITERATIONS = 100;
+    /**
+     * Maximum number of nested routine calls by default.
+     */
+    public static final int DEFAULT_MAX_FUNC_CALLS = 100;
+
+    private final CompiledProgram program;
+    private int parallelism;
+    private int maxPending;
+    private int maxIterations;
+    private int maxFuncCalls;
+
+    /**
+     * Creates a runner for a program.
+     *
+     * @param program
+     *            the program to run
+     * @param parallelism
+     *            the number of threads running the program
+     */
+    public BatchRunner(CompiledProgram program, int parallelism) {
+        this.program = program;
+        this.maxIterations = DEFAULT_MAX_ITERATIONS;
+        this.maxFuncCalls = DEFAULT_MAX_FUNC_CALLS;
+        setParallelism(parallelism);
+    }
+
+    /**
+     * Runs the program with all inputs of an iterator. The results are passed
+     * to the consumer on the calling thread in the order the runs finish. The
+     * iterator is only advanced by the calling thread, too.
+     *
+     * @param inputs
+     *            the inputs, each the values of the parameters of the main
+     *            routine
+     * @param consumer
+     *            the consumer of the results
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting for a
+     *             result, the pending runs are cancelled
+     */
+    public void run(Iterator<List<TermValue>> inputs, Consumer<BatchResult> consumer) throws InterruptedException {
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(this.parallelism, task -> {
+            Thread thread = new Thread(task, "batch-runner-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<BatchResult> completion = new ExecutorCompletionService<BatchResult>(executor);
+        try {
+            long index = 0;
+            int pending = 0;
+            while (true) {
+                // only take as many inputs as can be handled soon
+                while (pending < this.maxPending && inputs.hasNext()) {
+                    final long runIndex = index++;
+                    final List<TermValue> input = inputs.next();
+                    completion.submit(() -> runSingle(runIndex, input));
+                    ++pending;
+                }
+                if (pending == 0) {
+                    break;
+                }
+                BatchResult result = waitFor(completion);
+                --pending;
+                consumer.accept(result);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the program with all inputs and returns the results in the order
+     * of the inputs.
+     *
+     * @param inputs
+     *            the inputs, each the values of the parameters of the main
+     *            routine
+     * @return the results
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting for a
+     *             result
+     */
+    public List<BatchResult> run(Iterable<List<TermValue>> inputs) throws InterruptedException {
+        final List<BatchResult> results = new ArrayList<BatchResult>();
+        run(inputs.iterator(), result -> results.add(result));
+        Collections.sort(results, Comparator.comparingLong(BatchResult::getIndex));
+        return results;
+    }
+
+    private BatchResult runSingle(long index, List<TermValue> input) {
+        CountingTraceSink sink = new CountingTraceSink();
+        try {
+            TermValue value = this.program.run(input, this.maxIterations, this.maxFuncCalls, sink);
+            return new BatchResult(index, input, value, sink.getCount(), null);
+        } catch (DIbuggerLogicException | RuntimeException e) {
+            return new BatchResult(index, input, null, sink.getCount(), e);
+        }
+    }
+
+    private static BatchResult waitFor(CompletionService<BatchResult> completion) throws InterruptedException {
+        try {
+            return completion.take().get();
+        } catch (ExecutionException e) {
+            // runs catch their exceptions, so this is an error like running
+            // out of memory
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Returns the program run by this runner.
+     *
+     * @return the program
+     */
+    public CompiledProgram getProgram() {
+        return this.program;
+    }
+
+    /**
+     * Sets the number of threads running the program. Takes effect at the
+     * next batch. Also resets the maximum number of pending runs to four per
+     * thread.
+     *
+     * @param parallelism
+     *            the number of threads, at least 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        this.maxPending = 4 * parallelism;
+    }
+
+    /**
+     * Returns the number of threads running the program.
+     *
+     * @return the number of threads
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Sets the maximum number of inputs taken from the iterator whose results
+     * were not consumed yet.
+     *
+     * @param maxPending
+     *            the maximum number of pending runs, at least 1
+     */
+    public void setMaxPending(int maxPending) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("maxPending must be at least 1");
+        }
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Returns the maximum number of inputs taken from the iterator whose
+     * results were not consumed yet.
+     *
+     * @return the maximum number of pending runs
+     */
+    public int getMaxPending() {
+        return this.maxPending;
+    }
+
+    /**
+     * Sets the maximum number of iterations of a loop.
+     *
+     * @param maxIterations
+     *            the maximum iterations
+     */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Returns the maximum number of iterations of a loop.
+     *
+     * @return the maximum iterations
+     */
+    public int getMaxIterations() {
+        return this.maxIterations;
+    }
+
+    /**
+     * Sets the maximum number of nested routine calls.
+     *
+     * @param maxFuncCalls
+     *            the maximum number of routine calls
+     */
+    public void setMaxFuncCalls(int maxFuncCalls) {
+        this.maxFuncCalls = maxFuncCalls;
+    }
+
+    /**
+     * Returns the maximum number of nested routine calls.
+     *
+     * @return the maximum number of routine calls
+     */
+    public int getMaxFuncCalls() {
+        return this.maxFuncCalls;
+    }
+}
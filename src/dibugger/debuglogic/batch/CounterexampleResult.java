@@ -0,0 +1,149 @@
+package dibugger.debuglogic.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import dibugger.debuglogic.interpreter.TermValue;
+
+/**
+ * The result of a counterexample search: the first input found and how fast
+ * the candidates were run.
+ *
+ * @author scheler
+ *
+ */
+public final class CounterexampleResult {
+
+    private final long index;
+    private final Map<String, TermValue> input;
+    private final List<String> inputStrings;
+    private final long candidates;
+    private final long failedCandidates;
+    private final long steps;
+    private final long nanos;
+
+    /**
+     * Creates the result of a search.
+     *
+     * @param index
+     *            the position of the input found among the candidates, -1 if
+     *            none was found
+     * @param input
+     *            the values of the input found by identifier, null if none
+     *            was found
+     * @param inputStrings
+     *            the input found as input of a program, e.g. "x = 5"
+     * @param candidates
+     *            the number of candidates run
+     * @param failedCandidates
+     *            the number of candidates a program failed with
+     * @param steps
+     *            the number of states all runs passed through
+     * @param nanos
+     *            the time the search took
+     */
+    CounterexampleResult(long index, Map<String, TermValue> input, List<String> inputStrings, long candidates,
+            long failedCandidates, long steps, long nanos) {
+        this.index = index;
+        this.input = input;
+        this.inputStrings = inputStrings;
+        this.candidates = candidates;
+        this.failedCandidates = failedCandidates;
+        this.steps = steps;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Checks whether a counterexample was found.
+     *
+     * @return true if an input fired the condition
+     */
+    public boolean isFound() {
+        return this.index >= 0;
+    }
+
+    /**
+     * Returns the position of the input found among the candidates drawn,
+     * starting at 0.
+     *
+     * @return the index, -1 if no input was found
+     */
+    public long getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Returns the values of the input found.
+     *
+     * @return the values by the identifiers of the parameters, null if no
+     *         input was found
+     */
+    public Map<String, TermValue> getInput() {
+        return this.input;
+    }
+
+    /**
+     * Returns the input found in the format of the input of a program, e.g.
+     * "x = 5". Every program takes the values of its parameters from it.
+     *
+     * @return a copy of the input, empty if no input was found
+     */
+    public List<String> getInputStrings() {
+        return this.inputStrings == null ? new ArrayList<String>() : new ArrayList<String>(this.inputStrings);
+    }
+
+    /**
+     * Returns the number of candidates run.
+     *
+     * @return the number of candidates
+     */
+    public long getCandidates() {
+        return this.candidates;
+    }
+
+    /**
+     * Returns the number of candidates at least one program failed with.
+     *
+     * @return the number of failed candidates
+     */
+    public long getFailedCandidates() {
+        return this.failedCandidates;
+    }
+
+    /**
+     * Returns the number of states all runs of all programs passed through.
+     *
+     * @return the number of steps
+     */
+    public long getSteps() {
+        return this.steps;
+    }
+
+    /**
+     * Returns the time the search took.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getNanos() {
+        return this.nanos;
+    }
+
+    /**
+     * Returns the number of candidates run per second.
+     *
+     * @return the throughput of the search
+     */
+    public double getCandidatesPerSecond() {
+        return this.nanos == 0 ? 0 : this.candidates * 1e9 / this.nanos;
+    }
+
+    /**
+     * Returns the number of states passed through per second.
+     *
+     * @return the throughput of the interpreter during the search
+     */
+    public double getStepsPerSecond() {
+        return this.nanos == 0 ? 0 : this.steps * 1e9 / this.nanos;
+    }
+}
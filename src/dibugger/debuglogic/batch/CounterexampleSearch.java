@@ -0,0 +1,526 @@
+package dibugger.debuglogic.batch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.interpreter.CompiledProgram;
+import dibugger.debuglogic.interpreter.ConditionalBreakpoint;
+import dibugger.debuglogic.interpreter.CountingTraceSink;
+import dibugger.debuglogic.interpreter.Scope;
+import dibugger.debuglogic.interpreter.TermValue;
+import dibugger.debuglogic.interpreter.TraceSink;
+import dibugger.debuglogic.interpreter.TraceState;
+import dibugger.debuglogic.interpreter.TraceStatePosition;
+
+/**
+ * Searches inputs for which programs differ. Candidate inputs are drawn from
+ * ranges of the parameters and every candidate runs all programs, without
+ * recording traces. An input is a counterexample if a relational condition
+ * holds in some step of the run, e.g. "A.a != B.b", or, without a condition,
+ * if the programs return different values.
+ *
+ * The condition is checked while the programs run in lockstep, like stepping
+ * through them with step size 1: every step moves every program to its next
+ * state, a finished program stays at its last state. The first program runs
+ * on the thread of the candidate, the others run on threads of their own and
+ * pass their states on through a queue of at most {@value #STREAM_CAPACITY}
+ * states, so no trace is kept. The search of a candidate stops at the first
+ * step the condition holds in.
+ *
+ * The candidates are drawn by the calling thread from a pseudorandom number
+ * generator with a fixed seed and run in parallel. The search stops at the
+ * first counterexample in the order the candidates were drawn, so the same
+ * seed always finds the same input.
+ *
+ * All programs get the same input: a parameter of several programs with the
+ * same identifier takes the same value in all of them. Floating point
+ * parameters take whole numbers, so the input can be written as literals.
+ * Parameters without a range take values from -100 to 100.
+ *
+ * @author scheler
+ *
+ */
+public class CounterexampleSearch {
+
+    /**
+     * Number of states a program may run ahead of the first program while the
+     * condition is checked.
+     */
+    public static final int STREAM_CAPACITY = 256;
+
+    private final List<CompiledProgram> programs;
+    private final List<String> programIds;
+    private final Map<String, long[]> ranges;
+    private ConditionalBreakpoint condition;
+    private long seed;
+    private long maxCandidates;
+    private int parallelism;
+    private int maxIterations;
+    private int maxFuncCalls;
+
+    /**
+     * Creates a search for programs.
+     *
+     * @param programs
+     *            the programs compared
+     * @param programIds
+     *            the ids of the programs, as used by the condition
+     */
+    public CounterexampleSearch(List<CompiledProgram> programs, List<String> programIds) {
+        this.programs = programs;
+        this.programIds = programIds;
+        this.ranges = new HashMap<String, long[]>();
+        this.maxCandidates = 10000;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.maxIterations = BatchRunner.DEFAULT_MAX_ITERATIONS;
+        this.maxFuncCalls = BatchRunner.DEFAULT_MAX_FUNC_CALLS;
+    }
+
+    /**
+     * Runs candidates until a counterexample is found or the maximum number of
+     * candidates was drawn.
+     *
+     * @return the result, with the counterexample if one was found
+     * @throws DIbuggerLogicException
+     *             if a program has no main routine
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting for a
+     *             candidate, the pending candidates are cancelled
+     */
+    public CounterexampleResult run() throws DIbuggerLogicException, InterruptedException {
+        InputSpace space = new InputSpace(this.programs, this.ranges);
+        // a copy, so the breakpoint of the caller keeps its binding
+        ConditionalBreakpoint condition = null;
+        if (this.condition != null) {
+            condition = new ConditionalBreakpoint(this.condition.getSpecifier(), this.condition.getScopes());
+            condition.bind(this.programIds);
+        }
+        final ConditionalBreakpoint boundCondition = condition;
+
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(this.seed);
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(this.parallelism, task -> {
+            Thread thread = new Thread(task, "counterexample-search-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger streamThreads = new AtomicInteger();
+        ExecutorService streams = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "counterexample-stream-" + streamThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Outcome> completion = new ExecutorCompletionService<Outcome>(executor);
+        long drawn = 0;
+        long candidates = 0;
+        long failed = 0;
+        long steps = 0;
+        Outcome found = null;
+        try {
+            int pending = 0;
+            int maxPending = 4 * this.parallelism;
+            while (true) {
+                // no more candidates after a counterexample, only the ones
+                // drawn before it may still be one
+                while (found == null && pending < maxPending && drawn < this.maxCandidates) {
+                    final long index = drawn++;
+                    final Map<String, Long> raw = space.draw(random);
+                    completion.submit(() -> runCandidate(space, index, raw, boundCondition, streams));
+                    ++pending;
+                }
+                if (pending == 0) {
+                    break;
+                }
+                Outcome outcome = waitFor(completion);
+                --pending;
+                ++candidates;
+                steps += outcome.steps;
+                if (outcome.failed) {
+                    ++failed;
+                }
+                if (outcome.fired && (found == null || outcome.index < found.index)) {
+                    found = outcome;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            streams.shutdownNow();
+        }
+        long nanos = System.nanoTime() - start;
+        if (found == null) {
+            return new CounterexampleResult(-1, null, null, candidates, failed, steps, nanos);
+        }
+        return new CounterexampleResult(found.index, space.valuesOf(found.raw), space.inputStringsOf(found.raw),
+                candidates, failed, steps, nanos);
+    }
+
+    private Outcome runCandidate(InputSpace space, long index, Map<String, Long> raw,
+            ConditionalBreakpoint condition, ExecutorService streams) throws DIbuggerLogicException {
+        if (condition != null) {
+            return runLockstep(space, index, raw, condition, streams);
+        }
+        List<String> returnValues = new ArrayList<String>();
+        long steps = 0;
+        boolean failed = false;
+        for (CompiledProgram program : this.programs) {
+            List<TermValue> args = space.argumentsOf(program, raw);
+            CountingTraceSink sink = new CountingTraceSink();
+            try {
+                TermValue value = program.run(args, this.maxIterations, this.maxFuncCalls, sink);
+                returnValues.add(String.valueOf(value));
+            } catch (DIbuggerLogicException | RuntimeException e) {
+                failed = true;
+                returnValues.add(null);
+            }
+            steps += sink.getCount();
+        }
+        boolean fired = false;
+        for (String value : returnValues) {
+            if (value == null ? returnValues.get(0) != null : !value.equals(returnValues.get(0))) {
+                fired = true;
+            }
+        }
+        return new Outcome(index, raw, fired, failed, steps);
+    }
+
+    /**
+     * Runs all programs in lockstep and checks the condition in every step.
+     */
+    private Outcome runLockstep(InputSpace space, long index, Map<String, Long> raw,
+            ConditionalBreakpoint condition, ExecutorService streams) throws DIbuggerLogicException {
+        List<StateStream> others = new ArrayList<StateStream>();
+        List<Future<?>> runs = new ArrayList<Future<?>>();
+        LockstepSink sink = new LockstepSink(condition, others);
+        boolean failed = false;
+        try {
+            for (int p = 1; p < this.programs.size(); ++p) {
+                CompiledProgram program = this.programs.get(p);
+                List<TermValue> args = space.argumentsOf(program, raw);
+                StateStream stream = new StateStream();
+                others.add(stream);
+                runs.add(streams.submit(() -> stream.run(program, args, this.maxIterations, this.maxFuncCalls)));
+            }
+            CompiledProgram first = this.programs.get(0);
+            try {
+                first.run(space.argumentsOf(first, raw), this.maxIterations, this.maxFuncCalls, sink);
+            } catch (DIbuggerLogicException | RuntimeException e) {
+                if (!sink.isFired()) {
+                    if (e instanceof CancellationException) {
+                        throw (CancellationException) e;
+                    }
+                    failed = true;
+                }
+            }
+            if (!sink.isFired()) {
+                // the other programs take their remaining steps alone
+                sink.drain();
+                for (StateStream stream : others) {
+                    failed |= stream.isFailed();
+                }
+            }
+        } finally {
+            for (Future<?> run : runs) {
+                run.cancel(true);
+            }
+        }
+        return new Outcome(index, raw, sink.isFired(), failed, sink.getSteps());
+    }
+
+    private static Outcome waitFor(CompletionService<Outcome> completion) throws InterruptedException {
+        try {
+            return completion.take().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Sets the range of a parameter of the programs.
+     *
+     * @param identifier
+     *            the identifier of the parameter
+     * @param min
+     *            the smallest value drawn
+     * @param max
+     *            the largest value drawn, for characters their codes and for
+     *            booleans the parity decides
+     */
+    public void setRange(String identifier, long min, long max) {
+        if (min > max) {
+            throw new IllegalArgumentException("min must not be greater than max");
+        }
+        this.ranges.put(identifier, new long[] { min, max });
+    }
+
+    /**
+     * Sets the range of a parameter of the programs in the format of the input
+     * value suggestions, e.g. "[0,10]". Both bounds are drawn.
+     *
+     * @param identifier
+     *            the identifier of the parameter
+     * @param range
+     *            the range
+     * @throws DIbuggerLogicException
+     *             if the range has the wrong format
+     */
+    public void setRange(String identifier, String range) throws DIbuggerLogicException {
+        this.ranges.put(identifier, InputSpace.parseRange(range));
+    }
+
+    /**
+     * Sets the relational condition an input has to fire, checked in every
+     * step of the programs run in lockstep. The condition is copied when the
+     * search runs, so it is not bound to the programs of the search. Without
+     * a condition the return values of the programs are compared.
+     *
+     * @param condition
+     *            the condition, null to compare the return values
+     */
+    public void setCondition(ConditionalBreakpoint condition) {
+        this.condition = condition;
+    }
+
+    /**
+     * Sets the seed of the candidates drawn.
+     *
+     * @param seed
+     *            the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the maximum number of candidates drawn.
+     *
+     * @param maxCandidates
+     *            the maximum number of candidates
+     */
+    public void setMaxCandidates(long maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Sets the number of threads running the candidates.
+     *
+     * @param parallelism
+     *            the number of threads, at least 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the maximum number of iterations of a loop.
+     *
+     * @param maxIterations
+     *            the maximum iterations
+     */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Sets the maximum number of nested routine calls.
+     *
+     * @param maxFuncCalls
+     *            the maximum number of routine calls
+     */
+    public void setMaxFuncCalls(int maxFuncCalls) {
+        this.maxFuncCalls = maxFuncCalls;
+    }
+
+    /**
+     * Sink of the first program, which moves the other programs along with it
+     * and checks the condition after every step.
+     */
+    private static final class LockstepSink implements TraceSink {
+        private final ConditionalBreakpoint condition;
+        private final List<StateStream> others;
+        private final List<TraceState> states;
+        private boolean fired;
+        private long steps;
+
+        LockstepSink(ConditionalBreakpoint condition, List<StateStream> others) {
+            this.condition = condition;
+            this.others = others;
+            this.states = new ArrayList<TraceState>();
+            this.states.add(null);
+        }
+
+        @Override
+        public void add(TraceStatePosition position, int lineNumber, Scope scope) {
+            this.states.set(0, new TraceState(position, lineNumber, scope));
+            ++this.steps;
+            step();
+            if (check()) {
+                // stops the first program
+                throw new CancellationException();
+            }
+        }
+
+        /**
+         * Moves the other programs until all of them are finished or the
+         * condition holds.
+         */
+        void drain() {
+            while (!this.fired && step()) {
+                check();
+            }
+        }
+
+        /**
+         * Moves every other program to its next state.
+         *
+         * @return true if a program moved
+         */
+        private boolean step() {
+            boolean moved = false;
+            for (int p = 0; p < this.others.size(); ++p) {
+                StateStream stream = this.others.get(p);
+                if (stream.next()) {
+                    ++this.steps;
+                    moved = true;
+                }
+                if (this.states.size() <= p + 1) {
+                    this.states.add(null);
+                }
+                this.states.set(p + 1, stream.getState());
+            }
+            return moved;
+        }
+
+        private boolean check() {
+            if (!this.states.contains(null) && this.condition.isSatisfied(this.states)) {
+                this.fired = true;
+            }
+            return this.fired;
+        }
+
+        boolean isFired() {
+            return this.fired;
+        }
+
+        long getSteps() {
+            return this.steps;
+        }
+    }
+
+    /**
+     * Sink of a program running on a thread of its own, which passes its
+     * states on to the sink of the first program.
+     */
+    private static final class StateStream implements TraceSink {
+        private static final Object END = new Object();
+
+        private final BlockingQueue<Object> queue;
+        private volatile boolean failed;
+        private TraceState state;
+        private boolean ended;
+
+        StateStream() {
+            this.queue = new ArrayBlockingQueue<Object>(STREAM_CAPACITY);
+        }
+
+        void run(CompiledProgram program, List<TermValue> args, int maxIterations, int maxFuncCalls) {
+            try {
+                program.run(args, maxIterations, maxFuncCalls, this);
+            } catch (CancellationException e) {
+                return;
+            } catch (DIbuggerLogicException | RuntimeException e) {
+                this.failed = true;
+            }
+            try {
+                put(END);
+            } catch (CancellationException e) {
+                // the search of the candidate is over
+            }
+        }
+
+        @Override
+        public void add(TraceStatePosition position, int lineNumber, Scope scope) {
+            put(new TraceState(position, lineNumber, scope));
+        }
+
+        private void put(Object element) {
+            try {
+                this.queue.put(element);
+            } catch (InterruptedException e) {
+                throw new CancellationException();
+            }
+        }
+
+        /**
+         * Takes the next state of the program, waiting for it if necessary.
+         *
+         * @return false if the program is finished
+         */
+        boolean next() {
+            if (this.ended) {
+                return false;
+            }
+            Object next;
+            try {
+                next = this.queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+            if (next == END) {
+                this.ended = true;
+                return false;
+            }
+            this.state = (TraceState) next;
+            return true;
+        }
+
+        TraceState getState() {
+            return this.state;
+        }
+
+        boolean isFailed() {
+            return this.failed;
+        }
+    }
+
+    /**
+     * The outcome of a single candidate.
+     */
+    private static final class Outcome {
+        private final long index;
+        private final Map<String, Long> raw;
+        private final boolean fired;
+        private final boolean failed;
+        private final long steps;
+
+        Outcome(long index, Map<String, Long> raw, boolean fired, boolean failed, long steps) {
+            this.index = index;
+            this.raw = raw;
+            this.fired = fired;
+            this.failed = failed;
+            this.steps = steps;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package dibugger.debuglogic.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import dibugger.debuglogic.interpreter.TermValue;
+
+/**
+ * The result of a coverage guided input generation: a small set of inputs
+ * which together cover all branch outcomes the generation reached in all
+ * programs, and how fast the programs were run.
+ *
+ * @author scheler
+ *
+ */
+public final class CoverageCorpus {
+
+    private final List<Map<String, TermValue>> values;
+    private final List<List<String>> inputs;
+    private final int coveredOutcomes;
+    private final int corpusSize;
+    private final long executions;
+    private final long nanos;
+
+    /**
+     * Creates the result of a generation.
+     *
+     * @param values
+     *            the values of the inputs by identifier
+     * @param inputs
+     *            the inputs in the format of the input of a program
+     * @param coveredOutcomes
+     *            the number of branch outcomes covered by the inputs
+     * @param corpusSize
+     *            the number of inputs which added coverage while generating
+     * @param executions
+     *            the number of candidates run
+     * @param nanos
+     *            the time the generation took
+     */
+    CoverageCorpus(List<Map<String, TermValue>> values, List<List<String>> inputs, int coveredOutcomes,
+            int corpusSize, long executions, long nanos) {
+        this.values = values;
+        this.inputs = inputs;
+        this.coveredOutcomes = coveredOutcomes;
+        this.corpusSize = corpusSize;
+        this.executions = executions;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the number of inputs.
+     *
+     * @return the size of the input set
+     */
+    public int size() {
+        return this.inputs.size();
+    }
+
+    /**
+     * Returns the values of an input.
+     *
+     * @param index
+     *            the index of the input
+     * @return the values by the identifiers of the parameters
+     */
+    public Map<String, TermValue> getValues(int index) {
+        return this.values.get(index);
+    }
+
+    /**
+     * Returns an input in the format of the input of a program, e.g. "x = 5".
+     * Every program takes the values of its parameters from it.
+     *
+     * @param index
+     *            the index of the input
+     * @return a copy of the input
+     */
+    public List<String> getInput(int index) {
+        return new ArrayList<String>(this.inputs.get(index));
+    }
+
+    /**
+     * Returns the value of a parameter in an input as a literal, e.g. "5".
+     *
+     * @param index
+     *            the index of the input
+     * @param identifier
+     *            the identifier of the parameter
+     * @return the literal, null if no program has such a parameter
+     */
+    public String getLiteral(int index, String identifier) {
+        TermValue value = this.values.get(index).get(identifier);
+        return value == null ? null : InputSpace.toLiteral(value);
+    }
+
+    /**
+     * Returns the number of branch outcomes covered by the inputs in all
+     * programs.
+     *
+     * @return the number of outcomes
+     */
+    public int getCoveredOutcomes() {
+        return this.coveredOutcomes;
+    }
+
+    /**
+     * Returns the number of inputs which added coverage while generating,
+     * before the set was reduced.
+     *
+     * @return the size of the corpus
+     */
+    public int getCorpusSize() {
+        return this.corpusSize;
+    }
+
+    /**
+     * Returns the number of candidates run.
+     *
+     * @return the number of executions of all programs
+     */
+    public long getExecutions() {
+        return this.executions;
+    }
+
+    /**
+     * Returns the time the generation took.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getNanos() {
+        return this.nanos;
+    }
+
+    /**
+     * Returns the number of candidates run per second.
+     *
+     * @return the throughput of the generation
+     */
+    public double getExecutionsPerSecond() {
+        return this.nanos == 0 ? 0 : this.executions * 1e9 / this.nanos;
+    }
+}
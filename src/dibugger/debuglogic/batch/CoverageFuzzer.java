@@ -0,0 +1,283 @@
+package dibugger.debuglogic.batch;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.interpreter.BranchCoverage;
+import dibugger.debuglogic.interpreter.CompiledProgram;
+import dibugger.debuglogic.interpreter.CountingTraceSink;
+import dibugger.debuglogic.interpreter.TermValue;
+
+/**
+ * Generates inputs which cover the branches of programs. Every candidate runs
+ * all programs and records the outcomes of their if statements and while
+ * loops, see {@link BranchCoverage}. Candidates covering an outcome no
+ * candidate covered before are kept in a corpus, and new candidates are
+ * mostly mutations of the inputs of the corpus.
+ *
+ * The candidates are generated in rounds by the calling thread from a
+ * pseudorandom number generator with a fixed seed, the candidates of a round
+ * run in parallel. The coverage of a round is merged in the order the
+ * candidates were generated, so the same seed always generates the same
+ * inputs. At the end the corpus is reduced to a small set of inputs covering
+ * the same outcomes.
+ *
+ * @author scheler
+ *
+ */
+public class CoverageFuzzer {
+
+    /**
+     * Number of candidates generated per round.
+     */
+    public static final int ROUND_SIZE = 64;
+
+    private final List<CompiledProgram> programs;
+    private final Map<String, long[]> ranges;
+    private long seed;
+    private long maxExecutions;
+    private int parallelism;
+    private int maxIterations;
+    private int maxFuncCalls;
+
+    /**
+     * Creates a generation for programs.
+     *
+     * @param programs
+     *            the programs covered
+     */
+    public CoverageFuzzer(List<CompiledProgram> programs) {
+        this.programs = programs;
+        this.ranges = new HashMap<String, long[]>();
+        this.maxExecutions = 10000;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        this.maxIterations = BatchRunner.DEFAULT_MAX_ITERATIONS;
+        this.maxFuncCalls = BatchRunner.DEFAULT_MAX_FUNC_CALLS;
+    }
+
+    /**
+     * Runs candidates until the maximum number of executions is reached.
+     *
+     * @return the inputs covering the outcomes found
+     * @throws DIbuggerLogicException
+     *             if a program has no main routine
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting for a
+     *             candidate, the pending candidates are cancelled
+     */
+    public CoverageCorpus run() throws DIbuggerLogicException, InterruptedException {
+        InputSpace space = new InputSpace(this.programs, this.ranges);
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(this.seed);
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(this.parallelism, task -> {
+            Thread thread = new Thread(task, "coverage-fuzzer-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Map<String, Long>> corpus = new ArrayList<Map<String, Long>>();
+        List<BitSet> corpusCoverage = new ArrayList<BitSet>();
+        BitSet covered = new BitSet();
+        long executions = 0;
+        try {
+            while (executions < this.maxExecutions) {
+                int round = (int) Math.min(ROUND_SIZE, this.maxExecutions - executions);
+                List<Map<String, Long>> candidates = new ArrayList<Map<String, Long>>();
+                List<Future<BitSet>> results = new ArrayList<Future<BitSet>>();
+                for (int c = 0; c < round; ++c) {
+                    final Map<String, Long> candidate;
+                    if (corpus.isEmpty() || random.nextInt(8) == 0) {
+                        candidate = space.draw(random);
+                    } else {
+                        candidate = space.mutate(corpus.get(random.nextInt(corpus.size())),
+                                corpus.get(random.nextInt(corpus.size())), random);
+                    }
+                    candidates.add(candidate);
+                    results.add(executor.submit(() -> runCandidate(space, candidate)));
+                }
+                for (int c = 0; c < round; ++c) {
+                    BitSet coverage = waitFor(results.get(c));
+                    ++executions;
+                    BitSet added = (BitSet) coverage.clone();
+                    added.andNot(covered);
+                    if (!added.isEmpty()) {
+                        corpus.add(candidates.get(c));
+                        corpusCoverage.add(coverage);
+                        covered.or(coverage);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Map<String, TermValue>> values = new ArrayList<Map<String, TermValue>>();
+        List<List<String>> inputs = new ArrayList<List<String>>();
+        for (int index : reduce(corpusCoverage, covered)) {
+            values.add(space.valuesOf(corpus.get(index)));
+            inputs.add(space.inputStringsOf(corpus.get(index)));
+        }
+        return new CoverageCorpus(values, inputs, covered.cardinality(), corpus.size(), executions,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Runs all programs with a candidate.
+     *
+     * @return the outcomes covered by the programs, bit
+     *         {@code outcome * programs + program} for the outcomes of
+     *         {@link BranchCoverage#toBitSet()}
+     */
+    private BitSet runCandidate(InputSpace space, Map<String, Long> candidate) throws DIbuggerLogicException {
+        BitSet joint = new BitSet();
+        int count = this.programs.size();
+        for (int p = 0; p < count; ++p) {
+            CompiledProgram program = this.programs.get(p);
+            BranchCoverage coverage = new BranchCoverage();
+            try {
+                program.run(space.argumentsOf(program, candidate), this.maxIterations, this.maxFuncCalls,
+                        new CountingTraceSink(), coverage);
+            } catch (DIbuggerLogicException | RuntimeException e) {
+                // the branches up to the failure are covered anyway
+            }
+            BitSet bits = coverage.toBitSet();
+            for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+                joint.set(bit * count + p);
+            }
+        }
+        return joint;
+    }
+
+    /**
+     * Chooses a small subset of the corpus covering all outcomes, always
+     * taking the input covering most outcomes not covered yet.
+     *
+     * @return the indices of the inputs chosen
+     */
+    private static List<Integer> reduce(List<BitSet> corpusCoverage, BitSet covered) {
+        List<Integer> chosen = new ArrayList<Integer>();
+        BitSet missing = (BitSet) covered.clone();
+        while (!missing.isEmpty()) {
+            int best = -1;
+            int bestCount = 0;
+            for (int i = 0; i < corpusCoverage.size(); ++i) {
+                BitSet adds = (BitSet) corpusCoverage.get(i).clone();
+                adds.and(missing);
+                if (adds.cardinality() > bestCount) {
+                    best = i;
+                    bestCount = adds.cardinality();
+                }
+            }
+            chosen.add(best);
+            missing.andNot(corpusCoverage.get(best));
+        }
+        return chosen;
+    }
+
+    private static BitSet waitFor(Future<BitSet> result) throws InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Sets the range of a parameter of the programs.
+     *
+     * @param identifier
+     *            the identifier of the parameter
+     * @param min
+     *            the smallest value generated
+     * @param max
+     *            the largest value generated
+     */
+    public void setRange(String identifier, long min, long max) {
+        if (min > max) {
+            throw new IllegalArgumentException("min must not be greater than max");
+        }
+        this.ranges.put(identifier, new long[] { min, max });
+    }
+
+    /**
+     * Sets the range of a parameter of the programs in the format of the input
+     * value suggestions, e.g. "[0,10]". Both bounds are generated.
+     *
+     * @param identifier
+     *            the identifier of the parameter
+     * @param range
+     *            the range
+     * @throws DIbuggerLogicException
+     *             if the range has the wrong format
+     */
+    public void setRange(String identifier, String range) throws DIbuggerLogicException {
+        this.ranges.put(identifier, InputSpace.parseRange(range));
+    }
+
+    /**
+     * Sets the seed of the candidates generated.
+     *
+     * @param seed
+     *            the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of candidates run.
+     *
+     * @param maxExecutions
+     *            the number of candidates
+     */
+    public void setMaxExecutions(long maxExecutions) {
+        this.maxExecutions = maxExecutions;
+    }
+
+    /**
+     * Sets the number of threads running the candidates.
+     *
+     * @param parallelism
+     *            the number of threads, at least 1
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the maximum number of iterations of a loop.
+     *
+     * @param maxIterations
+     *            the maximum iterations
+     */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Sets the maximum number of nested routine calls.
+     *
+     * @param maxFuncCalls
+     *            the maximum number of routine calls
+     */
+    public void setMaxFuncCalls(int maxFuncCalls) {
+        this.maxFuncCalls = maxFuncCalls;
+    }
+}
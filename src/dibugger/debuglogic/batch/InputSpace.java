@@ -0,0 +1,296 @@
+package dibugger.debuglogic.batch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.interpreter.BooleanValue;
+import dibugger.debuglogic.interpreter.CharValue;
+import dibugger.debuglogic.interpreter.CompiledProgram;
+import dibugger.debuglogic.interpreter.DoubleValue;
+import dibugger.debuglogic.interpreter.FloatValue;
+import dibugger.debuglogic.interpreter.IntValue;
+import dibugger.debuglogic.interpreter.LongValue;
+import dibugger.debuglogic.interpreter.Scope;
+import dibugger.debuglogic.interpreter.TermValue;
+import dibugger.debuglogic.interpreter.Type;
+
+/**
+ * The inputs of several programs: the parameters of their main routines with
+ * a range each. An input maps the identifiers of the parameters to whole
+ * numbers, which are converted to the types of the parameters. A parameter of
+ * several programs with the same identifier takes the same value in all of
+ * them, floating point parameters take whole numbers, characters take their
+ * codes and booleans the parity of the number.
+ *
+ * @author scheler
+ *
+ */
+final class InputSpace {
+
+    /**
+     * Range of the parameters without a range of their own.
+     */
+    static final long DEFAULT_MIN = -100;
+    /**
+     * Range of the parameters without a range of their own.
+     */
+    static final long DEFAULT_MAX = 100;
+
+    // small steps and values at the edges of ranges, which often decide a
+    // branch
+    private static final long MAX_DELTA = 35;
+    private static final long[] INTERESTING = { 0, 1, -1, 2, 10, 16, 100, 127, 128, 255, 256, 1000, 1024,
+            Integer.MAX_VALUE, Integer.MIN_VALUE };
+
+    private final Map<String, Type> parameters;
+    private final Map<String, long[]> ranges;
+
+    /**
+     * Creates the inputs of programs.
+     *
+     * @param programs
+     *            the programs
+     * @param ranges
+     *            the ranges of the parameters by their identifiers, each the
+     *            smallest and the largest value
+     * @throws DIbuggerLogicException
+     *             if a program has no main routine
+     */
+    InputSpace(List<CompiledProgram> programs, Map<String, long[]> ranges) throws DIbuggerLogicException {
+        // the parameters of all programs with the type of their first
+        // declaration
+        this.parameters = new LinkedHashMap<String, Type>();
+        for (CompiledProgram program : programs) {
+            List<String> identifiers = program.getParameterIdentifiers();
+            List<Type> types = program.getParameterTypes();
+            for (int i = 0; i < identifiers.size(); ++i) {
+                if (!this.parameters.containsKey(identifiers.get(i))) {
+                    this.parameters.put(identifiers.get(i), types.get(i));
+                }
+            }
+        }
+        this.ranges = ranges;
+    }
+
+    /**
+     * Parses a range in the format of the input value suggestions, e.g.
+     * "[0,10]".
+     *
+     * @param range
+     *            the range
+     * @return the smallest and the largest value
+     * @throws DIbuggerLogicException
+     *             if the range has the wrong format
+     */
+    static long[] parseRange(String range) throws DIbuggerLogicException {
+        try {
+            String trimmed = range.trim();
+            String[] bounds = trimmed.substring(1, trimmed.length() - 1).split(",");
+            long min = Long.parseLong(bounds[0].trim());
+            long max = Long.parseLong(bounds[1].trim());
+            if (min <= max) {
+                return new long[] { min, max };
+            }
+        } catch (RuntimeException e) {
+            // reported below
+        }
+        throw new DIbuggerLogicException(-1, "dl_exc_suggest_input_wrong_format") {
+            private static final long serialVersionUID = 1L;
+        };
+    }
+
+    /**
+     * Draws an input uniformly from the ranges.
+     *
+     * @param random
+     *            the generator drawing the values
+     * @return the input
+     */
+    Map<String, Long> draw(SplittableRandom random) {
+        Map<String, Long> input = new HashMap<String, Long>();
+        for (String identifier : this.parameters.keySet()) {
+            input.put(identifier, drawValue(identifier, random));
+        }
+        return input;
+    }
+
+    /**
+     * Changes a few values of an input: flips a bit, adds a small number,
+     * takes an interesting value, a new random value or the value of another
+     * input. The values stay in their ranges.
+     *
+     * @param input
+     *            the input to change, not modified
+     * @param other
+     *            another input to take values from
+     * @param random
+     *            the generator choosing the changes
+     * @return the changed input
+     */
+    Map<String, Long> mutate(Map<String, Long> input, Map<String, Long> other, SplittableRandom random) {
+        Map<String, Long> mutated = new HashMap<String, Long>(input);
+        List<String> identifiers = new ArrayList<String>(this.parameters.keySet());
+        if (identifiers.isEmpty()) {
+            return mutated;
+        }
+        int changes = 1 + random.nextInt(Math.min(4, identifiers.size()));
+        for (int c = 0; c < changes; ++c) {
+            String identifier = identifiers.get(random.nextInt(identifiers.size()));
+            long value = mutated.get(identifier);
+            switch (random.nextInt(5)) {
+            case 0:
+                value ^= 1L << random.nextInt(16);
+                break;
+            case 1:
+                value += random.nextBoolean() ? 1 + random.nextLong(MAX_DELTA) : -1 - random.nextLong(MAX_DELTA);
+                break;
+            case 2:
+                value = interesting(identifier, random);
+                break;
+            case 3:
+                value = drawValue(identifier, random);
+                break;
+            default:
+                value = other.get(identifier);
+                break;
+            }
+            mutated.put(identifier, clamp(identifier, value));
+        }
+        return mutated;
+    }
+
+    private long drawValue(String identifier, SplittableRandom random) {
+        long min = getMin(identifier);
+        long max = getMax(identifier);
+        return max == Long.MAX_VALUE ? random.nextLong(min, max) : random.nextLong(min, max + 1);
+    }
+
+    private long interesting(String identifier, SplittableRandom random) {
+        int choice = random.nextInt(INTERESTING.length + 2);
+        if (choice == INTERESTING.length) {
+            return getMin(identifier);
+        } else if (choice == INTERESTING.length + 1) {
+            return getMax(identifier);
+        }
+        return INTERESTING[choice];
+    }
+
+    private long clamp(String identifier, long value) {
+        return Math.max(getMin(identifier), Math.min(getMax(identifier), value));
+    }
+
+    private long getMin(String identifier) {
+        long[] range = this.ranges.get(identifier);
+        return range == null ? DEFAULT_MIN : range[0];
+    }
+
+    private long getMax(String identifier) {
+        long[] range = this.ranges.get(identifier);
+        return range == null ? DEFAULT_MAX : range[1];
+    }
+
+    /**
+     * Returns the arguments of the main routine of a program for an input.
+     *
+     * @param program
+     *            the program
+     * @param input
+     *            the input
+     * @return the values of the parameters of the program, default values for
+     *         parameters which cannot be drawn, like arrays
+     * @throws DIbuggerLogicException
+     *             if the program has no main routine
+     */
+    List<TermValue> argumentsOf(CompiledProgram program, Map<String, Long> input) throws DIbuggerLogicException {
+        List<String> identifiers = program.getParameterIdentifiers();
+        List<Type> types = program.getParameterTypes();
+        List<TermValue> args = new ArrayList<TermValue>();
+        for (int i = 0; i < identifiers.size(); ++i) {
+            TermValue value = toValue(types.get(i), input.get(identifiers.get(i)));
+            args.add(value != null ? value : types.get(i).getDefault().evaluate(new Scope()));
+        }
+        return args;
+    }
+
+    /**
+     * Returns the values of an input.
+     *
+     * @param input
+     *            the input
+     * @return the values by the identifiers of the parameters, in the order of
+     *         the programs
+     */
+    Map<String, TermValue> valuesOf(Map<String, Long> input) {
+        Map<String, TermValue> values = new LinkedHashMap<String, TermValue>();
+        for (Map.Entry<String, Type> parameter : this.parameters.entrySet()) {
+            TermValue value = toValue(parameter.getValue(), input.get(parameter.getKey()));
+            if (value != null) {
+                values.put(parameter.getKey(), value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns an input in the format of the input of a program, e.g. "x = 5".
+     *
+     * @param input
+     *            the input
+     * @return the input of every program
+     */
+    List<String> inputStringsOf(Map<String, Long> input) {
+        List<String> strings = new ArrayList<String>();
+        for (Map.Entry<String, TermValue> value : valuesOf(input).entrySet()) {
+            strings.add(value.getKey() + " = " + toLiteral(value.getValue()));
+        }
+        return strings;
+    }
+
+    private static TermValue toValue(Type type, Long raw) {
+        if (raw == null) {
+            return null;
+        }
+        long value = raw;
+        switch (type) {
+        case INT:
+            return new IntValue((int) value);
+        case LONG:
+            return new LongValue(value);
+        case FLOAT:
+            return new FloatValue(value);
+        case DOUBLE:
+            return new DoubleValue(value);
+        case CHAR:
+            return new CharValue((char) value);
+        case BOOLEAN:
+            return new BooleanValue((value & 1) != 0);
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Returns a value as a literal of the input of a program.
+     *
+     * @param value
+     *            the value
+     * @return the literal
+     */
+    static String toLiteral(TermValue value) {
+        if (value instanceof FloatValue) {
+            float f = ((FloatValue) value).getValue();
+            return f == 0 ? "0f" : (long) f + ".0f";
+        } else if (value instanceof DoubleValue) {
+            double d = ((DoubleValue) value).getValue();
+            return d == 0 ? "0" : (long) d + ".0";
+        } else if (value instanceof CharValue) {
+            return "'" + value + "'";
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,360 @@
+package dibugger.debuglogic.debugger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dibugger.debuglogic.interpreter.TermValue;
+import dibugger.debuglogic.interpreter.Trace;
+import dibugger.debuglogic.interpreter.TraceState;
+
+/**
+ * Suggests step sizes by aligning the traces of the current run. Every trace
+ * is reduced to the sequence of its value changes of the variables all
+ * programs have, e.g. "s = 10". The sequence of every program is aligned to
+ * the sequence of the program with the shortest trace by a longest common
+ * subsequence. The matched changes are the sync points of the programs and
+ * the step size of a program is the number of its states between the first
+ * and the last sync point per state of the shortest program.
+ *
+ * The alignment only considers a band around the diagonal of the two
+ * sequences, so it takes time and memory linear in the length of the
+ * sequences. Very long sequences are sampled to keep the band within
+ * {@value #MAX_CELLS} cells.
+ *
+ * Without a run the step sizes are suggested like
+ * {@link SimpleStepSizeSuggestion} does.
+ *
+ * @author scheler
+ *
+ */
+public class AlignmentStepSizeSuggestion extends StepSizeSuggestion {
+
+    /**
+     * Minimal number of changes the band reaches off the diagonal to each
+     * side.
+     */
+    static final int BAND = 64;
+    /**
+     * Maximal number of cells of an alignment.
+     */
+    static final int MAX_CELLS = 1 << 25;
+
+    private static final byte STOP = 0;
+    private static final byte MATCH = 1;
+    private static final byte UP = 2;
+    private static final byte LEFT = 3;
+
+    private int referenceProgram;
+    private List<int[][]> syncPoints;
+
+    public AlignmentStepSizeSuggestion(DebugControl debugControl) {
+        super(debugControl);
+        this.syncPoints = new ArrayList<int[][]>();
+    }
+
+    /**
+     * Suggest step sizes for all programs by aligning their traces
+     */
+    @Override
+    public void suggest(List<String> programText) {
+        List<Trace> traces = getDebugControl().getTraces();
+        this.syncPoints = new ArrayList<int[][]>();
+        if (traces.size() < 2 || traces.size() != programText.size()) {
+            new SimpleStepSizeSuggestion(getDebugControl()).suggest(programText);
+            return;
+        }
+        List<List<TraceState>> states = new ArrayList<List<TraceState>>();
+        this.referenceProgram = 0;
+        for (int i = 0; i < traces.size(); ++i) {
+            states.add(traces.get(i).getAllStates());
+            if (states.get(i).size() < states.get(this.referenceProgram).size()) {
+                this.referenceProgram = i;
+            }
+        }
+
+        Map<String, Integer> keys = new HashMap<String, Integer>();
+        List<Changes> changes = new ArrayList<Changes>();
+        Set<String> shared = null;
+        for (List<TraceState> trace : states) {
+            Changes c = new Changes(trace, keys);
+            changes.add(c);
+            if (shared == null) {
+                shared = new HashSet<String>(c.identifiers);
+            } else {
+                shared.retainAll(c.identifiers);
+            }
+        }
+        for (Changes c : changes) {
+            c.retain(shared);
+        }
+
+        Changes reference = changes.get(this.referenceProgram);
+        int referenceLength = states.get(this.referenceProgram).size();
+        for (int i = 0; i < states.size(); ++i) {
+            int[][] points;
+            int stepSize;
+            if (i == this.referenceProgram) {
+                points = new int[0][];
+                stepSize = 1;
+            } else {
+                points = align(reference, changes.get(i));
+                stepSize = stepSize(points, referenceLength, states.get(i).size());
+            }
+            this.syncPoints.add(points);
+            getDebugControl().setStepSize(i, stepSize);
+        }
+    }
+
+    private static int stepSize(int[][] points, int referenceLength, int length) {
+        double ratio;
+        if (points.length >= 2 && points[points.length - 1][0] > points[0][0]) {
+            ratio = (double) (points[points.length - 1][1] - points[0][1])
+                    / (points[points.length - 1][0] - points[0][0]);
+        } else {
+            // nothing to align, the traces correspond by their lengths
+            ratio = (double) length / Math.max(1, referenceLength);
+        }
+        return (int) Math.max(1, Math.round(ratio));
+    }
+
+    /**
+     * Aligns the changes of a program to the changes of the reference program
+     * by a longest common subsequence within a band around the diagonal.
+     *
+     * @return the matched changes, each the indices of the states of the
+     *         reference program and the program
+     */
+    static int[][] align(Changes reference, Changes other) {
+        Changes a = reference;
+        Changes b = other;
+        // sample the changes until the band fits
+        int sampling = 1;
+        while ((long) (a.size() / sampling + 1) * (2 * band(a.size() / sampling, b.size() / sampling) + 1)
+                > MAX_CELLS) {
+            sampling *= 2;
+        }
+        if (sampling > 1) {
+            a = a.sample(sampling);
+            b = b.sample(sampling);
+        }
+        int n = a.size();
+        int m = b.size();
+        if (n == 0 || m == 0) {
+            return new int[0][];
+        }
+        int w = band(n, m);
+        int width = 2 * w + 1;
+        byte[] moves = new byte[(n + 1) * width];
+        int[] previous = new int[width];
+        int[] current = new int[width];
+        // row 0, an empty prefix of the reference program matches nothing
+        Arrays.fill(previous, 0);
+        for (int i = 1; i <= n; ++i) {
+            int low = low(i, n, m, w);
+            int previousLow = low(i - 1, n, m, w);
+            for (int k = 0; k < width; ++k) {
+                int j = low + k;
+                if (j < 0 || j > m) {
+                    current[k] = -1;
+                    continue;
+                }
+                if (j == 0) {
+                    current[k] = 0;
+                    moves[i * width + k] = STOP;
+                    continue;
+                }
+                int best = -1;
+                byte move = STOP;
+                int up = j - previousLow;
+                if (up >= 0 && up < width && previous[up] > best) {
+                    best = previous[up];
+                    move = UP;
+                }
+                if (k > 0 && current[k - 1] > best) {
+                    best = current[k - 1];
+                    move = LEFT;
+                }
+                int diagonal = j - 1 - previousLow;
+                if (a.keys[i - 1] == b.keys[j - 1] && diagonal >= 0 && diagonal < width
+                        && previous[diagonal] >= 0 && previous[diagonal] + 1 > best) {
+                    best = previous[diagonal] + 1;
+                    move = MATCH;
+                }
+                current[k] = best;
+                moves[i * width + k] = move;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        // trace back from the end of both sequences
+        List<int[]> points = new ArrayList<int[]>();
+        int i = n;
+        int j = m;
+        while (i > 0 && j > 0) {
+            int k = j - low(i, n, m, w);
+            if (k < 0 || k >= width) {
+                break;
+            }
+            byte move = moves[i * width + k];
+            if (move == MATCH) {
+                points.add(new int[] { a.states[i - 1], b.states[j - 1] });
+                --i;
+                --j;
+            } else if (move == UP) {
+                --i;
+            } else if (move == LEFT) {
+                --j;
+            } else {
+                break;
+            }
+        }
+        int[][] result = new int[points.size()][];
+        for (int p = 0; p < result.length; ++p) {
+            result[p] = points.get(result.length - 1 - p);
+        }
+        return result;
+    }
+
+    private static int band(int n, int m) {
+        // the diagonal moves up to m / n columns per row
+        return Math.max(BAND, (m + Math.max(1, n) - 1) / Math.max(1, n) + 1);
+    }
+
+    private static int low(int i, int n, int m, int w) {
+        return (int) ((long) i * m / n) - w;
+    }
+
+    /**
+     * Returns the sync points of a program found by the last suggestion.
+     *
+     * @param programID
+     *            the program
+     * @return the matched states of the program with the program with the
+     *         shortest trace, each the indices of the state of the shortest
+     *         program and of the state of the program, in ascending order
+     */
+    public int[][] getSyncPoints(int programID) {
+        return programID < this.syncPoints.size() ? this.syncPoints.get(programID) : new int[0][];
+    }
+
+    /**
+     * Returns the program the others were aligned to at the last suggestion.
+     *
+     * @return the program with the shortest trace
+     */
+    public int getReferenceProgram() {
+        return this.referenceProgram;
+    }
+
+    /**
+     * The value changes of the variables of a trace, in the order of the
+     * trace.
+     */
+    static final class Changes {
+        private int[] keys;
+        private int[] states;
+        private int[] names;
+        private int size;
+        private final Set<String> identifiers;
+        private final Map<String, Integer> keyIds;
+
+        Changes(List<TraceState> trace, Map<String, Integer> keyIds) {
+            this.keys = new int[16];
+            this.states = new int[16];
+            this.names = new int[16];
+            this.identifiers = new HashSet<String>();
+            this.keyIds = keyIds;
+            Map<String, String> values = new HashMap<String, String>();
+            TraceState before = null;
+            for (int index = 0; index < trace.size(); ++index) {
+                TraceState state = trace.get(index);
+                Set<String> changed = before == null ? state.getAllVariableIdentifiers()
+                        : state.getChangedIdentifiers(before);
+                for (String identifier : changed) {
+                    TermValue value = state.getValueOf(identifier);
+                    if (value == null) {
+                        continue;
+                    }
+                    String text = value.toString();
+                    if (!text.equals(values.put(identifier, text))) {
+                        this.identifiers.add(identifier);
+                        add(id(identifier + "=" + text), id(identifier), index);
+                    }
+                }
+                before = state;
+            }
+        }
+
+        private Changes(Map<String, Integer> keyIds, int capacity) {
+            this.keys = new int[capacity];
+            this.states = new int[capacity];
+            this.names = new int[capacity];
+            this.identifiers = new HashSet<String>();
+            this.keyIds = keyIds;
+        }
+
+        private int id(String key) {
+            Integer id = this.keyIds.get(key);
+            if (id == null) {
+                id = this.keyIds.size();
+                this.keyIds.put(key, id);
+            }
+            return id;
+        }
+
+        private void add(int key, int name, int state) {
+            if (this.size == this.keys.length) {
+                int capacity = this.size * 2;
+                this.keys = Arrays.copyOf(this.keys, capacity);
+                this.states = Arrays.copyOf(this.states, capacity);
+                this.names = Arrays.copyOf(this.names, capacity);
+            }
+            this.keys[this.size] = key;
+            this.states[this.size] = state;
+            this.names[this.size] = name;
+            ++this.size;
+        }
+
+        /**
+         * Drops the changes of variables not in the given set.
+         */
+        void retain(Set<String> identifiers) {
+            Set<Integer> kept = new HashSet<Integer>();
+            for (String identifier : identifiers) {
+                kept.add(id(identifier));
+            }
+            int size = 0;
+            for (int c = 0; c < this.size; ++c) {
+                if (kept.contains(this.names[c])) {
+                    this.keys[size] = this.keys[c];
+                    this.states[size] = this.states[c];
+                    this.names[size] = this.names[c];
+                    ++size;
+                }
+            }
+            this.size = size;
+        }
+
+        /**
+         * Returns every n-th change.
+         */
+        Changes sample(int n) {
+            Changes sampled = new Changes(this.keyIds, this.size / n + 1);
+            for (int c = 0; c < this.size; c += n) {
+                sampled.add(this.keys[c], this.names[c], this.states[c]);
+            }
+            return sampled;
+        }
+
+        int size() {
+            return this.size;
+        }
+    }
+}
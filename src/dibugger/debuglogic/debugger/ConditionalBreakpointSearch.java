@@ -0,0 +1,179 @@
+package dibugger.debuglogic.debugger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dibugger.debuglogic.interpreter.ConditionalBreakpoint;
+import dibugger.debuglogic.interpreter.TraceState;
+
+/**
+ * Searches traces for the first step of a continue at which a conditional
+ * breakpoint holds. The steps are those of the programs stepping together:
+ * at every step a program moves by its stride, forward or backward, until it
+ * stopped at its last state.
+ *
+ * The steps are checked in windows in ascending order. The steps of a window
+ * are split into chunks which are checked in parallel on a fork/join pool, so
+ * at most one window is checked after the first hit.
+ *
+ * @author scheler
+ *
+ */
+final class ConditionalBreakpointSearch {
+
+    /**
+     * Number of steps checked by one task.
+     */
+    static final int CHUNK_SIZE = 4096;
+
+    private final List<List<TraceState>> traces;
+    private final int[] first;
+    private final int[] stride;
+    private final int[] last;
+    private final List<ConditionalBreakpoint> breakpoints;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a search.
+     *
+     * @param traces
+     *            the states of the traces of all programs
+     * @param first
+     *            for every program the index of its state at step 1
+     * @param stride
+     *            for every program the number of states it moves per step,
+     *            negative if it moves backward
+     * @param last
+     *            for every program the index of the state it stops at
+     * @param breakpoints
+     *            the conditional breakpoints checked
+     * @param pool
+     *            the pool checking the chunks
+     */
+    ConditionalBreakpointSearch(List<List<TraceState>> traces, int[] first, int[] stride, int[] last,
+            List<ConditionalBreakpoint> breakpoints, ForkJoinPool pool) {
+        this.traces = traces;
+        this.first = first;
+        this.stride = stride;
+        this.last = last;
+        this.breakpoints = breakpoints;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the index of the state of a program at a step.
+     *
+     * @param programID
+     *            the program
+     * @param step
+     *            the step, at least 1
+     * @return the index of the state in the trace of the program, -1 if the
+     *         program is at the start of its trace
+     */
+    int indexAt(int programID, int step) {
+        long index = this.first[programID] + (long) (step - 1) * this.stride[programID];
+        if (this.stride[programID] < 0) {
+            return (int) Math.max(index, this.last[programID]);
+        }
+        return (int) Math.min(index, this.last[programID]);
+    }
+
+    /**
+     * Returns the states of all programs at a step.
+     *
+     * @param step
+     *            the step, at least 1
+     * @return the states, in the order of the programs, null for programs at
+     *         the start of their trace
+     */
+    List<TraceState> statesAt(int step) {
+        List<TraceState> states = new ArrayList<TraceState>(this.traces.size());
+        for (int i = 0; i < this.traces.size(); ++i) {
+            int index = indexAt(i, step);
+            states.add(index < 0 ? null : this.traces.get(i).get(index));
+        }
+        return states;
+    }
+
+    /**
+     * Returns the first step in a range at which one of the conditional
+     * breakpoints holds.
+     *
+     * @param from
+     *            the first step checked, at least 1
+     * @param to
+     *            the last step checked
+     * @return the step, -1 if no conditional breakpoint holds in the range
+     */
+    int findFirst(int from, int to) {
+        if (this.breakpoints.isEmpty()) {
+            return -1;
+        }
+        int window = CHUNK_SIZE * this.pool.getParallelism() * 4;
+        AtomicInteger hit = new AtomicInteger(Integer.MAX_VALUE);
+        for (int start = from; start <= to; start += window) {
+            int end = (int) Math.min((long) start + window - 1, to);
+            if (end - start < CHUNK_SIZE) {
+                check(start, end, hit);
+            } else {
+                this.pool.invoke(new Chunk(start, end, hit));
+            }
+            if (hit.get() != Integer.MAX_VALUE) {
+                return hit.get();
+            }
+        }
+        return -1;
+    }
+
+    private void check(int from, int to, AtomicInteger hit) {
+        for (int step = from; step <= to && step < hit.get(); ++step) {
+            if (holds(statesAt(step))) {
+                hit.accumulateAndGet(step, Math::min);
+                return;
+            }
+        }
+    }
+
+    private boolean holds(List<TraceState> states) {
+        for (ConditionalBreakpoint cb : this.breakpoints) {
+            if (cb.isSatisfied(states)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks a range of steps, split into chunks.
+     */
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final AtomicInteger hit;
+
+        Chunk(int from, int to, AtomicInteger hit) {
+            this.from = from;
+            this.to = to;
+            this.hit = hit;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.from >= this.hit.get()) {
+                // a hit before this range was found already
+                return;
+            }
+            if (this.to - this.from < CHUNK_SIZE) {
+                check(this.from, this.to, this.hit);
+                return;
+            }
+            int middle = this.from + (this.to - this.from) / 2;
+            invokeAll(new Chunk(this.from, middle, this.hit), new Chunk(middle + 1, this.to, this.hit));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package dibugger.debuglogic.debugger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dibugger.debuglogic.batch.CoverageCorpus;
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+
+/**
+ * Suggests input values which cover the branches of the programs debugged.
+ * The first suggestion generates a small set of inputs with maximal joint
+ * branch coverage of all programs, see
+ * {@link DebugControl#generateCoverageCorpus(Map, long, long)}. The
+ * suggestions then walk through this set: the values of one input are
+ * suggested until a parameter is asked for again, which moves on to the next
+ * input. The set is generated again when the programs or a range change.
+ *
+ * Without programs the values are suggested like
+ * {@link SimpleInputSuggestion} does.
+ *
+ * @author scheler
+ *
+ */
+public class CoverageInputSuggestion extends InputValueSuggestion {
+
+    /**
+     * Number of candidates run to generate the inputs.
+     */
+    public static final long EXECUTIONS = 10000;
+
+    private DebugControl debugControl;
+    private InputValueSuggestion fallback;
+    private long seed;
+
+    private CoverageCorpus corpus;
+    private Map<String, String> ranges;
+    private List<String> programTexts;
+    private int current;
+    private Set<String> suggested;
+
+    public CoverageInputSuggestion(DebugControl debugControl) {
+        this.debugControl = debugControl;
+        this.fallback = new SimpleInputSuggestion();
+        this.ranges = new HashMap<String, String>();
+        this.programTexts = new ArrayList<String>();
+        this.suggested = new HashSet<String>();
+    }
+
+    /**
+     * Suggestion of the value of a parameter in the current input of the
+     * generated set
+     */
+    @Override
+    public String suggest(String identifier, String range, int type) throws DIbuggerLogicException {
+        List<String> texts = new ArrayList<String>();
+        for (ProgramInput pi : this.debugControl.getProgramInput()) {
+            texts.add(pi.getText());
+        }
+        if (texts.isEmpty()) {
+            return this.fallback.suggest(identifier, range, type);
+        }
+        if (!range.equals(this.ranges.put(identifier, range)) || !texts.equals(this.programTexts)) {
+            this.corpus = null;
+        }
+        if (this.corpus == null) {
+            this.programTexts = texts;
+            this.corpus = this.debugControl.generateCoverageCorpus(this.ranges, this.seed, EXECUTIONS);
+            this.current = 0;
+            this.suggested.clear();
+        }
+        if (this.corpus == null || this.corpus.size() == 0) {
+            return this.fallback.suggest(identifier, range, type);
+        }
+        if (!this.suggested.add(identifier)) {
+            // a parameter of the current input is asked for again
+            this.current = (this.current + 1) % this.corpus.size();
+            this.suggested.clear();
+            this.suggested.add(identifier);
+        }
+        String literal = this.corpus.getLiteral(this.current, identifier);
+        return literal != null ? literal : this.fallback.suggest(identifier, range, type);
+    }
+
+    /**
+     * Returns the inputs generated by the last suggestion.
+     *
+     * @return the inputs, null if none were generated
+     */
+    public CoverageCorpus getCorpus() {
+        return this.corpus;
+    }
+
+    /**
+     * Sets the seed of the inputs generated. Takes effect when the inputs are
+     * generated the next time.
+     *
+     * @param seed
+     *            the seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        this.corpus = null;
+    }
+}
@@ -1,17 +1,36 @@
 package dibugger.debuglogic.debugger;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dibugger.debuglogic.batch.CounterexampleResult;
+import dibugger.debuglogic.batch.CounterexampleSearch;
+import dibugger.debuglogic.batch.CoverageCorpus;
+import dibugger.debuglogic.batch.CoverageFuzzer;
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 import dibugger.debuglogic.exceptions.SyntaxException;
+import dibugger.debuglogic.exceptions.TraceGenerationException;
+import dibugger.debuglogic.exceptions.TraceStorageException;
+import dibugger.debuglogic.interpreter.CompiledProgram;
 import dibugger.debuglogic.interpreter.ConditionalBreakpoint;
+import dibugger.debuglogic.interpreter.ExecutionEngine;
 import dibugger.debuglogic.interpreter.GenerationController;
 import dibugger.debuglogic.interpreter.ScopeTuple;
-import dibugger.debuglogic.interpreter.TermValue;
+import dibugger.debuglogic.interpreter.StateChanges;
+import dibugger.debuglogic.interpreter.Trace;
+import dibugger.debuglogic.interpreter.TraceFile;
 import dibugger.debuglogic.interpreter.TraceState;
 import dibugger.debuglogic.interpreter.TraceStatePosition;
 import dibugger.debuglogic.interpreter.WatchExpression;
@@ -29,12 +48,22 @@ public class DebugControl {
     private static final int DEF_IT = 100;
     private static final int DEF_MAX_FUNC_CALLS = 100;
 
+    private static final AtomicInteger LAUNCH_THREADS = new AtomicInteger();
+    private static final Executor DEF_EXECUTOR = Executors
+            .newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+                Thread thread = new Thread(task, "trace-launch-" + LAUNCH_THREADS.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
     private List<WatchExpression> list_watchExpressions;
     private List<ConditionalBreakpoint> list_condBreakpoints;
     private List<List<Breakpoint>> list_breakpoints;
 
     private List<ListIterator<TraceState>> list_traceIterator;
     private List<TraceState> list_currentTraceStates,list_lastTraceStates;
+    // index of the current state of every program in its trace, -1 without
+    private List<Integer> list_currentIndex;
 
     private List<ProgramInput> list_programInput;
 
@@ -42,12 +71,24 @@ public class DebugControl {
 
     private int maxIterations = DEF_IT;
     private int maxFunctionCalls = DEF_MAX_FUNC_CALLS;
+    private long traceMemoryBudget = GenerationController.DEFAULT_MEMORY_BUDGET;
 
     private int numPrograms;
 
-    // interpreter objects
-    private GenerationController generationController;
-    private List<TermValue> list_programReturnValue;
+    private boolean lazyTraceGeneration = false;
+    private ExecutionEngine executionEngine = ExecutionEngine.TREE_WALKER;
+    private Executor executor = DEF_EXECUTOR;
+
+    // interpreter objects, one generation controller per program id
+    private Map<String, GenerationController> map_generationControllers;
+    private List<Trace> list_traces;
+
+    // series of watch expressions by id, recomputed once they are outdated
+    private Map<Integer, WatchExpressionSeries> map_weSeries;
+
+    // changes of the variables since the watch expressions and the
+    // conditional breakpoints were last evaluated, shared by all of them
+    private StateChanges weChanges, cbChanges;
 
     /**
      * Creates a new debugControl without programs, watch expressions or
@@ -61,49 +102,167 @@ public class DebugControl {
         list_traceIterator = new ArrayList<ListIterator<TraceState>>();
         list_currentTraceStates = new ArrayList<TraceState>();
         list_lastTraceStates = new ArrayList<TraceState>();
+        list_currentIndex = new ArrayList<Integer>();
 
         list_programInput = new ArrayList<ProgramInput>();
 
         list_stepSize = new ArrayList<Integer>();
 
-        generationController = new GenerationController(DEF_IT, DEF_MAX_FUNC_CALLS);
-        list_programReturnValue = new ArrayList<TermValue>();
+        map_generationControllers = new HashMap<String, GenerationController>();
+        list_traces = new ArrayList<Trace>();
+        map_weSeries = new HashMap<Integer, WatchExpressionSeries>();
     }
 
     /**
-     * Launches the Debug Mode with a given List of programs.
+     * Launches the Debug Mode with a given List of programs. The traces of the
+     * programs are generated in parallel on the executor of this
+     * debugControl, every program with its own generation controller. If lazy
+     * trace generation is enabled, the traces are generated while stepping
+     * through them and semantical errors are thrown by the step reaching them.
      *
      * @param programs
      *            the programs to run
      * @throws DIbuggerLogicException
      *             {@linkplain GenerationController#generateTrace(String, List, String)}
+     *             of the first program in the list which failed
      */
     public void launchRun(List<ProgramInput> programs) throws DIbuggerLogicException {
+        launchRun(programs, new ArrayList<File>());
+    }
+
+    /**
+     * Launches the Debug Mode like {@link #launchRun(List)}, but reads the
+     * trace of a program from a file saved by {@link #saveTrace(int, File)}
+     * instead of generating it, if the file was saved for the same text,
+     * input and limits of the program. A trace is generated if its file is
+     * missing, damaged or saved for another run.
+     *
+     * @param programs
+     *            the programs to run
+     * @param traceFiles
+     *            the files of the traces of the programs in the same order,
+     *            null or missing for a program without a file
+     * @throws DIbuggerLogicException
+     *             {@linkplain GenerationController#generateTrace(String, List, String)}
+     *             of the first program in the list which failed
+     */
+    public void launchRun(List<ProgramInput> programs, List<File> traceFiles) throws DIbuggerLogicException {
         list_traceIterator.clear();
-        list_programReturnValue.clear();
+        clearTraces();
 
-        generationController.setMaxFuncCalls(maxFunctionCalls);
-        generationController.setMaxIterations(maxIterations);
+        List<FutureTask<Trace>> tasks = new ArrayList<FutureTask<Trace>>();
         for (int i = 0; i < programs.size(); ++i) {
             ProgramInput pi = programs.get(i);
-            ListIterator<TraceState> generatedTrace;
+            File traceFile = i < traceFiles.size() ? traceFiles.get(i) : null;
+            GenerationController controller = getGenerationController(pi.getProgramID());
+            pi.setProgramCache(controller.getProgramCache());
+            FutureTask<Trace> task = new FutureTask<Trace>(() -> loadOrGenerateTrace(controller, pi, traceFile));
+            tasks.add(task);
+            executor.execute(task);
+        }
+
+        // wait for all programs, so no trace of a failed launch keeps running
+        List<Trace> traces = new ArrayList<Trace>();
+        DIbuggerLogicException error = null;
+        Throwable failure = null;
+        for (int i = 0; i < tasks.size(); ++i) {
+            Trace trace = null;
             try {
-            	generatedTrace = generationController.generateTrace(pi.getText(), pi.getInputValues(), pi.getProgramID());
-            }catch(DIbuggerLogicException e) {
-            	throw new DIbuggerLogicException(e,"Program "+pi.getProgramID()+": "+ e.getMessage());
+                trace = waitFor(tasks.get(i));
+            } catch (DIbuggerLogicException e) {
+                if (error == null && failure == null) {
+                    error = new DIbuggerLogicException(e,
+                            "Program " + programs.get(i).getProgramID() + ": " + e.getMessage());
+                }
+            } catch (RuntimeException | Error e) {
+                if (error == null && failure == null) {
+                    failure = e;
+                }
+            }
+            traces.add(trace);
+        }
+        if (error != null || failure != null) {
+            for (Trace trace : traces) {
+                if (trace != null) {
+                    trace.cancel();
+                }
             }
-			list_traceIterator.add(generatedTrace);
-            list_programReturnValue.add(generationController.getReturnValue());
+            if (error != null) {
+                throw error;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw (RuntimeException) failure;
+        }
+
+        for (int i = 0; i < programs.size(); ++i) {
+            ProgramInput pi = programs.get(i);
+            Trace generatedTrace = traces.get(i);
+            list_traces.add(generatedTrace);
+            list_traceIterator.add(generatedTrace.iterator());
 
             if (list_stepSize.size() <= i) {
                 list_stepSize.add(1);
             }
-
-            jumpTraceIterator(i, pi.getCounter());
         }
 
         list_programInput = programs;
         numPrograms = programs.size();
+        bindExpressions();
+
+        // restore the saved positions of the programs
+        for (int i = 0; i < programs.size(); ++i) {
+            seek(i, programs.get(i).getCounter());
+        }
+    }
+
+    /**
+     * Moves a program to the state it has after the given number of steps from
+     * the start of its trace. The state is taken from the trace directly, the
+     * states in between are not visited. If the trace has less states, the
+     * program moves to its last state.
+     *
+     * @param programID
+     *            the program to move
+     * @param step
+     *            the number of steps, 0 for the start of the trace
+     * @throws DIbuggerLogicException
+     *             if the program fails before the state (lazy trace
+     *             generation), the program is moved to the last state before
+     *             the failure
+     */
+    public void seek(int programID, int step) throws DIbuggerLogicException {
+        Trace trace = list_traces.get(programID);
+        int index = step - 1;
+        if (index >= 0) {
+            try {
+                if (!trace.hasState(index)) {
+                    index = trace.size() - 1;
+                }
+            } catch (DIbuggerLogicException e) {
+                moveToState(programID, trace.size() - 1);
+                String id = list_programInput.get(programID).getProgramID();
+                throw new DIbuggerLogicException(e, "Program " + id + ": " + e.getMessage());
+            }
+        }
+        moveToState(programID, index);
+    }
+
+    /**
+     * Moves all programs to the states they have after the given numbers of
+     * steps, see {@link #seek(int, int)}.
+     *
+     * @param steps
+     *            the number of steps of every program, like the values of
+     *            {@link #getProgramCounter()}; programs without an entry are
+     *            not moved
+     * @throws DIbuggerLogicException
+     *             if a program fails before its state (lazy trace generation)
+     */
+    public void seekAll(int[] steps) throws DIbuggerLogicException {
+        for (int i = 0; i < steps.length && i < numPrograms; ++i) {
+            seek(i, steps[i]);
+        }
     }
 
     /**
@@ -115,6 +274,28 @@ public class DebugControl {
     public void syncProgramInput(List<ProgramInput> programs) {
         list_programInput = programs;
         numPrograms = programs.size();
+        bindExpressions();
+    }
+
+    /**
+     * Binds the variables of all watch expressions and conditional breakpoints
+     * to the programs of the current run.
+     */
+    private void bindExpressions() {
+        List<String> programIds = new ArrayList<String>();
+        for (ProgramInput pi : list_programInput) {
+            programIds.add(pi.getProgramID());
+        }
+        for (WatchExpression we : list_watchExpressions) {
+            if (we != null) {
+                we.bind(programIds);
+            }
+        }
+        for (ConditionalBreakpoint cb : list_condBreakpoints) {
+            if (cb != null) {
+                cb.bind(programIds);
+            }
+        }
     }
 
     /**
@@ -122,10 +303,12 @@ public class DebugControl {
      *
      * @param type
      *            the type of the step
-     *            (STEP_NORMAL,STEP_OVER,STEP_OUT,STEP_BACK)
+     *            (STEP_NORMAL,STEP_OVER,STEP_OUT,STEP_BACK,STEP_BACK_OVER,STEP_BACK_OUT)
      */
     public void step(int type) throws DIbuggerLogicException {
-        if (type == STEP_NORMAL || type == STEP_BACK) {
+        if (type == STEP_BACK_OVER || type == STEP_BACK_OUT) {
+            reverseStep(type == STEP_BACK_OUT);
+        } else if (type == STEP_NORMAL || type == STEP_BACK) {
             int maxSteps = getMaximumOfList(list_stepSize);
             for (int stepID = 0; stepID < maxSteps; ++stepID) {
                 // Do step in all programs
@@ -146,47 +329,7 @@ public class DebugControl {
                 }
             }
         } else if (type == STEP_OVER || type == STEP_OUT) {
-            int[] inline = new int[numPrograms];
-            if(type==STEP_OUT){
-            	for(int i=0;i<numPrograms;++i){
-            		inline[i] = 1;
-            	}
-            }
-            boolean[] breaked = new boolean[numPrograms];
-            boolean first = type==STEP_OVER;
-            boolean forceStop = false;
-            while (!checkBoolArrayOnValue(breaked, true) && !forceStop) {
-                boolean breakpointFound = false;
-                for (int i = 0; i < numPrograms; ++i) {
-                    if (!breaked[i]) {
-                        boolean iterated = singleStepNoEvaluation(i, STEP_NORMAL);
-                        TraceState state = list_currentTraceStates.get(i);
-                        if (state.getPosition() == TraceStatePosition.AFTERFUNCCALL) {
-                            ++inline[i];
-                        } else if (first) {
-                            breaked[i] = true;
-                        }
-                        breakpointFound = !breakpointFound ? evaluateBreakpoints(i) : true;
-                        if (breakpointFound | !iterated) {
-                            breaked[i] = true;
-                        }
-                        // only stop stepping when trace state is after the
-                        // outer most return call
-                        else if (state.getPosition() == TraceStatePosition.AFTERRETURN) {
-                            if (inline[i] == 1) {
-                                breaked[i] = true;
-                            } else {
-                                --inline[i];
-                            }
-                        }
-                    }
-                }
-                breakpointFound = evaluateConditionalBreakpoints();
-                if (breakpointFound) {
-                    forceStop = true;
-                }
-                first = false;
-            }
+            stepOverOrOut(type == STEP_OUT);
         }
     }
 
@@ -195,8 +338,10 @@ public class DebugControl {
      *
      * @param programID
      *            the program to do a step
+     * @throws DIbuggerLogicException
+     *             if the program fails at the next step (lazy trace generation)
      */
-    public void singleStep(int programID) {
+    public void singleStep(int programID) throws DIbuggerLogicException {
         singleStepNoEvaluation(programID, STEP_NORMAL);
     }
 
@@ -205,6 +350,18 @@ public class DebugControl {
      * Conditional Breakpoint is reached.
      */
     public void continueDebug() throws DIbuggerLogicException {
+        if (!hasConditionalBreakpoints()) {
+            // the programs stop independently of each other, so every
+            // program jumps to its next breakpoint
+            for (int i = 0; i < numPrograms; ++i) {
+                continueToBreakpoint(i);
+            }
+            return;
+        }
+        if (isSearchable()) {
+            continueToConditionalBreakpoint();
+            return;
+        }
         boolean[] breaked = new boolean[numPrograms];
         while (!checkBoolArrayOnValue(breaked, true)) {
             for (int i = 0; i < numPrograms; ++i) {
@@ -227,35 +384,368 @@ public class DebugControl {
     }
 
     /**
-     * Executes a single step without evaluating breakpoints
+     * Moves a program to the next state on a line with a breakpoint, or to the
+     * end of its trace if no such state follows. The state is looked up in the
+     * line index of the trace, the states in between are skipped.
      *
      * @param programID
+     *            the program to continue
+     * @throws DIbuggerLogicException
+     *             if the program fails before the next breakpoint (lazy trace
+     *             generation)
+     */
+    private void continueToBreakpoint(int programID) throws DIbuggerLogicException {
+        Trace trace = list_traces.get(programID);
+        int from = list_traceIterator.get(programID).nextIndex();
+        int target = trace.findNextState(getBreakpointLines(programID), from);
+        if (target >= 0) {
+            moveToState(programID, target);
+        } else {
+            // no breakpoint is hit, the program runs to the end of its trace
+            if (trace.size() > from) {
+                moveToState(programID, trace.size() - 1);
+            }
+            // throws the failure of the program if it failed
+            singleStepNoEvaluation(programID, STEP_NORMAL);
+        }
+    }
+
+    /**
+     * Moves all programs to the first step at which a conditional breakpoint
+     * holds, as the programs stepping together would. Every program stops at
+     * its next breakpoint or at the end of its trace, and the steps up to the
+     * last program stopping are searched in parallel.
+     */
+    private void continueToConditionalBreakpoint() throws DIbuggerLogicException {
+        List<List<TraceState>> states = new ArrayList<List<TraceState>>();
+        int[] first = new int[numPrograms];
+        int[] stride = new int[numPrograms];
+        int[] last = new int[numPrograms];
+        int[] failSteps = new int[numPrograms];
+        int steps = 0;
+        for (int i = 0; i < numPrograms; ++i) {
+            Trace trace = list_traces.get(i);
+            first[i] = list_traceIterator.get(i).nextIndex();
+            stride[i] = 1;
+            int hit = trace.findNextState(getBreakpointLines(i), first[i]);
+            // a program without a breakpoint ahead stops when it fails to
+            // step beyond its last state
+            last[i] = hit >= 0 ? hit : trace.size() - 1;
+            steps = Math.max(steps, (hit >= 0 ? hit : trace.size()) - first[i] + 1);
+            failSteps[i] = hit < 0 && trace.isFailed() ? trace.size() - first[i] + 1 : Integer.MAX_VALUE;
+            states.add(trace.getStates());
+        }
+        moveToFirstHit(new ConditionalBreakpointSearch(states, first, stride, last, getActiveCondBreakpoints(),
+                ForkJoinPool.commonPool()), steps, failSteps);
+    }
+
+    /**
+     * Steps over the next routine call or out of the current routine. The
+     * state after the return is looked up in the call index of the trace, the
+     * states in between are only searched for Breakpoints. All programs stop
+     * when a Conditional Breakpoint holds.
+     *
+     * @param out
+     *            true to step out of the current routine, false to step over
+     *            the next call
+     * @throws DIbuggerLogicException
+     *             if a program fails before the state after the return (lazy
+     *             trace generation)
+     */
+    private void stepOverOrOut(boolean out) throws DIbuggerLogicException {
+        List<List<TraceState>> states = new ArrayList<List<TraceState>>();
+        int[] first = new int[numPrograms];
+        int[] stride = new int[numPrograms];
+        int[] last = new int[numPrograms];
+        int[] failSteps = new int[numPrograms];
+        int steps = 0;
+        for (int i = 0; i < numPrograms; ++i) {
+            Trace trace = list_traces.get(i);
+            int next = list_traceIterator.get(i).nextIndex();
+            stride[i] = 1;
+            failSteps[i] = Integer.MAX_VALUE;
+            boolean exists;
+            try {
+                exists = trace.hasState(next);
+            } catch (DIbuggerLogicException e) {
+                // the program fails at its first step
+                exists = false;
+                failSteps[i] = 1;
+                steps = Math.max(steps, 1);
+            }
+            if (!exists) {
+                // the program is at the end of its trace and stays there
+                first[i] = getCurrentIndex(i);
+                last[i] = first[i];
+            } else {
+                int end;
+                if (out) {
+                    int call = next > 0 ? trace.getCallOf(next - 1) : -1;
+                    end = call >= 0 ? trace.findEndOfCall(call) : -1;
+                } else if (trace.get(next).getPosition() == TraceStatePosition.AFTERFUNCCALL) {
+                    end = trace.findEndOfCall(next);
+                } else {
+                    end = next;
+                }
+                boolean toEnd = end < 0;
+                if (toEnd) {
+                    // the call does not return, the program runs to the end
+                    end = trace.size() - 1;
+                }
+                int hit = trace.findNextState(getBreakpointLines(i), next, end);
+                if (hit < 0 && toEnd && trace.isFailed()) {
+                    failSteps[i] = end - next + 2;
+                }
+                first[i] = next;
+                last[i] = hit >= 0 ? hit : end;
+                steps = Math.max(steps, failSteps[i] != Integer.MAX_VALUE ? failSteps[i] : last[i] - next + 1);
+            }
+            states.add(trace.getStates());
+        }
+        moveToFirstHit(new ConditionalBreakpointSearch(states, first, stride, last, getActiveCondBreakpoints(),
+                ForkJoinPool.commonPool()), steps, failSteps);
+    }
+
+    /**
+     * Moves all programs to the first step of a search at which a conditional
+     * breakpoint holds, or to the last step if none holds. If a program fails
+     * before, the programs move to the step before and the failure is thrown.
+     *
+     * @param failSteps
+     *            for every program the step at which it fails,
+     *            Integer.MAX_VALUE if it does not fail
+     */
+    private void moveToFirstHit(ConditionalBreakpointSearch search, int steps, int[] failSteps)
+            throws DIbuggerLogicException {
+        int failing = -1;
+        for (int i = 0; i < failSteps.length; ++i) {
+            if (failSteps[i] <= steps && (failing < 0 || failSteps[i] < failSteps[failing])) {
+                failing = i;
+            }
+        }
+        if (failing < 0) {
+            moveToFirstHit(search, steps);
+            return;
+        }
+        int limit = failSteps[failing] - 1;
+        int step = limit > 0 ? search.findFirst(1, limit) : -1;
+        if (step >= 0) {
+            moveToStep(search, step);
+            return;
+        }
+        moveToStep(search, limit);
+        // throws the failure of the program
+        singleStepNoEvaluation(failing, STEP_NORMAL);
+    }
+
+    /**
+     * Moves all programs to the first step of a search at which a conditional
+     * breakpoint holds, or to the last step if none holds.
+     */
+    private void moveToFirstHit(ConditionalBreakpointSearch search, int steps) {
+        int step = steps > 0 ? search.findFirst(1, steps) : -1;
+        moveToStep(search, step < 0 ? steps : step);
+    }
+
+    private void moveToStep(ConditionalBreakpointSearch search, int step) {
+        if (step > 0) {
+            for (int i = 0; i < numPrograms; ++i) {
+                moveToState(i, search.indexAt(i, step));
+            }
+        }
+    }
+
+    private List<ConditionalBreakpoint> getActiveCondBreakpoints() {
+        List<ConditionalBreakpoint> active = new ArrayList<ConditionalBreakpoint>();
+        for (ConditionalBreakpoint cb : list_condBreakpoints) {
+            if (cb != null) {
+                active.add(cb);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Continues backward in all programs until a Breakpoint or Conditional
+     * Breakpoint is reached, or all programs are at the first state of their
+     * trace. Every program moves back by its step size at once, stops at the
+     * previous state on a line with a breakpoint, and all programs stop at the
+     * first of these steps at which a conditional breakpoint holds.
      */
-    private boolean singleStepNoEvaluation(int programID, int direction) {
+    public void reverseContinueDebug() {
+        List<List<TraceState>> states = new ArrayList<List<TraceState>>();
+        int[] first = new int[numPrograms];
+        int[] stride = new int[numPrograms];
+        int[] last = new int[numPrograms];
+        int steps = 0;
+        for (int i = 0; i < numPrograms; ++i) {
+            Trace trace = list_traces.get(i);
+            int current = getCurrentIndex(i);
+            int stepSize = i < list_stepSize.size() ? Math.max(1, list_stepSize.get(i)) : 1;
+            int hit = current > 0 ? trace.findPreviousState(getBreakpointLines(i), current - 1) : -1;
+            // a program without a breakpoint behind stops at its first state
+            last[i] = hit >= 0 ? hit : Math.min(current, 0);
+            first[i] = current - stepSize;
+            stride[i] = -stepSize;
+            steps = Math.max(steps, (current - last[i] + stepSize - 1) / stepSize);
+            states.add(trace.getStates());
+        }
+        moveToFirstHit(new ConditionalBreakpointSearch(states, first, stride, last, getActiveCondBreakpoints(),
+                ForkJoinPool.commonPool()), steps);
+    }
+
+    /**
+     * Steps back over the previous routine call or out of the current
+     * routine. All programs move back a state at a time and stop at a
+     * Breakpoint; all programs stop when a Conditional Breakpoint holds.
+     *
+     * @param out
+     *            true to step out of the current routine to the state before
+     *            its call, false to step over the previous call
+     */
+    private void reverseStep(boolean out) {
+        List<List<TraceState>> states = new ArrayList<List<TraceState>>();
+        int[] first = new int[numPrograms];
+        int[] stride = new int[numPrograms];
+        int[] last = new int[numPrograms];
+        int steps = 0;
+        for (int i = 0; i < numPrograms; ++i) {
+            Trace trace = list_traces.get(i);
+            List<TraceState> traceStates = trace.getStates();
+            int current = getCurrentIndex(i);
+            if (current > 0) {
+                int target;
+                if (out) {
+                    // the state before the call of the current routine
+                    target = trace.getCallOf(current) - 1;
+                } else if (traceStates.get(current).getPosition() == TraceStatePosition.AFTERRETURN) {
+                    // the state before the call which just returned
+                    target = trace.getStartOfCall(current) - 1;
+                } else {
+                    target = current - 1;
+                }
+                target = Math.max(0, target);
+                int hit = trace.findPreviousState(getBreakpointLines(i), current - 1);
+                last[i] = Math.max(target, hit);
+            } else {
+                last[i] = current;
+            }
+            first[i] = current - 1;
+            stride[i] = -1;
+            steps = Math.max(steps, current - last[i]);
+            states.add(traceStates);
+        }
+        moveToFirstHit(new ConditionalBreakpointSearch(states, first, stride, last, getActiveCondBreakpoints(),
+                ForkJoinPool.commonPool()), steps);
+    }
+
+    /**
+     * Returns the index of the current state of a program in its trace, -1 if
+     * the program has no current state.
+     */
+    private int getCurrentIndex(int programID) {
+        if (programID >= list_currentTraceStates.size() || list_currentTraceStates.get(programID) == null) {
+            return -1;
+        }
+        return list_currentIndex.get(programID);
+    }
+
+    /**
+     * Sets the current state of a program and its index in the trace.
+     */
+    private void setCurrentState(int programID, TraceState state, int index) {
         while (list_currentTraceStates.size() - 1 < programID) {
             list_currentTraceStates.add(null);
         }
+        while (list_currentIndex.size() - 1 < programID) {
+            list_currentIndex.add(-1);
+        }
+        list_currentTraceStates.set(programID, state);
+        list_currentIndex.set(programID, index);
+    }
+
+    /**
+     * Returns whether the steps of a continue can be searched in parallel,
+     * i.e. whether all traces are complete.
+     */
+    private boolean isSearchable() {
+        if (numPrograms == 0 || list_traces.size() < numPrograms) {
+            return false;
+        }
+        for (int i = 0; i < numPrograms; ++i) {
+            Trace trace = list_traces.get(i);
+            if (!trace.isComplete() || trace.size() == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Set<Integer> getBreakpointLines(int programID) {
+        Set<Integer> lines = new HashSet<Integer>();
+        if (programID < list_breakpoints.size()) {
+            for (Breakpoint bp : list_breakpoints.get(programID)) {
+                if (bp != null) {
+                    lines.add(bp.getLine());
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Moves a program to the state with the given index, -1 for the start of
+     * its trace before the first state. The state has to exist.
+     */
+    private void moveToState(int programID, int index) {
+        Trace trace = list_traces.get(programID);
+        // the counter is the number of steps done, i.e. the index of the next
+        // state of the iterator
+        list_programInput.get(programID).setCounter(index + 1);
+        list_traceIterator.set(programID, trace.iterator(index + 1));
+        // a program at the start has no current state
+        setCurrentState(programID, index < 0 ? null : trace.get(index), index);
+    }
+
+    private boolean hasConditionalBreakpoints() {
+        for (ConditionalBreakpoint cb : list_condBreakpoints) {
+            if (cb != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Executes a single step without evaluating breakpoints
+     *
+     * @param programID
+     * @throws DIbuggerLogicException
+     *             if the program fails at the next step (lazy trace generation)
+     */
+    private boolean singleStepNoEvaluation(int programID, int direction) throws DIbuggerLogicException {
         ListIterator<TraceState> it = list_traceIterator.get(programID);
-        if ((direction == STEP_NORMAL || direction == STEP_OVER || direction == STEP_OUT) && it.hasNext()) {
-            list_currentTraceStates.set(programID, it.next());
+        boolean hasNext;
+        try {
+            hasNext = it.hasNext();
+        } catch (TraceGenerationException e) {
+            String id = list_programInput.get(programID).getProgramID();
+            throw new DIbuggerLogicException(e.getCause(), "Program " + id + ": " + e.getMessage());
+        }
+        if ((direction == STEP_NORMAL || direction == STEP_OVER || direction == STEP_OUT) && hasNext) {
+            int index = it.nextIndex();
+            setCurrentState(programID, it.next(), index);
             list_programInput.get(programID).setCounter(list_programInput.get(programID).getCounter() + 1);
             return true;
         } else if (direction == STEP_BACK && it.hasPrevious()) {
-            list_currentTraceStates.set(programID, it.previous());
+            int index = it.previousIndex();
+            setCurrentState(programID, it.previous(), index);
             list_programInput.get(programID).setCounter(list_programInput.get(programID).getCounter() - 1);
             return true;
         }
         return false;
     }
 
-    private void jumpTraceIterator(int programID, int numberOfIterations) {
-        for (int i = 0; i < numberOfIterations; ++i) {
-            if (list_traceIterator.get(i).hasNext()) {
-                list_traceIterator.get(programID).next();
-            }
-        }
-    }
-
     private boolean evaluateBreakpoints(int programID) {
         if (programID < list_breakpoints.size()) {
             TraceState state = list_currentTraceStates.get(programID);
@@ -269,15 +759,31 @@ public class DebugControl {
     }
 
     private boolean evaluateConditionalBreakpoints() throws DIbuggerLogicException {
+        if (!hasConditionalBreakpoints()) {
+            return false;
+        }
+        cbChanges = nextChanges(cbChanges);
         for (int i = 0; i < list_condBreakpoints.size(); ++i) {
             ConditionalBreakpoint cb = list_condBreakpoints.get(i);
-            if (cb != null && cb.evaluate(list_currentTraceStates)) {
+            if (cb != null && cb.evaluate(list_currentTraceStates, cbChanges)) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * Returns the changes of the variables of all programs from the states
+     * of the last changes to the current states. The changes are computed
+     * once per step and shared by all expressions evaluated on the step.
+     */
+    private StateChanges nextChanges(StateChanges changes) {
+        if (changes == null) {
+            return new StateChanges(list_currentTraceStates, list_currentTraceStates);
+        }
+        return changes.next(list_currentTraceStates);
+    }
+
     /**
      * Creates a new watch expression
      *
@@ -293,6 +799,7 @@ public class DebugControl {
             list_watchExpressions.add(null);
         }
         list_watchExpressions.set(id, new WatchExpression(expr));
+        bindExpressions();
     }
 
     /**
@@ -328,6 +835,7 @@ public class DebugControl {
      */
     public void deleteWatchExpression(int id) {
     	// System.out.println("Remove watch expression: "+id);
+        map_weSeries.remove(id);
         if (id == list_watchExpressions.size() - 1) {
             list_watchExpressions.remove(id);
         } else {
@@ -356,6 +864,7 @@ public class DebugControl {
             list_condBreakpoints.add(null);
         }
         list_condBreakpoints.set(id, new ConditionalBreakpoint(cond));
+        bindExpressions();
     }
 
     /**
@@ -451,12 +960,133 @@ public class DebugControl {
         list_stepSize.clear();
         list_programInput.clear();
         list_traceIterator.clear();
+        clearTraces();
         list_watchExpressions.clear();
+        map_weSeries.clear();
         list_condBreakpoints.clear();
         list_currentTraceStates.clear();
+        list_currentIndex.clear();
 
         maxIterations = DEF_IT;
         maxFunctionCalls = DEF_MAX_FUNC_CALLS;
+        traceMemoryBudget = GenerationController.DEFAULT_MEMORY_BUDGET;
+    }
+
+    /**
+     * Returns the generation controller of a program, set up with the current
+     * settings. The controller and its program cache are kept across
+     * launches; a lazily generated trace only uses the execution context of
+     * its own run, so it does not keep the controller busy.
+     */
+    private GenerationController getGenerationController(String programId) {
+        GenerationController controller = map_generationControllers.get(programId);
+        if (controller == null) {
+            controller = new GenerationController(maxIterations, maxFunctionCalls);
+            map_generationControllers.put(programId, controller);
+        }
+        controller.setMaxFuncCalls(maxFunctionCalls);
+        controller.setMaxIterations(maxIterations);
+        controller.setMemoryBudget(traceMemoryBudget);
+        controller.setExecutionEngine(executionEngine);
+        return controller;
+    }
+
+    private Trace loadOrGenerateTrace(GenerationController controller, ProgramInput pi, File traceFile)
+            throws DIbuggerLogicException {
+        if (traceFile != null && traceFile.isFile()) {
+            try {
+                Trace trace = TraceFile.read(traceFile, fingerprint(pi));
+                if (trace != null) {
+                    return trace;
+                }
+            } catch (TraceStorageException e) {
+                // a damaged file is replaced by the next save
+            }
+        }
+        return generateTrace(controller, pi);
+    }
+
+    private long fingerprint(ProgramInput pi) {
+        return TraceFile.fingerprint(pi.getText(), pi.getInputValues(), maxIterations, maxFunctionCalls);
+    }
+
+    private Trace generateTrace(GenerationController controller, ProgramInput pi) throws DIbuggerLogicException {
+        if (lazyTraceGeneration) {
+            return controller.generateLazyTrace(pi.getText(), pi.getInputValues(), pi.getProgramID());
+        }
+        return controller.generateCompleteTrace(pi.getText(), pi.getInputValues(), pi.getProgramID());
+    }
+
+    /**
+     * Waits for the generation of a trace and throws the exception the
+     * generation failed with.
+     */
+    private static Trace waitFor(FutureTask<Trace> task) throws DIbuggerLogicException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    // the generation is not interruptible, so wait until it
+                    // is done and keep the interrupt for the caller
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DIbuggerLogicException) {
+                throw (DIbuggerLogicException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void clearTraces() {
+        // stop generating traces nobody iterates anymore and delete their
+        // files
+        for (Trace trace : list_traces) {
+            trace.release();
+        }
+        list_traces.clear();
+        map_weSeries.clear();
+        weChanges = null;
+        cbChanges = null;
+    }
+
+    /**
+     * Saves the trace of a program to a file, so a later launch with the same
+     * text, input and limits of the program reads it instead of generating it,
+     * see {@link #launchRun(List, List)}. A lazily generated trace is only
+     * saved once it is complete, saving does not generate the rest of it.
+     *
+     * @param programID
+     *            the program
+     * @param file
+     *            the file, an existing file is replaced
+     * @return true if the trace was saved, false if the program has no trace,
+     *         its trace is not complete yet or the program failed
+     * @throws DIbuggerLogicException
+     *             if the file cannot be written
+     */
+    public boolean saveTrace(int programID, File file) throws DIbuggerLogicException {
+        if (programID < 0 || programID >= list_traces.size() || programID >= list_programInput.size()) {
+            return false;
+        }
+        Trace trace = list_traces.get(programID);
+        if (!trace.isComplete() || trace.isFailed()) {
+            return false;
+        }
+        TraceFile.write(file, trace, fingerprint(list_programInput.get(programID)));
+        return true;
     }
 
     public void endRun(){
@@ -464,6 +1094,7 @@ public class DebugControl {
 	    	list_lastTraceStates.clear();
 	    	list_lastTraceStates.addAll(list_currentTraceStates);
 	    	list_currentTraceStates.clear();
+	    	list_currentIndex.clear();
     	}
     }
 
@@ -483,6 +1114,136 @@ public class DebugControl {
         list_stepSize.set(programID, stepSize);
     }
 
+    /**
+     * Searches an input for which the programs of the current run differ and
+     * launches the programs with it. The candidates are drawn from the ranges
+     * of the parameters and run in parallel without traces.
+     *
+     * @param ranges
+     *            the ranges of the parameters by their identifiers, e.g.
+     *            "[0,10]"
+     * @param condition
+     *            the relational condition checked in every step of the
+     *            programs run in lockstep, null or empty to compare the
+     *            return values
+     * @param seed
+     *            the seed of the candidates drawn
+     * @param maxCandidates
+     *            the maximum number of candidates run
+     * @return the result of the search, null if it was interrupted
+     * @throws DIbuggerLogicException
+     *             if a program, a range or the condition is wrong or the
+     *             launch with the input found fails
+     * @see CounterexampleSearch
+     */
+    public CounterexampleResult searchCounterexample(Map<String, String> ranges, String condition, long seed,
+            long maxCandidates) throws DIbuggerLogicException {
+        List<String> programIds = new ArrayList<String>();
+        for (ProgramInput pi : list_programInput) {
+            programIds.add(pi.getProgramID());
+        }
+        CounterexampleSearch search = new CounterexampleSearch(compilePrograms(), programIds);
+        for (Map.Entry<String, String> range : ranges.entrySet()) {
+            search.setRange(range.getKey(), range.getValue());
+        }
+        if (condition != null && !condition.trim().isEmpty()) {
+            search.setCondition(new ConditionalBreakpoint(condition));
+        }
+        search.setSeed(seed);
+        search.setMaxCandidates(maxCandidates);
+        search.setMaxIterations(maxIterations);
+        search.setMaxFuncCalls(maxFunctionCalls);
+        CounterexampleResult result;
+        try {
+            result = search.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        if (result.isFound()) {
+            for (ProgramInput pi : list_programInput) {
+                pi.setInputValues(result.getInputStrings());
+                pi.setCounter(0);
+            }
+            launchRun(list_programInput);
+        }
+        return result;
+    }
+
+    /**
+     * Generates a small set of inputs covering as many branches of the
+     * programs as possible. The candidates are mutated from the inputs which
+     * covered new branches so far and run in parallel without traces.
+     *
+     * @param ranges
+     *            the ranges of the parameters by their identifiers, e.g.
+     *            "[0,10]"
+     * @param seed
+     *            the seed of the candidates generated
+     * @param maxExecutions
+     *            the number of candidates run
+     * @return the inputs, null if the generation was interrupted
+     * @throws DIbuggerLogicException
+     *             if a program or a range is wrong
+     * @see CoverageFuzzer
+     */
+    public CoverageCorpus generateCoverageCorpus(Map<String, String> ranges, long seed, long maxExecutions)
+            throws DIbuggerLogicException {
+        CoverageFuzzer fuzzer = new CoverageFuzzer(compilePrograms());
+        for (Map.Entry<String, String> range : ranges.entrySet()) {
+            fuzzer.setRange(range.getKey(), range.getValue());
+        }
+        fuzzer.setSeed(seed);
+        fuzzer.setMaxExecutions(maxExecutions);
+        fuzzer.setMaxIterations(maxIterations);
+        fuzzer.setMaxFuncCalls(maxFunctionCalls);
+        try {
+            return fuzzer.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private List<CompiledProgram> compilePrograms() throws DIbuggerLogicException {
+        List<CompiledProgram> programs = new ArrayList<CompiledProgram>();
+        for (ProgramInput pi : list_programInput) {
+            programs.add(getGenerationController(pi.getProgramID()).compileProgram(pi.getText()));
+        }
+        return programs;
+    }
+
+    /**
+     * Returns the input of the programs debugged.
+     *
+     * @return the programs, in their order
+     */
+    List<ProgramInput> getProgramInput() {
+        return list_programInput;
+    }
+
+    /**
+     * Returns the traces of the current run, in the order of the programs.
+     *
+     * @return the traces, empty if there is no run
+     */
+    List<Trace> getTraces() {
+        return new ArrayList<Trace>(list_traces);
+    }
+
+    /**
+     * Returns the step sizes of the programs of the current run.
+     *
+     * @return the step sizes, in the order of the traces
+     */
+    List<Integer> getStepSizes() {
+        List<Integer> stepSizes = new ArrayList<Integer>();
+        for (int i = 0; i < list_traces.size(); ++i) {
+            stepSizes.add(i < list_stepSize.size() ? list_stepSize.get(i) : 1);
+        }
+        return stepSizes;
+    }
+
     /**
      * Getter for the current programCounter of all programs
      *
@@ -505,11 +1266,92 @@ public class DebugControl {
         Map<String, Integer> l = new HashMap<String, Integer>();
         for (int i = 0; i < Math.min(numPrograms, list_currentTraceStates.size()); ++i) {
             TraceState state = list_currentTraceStates.get(i);
-            l.put(state.getProgramId(), state.getLineNumber());
+            if (state != null) {
+                l.put(state.getProgramId(), state.getLineNumber());
+            }
         }
         return l;
     }
 
+    /**
+     * Enables or disables the lazy trace generation. Takes effect at the next
+     * launch.
+     *
+     * @param lazy
+     *            true if the traces should be generated while stepping
+     */
+    public void setLazyTraceGeneration(boolean lazy) {
+        this.lazyTraceGeneration = lazy;
+    }
+
+    /**
+     *
+     * @return true if the traces are generated while stepping
+     */
+    public boolean isLazyTraceGeneration() {
+        return lazyTraceGeneration;
+    }
+
+    /**
+     * Sets the estimated size the states of a trace may take in memory. The
+     * states of a longer trace are moved to a file and read again when the
+     * debugger steps to them. Takes effect at the next launch.
+     *
+     * @param budget
+     *            the size in bytes, {@link Long#MAX_VALUE} to keep all states
+     *            in memory
+     */
+    public void setTraceMemoryBudget(long budget) {
+        this.traceMemoryBudget = budget;
+    }
+
+    /**
+     *
+     * @return the estimated size in bytes the states of a trace may take in
+     *         memory
+     */
+    public long getTraceMemoryBudget() {
+        return traceMemoryBudget;
+    }
+
+    /**
+     * Sets the engine running the programs. Takes effect at the next launch.
+     *
+     * @param executionEngine
+     *            the engine
+     */
+    public void setExecutionEngine(ExecutionEngine executionEngine) {
+        this.executionEngine = executionEngine;
+    }
+
+    /**
+     *
+     * @return the engine running the programs
+     */
+    public ExecutionEngine getExecutionEngine() {
+        return executionEngine;
+    }
+
+    /**
+     * Sets the executor the traces are generated on. Takes effect at the next
+     * launch.
+     *
+     * @param executor
+     *            the executor
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the executor the traces are generated on.
+     *
+     * @return the executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
     /**
      * Sets the maximum iteration count for loops (example: while loop)
      *
@@ -627,13 +1469,42 @@ public class DebugControl {
      *            the id of the expression
      * @return the current Value of the expression
      * @throws DIbuggerLogicException
-     *             {@linkplain WatchExpression#evaluate(List)}
+     *             {@linkplain WatchExpression#evaluate(List, StateChanges)}
      */
     public String getWEValue(int expressionID) throws DIbuggerLogicException {
         if (expressionID >= list_watchExpressions.size() || list_watchExpressions.get(expressionID) == null) {
             return "?";
         }
-        return list_watchExpressions.get(expressionID).evaluate(list_currentTraceStates);
+        weChanges = nextChanges(weChanges);
+        return list_watchExpressions.get(expressionID).evaluate(list_currentTraceStates, weChanges);
+    }
+
+    /**
+     * Returns the values of a watch expression at every step of the current
+     * run, or at every n-th step. The steps are those of all programs stepping
+     * together with their step sizes from the start. The series is computed in
+     * parallel chunks and kept until the run, the step sizes or the expression
+     * change.
+     *
+     * @param expressionID
+     *            the id of the expression
+     * @param sampling
+     *            the number of steps between two values, at least 1
+     * @return the series, null if there is no such expression or no run
+     */
+    public WatchExpressionSeries getWatchExpressionSeries(int expressionID, int sampling) {
+        if (expressionID >= list_watchExpressions.size() || list_watchExpressions.get(expressionID) == null
+                || list_traces.isEmpty()) {
+            return null;
+        }
+        WatchExpression we = list_watchExpressions.get(expressionID);
+        List<Integer> stepSizes = getStepSizes();
+        WatchExpressionSeries series = map_weSeries.get(expressionID);
+        if (series == null || !series.isComputedFrom(we, list_traces, stepSizes, sampling)) {
+            series = WatchExpressionSeries.compute(we, list_traces, stepSizes, sampling, ForkJoinPool.commonPool());
+            map_weSeries.put(expressionID, series);
+        }
+        return series;
     }
 
     /**
@@ -715,13 +1586,14 @@ public class DebugControl {
      *            the id of the conditional breakpoint
      * @return the current Value of the condition
      * @throws DIbuggerLogicException
-     *             {@linkplain ConditionalBreakpoint#evaluate(List)}
+     *             {@linkplain ConditionalBreakpoint#evaluate(List, StateChanges)}
      */
     public String getCBValue(int breakpointID) throws DIbuggerLogicException {
         if (breakpointID >= list_condBreakpoints.size() || list_condBreakpoints.get(breakpointID) == null) {
             return "?";
         }
-        list_condBreakpoints.get(breakpointID).evaluate(list_currentTraceStates);
+        cbChanges = nextChanges(cbChanges);
+        list_condBreakpoints.get(breakpointID).evaluate(list_currentTraceStates, cbChanges);
         return list_condBreakpoints.get(breakpointID).evaluateToString();
     }
 
@@ -778,7 +1650,7 @@ public class DebugControl {
     public String getValueOf(String programNameID, String variable) {
         for (int i = 0; i < Math.max(list_currentTraceStates.size(), list_lastTraceStates.size()); ++i) {
             TraceState state = (i<list_currentTraceStates.size()) ? list_currentTraceStates.get(i) : list_lastTraceStates.get(i);
-            if (state.getProgramId().equals(programNameID)) {
+            if (state != null && state.getProgramId().equals(programNameID)) {
                 return state.getValueOf(variable).toString();
             }
         }
@@ -821,8 +1693,8 @@ public class DebugControl {
         for (int i = 0; i < list_currentTraceStates.size(); ++i) {
             TraceState state = list_currentTraceStates.get(i);
             if (state.getProgramId().equals(programNameID)) {
-                if (list_programReturnValue.get(i) != null) {
-                    return list_programReturnValue.get(i).toString();
+                if (i < list_traces.size() && list_traces.get(i).getReturnValue() != null) {
+                    return list_traces.get(i).getReturnValue().toString();
                 }
             }
         }
@@ -864,4 +1736,13 @@ public class DebugControl {
      * Indicator for a step back with the size 1 (steps back 1 command)
      */
     public static final int STEP_BACK = 3;
+    /**
+     * Indicator for a step back past the previous function call
+     */
+    public static final int STEP_BACK_OVER = 4;
+    /**
+     * Indicator for a step back out of the current function, to the state
+     * before its call
+     */
+    public static final int STEP_BACK_OUT = 5;
 }
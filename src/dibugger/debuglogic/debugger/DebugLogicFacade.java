@@ -1,13 +1,17 @@
 package dibugger.debuglogic.debugger;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
+import java.util.concurrent.Executor;
 
+import dibugger.debuglogic.batch.CounterexampleResult;
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 import dibugger.debuglogic.interpreter.ConditionalBreakpoint;
+import dibugger.debuglogic.interpreter.ExecutionEngine;
 import dibugger.debuglogic.interpreter.ScopeTuple;
 import dibugger.debuglogic.interpreter.WatchExpression;
 
@@ -40,12 +44,17 @@ public class DebugLogicFacade extends Observable {
         
         map_suggestions_step_size = new HashMap<String, StepSizeSuggestion>();
         map_suggestions_step_size.put("suggest_strategy_simple_stepsize", suggest_stepsize);
+        map_suggestions_step_size.put("suggest_strategy_alignment_stepsize",
+                new AlignmentStepSizeSuggestion(debugControl));
         
         map_suggestions_input_value = new HashMap<String, InputValueSuggestion>();
         map_suggestions_input_value.put("suggest_strategy_simple_input", suggest_input);
+        map_suggestions_input_value.put("suggest_strategy_coverage_input", new CoverageInputSuggestion(debugControl));
         
         map_suggestions_relational = new HashMap<String, RelationalSuggestion>();
         map_suggestions_relational.put("suggest_strategy_simple_relational", suggest_relational);
+        map_suggestions_relational.put("suggest_strategy_invariant_relational",
+                new InvariantRelationalSuggestion(debugControl));
     }
    
     public void notifyAllObservers() {
@@ -72,7 +81,7 @@ public class DebugLogicFacade extends Observable {
     /**
      * @see DebugControl#singleStep(int)
      */
-    public void singleStep(int programID) {
+    public void singleStep(int programID) throws DIbuggerLogicException {
         debugControl.singleStep(programID);
         notifyAllObservers();
     }
@@ -85,6 +94,30 @@ public class DebugLogicFacade extends Observable {
         notifyAllObservers();
     }
 
+    /**
+     * @see DebugControl#reverseContinueDebug()
+     */
+    public void reverseContinueDebug() {
+        debugControl.reverseContinueDebug();
+        notifyAllObservers();
+    }
+
+    /**
+     * @see DebugControl#seek(int, int)
+     */
+    public void seek(int programID, int step) throws DIbuggerLogicException {
+        debugControl.seek(programID, step);
+        notifyAllObservers();
+    }
+
+    /**
+     * @see DebugControl#seekAll(int[])
+     */
+    public void seekAll(int[] steps) throws DIbuggerLogicException {
+        debugControl.seekAll(steps);
+        notifyAllObservers();
+    }
+
     /**
      * @throws DIbuggerLogicException
      * @see DebugControl#createWatchExpression(int, String)
@@ -154,6 +187,24 @@ public class DebugLogicFacade extends Observable {
         debugControl.launchRun(programs);
     }
 
+    /**
+     * @throws DIbuggerLogicException
+     *             {@linkplain DebugControl#launchRun(List, List)}
+     * @see DebugControl#launchRun(List, List)
+     */
+    public void launchRun(List<ProgramInput> programs, List<File> traceFiles) throws DIbuggerLogicException {
+        debugControl.launchRun(programs, traceFiles);
+    }
+
+    /**
+     * @throws DIbuggerLogicException
+     *             {@linkplain DebugControl#saveTrace(int, File)}
+     * @see DebugControl#saveTrace(int, File)
+     */
+    public boolean saveTrace(int programID, File file) throws DIbuggerLogicException {
+        return debugControl.saveTrace(programID, file);
+    }
+
     /**
      * Synchronizes the ProgramInput with a given Programinput List
      * 
@@ -191,6 +242,55 @@ public class DebugLogicFacade extends Observable {
         notifyAllObservers();
     }
 
+    /**
+     * @see DebugControl#setLazyTraceGeneration(boolean)
+     */
+    public void setLazyTraceGeneration(boolean lazy) {
+        debugControl.setLazyTraceGeneration(lazy);
+    }
+
+    /**
+     * @see DebugControl#isLazyTraceGeneration()
+     */
+    public boolean isLazyTraceGeneration() {
+        return debugControl.isLazyTraceGeneration();
+    }
+
+    /**
+     * @see DebugControl#setTraceMemoryBudget(long)
+     */
+    public void setTraceMemoryBudget(long budget) {
+        debugControl.setTraceMemoryBudget(budget);
+    }
+
+    /**
+     * @see DebugControl#getTraceMemoryBudget()
+     */
+    public long getTraceMemoryBudget() {
+        return debugControl.getTraceMemoryBudget();
+    }
+
+    /**
+     * @see DebugControl#setExecutionEngine(ExecutionEngine)
+     */
+    public void setExecutionEngine(ExecutionEngine executionEngine) {
+        debugControl.setExecutionEngine(executionEngine);
+    }
+
+    /**
+     * @see DebugControl#getExecutionEngine()
+     */
+    public ExecutionEngine getExecutionEngine() {
+        return debugControl.getExecutionEngine();
+    }
+
+    /**
+     * @see DebugControl#setExecutor(Executor)
+     */
+    public void setExecutor(Executor executor) {
+        debugControl.setExecutor(executor);
+    }
+
     /**
      * @see DebugControl#setMaximumIterations(int)
      */
@@ -255,6 +355,16 @@ public class DebugLogicFacade extends Observable {
         return suggest_input.suggest(identifier, range, type);
     }
 
+    /**
+     * @see DebugControl#searchCounterexample(Map, String, long, long)
+     */
+    public CounterexampleResult searchCounterexample(Map<String, String> ranges, String condition, long seed,
+            long maxCandidates) throws DIbuggerLogicException {
+        CounterexampleResult result = debugControl.searchCounterexample(ranges, condition, seed, maxCandidates);
+        notifyAllObservers();
+        return result;
+    }
+
     /**
      * Select a strategy to be used to suggest step sizes
      * 
@@ -286,6 +396,20 @@ public class DebugLogicFacade extends Observable {
     }
 
     // Getter delegated to DebugControl
+    /**
+     * Getter for the values of a watch expression at every n-th step of the
+     * current run
+     * 
+     * @param expressionID
+     *            the id of the expression
+     * @param sampling
+     *            the number of steps between two values, at least 1
+     * @return the values, null if there is no such expression or no run
+     */
+    public WatchExpressionSeries getWatchExpressionSeries(int expressionID, int sampling) {
+        return debugControl.getWatchExpressionSeries(expressionID, sampling);
+    }
+
     /**
      * 
      * @return the amount of conditional breakpoints
@@ -0,0 +1,519 @@
+package dibugger.debuglogic.debugger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import dibugger.debuglogic.interpreter.ArrayValue;
+import dibugger.debuglogic.interpreter.CharValue;
+import dibugger.debuglogic.interpreter.DoubleValue;
+import dibugger.debuglogic.interpreter.FloatValue;
+import dibugger.debuglogic.interpreter.IntValue;
+import dibugger.debuglogic.interpreter.LongValue;
+import dibugger.debuglogic.interpreter.TermValue;
+import dibugger.debuglogic.interpreter.TraceState;
+
+/**
+ * Mines relations between the variables of traces which hold in every step
+ * of a run. Every pair of variables starts with all candidate relations:
+ * equality, less or equal, greater or equal, a constant offset and a linear
+ * relation with a whole factor, or equality of one dimensional arrays. The
+ * traces are scanned step by step at the step sizes of the programs, and
+ * every step drops the relations it contradicts. A pair is only checked when
+ * one of its variables changed, and pairs without relations left are not
+ * checked again, so the scan gets faster the more relations are dropped.
+ *
+ * A relation is only checked at the steps both variables exist in. Relations
+ * checked less than {@value #MIN_SUPPORT} times, i.e. of variables which
+ * never changed, are not reported.
+ *
+ * @author scheler
+ *
+ */
+final class InvariantMiner {
+
+    /**
+     * Minimal number of checks of a relation reported.
+     */
+    static final int MIN_SUPPORT = 2;
+    /**
+     * Maximal number of elements compared by the expressions of an array
+     * equality.
+     */
+    static final int MAX_ARRAY_TERMS = 4;
+
+    private static final int EQ = 1;
+    private static final int LE = 2;
+    private static final int GE = 4;
+    private static final int OFFSET = 8;
+    private static final int LINEAR = 16;
+    private static final int ARRAY_EQ = 32;
+    private static final int NUMERIC = EQ | LE | GE | OFFSET | LINEAR;
+
+    // the identifiers the relational expressions can refer to
+    private static final Pattern PROGRAM_ID = Pattern.compile("[A-Z]");
+    private static final Pattern IDENTIFIER = Pattern.compile("([a-z]|[A-Z])+");
+
+    private final List<Variable> variables;
+    private final List<Map<String, Variable>> byIdentifier;
+    private int step;
+
+    private InvariantMiner(int programs) {
+        this.variables = new ArrayList<Variable>();
+        this.byIdentifier = new ArrayList<Map<String, Variable>>();
+        for (int i = 0; i < programs; ++i) {
+            this.byIdentifier.add(new HashMap<String, Variable>());
+        }
+    }
+
+    /**
+     * Mines the relations of a run.
+     *
+     * @param states
+     *            the states of the traces, in the order of the programs
+     * @param stepSizes
+     *            the step sizes of the programs
+     * @return the relations holding in all steps, strongest first
+     */
+    static List<Invariant> mine(List<List<TraceState>> states, List<Integer> stepSizes) {
+        InvariantMiner miner = new InvariantMiner(states.size());
+        long steps = 0;
+        for (int i = 0; i < states.size(); ++i) {
+            int stepSize = Math.max(1, stepSizes.get(i));
+            steps = Math.max(steps, (states.get(i).size() + stepSize - 1) / stepSize);
+        }
+        TraceState[] previous = new TraceState[states.size()];
+        List<Variable> changed = new ArrayList<Variable>();
+        for (long k = 1; k <= steps; ++k) {
+            ++miner.step;
+            changed.clear();
+            for (int i = 0; i < states.size(); ++i) {
+                List<TraceState> trace = states.get(i);
+                if (trace.isEmpty()) {
+                    continue;
+                }
+                long index = Math.min(k * Math.max(1, stepSizes.get(i)) - 1, trace.size() - 1);
+                TraceState state = trace.get((int) index);
+                if (state != previous[i]) {
+                    miner.read(i, previous[i], state, changed);
+                    previous[i] = state;
+                }
+            }
+            for (Variable variable : changed) {
+                for (Candidate candidate : variable.candidates) {
+                    if (candidate.checkedAt != miner.step && candidate.relations != 0) {
+                        candidate.checkedAt = miner.step;
+                        candidate.check();
+                    }
+                }
+            }
+            // forget the pairs without relations left
+            for (Variable variable : changed) {
+                variable.candidates.removeIf(candidate -> candidate.relations == 0);
+            }
+        }
+        return miner.collect();
+    }
+
+    /**
+     * Reads the variables of a program which changed between two states.
+     */
+    private void read(int program, TraceState previous, TraceState state, List<Variable> changed) {
+        Set<String> identifiers = state.getAllVariableIdentifiers();
+        if (previous == null || previous.getAllVariableIdentifiers() != identifiers) {
+            // another scope, every variable may have appeared or disappeared
+            for (Variable variable : this.byIdentifier.get(program).values()) {
+                if (!identifiers.contains(variable.identifier)) {
+                    update(variable, null, changed);
+                }
+            }
+            for (String identifier : identifiers) {
+                update(program, identifier, state, changed);
+            }
+        } else {
+            for (String identifier : state.getChangedIdentifiers(previous)) {
+                update(program, identifier, state, changed);
+            }
+        }
+    }
+
+    private void update(int program, String identifier, TraceState state, List<Variable> changed) {
+        Variable variable = this.byIdentifier.get(program).get(identifier);
+        TermValue value = state.getValueOf(identifier);
+        if (variable == null) {
+            String programId = state.getProgramId();
+            if (programId == null || !PROGRAM_ID.matcher(programId).matches()
+                    || !IDENTIFIER.matcher(identifier).matches()) {
+                return;
+            }
+            boolean array = value instanceof ArrayValue;
+            if (!array && Double.isNaN(toNumber(value))) {
+                // booleans cannot be related
+                return;
+            }
+            variable = new Variable(programId + "." + identifier, program, identifier, array);
+            this.byIdentifier.get(program).put(identifier, variable);
+            for (Variable other : this.variables) {
+                if (other.array == array) {
+                    Candidate candidate = new Candidate(other, variable);
+                    other.candidates.add(candidate);
+                    variable.candidates.add(candidate);
+                }
+            }
+            this.variables.add(variable);
+        }
+        update(variable, value, changed);
+    }
+
+    private static void update(Variable variable, TermValue value, List<Variable> changed) {
+        if (variable.array) {
+            double[] elements = toElements(value);
+            if (variable.elements == null ? elements == null : Arrays.equals(variable.elements, elements)) {
+                return;
+            }
+            variable.elements = elements;
+        } else {
+            double number = toNumber(value);
+            if (Double.compare(number, variable.value) == 0) {
+                return;
+            }
+            variable.value = number;
+        }
+        changed.add(variable);
+    }
+
+    private static double toNumber(TermValue value) {
+        if (value instanceof IntValue) {
+            return ((IntValue) value).getValue();
+        } else if (value instanceof LongValue) {
+            return ((LongValue) value).getValue();
+        } else if (value instanceof CharValue) {
+            return ((CharValue) value).getValue();
+        } else if (value instanceof FloatValue) {
+            return ((FloatValue) value).getValue();
+        } else if (value instanceof DoubleValue) {
+            return ((DoubleValue) value).getValue();
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Returns the elements of a one dimensional array.
+     *
+     * @return the elements, null if the value is no such array or has
+     *         elements which are no numbers
+     */
+    private static double[] toElements(TermValue value) {
+        if (!(value instanceof ArrayValue)) {
+            return null;
+        }
+        ArrayValue array = (ArrayValue) value;
+        if (array.getLength(1) != 1 || array.getLength(2) != 1) {
+            return null;
+        }
+        double[] elements = new double[array.getLength(0)];
+        for (int i = 0; i < elements.length; ++i) {
+            elements[i] = toNumber(array.get(i, 0, 0));
+            if (Double.isNaN(elements[i])) {
+                return null;
+            }
+        }
+        return elements;
+    }
+
+    private List<Invariant> collect() {
+        List<Invariant> invariants = new ArrayList<Invariant>();
+        for (Variable variable : this.variables) {
+            for (Candidate candidate : variable.candidates) {
+                // every pair is listed by both of its variables
+                if (candidate.right == variable) {
+                    Invariant invariant = candidate.toInvariant();
+                    if (invariant != null) {
+                        invariants.add(invariant);
+                    }
+                }
+            }
+        }
+        Collections.sort(invariants, Comparator.comparing((Invariant i) -> !i.isBetweenPrograms())
+                .thenComparingInt(i -> rank(i.kind)).thenComparingInt(i -> -i.support)
+                .thenComparing(Invariant::getRelation));
+        return invariants;
+    }
+
+    private static int rank(int kind) {
+        switch (kind) {
+        case EQ:
+            return 0;
+        case ARRAY_EQ:
+            return 1;
+        case OFFSET:
+            return 2;
+        case LINEAR:
+            return 3;
+        default:
+            return 4;
+        }
+    }
+
+    private static final class Variable {
+        private final String name;
+        private final int program;
+        private final String identifier;
+        private final boolean array;
+        private final List<Candidate> candidates;
+        private double value;
+        private double[] elements;
+
+        private Variable(String name, int program, String identifier, boolean array) {
+            this.name = name;
+            this.program = program;
+            this.identifier = identifier;
+            this.array = array;
+            this.candidates = new ArrayList<Candidate>();
+            this.value = Double.NaN;
+        }
+    }
+
+    /**
+     * The relations of a pair of variables still holding. The right variable
+     * is expressed by the left one for offsets and linear relations.
+     */
+    private static final class Candidate {
+        private final Variable left;
+        private final Variable right;
+        private int relations;
+        private int support;
+        private int checkedAt;
+        private double offset;
+        private double factor;
+        // the first value of the linear relation, until the factor is known
+        private double firstLeft;
+        private double firstRight;
+
+        private Candidate(Variable left, Variable right) {
+            this.left = left;
+            this.right = right;
+            this.relations = left.array ? ARRAY_EQ : NUMERIC;
+            this.offset = Double.NaN;
+            this.factor = Double.NaN;
+            this.firstLeft = Double.NaN;
+        }
+
+        private void check() {
+            if (this.left.array) {
+                if (this.left.elements == null || this.right.elements == null) {
+                    return;
+                }
+                ++this.support;
+                if (!Arrays.equals(this.left.elements, this.right.elements)) {
+                    this.relations = 0;
+                }
+                return;
+            }
+            double l = this.left.value;
+            double r = this.right.value;
+            if (Double.isNaN(l) || Double.isNaN(r)) {
+                return;
+            }
+            ++this.support;
+            if (l != r) {
+                this.relations &= ~EQ;
+            }
+            if (r > l) {
+                this.relations &= ~LE;
+            }
+            if (r < l) {
+                this.relations &= ~GE;
+            }
+            if ((this.relations & OFFSET) != 0) {
+                if (Double.isNaN(this.offset)) {
+                    this.offset = r - l;
+                    if (this.offset != Math.rint(this.offset)) {
+                        this.relations &= ~OFFSET;
+                    }
+                } else if (r - l != this.offset) {
+                    this.relations &= ~OFFSET;
+                }
+            }
+            if ((this.relations & LINEAR) != 0) {
+                checkLinear(l, r);
+            }
+        }
+
+        private void checkLinear(double l, double r) {
+            if (Double.isNaN(this.firstLeft)) {
+                this.firstLeft = l;
+                this.firstRight = r;
+            } else if (Double.isNaN(this.factor)) {
+                if (l == this.firstLeft) {
+                    if (r != this.firstRight) {
+                        this.relations &= ~LINEAR;
+                    }
+                    return;
+                }
+                double f = (r - this.firstRight) / (l - this.firstLeft);
+                // factors 0 and 1 are constants and offsets
+                if (f != Math.rint(f) || f == 0 || f == 1) {
+                    this.relations &= ~LINEAR;
+                    return;
+                }
+                this.factor = f;
+                this.firstRight -= f * this.firstLeft;
+            } else if (r != this.factor * l + this.firstRight) {
+                this.relations &= ~LINEAR;
+            }
+        }
+
+        private Invariant toInvariant() {
+            if (this.support < MIN_SUPPORT) {
+                return null;
+            }
+            // the variable read first is on the left, except for the linear
+            // relation, which has a whole factor only in this direction
+            if ((this.relations & ARRAY_EQ) != 0) {
+                return new Invariant(ARRAY_EQ, this.left, this.right, 0, 0, this.support);
+            } else if ((this.relations & EQ) != 0) {
+                return new Invariant(EQ, this.left, this.right, 1, 0, this.support);
+            } else if ((this.relations & OFFSET) != 0) {
+                return new Invariant(OFFSET, this.left, this.right, 1, -this.offset, this.support);
+            } else if ((this.relations & LINEAR) != 0 && !Double.isNaN(this.factor)
+                    && this.support > MIN_SUPPORT) {
+                return new Invariant(LINEAR, this.right, this.left, this.factor, this.firstRight, this.support);
+            } else if ((this.relations & LE) != 0) {
+                return new Invariant(GE, this.left, this.right, 1, 0, this.support);
+            } else if ((this.relations & GE) != 0) {
+                return new Invariant(LE, this.left, this.right, 1, 0, this.support);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A relation between two variables which holds in all steps of a run:
+     * {@code left == factor * right + offset}, {@code left <= right},
+     * {@code left >= right} or the equality of two arrays.
+     */
+    static final class Invariant {
+        private final int kind;
+        private final String left;
+        private final String right;
+        private final long factor;
+        private final long offset;
+        private final int support;
+        private final boolean betweenPrograms;
+        private final int arrayLength;
+
+        private Invariant(int kind, Variable left, Variable right, double factor, double offset, int support) {
+            this.kind = kind;
+            this.left = left.name;
+            this.right = right.name;
+            this.factor = (long) factor;
+            this.offset = (long) offset;
+            this.support = support;
+            this.betweenPrograms = left.program != right.program;
+            this.arrayLength = left.elements == null ? 0 : left.elements.length;
+        }
+
+        /**
+         * Returns whether the variables are of different programs.
+         *
+         * @return true if the relation is between two programs
+         */
+        boolean isBetweenPrograms() {
+            return this.betweenPrograms;
+        }
+
+        /**
+         * Returns the number of steps the relation was checked at.
+         *
+         * @return the support of the relation
+         */
+        int getSupport() {
+            return this.support;
+        }
+
+        /**
+         * Returns the relation, e.g. "A.x == B.y + 1".
+         *
+         * @return the relation
+         */
+        String getRelation() {
+            switch (this.kind) {
+            case ARRAY_EQ:
+                return this.left + " == " + this.right;
+            case LE:
+                return this.left + " <= " + this.right;
+            case GE:
+                return this.left + " >= " + this.right;
+            default:
+                return this.left + " == " + linear();
+            }
+        }
+
+        /**
+         * Returns a watch expression which is constant if the relation holds,
+         * e.g. "A.x - B.y".
+         *
+         * @return the watch expression
+         */
+        String getWatchExpression() {
+            switch (this.kind) {
+            case ARRAY_EQ:
+                return this.left + "[0] - " + this.right + "[0]";
+            case LE:
+                return this.right + " - " + this.left;
+            default:
+                return this.left + " - " + scaled();
+            }
+        }
+
+        /**
+         * Returns a condition which is satisfied where the relation does not
+         * hold, e.g. "A.x != B.y + 1".
+         *
+         * @return the condition of a conditional breakpoint
+         */
+        String getViolation() {
+            switch (this.kind) {
+            case ARRAY_EQ:
+                StringBuilder condition = new StringBuilder();
+                for (int i = 0; i < Math.max(1, Math.min(MAX_ARRAY_TERMS, this.arrayLength)); ++i) {
+                    if (i > 0) {
+                        condition.append(" || ");
+                    }
+                    condition.append(this.left).append("[").append(i).append("] != ").append(this.right)
+                            .append("[").append(i).append("]");
+                }
+                return condition.toString();
+            case LE:
+                return this.left + " > " + this.right;
+            case GE:
+                return this.left + " < " + this.right;
+            default:
+                return this.left + " != " + linear();
+            }
+        }
+
+        private String scaled() {
+            return this.factor == 1 ? this.right : this.factor + " * " + this.right;
+        }
+
+        private String linear() {
+            if (this.offset == 0) {
+                return scaled();
+            }
+            return scaled() + (this.offset > 0 ? " + " + this.offset : " - " + -this.offset);
+        }
+
+        @Override
+        public String toString() {
+            return getRelation();
+        }
+    }
+}
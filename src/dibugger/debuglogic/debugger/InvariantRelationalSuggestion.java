@@ -0,0 +1,105 @@
+package dibugger.debuglogic.debugger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dibugger.debuglogic.interpreter.Trace;
+import dibugger.debuglogic.interpreter.TraceState;
+
+/**
+ * Suggests watch expressions and conditional breakpoints from the relations
+ * between the variables which hold in every step of the current run, see
+ * {@link InvariantMiner}. The relations between variables of different
+ * programs come first, stronger relations before weaker ones.
+ *
+ * Every suggestion moves on to the next relation. A watch expression is
+ * constant while its relation holds, e.g. "A.x - B.y", a conditional
+ * breakpoint stops where its relation does not hold, e.g. "A.x != B.y". The
+ * relations are mined again when the run or the step sizes change.
+ *
+ * Without a run or relations the suggestions are made like
+ * {@link SimpleRelationalSuggestion} does.
+ *
+ * @author scheler
+ *
+ */
+public class InvariantRelationalSuggestion extends RelationalSuggestion {
+
+    private RelationalSuggestion fallback;
+    private List<Trace> traces;
+    private List<Integer> stepSizes;
+    private List<InvariantMiner.Invariant> invariants;
+    private int nextWatchExpression;
+    private int nextConditionalBreakpoint;
+
+    public InvariantRelationalSuggestion(DebugControl debugControl) {
+        super(debugControl);
+        this.fallback = new SimpleRelationalSuggestion(debugControl);
+        this.invariants = new ArrayList<InvariantMiner.Invariant>();
+    }
+
+    @Override
+    public String suggestWatchExpression() {
+        mine();
+        if (this.invariants.isEmpty()) {
+            return this.fallback.suggestWatchExpression();
+        }
+        InvariantMiner.Invariant invariant = this.invariants.get(this.nextWatchExpression);
+        this.nextWatchExpression = (this.nextWatchExpression + 1) % this.invariants.size();
+        return invariant.getWatchExpression();
+    }
+
+    @Override
+    public String suggestConditionalBreakpoint() {
+        mine();
+        if (this.invariants.isEmpty()) {
+            return this.fallback.suggestConditionalBreakpoint();
+        }
+        InvariantMiner.Invariant invariant = this.invariants.get(this.nextConditionalBreakpoint);
+        this.nextConditionalBreakpoint = (this.nextConditionalBreakpoint + 1) % this.invariants.size();
+        return invariant.getViolation();
+    }
+
+    /**
+     * Returns the relations of the current run.
+     *
+     * @return the relations, e.g. "A.x == B.y + 1", strongest first
+     */
+    public List<String> getInvariants() {
+        mine();
+        List<String> relations = new ArrayList<String>();
+        for (InvariantMiner.Invariant invariant : this.invariants) {
+            relations.add(invariant.getRelation());
+        }
+        return relations;
+    }
+
+    private void mine() {
+        List<Trace> traces = this.debugControl.getTraces();
+        List<Integer> stepSizes = this.debugControl.getStepSizes();
+        if (this.traces != null && sameTraces(traces) && stepSizes.equals(this.stepSizes)) {
+            return;
+        }
+        List<List<TraceState>> states = new ArrayList<List<TraceState>>();
+        for (Trace trace : traces) {
+            states.add(trace.getAllStates());
+        }
+        this.invariants = InvariantMiner.mine(states, stepSizes);
+        this.traces = traces;
+        this.stepSizes = stepSizes;
+        this.nextWatchExpression = 0;
+        this.nextConditionalBreakpoint = 0;
+    }
+
+    private boolean sameTraces(List<Trace> traces) {
+        if (traces.size() != this.traces.size()) {
+            return false;
+        }
+        for (int i = 0; i < traces.size(); ++i) {
+            if (traces.get(i) != this.traces.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -2,6 +2,8 @@ package dibugger.debuglogic.debugger;
 
 import java.util.List;
 
+import dibugger.debuglogic.interpreter.ProgramCache;
+
 /**
  * Represents the start parameters of a program. The programtext,-input and
  * -counter.
@@ -14,6 +16,7 @@ public class ProgramInput {
     private List<String> inputValues;
     private int counter;
     private String programID;
+    private ProgramCache programCache;
 
     public ProgramInput(String text, List<String> inputValues, int counter, String programID) {
         this.text = text;
@@ -37,9 +40,23 @@ public class ProgramInput {
      *            the new programText
      */
     public void setText(String text) {
+        if (this.programCache != null && this.text != null && !this.text.equals(text)) {
+            this.programCache.invalidate(this.text);
+        }
         this.text = text;
     }
 
+    /**
+     * Sets the cache holding the parsed program of this input. Changing the
+     * text removes the old program from the cache.
+     * 
+     * @param programCache
+     *            the cache, may be null
+     */
+    public void setProgramCache(ProgramCache programCache) {
+        this.programCache = programCache;
+    }
+
     /**
      * 
      * @return a list of all input values
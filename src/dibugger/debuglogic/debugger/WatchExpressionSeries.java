@@ -0,0 +1,307 @@
+package dibugger.debuglogic.debugger;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import dibugger.debuglogic.interpreter.BooleanValue;
+import dibugger.debuglogic.interpreter.CharValue;
+import dibugger.debuglogic.interpreter.DoubleValue;
+import dibugger.debuglogic.interpreter.FloatValue;
+import dibugger.debuglogic.interpreter.IntValue;
+import dibugger.debuglogic.interpreter.LongValue;
+import dibugger.debuglogic.interpreter.ScopeTuple;
+import dibugger.debuglogic.interpreter.TermValue;
+import dibugger.debuglogic.interpreter.Trace;
+import dibugger.debuglogic.interpreter.TraceState;
+import dibugger.debuglogic.interpreter.WatchExpression;
+
+/**
+ * The values of a watch expression at the steps of a whole run, as a column
+ * of numbers. At step k every program is at the state it reaches after k
+ * steps of its step size, or at its last state. The steps are sampled: the
+ * column holds the values at the steps 1, 1 + sampling, 1 + 2 * sampling and
+ * so on up to the last step of the longest program.
+ *
+ * A value is valid if the states of the step are in the scope of the
+ * expression and the expression evaluates to a number, a character or a
+ * boolean there. Characters are stored as their code, booleans as 1 or 0.
+ *
+ * @author scheler
+ *
+ */
+public final class WatchExpressionSeries {
+
+    /**
+     * Number of steps evaluated by one task, a multiple of 64 so every task
+     * writes its own words of the validity bitmap.
+     */
+    static final int CHUNK_SIZE = 4096;
+
+    private final int sampling;
+    private final double[] values;
+    private final long[] longValues;
+    private final BitSet valid;
+
+    // what the series was computed from, to check whether it is outdated
+    private final WatchExpression expression;
+    private final String specifier;
+    private final List<ScopeTuple> scopes;
+    private final List<Trace> traces;
+    private final List<Integer> stepSizes;
+
+    private WatchExpressionSeries(int sampling, double[] values, long[] longValues, BitSet valid,
+            WatchExpression expression, List<Trace> traces, List<Integer> stepSizes) {
+        this.sampling = sampling;
+        this.values = values;
+        this.longValues = longValues;
+        this.valid = valid;
+        this.expression = expression;
+        this.specifier = expression.getSpecifier();
+        this.scopes = expression.getScopes();
+        this.traces = traces;
+        this.stepSizes = stepSizes;
+    }
+
+    /**
+     * Evaluates a watch expression at the sampled steps of all programs. The
+     * steps are split into chunks which are evaluated in parallel.
+     *
+     * @param expression
+     *            the watch expression, bound to the programs
+     * @param traces
+     *            the traces of the programs, lazily generated traces are
+     *            generated completely
+     * @param stepSizes
+     *            the step size of every program
+     * @param sampling
+     *            the number of steps between two values, at least 1
+     * @param pool
+     *            the pool evaluating the chunks
+     * @return the series
+     */
+    static WatchExpressionSeries compute(WatchExpression expression, List<Trace> traces, List<Integer> stepSizes,
+            int sampling, ForkJoinPool pool) {
+        if (sampling < 1) {
+            throw new IllegalArgumentException("sampling must be at least 1");
+        }
+        List<List<TraceState>> states = new ArrayList<List<TraceState>>();
+        for (Trace trace : traces) {
+            states.add(trace.getAllStates());
+        }
+        int[] sizes = new int[states.size()];
+        int[] strides = new int[states.size()];
+        long steps = 0;
+        for (int i = 0; i < states.size(); ++i) {
+            sizes[i] = states.get(i).size();
+            strides[i] = Math.max(1, stepSizes.get(i));
+            steps = Math.max(steps, (sizes[i] + strides[i] - 1) / strides[i]);
+        }
+        int count = steps == 0 ? 0 : (int) ((steps - 1) / sampling + 1);
+
+        double[] values = new double[count];
+        long[] longValues = new long[count];
+        long[] validWords = new long[(count + 63) / 64];
+        AtomicBoolean integral = new AtomicBoolean(true);
+        Evaluation evaluation = new Evaluation(expression, states, sizes, strides, sampling, values, longValues,
+                validWords, integral);
+        if (count <= CHUNK_SIZE) {
+            evaluation.evaluate(0, count);
+        } else {
+            List<RecursiveAction> chunks = new ArrayList<RecursiveAction>();
+            for (int from = 0; from < count; from += CHUNK_SIZE) {
+                final int start = from;
+                final int end = Math.min(from + CHUNK_SIZE, count);
+                chunks.add(new RecursiveAction() {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected void compute() {
+                        evaluation.evaluate(start, end);
+                    }
+                });
+            }
+            pool.invoke(new RecursiveAction() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected void compute() {
+                    invokeAll(chunks);
+                }
+            });
+        }
+        return new WatchExpressionSeries(sampling, values, integral.get() ? longValues : null,
+                BitSet.valueOf(validWords), expression, new ArrayList<Trace>(traces),
+                new ArrayList<Integer>(stepSizes));
+    }
+
+    /**
+     * Checks whether this series was computed from the given expression,
+     * traces and step sizes with the given sampling.
+     */
+    boolean isComputedFrom(WatchExpression expression, List<Trace> traces, List<Integer> stepSizes,
+            int sampling) {
+        return this.expression == expression && this.specifier.equals(expression.getSpecifier())
+                && this.scopes == expression.getScopes() && this.sampling == sampling
+                && this.stepSizes.equals(stepSizes) && sameObjects(this.traces, traces);
+    }
+
+    private static boolean sameObjects(List<Trace> a, List<Trace> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); ++i) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of values of this series.
+     *
+     * @return the number of sampled steps
+     */
+    public int size() {
+        return this.values.length;
+    }
+
+    /**
+     * Returns the step of a value.
+     *
+     * @param index
+     *            the index of the value
+     * @return the step, starting at 1
+     */
+    public int getStep(int index) {
+        return 1 + index * this.sampling;
+    }
+
+    /**
+     * Returns the number of steps between two values.
+     *
+     * @return the sampling
+     */
+    public int getSampling() {
+        return this.sampling;
+    }
+
+    /**
+     * Returns the values of this series. Invalid values are 0. The array is
+     * shared by all users of the series and must not be changed.
+     *
+     * @return the values
+     */
+    public double[] getValues() {
+        return this.values;
+    }
+
+    /**
+     * Returns the values of this series without rounding, if all valid values
+     * are integers, characters or booleans. Invalid values are 0. The array is
+     * shared by all users of the series and must not be changed.
+     *
+     * @return the values, null if a valid value is a floating point number
+     */
+    public long[] getLongValues() {
+        return this.longValues;
+    }
+
+    /**
+     * Checks whether a value is valid.
+     *
+     * @param index
+     *            the index of the value
+     * @return true if the expression has a value at the step
+     */
+    public boolean isValid(int index) {
+        return this.valid.get(index);
+    }
+
+    /**
+     * Returns the validity bitmap of this series, bit i is set if value i is
+     * valid.
+     *
+     * @return a copy of the bitmap
+     */
+    public BitSet getValidity() {
+        return (BitSet) this.valid.clone();
+    }
+
+    /**
+     * Evaluates ranges of steps, every range writing its own part of the
+     * columns.
+     */
+    private static final class Evaluation {
+        private final WatchExpression expression;
+        private final List<List<TraceState>> states;
+        private final int[] sizes;
+        private final int[] strides;
+        private final int sampling;
+        private final double[] values;
+        private final long[] longValues;
+        private final long[] validWords;
+        private final AtomicBoolean integral;
+
+        Evaluation(WatchExpression expression, List<List<TraceState>> states, int[] sizes, int[] strides,
+                int sampling, double[] values, long[] longValues, long[] validWords, AtomicBoolean integral) {
+            this.expression = expression;
+            this.states = states;
+            this.sizes = sizes;
+            this.strides = strides;
+            this.sampling = sampling;
+            this.values = values;
+            this.longValues = longValues;
+            this.validWords = validWords;
+            this.integral = integral;
+        }
+
+        void evaluate(int from, int to) {
+            List<TraceState> step = new ArrayList<TraceState>(this.states.size());
+            for (int i = 0; i < this.states.size(); ++i) {
+                step.add(null);
+            }
+            for (int index = from; index < to; ++index) {
+                long k = 1 + (long) index * this.sampling;
+                for (int i = 0; i < this.states.size(); ++i) {
+                    long state = Math.min(k * this.strides[i] - 1, this.sizes[i] - 1);
+                    step.set(i, state < 0 ? null : this.states.get(i).get((int) state));
+                }
+                store(index, this.expression.evaluateValue(step));
+            }
+        }
+
+        private void store(int index, TermValue value) {
+            long longValue;
+            if (value instanceof IntValue) {
+                longValue = ((IntValue) value).getValue();
+            } else if (value instanceof LongValue) {
+                longValue = ((LongValue) value).getValue();
+            } else if (value instanceof CharValue) {
+                longValue = ((CharValue) value).getValue();
+            } else if (value instanceof BooleanValue) {
+                longValue = ((BooleanValue) value).getValue() ? 1 : 0;
+            } else if (value instanceof FloatValue) {
+                this.values[index] = ((FloatValue) value).getValue();
+                this.validWords[index >> 6] |= 1L << index;
+                this.integral.set(false);
+                return;
+            } else if (value instanceof DoubleValue) {
+                this.values[index] = ((DoubleValue) value).getValue();
+                this.validWords[index >> 6] |= 1L << index;
+                this.integral.set(false);
+                return;
+            } else {
+                // no value or an array
+                return;
+            }
+            this.values[index] = longValue;
+            this.longValues[index] = longValue;
+            this.validWords[index >> 6] |= 1L << index;
+        }
+    }
+}
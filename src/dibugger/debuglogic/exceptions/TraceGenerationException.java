@@ -0,0 +1,31 @@
+package dibugger.debuglogic.exceptions;
+
+/**
+ * Unchecked wrapper for a DIbuggerLogicException which occurred while a trace
+ * was generated lazily. Thrown by the iterator of such a trace, because a
+ * ListIterator cannot throw checked exceptions.
+ *
+ * @author scheler
+ *
+ */
+public class TraceGenerationException extends RuntimeException {
+    /**
+     * Default serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor of a TraceGenerationException.
+     *
+     * @param cause
+     *            the exception thrown by the interpreter
+     */
+    public TraceGenerationException(DIbuggerLogicException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public DIbuggerLogicException getCause() {
+        return (DIbuggerLogicException) super.getCause();
+    }
+}
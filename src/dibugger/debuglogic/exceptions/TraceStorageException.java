@@ -0,0 +1,26 @@
+package dibugger.debuglogic.exceptions;
+
+/**
+ * Exception thrown if a trace cannot be written to or read from its storage.
+ * 
+ * @author scheler
+ *
+ */
+public class TraceStorageException extends DIbuggerLogicException {
+
+    /**
+     * Default serialVersionUID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor of a TraceStorageException.
+     * 
+     * @param message
+     *            the message of the underlying I/O error
+     */
+    public TraceStorageException(String message) {
+        super(-1, "dl_exc_trace_storage", message);
+    }
+
+}
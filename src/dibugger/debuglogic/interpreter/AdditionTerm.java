@@ -32,4 +32,14 @@ public final class AdditionTerm extends BinaryArithmeticTerm {
         return left.evaluate(currentScope).add(right.evaluate(currentScope));
     }
 
+    @Override
+    public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+        left.evaluate(currentScope, result);
+        Type leftType = result.getType();
+        long leftBits = result.getBits();
+        TermValue leftReference = result.getReference();
+        right.evaluate(currentScope, result);
+        result.combine(Slot.ADD, leftType, leftBits, leftReference);
+    }
+
 }
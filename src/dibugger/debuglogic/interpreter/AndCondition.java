@@ -32,4 +32,13 @@ public final class AndCondition extends BinaryCondition {
         return new BooleanValue(b);
     }
 
+    @Override
+    public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+        this.leftOperand.evaluate(currentScope, result);
+        Type leftType = result.getType();
+        long leftBits = result.getBits();
+        TermValue leftReference = result.getReference();
+        this.rightOperand.evaluate(currentScope, result);
+        result.logical(true, leftType, leftBits, leftReference);
+    }
 }
@@ -16,8 +16,7 @@ public final class ArrayAccessRelationalTerm extends Term {
 	private Term indexA;
 	private Term indexB;
 	private Term indexC;
-	private String identifier;
-	private String programId;
+	private ProgramVariable variable;
 
 	/**
 	 * Constructor of an ArrayAccess on an onedimensional Array
@@ -33,7 +32,7 @@ public final class ArrayAccessRelationalTerm extends Term {
 		this.indexC = this.indexB; // maybe you could make this more efficient
 									// // by
 									// using one global 0 Term
-		splitId(identifier);
+		this.variable = new ProgramVariable(identifier);
 	}
 
 	/**
@@ -49,7 +48,7 @@ public final class ArrayAccessRelationalTerm extends Term {
 		this.indexB = secondIndex;
 		// Dummy index
 		this.indexC = new ConstantTerm(new IntValue(0));
-		splitId(identifier);
+		this.variable = new ProgramVariable(identifier);
 	}
 
 	/**
@@ -65,61 +64,43 @@ public final class ArrayAccessRelationalTerm extends Term {
 		this.indexA = firstIndex;
 		this.indexB = secondIndex;
 		this.indexC = thirdIndex;
-		splitId(identifier);
+		this.variable = new ProgramVariable(identifier);
 	}
 
 	@Override
 	public TermValue evaluate(List<TraceState> states) throws DIbuggerLogicException {
-		// find the state the variable belongs to
-		for (TraceState state : states) {
-			if (state.getProgramId() != null && state.getProgramId().equals(this.programId)) {
-				TermValue t = state.getValueOf(identifier);
-				
-				if (t != null) {
-					TermValue firstIndex = this.indexA.evaluate(states);
-					TermValue secondIndex = this.indexB.evaluate(states);
-					TermValue thirdIndex = this.indexC.evaluate(states);
-					// Hope that this is an array and the indices are Integers
-					if (t.getType() == Type.ARRAY && firstIndex.getType() == Type.INT
-							&& secondIndex.getType() == Type.INT && thirdIndex.getType() == Type.INT) {
-						int i = ((IntValue) firstIndex).getValue();
-						int j = ((IntValue) secondIndex).getValue();
-						int k = ((IntValue) thirdIndex).getValue();
-						TermValue[][][] array = ((ArrayValue) t).getValue();
-						// make sure that i,j,k are not out of bounds
-						if (i < array.length) {
-							TermValue[][] innerArray = array[i];
-							if (j < innerArray.length) {
-								TermValue[] innerInnerArray = innerArray[j];
-								if (k < innerInnerArray.length) {
-									return innerInnerArray[k];
-								}
-							}
-						}
-					}
+		TermValue t = this.variable.valueIn(states);
+		if (t != null) {
+			TermValue firstIndex = this.indexA.evaluate(states);
+			TermValue secondIndex = this.indexB.evaluate(states);
+			TermValue thirdIndex = this.indexC.evaluate(states);
+			// Hope that this is an array and the indices are Integers
+			if (t.getType() == Type.ARRAY && firstIndex.getType() == Type.INT
+					&& secondIndex.getType() == Type.INT && thirdIndex.getType() == Type.INT) {
+				int i = ((IntValue) firstIndex).getValue();
+				int j = ((IntValue) secondIndex).getValue();
+				int k = ((IntValue) thirdIndex).getValue();
+				ArrayValue array = (ArrayValue) t;
+				// make sure that i,j,k are not out of bounds
+				if (array.isInBounds(i, j, k)) {
+					return array.get(i, j, k);
 				}
 			}
 		}
-		throw new IdentifierNotFoundException(-1, identifier);
+		throw new IdentifierNotFoundException(-1, this.variable.getIdentifier());
 	}
 
 	@Override
 	public TermValue evaluate(Scope currentScope) throws IdentifierNotFoundException {
-		throw new IdentifierNotFoundException(-1, identifier);
+		throw new IdentifierNotFoundException(-1, this.variable.getIdentifier());
 	}
 
-	private void splitId(String identifier) {
-
-		if (identifier.contains(".")) {
-			// split into programId part and variable identifier
-			// here we must pass a regex into split(...), so we have to escape
-			// the dot
-			String[] parts = identifier.split("\\.");
-			this.identifier = parts[1];
-			this.programId = parts[0];
-		} else {
-			this.programId = "A";
-			this.identifier = identifier;
-		}
+	/**
+	 * Returns the variable of the term.
+	 * 
+	 * @return the variable
+	 */
+	ProgramVariable getVariable() {
+		return this.variable;
 	}
 }
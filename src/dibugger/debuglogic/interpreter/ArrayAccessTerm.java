@@ -17,6 +17,7 @@ public final class ArrayAccessTerm extends Term {
     private Term indexB;
     private Term indexC;
     private String identifier;
+    private VariableReference variable;
 
     /**
      * Constructor of an ArrayAccess on an onedimensional Array
@@ -33,6 +34,7 @@ public final class ArrayAccessTerm extends Term {
                                    // by
                                    // using one global 0 Term
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
     }
 
     /**
@@ -49,6 +51,7 @@ public final class ArrayAccessTerm extends Term {
         // Dummy index
         this.indexC = new ConstantTerm(new IntValue(0));
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
     }
 
     /**
@@ -65,6 +68,7 @@ public final class ArrayAccessTerm extends Term {
         this.indexB = secondIndex;
         this.indexC = thirdIndex;
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
     }
 
     @Override
@@ -74,7 +78,7 @@ public final class ArrayAccessTerm extends Term {
 
     @Override
     public TermValue evaluate(Scope currentScope) throws DIbuggerLogicException {
-        TermValue t = currentScope.getValueOf(identifier); // get the Array
+        TermValue t = this.variable.valueIn(currentScope); // get the Array
         TermValue firstIndex = this.indexA.evaluate(currentScope);
         TermValue secondIndex = this.indexB.evaluate(currentScope);
         TermValue thirdIndex = this.indexC.evaluate(currentScope);
@@ -84,19 +88,17 @@ public final class ArrayAccessTerm extends Term {
             int i = ((IntValue) firstIndex).getValue();
             int j = ((IntValue) secondIndex).getValue();
             int k = ((IntValue) thirdIndex).getValue();
-            TermValue[][][] array = ((ArrayValue) t).getValue();
+            ArrayValue array = (ArrayValue) t;
             // make sure that i,j,k are not out of bounds
-            if (i < array.length) {
-                TermValue[][] innerArray = array[i];
-                if (j < innerArray.length) {
-                    TermValue[] innerInnerArray = innerArray[j];
-                    if (k < innerInnerArray.length) {
-                        return innerInnerArray[k];
-                    }
-                }
+            if (array.isInBounds(i, j, k)) {
+                return array.get(i, j, k);
             }
         }
         return new CharValue('?');
     }
 
+    @Override
+    void resolve(FrameLayout layout) {
+        this.variable = new VariableReference(this.identifier, layout);
+    }
 }
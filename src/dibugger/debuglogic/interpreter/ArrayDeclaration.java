@@ -1,8 +1,5 @@
 package dibugger.debuglogic.interpreter;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import dibugger.debuglogic.exceptions.AlreadyDeclaredException;
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 import dibugger.debuglogic.exceptions.WrongTypeArgumentException;
@@ -11,6 +8,7 @@ public class ArrayDeclaration extends Command {
 
     // private final int DIM;
     private String identifier;
+    private VariableReference variable;
     private Term sizeA; // length of the first dimension
     private Term sizeB;
     private Term sizeC;
@@ -24,6 +22,7 @@ public class ArrayDeclaration extends Command {
         this.sizeC = this.sizeB; // maybe you could make this more efficient by
                                  // using one global 0 Term
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
     }
 
     public ArrayDeclaration(GenerationController controller, int linenumber, String identifier, Term firstsize,
@@ -35,6 +34,7 @@ public class ArrayDeclaration extends Command {
         // Dummy index
         this.sizeC = new ConstantTerm(new IntValue(1));
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
     }
 
     public ArrayDeclaration(GenerationController controller, int linenumber, String identifier, Term firstsize,
@@ -45,19 +45,20 @@ public class ArrayDeclaration extends Command {
         this.sizeB = secondsize;
         this.sizeC = thirdsize;
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
     }
 
     @Override
-    public List<TraceState> run() throws DIbuggerLogicException {
-        Scope scope = this.controller.getCurrentScope();
+    public void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
+        Scope scope = context.getCurrentScope();
 
         // check if variable already exists
-        if (scope.getTypeOf(identifier) != null) {
+        if (this.variable.typeIn(scope) != null) {
             throw new AlreadyDeclaredException(this.linenumber);
         }
 
         // set type
-        scope.setTypeOf(this.identifier, Type.ARRAY);
+        this.variable.declareIn(scope, Type.ARRAY);
         TermValue sizeAv = this.sizeA.evaluate(scope);
         TermValue sizeBv = this.sizeB.evaluate(scope);
         TermValue sizeCv = this.sizeC.evaluate(scope);
@@ -68,10 +69,19 @@ public class ArrayDeclaration extends Command {
         int sizeBi = ((IntValue) sizeBv).getValue();
         int sizeCi = ((IntValue) sizeCv).getValue();
 
-        scope.setValueOf(this.identifier, new ArrayValue(new TermValue[sizeAi][sizeBi][sizeCi]));
-        List<TraceState> traceStateList = new ArrayList<TraceState>();
-        traceStateList.add(new TraceState(TraceStatePosition.NOTSPECIAL, this.linenumber, scope));
-        return traceStateList;
+        this.variable.assignIn(scope, new ArrayValue(new TermValue[sizeAi][sizeBi][sizeCi]));
+        sink.add(TraceStatePosition.NOTSPECIAL, this.linenumber, scope);
+    }
+
+    @Override
+    void compile(TermCompiler compiler) {
+        this.sizeA = compiler.compile(this.sizeA);
+        this.sizeB = compiler.compile(this.sizeB);
+        this.sizeC = compiler.compile(this.sizeC);
     }
 
+    @Override
+    void resolve(FrameLayout layout) {
+        this.variable = new VariableReference(this.identifier, layout);
+    }
 }
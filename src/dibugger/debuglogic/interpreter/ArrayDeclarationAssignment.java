@@ -1,8 +1,5 @@
 package dibugger.debuglogic.interpreter;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import dibugger.debuglogic.exceptions.AlreadyDeclaredException;
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 import dibugger.debuglogic.exceptions.WrongNumberArgumentException;
@@ -12,6 +9,8 @@ import dibugger.debuglogic.exceptions.WrongTypeAssignmentException;
 public class ArrayDeclarationAssignment extends Command {
 
     private String identifier;
+
+    private VariableReference variable;
     private Term values;
     private Term sizeA; // length of the first dimension
     // private Term sizeB;
@@ -27,21 +26,22 @@ public class ArrayDeclarationAssignment extends Command {
         // this.sizeC = this.sizeB; // maybe you could make this more efficient by
                                     // using one global 0 Term
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
         this.linenumber = linenumber;
         this.values = values;
     }
 
     @Override
-    public List<TraceState> run() throws DIbuggerLogicException {
-        Scope scope = this.controller.getCurrentScope();
+    public void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
+        Scope scope = context.getCurrentScope();
 
         // check if variable already exists
-        if (scope.getTypeOf(identifier) != null) {
+        if (this.variable.typeIn(scope) != null) {
             throw new AlreadyDeclaredException(this.linenumber);
         }
 
         // set type
-        scope.setTypeOf(this.identifier, Type.ARRAY);
+        this.variable.declareIn(scope, Type.ARRAY);
 
         TermValue value = this.values.evaluate(scope);
 
@@ -56,15 +56,22 @@ public class ArrayDeclarationAssignment extends Command {
         	throw new WrongTypeArgumentException(this.linenumber);
         
         int expectedSize = ((IntValue)sizeVal).getValue();
-        if(expectedSize != ((ArrayValue)value).getValue().length)
+        if(expectedSize != ((ArrayValue)value).getLength(0))
         	throw new WrongNumberArgumentException(this.linenumber);
         
         // set value
-        scope.setValueOf(this.identifier, value);
+        this.variable.assignIn(scope, value);
 
-        List<TraceState> traceStateList = new ArrayList<TraceState>();
-        traceStateList.add(new TraceState(TraceStatePosition.NOTSPECIAL, this.linenumber, scope));
-        return traceStateList;
+        sink.add(TraceStatePosition.NOTSPECIAL, this.linenumber, scope);
     }
 
+    @Override
+    void compile(TermCompiler compiler) {
+        this.sizeA = compiler.compile(this.sizeA);
+    }
+
+    @Override
+    void resolve(FrameLayout layout) {
+        this.variable = new VariableReference(this.identifier, layout);
+    }
 }
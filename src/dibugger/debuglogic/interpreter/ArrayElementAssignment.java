@@ -1,8 +1,5 @@
 package dibugger.debuglogic.interpreter;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 import dibugger.debuglogic.exceptions.IdentifierNotFoundException;
 import dibugger.debuglogic.exceptions.WrongTypeArgumentException;
@@ -12,6 +9,7 @@ public class ArrayElementAssignment extends Command {
 
     // private final int DIM;
     private String identifier;
+    private VariableReference variable;
     private Term indexA; // index in the first dimension
     private Term indexB;
     private Term indexC;
@@ -27,6 +25,7 @@ public class ArrayElementAssignment extends Command {
         this.indexC = this.indexB; // maybe you could make this more efficient
                                    // by using one global 0 Term
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
         this.value = value;
     }
 
@@ -39,6 +38,7 @@ public class ArrayElementAssignment extends Command {
         // Dummy index
         this.indexC = new ConstantTerm(new IntValue(0));
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
         this.value = value;
     }
 
@@ -50,14 +50,15 @@ public class ArrayElementAssignment extends Command {
         this.indexB = secondIndex;
         this.indexC = thirdIndex;
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
         this.value = value;
     }
 
     @Override
-    public List<TraceState> run() throws DIbuggerLogicException {
-        Scope scope = this.controller.getCurrentScope();
+    public void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
+        Scope scope = context.getCurrentScope();
         // TermValue value = this.value.evaluate(scope);
-        Type type = scope.getTypeOf(this.identifier);
+        Type type = this.variable.typeIn(scope);
 
         // check if variable exists
         if (type == null) {
@@ -80,35 +81,36 @@ public class ArrayElementAssignment extends Command {
         int k = ((IntValue) indexCv).getValue();
 
         // get the reference to the array
-        TermValue theArrayTv = scope.getValueOf(this.identifier);
+        TermValue theArrayTv = this.variable.valueIn(scope);
         if (theArrayTv.getType() != Type.ARRAY)
             throw new WrongTypeAssignmentException(this.linenumber);
-        TermValue[][][] theArray = ((ArrayValue) theArrayTv).getValue();
+        ArrayValue theArray = (ArrayValue) theArrayTv;
         // evaluate the right side of the assignment(value : Term)
         TermValue val = this.value.evaluate(scope);
         // another type checking: Make sure that the arrays elements and the
         // value have the same type
-        if (theArray[0][0][0] != null && val.getType() != theArray[0][0][0].getType())
+        TermValue first = theArray.isInBounds(0, 0, 0) ? theArray.get(0, 0, 0) : null;
+        if (first != null && val.getType() != first.getType())
             throw new WrongTypeAssignmentException(this.linenumber);
         // set the value and check the bounds of it
-
-        if (i < theArray.length) {
-            TermValue[][] innerArray = theArray[i];
-            if (j < innerArray.length) {
-                TermValue[] innerInnerArray = innerArray[j];
-                if (k < innerInnerArray.length) {
-                    innerInnerArray[k] = val;
-                } else
-                    throw new IdentifierNotFoundException(this.linenumber, identifier);
-            } else
-                throw new IdentifierNotFoundException(this.linenumber, identifier);
-        } else
+        if (!theArray.isInBounds(i, j, k))
             throw new IdentifierNotFoundException(this.linenumber, identifier);
+        theArray.set(i, j, k, val);
 
-        // save the state and return it
-        List<TraceState> traceStateList = new ArrayList<TraceState>();
-        traceStateList.add(new TraceState(TraceStatePosition.NOTSPECIAL, this.linenumber, scope));
-        return traceStateList;
+        // save the state
+        sink.add(TraceStatePosition.NOTSPECIAL, this.linenumber, scope);
     }
 
+    @Override
+    void compile(TermCompiler compiler) {
+        this.indexA = compiler.compile(this.indexA);
+        this.indexB = compiler.compile(this.indexB);
+        this.indexC = compiler.compile(this.indexC);
+        this.value = compiler.compile(this.value);
+    }
+
+    @Override
+    void resolve(FrameLayout layout) {
+        this.variable = new VariableReference(this.identifier, layout);
+    }
 }
@@ -3,13 +3,44 @@ package dibugger.debuglogic.interpreter;
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 import dibugger.debuglogic.exceptions.IncompatibleTypeException;
 
+/**
+ * Value of an array with up to three dimensions. The elements are stored in a
+ * persistent trie, so a copy of an array shares all elements with the original
+ * and costs constant time, while setting an element only copies the path to it.
+ * The array itself stays mutable: all variables referring to it see the
+ * changes.
+ * 
+ * @author scheler
+ *
+ */
 public class ArrayValue extends TermValue {
 
-    private TermValue[][][] value;
+    private PersistentArray elements;
+    private final int sizeA;
+    private final int sizeB;
+    private final int sizeC;
+    private int modificationCount;
 
     public ArrayValue(TermValue[][][] value) {
         super(Type.ARRAY);
-        this.value = value;
+        this.sizeA = value.length;
+        this.sizeB = this.sizeA > 0 ? value[0].length : 0;
+        this.sizeC = this.sizeB > 0 ? value[0][0].length : 0;
+        TermValue[] flat = new TermValue[this.sizeA * this.sizeB * this.sizeC];
+        int index = 0;
+        for (int i = 0; i < this.sizeA; ++i)
+            for (int j = 0; j < this.sizeB; ++j)
+                for (int k = 0; k < this.sizeC; ++k)
+                    flat[index++] = value[i][j][k];
+        this.elements = PersistentArray.of(flat);
+    }
+
+    private ArrayValue(PersistentArray elements, int sizeA, int sizeB, int sizeC) {
+        super(Type.ARRAY);
+        this.elements = elements;
+        this.sizeA = sizeA;
+        this.sizeB = sizeB;
+        this.sizeC = sizeC;
     }
 
     @Override
@@ -80,31 +111,31 @@ public class ArrayValue extends TermValue {
     @Override
     public String toString() {
         StringBuilder s = new StringBuilder("{");
-        for (int i = 0; i < value.length; ++i) {
-            if (value[i].length != 1) {
+        for (int i = 0; i < sizeA; ++i) {
+            if (sizeB != 1) {
                 s.append("{");
             }
-            for (int j = 0; j < value[i].length; ++j) {
-                if (value[i][j].length != 1) {
+            for (int j = 0; j < sizeB; ++j) {
+                if (sizeC != 1) {
                     s.append("{");
                 }
-                for (int k = 0; k < value[i][j].length; ++k) {
-                    s.append(value[i][j][k]);
-                    if (k < value[i][j].length - 1) {
+                for (int k = 0; k < sizeC; ++k) {
+                    s.append(get(i, j, k));
+                    if (k < sizeC - 1) {
                         s.append(",");
                     }
                 }
-                if (value[i][j].length != 1) {
+                if (sizeC != 1) {
                     s.append("}");
                 }
-                if (j < value[i].length - 1) {
+                if (j < sizeB - 1) {
                     s.append(",");
                 }
             }
-            if (value[i].length != 1) {
+            if (sizeB != 1) {
                 s.append("}");
             }
-            if (i < value.length - 1) {
+            if (i < sizeA - 1) {
                 s.append(",");
             }
         }
@@ -113,25 +144,115 @@ public class ArrayValue extends TermValue {
     }
 
     /**
-     * Returns the values of an array.
+     * Returns a copy of the values of an array. Changing the copy does not
+     * change the array, use {@link #set(int, int, int, TermValue)} instead.
      * 
      * @return the values
      */
     public TermValue[][][] getValue() {
+        TermValue[][][] value = new TermValue[sizeA][sizeB][sizeC];
+        for (int i = 0; i < sizeA; ++i)
+            for (int j = 0; j < sizeB; ++j)
+                for (int k = 0; k < sizeC; ++k)
+                    value[i][j][k] = get(i, j, k);
         return value;
     }
 
+    /**
+     * Returns the length of the array in a dimension.
+     * 
+     * @param dimension
+     *            the dimension, 0 to 2
+     * @return the length
+     */
+    public int getLength(int dimension) {
+        switch (dimension) {
+            case 0:
+                return sizeA;
+            case 1:
+                return sizeB;
+            case 2:
+                return sizeC;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * Checks whether an element exists.
+     * 
+     * @param i
+     *            the index in the first dimension
+     * @param j
+     *            the index in the second dimension
+     * @param k
+     *            the index in the third dimension
+     * @return true if all indices are within the bounds of the array
+     */
+    public boolean isInBounds(int i, int j, int k) {
+        return i >= 0 && i < sizeA && j >= 0 && j < sizeB && k >= 0 && k < sizeC;
+    }
+
+    /**
+     * Returns an element of the array. The indices have to be checked by
+     * {@link #isInBounds(int, int, int)} before.
+     * 
+     * @param i
+     *            the index in the first dimension
+     * @param j
+     *            the index in the second dimension
+     * @param k
+     *            the index in the third dimension
+     * @return the element, null if it was not set yet
+     */
+    public TermValue get(int i, int j, int k) {
+        return elements.get((i * sizeB + j) * sizeC + k);
+    }
+
+    /**
+     * Sets an element of the array. The indices have to be checked by
+     * {@link #isInBounds(int, int, int)} before. Copies of the array made
+     * before are not changed.
+     * 
+     * @param i
+     *            the index in the first dimension
+     * @param j
+     *            the index in the second dimension
+     * @param k
+     *            the index in the third dimension
+     * @param value
+     *            the new element
+     */
+    public void set(int i, int j, int k, TermValue value) {
+        elements = elements.set((i * sizeB + j) * sizeC + k, value);
+        ++modificationCount;
+    }
+
+    /**
+     * Returns how often single elements of the array were modified. Used to
+     * detect changes of arrays which are modified in place.
+     * 
+     * @return the modification count
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Estimates the memory taken by the elements of this array which are not
+     * shared with another array, e.g. an older copy of this array.
+     *
+     * @param other
+     *            the other array, null if no elements are shared
+     * @return the estimated size in bytes
+     */
+    long estimateSizeNotIn(ArrayValue other) {
+        return elements.estimateSizeNotIn(other == null ? null : other.elements);
+    }
+
     @Override
     public TermValue clone() {
-        int iSize = this.value.length;
-        int jSize = this.value[0].length;
-        int kSize = this.value[0][0].length;
-        TermValue cpy[][][] = new TermValue[iSize][jSize][kSize];
-        for (int i = 0; i < iSize; ++i)
-            for (int j = 0; j < jSize; ++j)
-                for (int k = 0; k < kSize; ++k)
-                    if (this.value[i][j][k] != null)
-                        cpy[i][j][k] = this.value[i][j][k].clone();
-        return new ArrayValue(cpy);
+        // the elements are immutable, so the copy can share them
+        return new ArrayValue(elements, sizeA, sizeB, sizeC);
     }
 }
@@ -1,8 +1,5 @@
 package dibugger.debuglogic.interpreter;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 import dibugger.debuglogic.exceptions.IdentifierNotFoundException;
 import dibugger.debuglogic.exceptions.WrongTypeAssignmentException;
@@ -15,19 +12,22 @@ import dibugger.debuglogic.exceptions.WrongTypeAssignmentException;
  */
 public class Assignment extends Command {
     private String identifier;
+    private VariableReference variable;
     private Term term;
 
     public Assignment(GenerationController controller, int linenumber, String identifier, Term term) {
         super(controller, linenumber);
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
         this.term = term;
     }
 
     @Override
-    public List<TraceState> run() throws DIbuggerLogicException {
-        Scope scope = this.controller.getCurrentScope();
-        TermValue value = this.term.evaluate(scope);
-        Type type = scope.getTypeOf(identifier);
+    public void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
+        Scope scope = context.getCurrentScope();
+        Slot value = scope.getRegister();
+        this.term.evaluate(scope, value);
+        Type type = this.variable.typeIn(scope);
         // check if variable exists
         if (type == null)
             throw new IdentifierNotFoundException(this.linenumber, identifier);
@@ -37,10 +37,17 @@ public class Assignment extends Command {
             throw new WrongTypeAssignmentException(this.linenumber);
         }
         // set value
-        scope.setValueOf(this.identifier, value);
-        List<TraceState> traceStateList = new ArrayList<TraceState>();
-        traceStateList.add(new TraceState(TraceStatePosition.NOTSPECIAL, this.linenumber, scope));
-        return traceStateList;
+        this.variable.assignIn(scope, value);
+        sink.add(TraceStatePosition.NOTSPECIAL, this.linenumber, scope);
+    }
+
+    @Override
+    void compile(TermCompiler compiler) {
+        this.term = compiler.compile(this.term);
     }
 
+    @Override
+    void resolve(FrameLayout layout) {
+        this.variable = new VariableReference(this.identifier, layout);
+    }
 }
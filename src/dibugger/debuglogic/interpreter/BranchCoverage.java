@@ -0,0 +1,83 @@
+package dibugger.debuglogic.interpreter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * The outcomes of the branches of a run, as a bitmap. Every line has
+ * {@value #OUTCOMES} bits: whether an if statement on the line was false or
+ * true, and how often a while loop on the line iterated, bucketed into none,
+ * once, two or three times and more often. Runs differing only in the exact
+ * number of iterations of a loop have the same coverage.
+ *
+ * A coverage is set on the {@link ExecutionContext} of a run and filled by
+ * the branching commands.
+ *
+ * @author scheler
+ *
+ */
+public final class BranchCoverage {
+
+    /**
+     * Number of bits of a line.
+     */
+    public static final int OUTCOMES = 8;
+
+    private static final int LOOP = 2;
+
+    private long[] words;
+
+    /**
+     * Creates an empty coverage.
+     */
+    public BranchCoverage() {
+        this.words = new long[4];
+    }
+
+    /**
+     * Records the outcome of an if statement.
+     *
+     * @param lineNumber
+     *            the line of the statement
+     * @param taken
+     *            the value of the condition
+     */
+    void hitBranch(int lineNumber, boolean taken) {
+        set(lineNumber, taken ? 1 : 0);
+    }
+
+    /**
+     * Records the number of iterations of a while loop.
+     *
+     * @param lineNumber
+     *            the line of the loop
+     * @param iterations
+     *            the number of iterations
+     */
+    void hitLoop(int lineNumber, int iterations) {
+        int bucket = iterations == 0 ? 0 : iterations == 1 ? 1 : iterations <= 3 ? 2 : 3;
+        set(lineNumber, LOOP + bucket);
+    }
+
+    private void set(int lineNumber, int outcome) {
+        if (lineNumber < 0) {
+            return;
+        }
+        int bit = lineNumber * OUTCOMES + outcome;
+        int word = bit >>> 6;
+        if (word >= this.words.length) {
+            this.words = Arrays.copyOf(this.words, Math.max(word + 1, this.words.length * 2));
+        }
+        this.words[word] |= 1L << bit;
+    }
+
+    /**
+     * Returns the outcomes covered.
+     *
+     * @return the bitmap, bit {@code line * OUTCOMES + outcome} is set if the
+     *         outcome was covered
+     */
+    public BitSet toBitSet() {
+        return BitSet.valueOf(this.words);
+    }
+}
@@ -0,0 +1,96 @@
+package dibugger.debuglogic.interpreter;
+
+import java.util.Arrays;
+
+/**
+ * Index of the routine calls of a trace. For every state it stores the call
+ * depth and the first state of the innermost call the state belongs to, and
+ * it matches the first state of every call with the state after its return.
+ * The states are added in the order of the trace.
+ *
+ * @author scheler
+ *
+ */
+final class CallIndex {
+
+    private int[] depths;
+    private int[] calls;
+    private int[] matches;
+    private int size;
+
+    // the first states of the calls not returned yet
+    private int[] open;
+    private int openCount;
+
+    CallIndex() {
+        this.depths = new int[16];
+        this.calls = new int[16];
+        this.matches = new int[16];
+        this.open = new int[16];
+    }
+
+    /**
+     * Adds the next state of the trace.
+     *
+     * @param position
+     *            the position of the state
+     */
+    void add(TraceStatePosition position) {
+        if (this.size == this.depths.length) {
+            int capacity = this.size * 2;
+            this.depths = Arrays.copyOf(this.depths, capacity);
+            this.calls = Arrays.copyOf(this.calls, capacity);
+            this.matches = Arrays.copyOf(this.matches, capacity);
+        }
+        int index = this.size++;
+        this.matches[index] = -1;
+        if (position == TraceStatePosition.AFTERFUNCCALL) {
+            if (this.openCount == this.open.length) {
+                this.open = Arrays.copyOf(this.open, this.openCount * 2);
+            }
+            this.open[this.openCount++] = index;
+        } else if (position == TraceStatePosition.AFTERRETURN && this.openCount > 0) {
+            int call = this.open[--this.openCount];
+            this.matches[call] = index;
+            this.matches[index] = call;
+        }
+        this.depths[index] = this.openCount;
+        this.calls[index] = this.openCount > 0 ? this.open[this.openCount - 1] : -1;
+    }
+
+    /**
+     * Returns the number of calls open at a state, 1 in the main routine.
+     *
+     * @param index
+     *            the index of the state
+     * @return the call depth
+     */
+    int getDepth(int index) {
+        return this.depths[index];
+    }
+
+    /**
+     * Returns the first state of the innermost call open at a state.
+     *
+     * @param index
+     *            the index of the state
+     * @return the index of the first state of the call, -1 if no call is open
+     */
+    int getCall(int index) {
+        return this.calls[index];
+    }
+
+    /**
+     * Returns the state matching the first state of a call or the state after
+     * a return.
+     *
+     * @param index
+     *            the index of the state
+     * @return the index of the state after the return of a call, the index of
+     *         the first state of the call returned, or -1 if there is no
+     *         matching state (yet)
+     */
+    int getMatch(int index) {
+        return this.matches[index];
+    }
+}
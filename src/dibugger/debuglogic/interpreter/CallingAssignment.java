@@ -1,8 +1,5 @@
 package dibugger.debuglogic.interpreter;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 import dibugger.debuglogic.exceptions.IdentifierNotFoundException;
 import dibugger.debuglogic.exceptions.WrongTypeAssignmentException;
@@ -14,26 +11,27 @@ import dibugger.debuglogic.exceptions.WrongTypeAssignmentException;
  *
  */
 public class CallingAssignment extends Command {
-    private Command funcCall;
+    private RoutineCall funcCall;
     private String identifier;
+    private VariableReference variable;
 
-    public CallingAssignment(GenerationController controller, int linenumber, String identifier, Command funcCall) {
+    public CallingAssignment(GenerationController controller, int linenumber, String identifier, RoutineCall funcCall) {
         super(controller, linenumber);
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
         this.funcCall = funcCall;
     }
 
     @Override
-    public List<TraceState> run() throws DIbuggerLogicException {
-        Scope scope = this.controller.getCurrentScope();
-        Type type = scope.getTypeOf(identifier);
+    public void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
+        Scope scope = context.getCurrentScope();
+        Type type = this.variable.typeIn(scope);
         // check if variable exists
         if (type == null)
             throw new IdentifierNotFoundException(this.linenumber, identifier);
 
         // run the function
-        List<TraceState> traceStateList = new ArrayList<TraceState>();
-        traceStateList.addAll(this.funcCall.run());
+        this.funcCall.call(context, sink);
         // get the return value
         TermValue value = scope.getReturnValue();
         // check type
@@ -41,10 +39,18 @@ public class CallingAssignment extends Command {
             throw new WrongTypeAssignmentException(this.linenumber);
         }
         // set value
-        scope.setValueOf(this.identifier, value);
-        traceStateList.remove(traceStateList.size()-1); //remove the state added by the function call and replace it with the state with the assignment done
-        traceStateList.add(new TraceState(TraceStatePosition.AFTERRETURN, this.linenumber, scope));
-        return traceStateList;
+        this.variable.assignIn(scope, value);
+        // the state after the return is the state with the assignment done
+        sink.add(TraceStatePosition.AFTERRETURN, this.linenumber, scope);
+    }
+
+    @Override
+    void compile(TermCompiler compiler) {
+        this.funcCall.compile(compiler);
     }
 
+    @Override
+    void resolve(FrameLayout layout) {
+        this.variable = new VariableReference(this.identifier, layout);
+    }
 }
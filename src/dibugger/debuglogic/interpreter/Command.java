@@ -16,11 +16,59 @@ public abstract class Command {
         this.linenumber = linenumber;
     }
 
+    /**
+     * Runs the command
+     * 
+     * @param context
+     *            the context of the run, holding all state changed by the
+     *            command
+     * @param sink
+     *            the sink receiving the states, in which the program is during
+     *            the execution of the command
+     */
+    public abstract void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException;
+
+    /**
+     * Runs the command in the context of the controller which generated it.
+     * 
+     * @param sink
+     *            the sink receiving the states, in which the program is during
+     *            the execution of the command
+     */
+    public void run(TraceSink sink) throws DIbuggerLogicException {
+        this.run(this.controller.getExecutionContext(), sink);
+    }
+
+    /**
+     * Replaces the terms of the command and its children by their compiled
+     * form. Commands without terms keep everything as it is.
+     * 
+     * @param compiler
+     *            the compiler
+     */
+    void compile(TermCompiler compiler) {
+    }
+
+    /**
+     * Resolves the variables used by the command in the layout of its
+     * routine. Called when the command is generated. Commands without
+     * variables keep everything as it is.
+     * 
+     * @param layout
+     *            the layout of the routine
+     */
+    void resolve(FrameLayout layout) {
+    }
+
     /**
      * Runs the command
      * 
      * @return the states, in which the program was during the execution of the
      *         command
      */
-    public abstract List<TraceState> run() throws DIbuggerLogicException;
-}
\ No newline at end of file
+    public List<TraceState> run() throws DIbuggerLogicException {
+        InMemoryTraceSink sink = new InMemoryTraceSink();
+        this.run(sink);
+        return sink.getTraceStates();
+    }
+}
@@ -42,6 +42,7 @@ import dibugger.debuglogic.antlrparser.WlangParser.WhileWithSingleContext;
 public class CommandGenerationVisitor extends WlangBaseVisitor<Command> {
     private GenerationController controller;
     private TermGenerationVisitor termGenVisitor;
+    private FrameLayout frameLayout;
 
     public CommandGenerationVisitor(GenerationController controller) {
         this.controller = controller;
@@ -68,6 +69,26 @@ public class CommandGenerationVisitor extends WlangBaseVisitor<Command> {
         return content;
     }
 
+    /**
+     * Makes the layout of a routine the one its commands and terms are
+     * resolved in.
+     */
+    private void enterRoutine(RoutineCommand routine) {
+        this.frameLayout = routine.getFrameLayout();
+        this.termGenVisitor.setFrameLayout(this.frameLayout);
+    }
+
+    /**
+     * Resolves the variables of a command in the layout of the current
+     * routine.
+     */
+    private Command resolved(Command command) {
+        if (this.frameLayout != null) {
+            command.resolve(this.frameLayout);
+        }
+        return command;
+    }
+
     //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     @Override
     public Command visitStatement(StatementContext ctx) {
@@ -78,6 +99,7 @@ public class CommandGenerationVisitor extends WlangBaseVisitor<Command> {
     @Override
     public Command visitMainRoutine(MainRoutineContext ctx) {
         RoutineCommand parent = (RoutineCommand) this.visit(ctx.mainHead());
+        enterRoutine(parent);
         List<Command> content = this.collectInBlock(ctx.block());
         for (Command c : content) {
             parent.addChild(c);
@@ -136,6 +158,7 @@ public class CommandGenerationVisitor extends WlangBaseVisitor<Command> {
     @Override
     public Command visitRoutine(RoutineContext ctx) {
         RoutineCommand parent = (RoutineCommand) this.visit(ctx.routineHead());
+        enterRoutine(parent);
         List<Command> content = this.collectInBlock(ctx.block());
         for (Command c : content) {
             parent.addChild(c);
@@ -202,7 +225,7 @@ public class CommandGenerationVisitor extends WlangBaseVisitor<Command> {
     public Command visitArrayDeclarationOneDim(ArrayDeclarationOneDimContext ctx) {
         String identifier = ctx.id.getText();
         Term index = this.termGenVisitor.visit(ctx.index);
-        return new ArrayDeclaration(this.controller, ctx.id.getLine(), identifier, index);
+        return resolved(new ArrayDeclaration(this.controller, ctx.id.getLine(), identifier, index));
     }
 
     @Override
@@ -210,7 +233,8 @@ public class CommandGenerationVisitor extends WlangBaseVisitor<Command> {
         String identifier = ctx.id.getText();
         Term firstIndex = this.termGenVisitor.visit(ctx.firstIndex);
         Term secondIndex = this.termGenVisitor.visit(ctx.secondIndex);
-        return new ArrayDeclaration(this.controller, ctx.id.getLine(), identifier, firstIndex, secondIndex);
+        return resolved(
+                new ArrayDeclaration(this.controller, ctx.id.getLine(), identifier, firstIndex, secondIndex));
     }
 
     @Override
@@ -219,15 +243,16 @@ public class CommandGenerationVisitor extends WlangBaseVisitor<Command> {
         Term firstIndex = this.termGenVisitor.visit(ctx.firstIndex);
         Term secondIndex = this.termGenVisitor.visit(ctx.secondIndex);
         Term thirdIndex = this.termGenVisitor.visit(ctx.thirdIndex);
-        return new ArrayDeclaration(this.controller, ctx.id.getLine(), identifier, firstIndex, secondIndex, thirdIndex);
+        return resolved(new ArrayDeclaration(this.controller, ctx.id.getLine(), identifier, firstIndex, secondIndex,
+                thirdIndex));
     }
 
     @Override
     public Command visitArrayDeclareAssign(ArrayDeclareAssignContext ctx) {
         Term values = this.termGenVisitor.visit(ctx.filledArglist());
         Term size = this.termGenVisitor.visit(ctx.term());
-        return new ArrayDeclarationAssignment(this.controller, ctx.getStart().getLine(), ctx.id.getText(), size,
-                values);
+        return resolved(new ArrayDeclarationAssignment(this.controller, ctx.getStart().getLine(), ctx.id.getText(),
+                size, values));
     }
 
     @Override
@@ -235,7 +260,7 @@ public class CommandGenerationVisitor extends WlangBaseVisitor<Command> {
         String identifier = ctx.id.getText();
         Term index = this.termGenVisitor.visit(ctx.index);
         Term value = this.termGenVisitor.visit(ctx.value);
-        return new ArrayElementAssignment(this.controller, ctx.id.getLine(), identifier, index, value);
+        return resolved(new ArrayElementAssignment(this.controller, ctx.id.getLine(), identifier, index, value));
     }
 
     @Override
@@ -244,8 +269,8 @@ public class CommandGenerationVisitor extends WlangBaseVisitor<Command> {
         Term firstIndex = this.termGenVisitor.visit(ctx.firstIndex);
         Term secondIndex = this.termGenVisitor.visit(ctx.secondIndex);
         Term value = this.termGenVisitor.visit(ctx.value);
-        return new ArrayElementAssignment(this.controller, ctx.id.getLine(), identifier, firstIndex, secondIndex,
-                value);
+        return resolved(new ArrayElementAssignment(this.controller, ctx.id.getLine(), identifier, firstIndex,
+                secondIndex, value));
     }
 
     @Override
@@ -255,34 +280,35 @@ public class CommandGenerationVisitor extends WlangBaseVisitor<Command> {
         Term secondIndex = this.termGenVisitor.visit(ctx.secondIndex);
         Term thirdIndex = this.termGenVisitor.visit(ctx.thirdIndex);
         Term value = this.termGenVisitor.visit(ctx.value);
-        return new ArrayElementAssignment(this.controller, ctx.id.getLine(), identifier, firstIndex, secondIndex,
-                thirdIndex, value);
+        return resolved(new ArrayElementAssignment(this.controller, ctx.id.getLine(), identifier, firstIndex,
+                secondIndex, thirdIndex, value));
     }
 
     // Assignments and Declaration
     @Override
     public Command visitCallingAssign(CallingAssignContext ctx) {
-        Command funcCall = visit(ctx.value);
-        return new CallingAssignment(this.controller, ctx.getStart().getLine(), ctx.id.getText(), funcCall);
+        RoutineCall funcCall = (RoutineCall) visit(ctx.value);
+        return resolved(
+                new CallingAssignment(this.controller, ctx.getStart().getLine(), ctx.id.getText(), funcCall));
     }
 
     @Override
     public Command visitPureAssign(PureAssignContext ctx) {
         Term value = this.termGenVisitor.visit(ctx.value);
-        return new Assignment(this.controller, ctx.id.getLine(), ctx.id.getText(), value);
+        return resolved(new Assignment(this.controller, ctx.id.getLine(), ctx.id.getText(), value));
     }
 
     @Override
     public Command visitDeclaration(DeclarationContext ctx) {
-        return new Declaration(this.controller, ctx.getStart().getLine(), ctx.id.getText(),
-                Type.fromStringToType(ctx.type.getText()));
+        return resolved(new Declaration(this.controller, ctx.getStart().getLine(), ctx.id.getText(),
+                Type.fromStringToType(ctx.type.getText())));
     }
 
     @Override
     public Command visitDeclareAssign(DeclareAssignContext ctx) {
         Term value = this.termGenVisitor.visit(ctx.value);
-        return new DeclarationAssignment(this.controller, ctx.getStart().getLine(), ctx.id.getText(),
-                Type.fromStringToType(ctx.type.getText()), value);
+        return resolved(new DeclarationAssignment(this.controller, ctx.getStart().getLine(), ctx.id.getText(),
+                Type.fromStringToType(ctx.type.getText()), value));
     }
 
     // Function Call
@@ -0,0 +1,152 @@
+package dibugger.debuglogic.interpreter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.exceptions.RoutineNotFoundException;
+
+/**
+ * A parsed program, prepared for an execution engine. A compiled program does
+ * not change when it is run, so it can be run any number of times, also by
+ * several threads at the same time.
+ *
+ * @author scheler
+ *
+ */
+public final class CompiledProgram {
+
+    private final Map<String, RoutineCommand> routines;
+    private final ExecutionEngine engine;
+
+    /**
+     * Creates a compiled program.
+     *
+     * @param routines
+     *            the routines of the program by their names
+     * @param engine
+     *            the engine the program was prepared for
+     */
+    CompiledProgram(Map<String, RoutineCommand> routines, ExecutionEngine engine) {
+        this.routines = Collections.unmodifiableMap(routines);
+        this.engine = engine;
+    }
+
+    /**
+     * Runs the main routine of the program.
+     *
+     * @param args
+     *            the values of the parameters of the main routine, in the
+     *            order of {@link #getParameterIdentifiers()}
+     * @param maxIterations
+     *            the maximum number of iterations of a loop
+     * @param maxFuncCalls
+     *            the maximum number of nested routine calls
+     * @param sink
+     *            the sink receiving the states of the run
+     * @return the value returned by the program, null if it returns nothing
+     * @throws DIbuggerLogicException
+     *             if there is some semantical error in the program or the
+     *             arguments do not match the parameters
+     */
+    public TermValue run(List<TermValue> args, int maxIterations, int maxFuncCalls, TraceSink sink)
+            throws DIbuggerLogicException {
+        return getMainRoutine().call(createContext(maxIterations, maxFuncCalls), args, sink);
+    }
+
+    /**
+     * Runs the main routine of the program and records the outcomes of its
+     * branches.
+     *
+     * @param args
+     *            the values of the parameters of the main routine, in the
+     *            order of {@link #getParameterIdentifiers()}
+     * @param maxIterations
+     *            the maximum number of iterations of a loop
+     * @param maxFuncCalls
+     *            the maximum number of nested routine calls
+     * @param sink
+     *            the sink receiving the states of the run
+     * @param coverage
+     *            the coverage recording the branches, also if the run fails
+     * @return the value returned by the program, null if it returns nothing
+     * @throws DIbuggerLogicException
+     *             if there is some semantical error in the program or the
+     *             arguments do not match the parameters
+     */
+    public TermValue run(List<TermValue> args, int maxIterations, int maxFuncCalls, TraceSink sink,
+            BranchCoverage coverage) throws DIbuggerLogicException {
+        ExecutionContext context = createContext(maxIterations, maxFuncCalls);
+        context.setCoverage(coverage);
+        return getMainRoutine().call(context, args, sink);
+    }
+
+    /**
+     * Returns the identifiers of the parameters of the main routine.
+     *
+     * @return the identifiers
+     * @throws DIbuggerLogicException
+     *             if the program has no main routine
+     */
+    public List<String> getParameterIdentifiers() throws DIbuggerLogicException {
+        return Collections.unmodifiableList(getMainRoutine().getIdentifiersOfArgs());
+    }
+
+    /**
+     * Returns the types of the parameters of the main routine.
+     *
+     * @return the types
+     * @throws DIbuggerLogicException
+     *             if the program has no main routine
+     */
+    public List<Type> getParameterTypes() throws DIbuggerLogicException {
+        return Collections.unmodifiableList(getMainRoutine().getExpectedTypes());
+    }
+
+    /**
+     * Returns the engine the program was prepared for.
+     *
+     * @return the engine
+     */
+    public ExecutionEngine getExecutionEngine() {
+        return this.engine;
+    }
+
+    /**
+     * Returns the routines of the program.
+     *
+     * @return the routines by their names
+     */
+    Map<String, RoutineCommand> getRoutines() {
+        return this.routines;
+    }
+
+    /**
+     * Returns the main routine of the program.
+     *
+     * @return the main routine
+     * @throws DIbuggerLogicException
+     *             if the program has no main routine
+     */
+    RoutineCommand getMainRoutine() throws DIbuggerLogicException {
+        RoutineCommand main = this.routines.get("main");
+        if (main == null) {
+            throw new RoutineNotFoundException(-1);
+        }
+        return main;
+    }
+
+    /**
+     * Creates the context of a new run of the program.
+     *
+     * @param maxIterations
+     *            the maximum number of iterations of a loop
+     * @param maxFuncCalls
+     *            the maximum number of nested routine calls
+     * @return the context
+     */
+    ExecutionContext createContext(int maxIterations, int maxFuncCalls) {
+        return new ExecutionContext(this.routines, maxIterations, maxFuncCalls);
+    }
+}
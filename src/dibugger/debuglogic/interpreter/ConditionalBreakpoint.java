@@ -28,6 +28,10 @@ public class ConditionalBreakpoint {
     private List<ScopeTuple> scopes;
     private Term condition;
     private String valueText;
+    private List<ProgramVariable> variables;
+    private ReadSet readSet;
+    private Boolean result;
+    private List<String> programIds;
 
     public ConditionalBreakpoint(String specifier) throws DIbuggerLogicException {
         this.specifier = specifier;
@@ -52,29 +56,31 @@ public class ConditionalBreakpoint {
     }
 
     public boolean evaluate(List<TraceState> states) throws DIbuggerLogicException {
-        boolean isValid = true;
-        // check wether #states = #scopes
-        if (states.size() != this.scopes.size())
-            isValid = false;
-        // check wether we are in the right scope
-        else if (!this.scopes.isEmpty()) {
-            for (int i = 0; i < this.scopes.size(); ++i)
-                if (!this.scopes.get(i).contains(states.get(i).getLineNumber()))
-                    isValid = false;
-        }
-        if (isValid || this.scopes.isEmpty()) {
-        	TermValue result;
-        	try {
-        		result = this.condition.evaluate(states);
-        	} catch(DIbuggerLogicException dble) {
-        			this.valueText = "?";
-        		   	return false;
-            }
-            if (result.getType() == Type.BOOLEAN) {
-            	this.valueText = "" + ((BooleanValue) result).getValue();
-                return ((BooleanValue) result).getValue();
+        return evaluate(states, null);
+    }
+
+    /**
+     * Evaluates the condition like {@link #evaluate(List)}, taking the
+     * variables changed since the last step from the changes computed once
+     * for all conditions.
+     * 
+     * @param states
+     *            the current states of the programs
+     * @param changes
+     *            the changes of the variables up to the current states, may
+     *            be null
+     * @return true if the condition holds
+     * @throws DIbuggerLogicException
+     */
+    public boolean evaluate(List<TraceState> states, StateChanges changes) throws DIbuggerLogicException {
+        if (isInScope(states)) {
+            // the condition is only evaluated again if a variable read changed
+            if (!this.readSet.isUnchanged(states, changes)) {
+                this.result = evaluateCondition(states);
+                this.readSet.evaluated(states);
             }
-            this.value = false;
+            this.valueText = this.result == null ? "?" : "" + this.result;
+            return this.result != null && this.result;
         }
         this.valueText = "?";
         return false;
@@ -88,6 +94,64 @@ public class ConditionalBreakpoint {
 //        return this.value;
     }
 
+    /**
+     * Evaluates the condition, returns null if it fails or is not boolean.
+     */
+    private Boolean evaluateCondition(List<TraceState> states) {
+        TermValue result;
+        try {
+            result = this.condition.evaluate(states);
+        } catch (DIbuggerLogicException dble) {
+            return null;
+        }
+        if (result.getType() == Type.BOOLEAN) {
+            return ((BooleanValue) result).getValue();
+        }
+        this.value = false;
+        return null;
+    }
+
+    /**
+     * Checks whether the condition holds in the given states. Unlike
+     * {@link #evaluate(List)} the value shown for this breakpoint is not
+     * changed, so the condition can be checked by several threads at the same
+     * time.
+     * 
+     * @param states
+     *            the current states of the programs
+     * @return true if the states are in the scopes of this breakpoint and the
+     *         condition evaluates to true
+     */
+    public boolean isSatisfied(List<TraceState> states) {
+        if (!isInScope(states)) {
+            return false;
+        }
+        TermValue result;
+        try {
+            result = this.condition.evaluate(states);
+        } catch (DIbuggerLogicException e) {
+            return false;
+        }
+        return result.getType() == Type.BOOLEAN && ((BooleanValue) result).getValue();
+    }
+
+    private boolean isInScope(List<TraceState> states) {
+        if (this.scopes.isEmpty()) {
+            return true;
+        }
+        // check wether #states = #scopes
+        if (states.size() != this.scopes.size()) {
+            return false;
+        }
+        // check wether we are in the right scope
+        for (int i = 0; i < this.scopes.size(); ++i) {
+            if (states.get(i) == null || !this.scopes.get(i).contains(states.get(i).getLineNumber())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void createTerm() throws DIbuggerLogicException {
 
         ParseTree tree;
@@ -107,6 +171,28 @@ public class ConditionalBreakpoint {
         }
         TermGenerationVisitor visitor = new TermGenerationVisitor();
         this.condition = visitor.visit(tree);
+        this.variables = visitor.getProgramVariables();
+        this.readSet = new ReadSet(this.variables);
+        if (this.programIds != null) {
+            bind(this.programIds);
+        }
+    }
+
+    /**
+     * Binds the variables of the condition to the programs debugged, so they
+     * are looked up by the index of their program instead of its id. The
+     * binding is kept when the condition is changed.
+     * 
+     * @param programIds
+     *            the ids of the programs, in the order of the states the
+     *            condition is evaluated on
+     */
+    public void bind(List<String> programIds) {
+        this.programIds = programIds;
+        for (ProgramVariable variable : this.variables) {
+            variable.bind(programIds);
+        }
+        this.readSet.invalidate();
     }
 
     public String getSpecifier() {
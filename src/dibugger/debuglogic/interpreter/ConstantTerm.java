@@ -24,4 +24,12 @@ public final class ConstantTerm extends Term {
         return this.value;
     }
 
+    /**
+     * Returns the value of the constant.
+     * 
+     * @return the value
+     */
+    public TermValue getValue() {
+        return this.value;
+    }
 }
@@ -0,0 +1,27 @@
+package dibugger.debuglogic.interpreter;
+
+/**
+ * Sink which only counts the states of a trace without keeping them. Useful to
+ * run a program for its result or its length.
+ * 
+ * @author scheler
+ *
+ */
+public class CountingTraceSink implements TraceSink {
+
+    private long count;
+
+    @Override
+    public void add(TraceStatePosition position, int lineNumber, Scope scope) {
+        ++this.count;
+    }
+
+    /**
+     * Returns the number of states added to the sink.
+     * 
+     * @return the number of states
+     */
+    public long getCount() {
+        return this.count;
+    }
+}
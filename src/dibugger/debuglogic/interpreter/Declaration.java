@@ -1,8 +1,5 @@
 package dibugger.debuglogic.interpreter;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import dibugger.debuglogic.exceptions.AlreadyDeclaredException;
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 
@@ -14,30 +11,34 @@ import dibugger.debuglogic.exceptions.DIbuggerLogicException;
  */
 public class Declaration extends Command {
     private String identifier;
+    private VariableReference variable;
     private Type type;
 
     public Declaration(GenerationController controller, int linenumber, String identifier, Type type) {
         super(controller, linenumber);
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
         this.type = type;
     }
 
     @Override
-    public List<TraceState> run() throws DIbuggerLogicException {
+    public void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
 
-        Scope scope = this.controller.getCurrentScope();
+        Scope scope = context.getCurrentScope();
 
         // check if variable already exists
-        if (scope.getTypeOf(identifier) != null) {
+        if (this.variable.typeIn(scope) != null) {
             throw new AlreadyDeclaredException(this.linenumber);
         }
 
         // set type
-        scope.setTypeOf(this.identifier, this.type);
+        this.variable.declareIn(scope, this.type);
 
-        List<TraceState> traceStateList = new ArrayList<TraceState>();
-        traceStateList.add(new TraceState(TraceStatePosition.NOTSPECIAL, this.linenumber, scope));
-        return traceStateList;
+        sink.add(TraceStatePosition.NOTSPECIAL, this.linenumber, scope);
     }
 
+    @Override
+    void resolve(FrameLayout layout) {
+        this.variable = new VariableReference(this.identifier, layout);
+    }
 }
@@ -1,8 +1,5 @@
 package dibugger.debuglogic.interpreter;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import dibugger.debuglogic.exceptions.AlreadyDeclaredException;
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 import dibugger.debuglogic.exceptions.WrongTypeAssignmentException;
@@ -15,6 +12,7 @@ import dibugger.debuglogic.exceptions.WrongTypeAssignmentException;
  */
 public class DeclarationAssignment extends Command {
     private String identifier;
+    private VariableReference variable;
     private Term term;
     private Type type;
 
@@ -37,34 +35,43 @@ public class DeclarationAssignment extends Command {
         super(controller, linenumber);
         this.controller = controller;
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
         this.type = type;
         this.term = term;
     }
 
     @Override
-    public List<TraceState> run() throws DIbuggerLogicException {
+    public void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
 
-        Scope scope = this.controller.getCurrentScope();
+        Scope scope = context.getCurrentScope();
 
         // check if variable already exists
-        if (scope.getTypeOf(identifier) != null) {
+        if (this.variable.typeIn(scope) != null) {
             throw new AlreadyDeclaredException(this.linenumber);
         }
 
         // set type
-        scope.setTypeOf(this.identifier, this.type);
-        TermValue value = this.term.evaluate(scope);
+        this.variable.declareIn(scope, this.type);
+        Slot value = scope.getRegister();
+        this.term.evaluate(scope, value);
         // check type
         if (this.type != value.getType()) {
             throw new WrongTypeAssignmentException(this.linenumber);
         }
         // set value
-        scope.setValueOf(this.identifier, value);
+        this.variable.assignIn(scope, value);
+
+        sink.add(TraceStatePosition.NOTSPECIAL, this.linenumber, scope);
 
-        List<TraceState> traceStateList = new ArrayList<TraceState>();
-        traceStateList.add(new TraceState(TraceStatePosition.NOTSPECIAL, this.linenumber, scope));
-        return traceStateList;
+    }
 
+    @Override
+    void compile(TermCompiler compiler) {
+        this.term = compiler.compile(this.term);
     }
 
+    @Override
+    void resolve(FrameLayout layout) {
+        this.variable = new VariableReference(this.identifier, layout);
+    }
 }
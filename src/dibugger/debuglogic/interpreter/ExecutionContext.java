@@ -0,0 +1,132 @@
+package dibugger.debuglogic.interpreter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.exceptions.ExceededMaxFuncCallException;
+
+/**
+ * The state of a single run of a program: its stack of scopes and the limits
+ * of the run. The commands of a program do not change while it runs, all
+ * state of a run is held by its context. So the commands of one program can
+ * be run by several contexts at the same time, e.g. with different input on
+ * different threads.
+ *
+ * A context is used by a single thread.
+ *
+ * @author scheler
+ *
+ */
+public class ExecutionContext {
+
+    private final Map<String, RoutineCommand> routines;
+    private final int maxIterations;
+    private final int maxFuncCalls;
+    private final Deque<Scope> scopes;
+    private int callDepth;
+    private BranchCoverage coverage;
+
+    /**
+     * Creates the context of a run, starting with a single empty scope.
+     *
+     * @param routines
+     *            the routines of the program by their names
+     * @param maxIterations
+     *            the maximum number of iterations of a loop
+     * @param maxFuncCalls
+     *            the maximum number of nested routine calls
+     */
+    public ExecutionContext(Map<String, RoutineCommand> routines, int maxIterations, int maxFuncCalls) {
+        this.routines = routines;
+        this.maxIterations = maxIterations;
+        this.maxFuncCalls = maxFuncCalls;
+        this.scopes = new ArrayDeque<Scope>();
+        this.scopes.push(new Scope());
+        this.callDepth = 0;
+    }
+
+    /**
+     * Returns the scope of the routine currently running.
+     *
+     * @return the scope
+     */
+    public Scope getCurrentScope() {
+        return this.scopes.peek();
+    }
+
+    /**
+     * Pushes the scope of a called routine on the stack.
+     *
+     * @param scope
+     *            the new scope
+     * @throws DIbuggerLogicException
+     *             if the maximum number of routine calls is exceeded
+     */
+    public void pushScope(Scope scope) throws DIbuggerLogicException {
+        if (this.callDepth >= this.maxFuncCalls) {
+            throw new ExceededMaxFuncCallException(-1);
+        }
+        this.scopes.push(scope);
+        this.callDepth++;
+    }
+
+    /**
+     * Pops the scope of a returning routine from the stack.
+     *
+     * @return the popped scope
+     */
+    public Scope popScope() {
+        this.callDepth--;
+        return this.scopes.pop();
+    }
+
+    /**
+     * Returns the routine with the given name.
+     *
+     * @param name
+     *            the name of the routine
+     * @return the routine, null if the program has no such routine
+     */
+    public RoutineCommand getRoutine(String name) {
+        return this.routines.get(name);
+    }
+
+    /**
+     * Returns the maximum number of iterations of a loop.
+     *
+     * @return the maximum iterations
+     */
+    public int getMaxIterations() {
+        return this.maxIterations;
+    }
+
+    /**
+     * Returns the maximum number of nested routine calls.
+     *
+     * @return the maximum number of routine calls
+     */
+    public int getMaxFuncCalls() {
+        return this.maxFuncCalls;
+    }
+
+    /**
+     * Sets the coverage recording the outcomes of the branches of this run.
+     *
+     * @param coverage
+     *            the coverage, null to record nothing
+     */
+    public void setCoverage(BranchCoverage coverage) {
+        this.coverage = coverage;
+    }
+
+    /**
+     * Returns the coverage recording the outcomes of the branches of this run.
+     *
+     * @return the coverage, null if nothing is recorded
+     */
+    public BranchCoverage getCoverage() {
+        return this.coverage;
+    }
+}
@@ -0,0 +1,21 @@
+package dibugger.debuglogic.interpreter;
+
+/**
+ * The ways a GenerationController can run a program. All engines produce the
+ * same traces.
+ *
+ * @author scheler
+ *
+ */
+public enum ExecutionEngine {
+    /**
+     * Runs the command and term trees as they are generated from the parse
+     * tree.
+     */
+    TREE_WALKER,
+    /**
+     * Compiles the terms of every routine before the run, see
+     * {@link TermCompiler}.
+     */
+    COMPILED
+}
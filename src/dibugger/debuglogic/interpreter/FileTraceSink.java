@@ -0,0 +1,90 @@
+package dibugger.debuglogic.interpreter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.exceptions.TraceStorageException;
+
+/**
+ * Sink writing the states of a trace to a file instead of keeping them in
+ * memory. The states are stored in the format of {@link TraceStateCodec} and
+ * can be read again by {@link #read(File)}.
+ * 
+ * @author scheler
+ *
+ */
+public class FileTraceSink implements TraceSink, Closeable {
+
+    private DataOutputStream out;
+    private long count;
+
+    /**
+     * Constructor for a FileTraceSink. An existing file is overwritten.
+     * 
+     * @param file
+     *            the file to write the states to
+     * @throws IOException
+     *             if the file cannot be opened
+     */
+    public FileTraceSink(File file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    @Override
+    public void add(TraceStatePosition position, int lineNumber, Scope scope) throws DIbuggerLogicException {
+        try {
+            TraceStateCodec.writeState(this.out, position, lineNumber, scope.getValues());
+        } catch (IOException e) {
+            throw new TraceStorageException(e.getMessage());
+        }
+        ++this.count;
+    }
+
+    /**
+     * Returns the number of states written to the file.
+     * 
+     * @return the number of states
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+
+    /**
+     * Reads all states of a file written by a FileTraceSink.
+     * 
+     * @param file
+     *            the file
+     * @return the states in the order they were written
+     * @throws DIbuggerLogicException
+     *             if the file cannot be read
+     */
+    public static List<TraceState> read(File file) throws DIbuggerLogicException {
+        List<TraceState> traceStates = new ArrayList<TraceState>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            in.mark(1);
+            while (in.read() >= 0) {
+                in.reset();
+                traceStates.add(TraceStateCodec.readState(in));
+                in.mark(1);
+            }
+        } catch (IOException e) {
+            throw new TraceStorageException(e.getMessage());
+        }
+        return traceStates;
+    }
+}
@@ -0,0 +1,53 @@
+package dibugger.debuglogic.interpreter;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+
+/**
+ * Sink passing only the states accepted by a filter on to another sink.
+ * 
+ * @author scheler
+ *
+ */
+public class FilteringTraceSink implements TraceSink {
+
+    /**
+     * Decides which states are passed on.
+     */
+    public interface Filter {
+        /**
+         * Checks whether a state is passed on.
+         * 
+         * @param position
+         *            the position of the state
+         * @param lineNumber
+         *            the line number of the command
+         * @param scope
+         *            the current scope
+         * @return true if the state is passed on
+         */
+        boolean accept(TraceStatePosition position, int lineNumber, Scope scope);
+    }
+
+    private TraceSink sink;
+    private Filter filter;
+
+    /**
+     * Constructor for a FilteringTraceSink.
+     * 
+     * @param sink
+     *            the sink receiving the accepted states
+     * @param filter
+     *            the filter deciding which states are accepted
+     */
+    public FilteringTraceSink(TraceSink sink, Filter filter) {
+        this.sink = sink;
+        this.filter = filter;
+    }
+
+    @Override
+    public void add(TraceStatePosition position, int lineNumber, Scope scope) throws DIbuggerLogicException {
+        if (this.filter.accept(position, lineNumber, scope)) {
+            this.sink.add(position, lineNumber, scope);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package dibugger.debuglogic.interpreter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns the variables of a routine to the slots of its scopes. The
+ * identifiers are resolved when the commands of the routine are generated, so
+ * at runtime a variable is accessed by its index instead of its name.
+ *
+ * Identifiers are only added, never removed. All scopes of a routine share
+ * its layout.
+ *
+ * @author scheler
+ *
+ */
+public final class FrameLayout {
+
+    private final Map<String, Integer> indices;
+    private final List<String> identifiers;
+
+    /**
+     * Creates an empty layout.
+     */
+    public FrameLayout() {
+        this.indices = new HashMap<String, Integer>();
+        this.identifiers = new ArrayList<String>();
+    }
+
+    /**
+     * Returns the index of an identifier, adding it to the layout if it is not
+     * part of it yet.
+     *
+     * @param identifier
+     *            the identifier
+     * @return the index of the identifier
+     */
+    int resolve(String identifier) {
+        Integer index = this.indices.get(identifier);
+        if (index == null) {
+            index = this.identifiers.size();
+            this.identifiers.add(identifier);
+            this.indices.put(identifier, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of an identifier.
+     *
+     * @param identifier
+     *            the identifier
+     * @return the index, -1 if the identifier is not part of the layout
+     */
+    public int indexOf(String identifier) {
+        Integer index = this.indices.get(identifier);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the identifier at an index.
+     *
+     * @param index
+     *            the index, between 0 and size - 1
+     * @return the identifier
+     */
+    public String getIdentifier(int index) {
+        return this.identifiers.get(index);
+    }
+
+    /**
+     * Returns the number of identifiers in the layout.
+     *
+     * @return the size
+     */
+    public int size() {
+        return this.identifiers.size();
+    }
+}
@@ -11,7 +11,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
-import java.util.Stack;
+import java.util.concurrent.CancellationException;
 
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
@@ -23,18 +23,25 @@ import dibugger.debuglogic.antlrparser.ActuallyHelpfulSyntaxException;
 import dibugger.debuglogic.antlrparser.WlangLexer;
 import dibugger.debuglogic.antlrparser.WlangParser;
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
-import dibugger.debuglogic.exceptions.ExceededMaxFuncCallException;
 import dibugger.debuglogic.exceptions.SyntaxException;
 
 public class GenerationController {
+
+    /**
+     * Estimated size in bytes the states of a trace may take in memory before
+     * they are moved to a file, an eighth of the heap.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = Runtime.getRuntime().maxMemory() / 8;
+
     private Map<String, RoutineCommand> routines;
-    private Stack<Scope> scopes;
-    private TermValue returnValue;
+    private ExecutionContext context;
 
     private int maxIterations;
     private int maxFuncCalls;
+    private long memoryBudget;
 
-    private int currentScopeCount;
+    private ExecutionEngine executionEngine;
+    private ProgramCache programCache;
 
     private CommandGenerationVisitor commandGenerator;
     private TermGenerationVisitor termGenerator;
@@ -48,10 +55,11 @@ public class GenerationController {
     public GenerationController(int maxIterations, int maxFuncCalls) {
         this.maxFuncCalls = maxFuncCalls;
         this.maxIterations = maxIterations;
+        this.memoryBudget = DEFAULT_MEMORY_BUDGET;
         this.routines = new HashMap<String, RoutineCommand>();
-        this.scopes = new Stack<Scope>();
-        this.currentScopeCount = 0;
-        this.returnValue = null;
+        this.executionEngine = ExecutionEngine.TREE_WALKER;
+        this.programCache = new ProgramCache(ProgramCache.DEFAULT_CAPACITY);
+        this.termGenerator = new TermGenerationVisitor();
     }
 
     /**
@@ -72,42 +80,167 @@ public class GenerationController {
      */
     public ListIterator<TraceState> generateTrace(String programText, List<String> input, String programIdentifier)
             throws DIbuggerLogicException {
-        ParseTree mainTree;
-        // create parsetree
-        try {
-        	if(programText == null || programText.equals("")) {
-        		throw new ActuallyHelpfulSyntaxException("Program is empty.");
-        	}
-            CharStream stream = CharStreams.fromString(programText);
-            WlangLexer lexer = new WlangLexer(stream);
-            // Setting our own error listener.
-            lexer.removeErrorListeners();
-            lexer.addErrorListener(new ActuallyHelpfulErrorListener());
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
-            WlangParser parser = new WlangParser(tokens);
-            parser.removeErrorListeners();
-            parser.addErrorListener(new ActuallyHelpfulErrorListener());
-            mainTree = parser.program();
-        } catch (ActuallyHelpfulSyntaxException e) {
-            throw new SyntaxException(e.getMessage());
-        }
-        this.commandGenerator = new CommandGenerationVisitor(this);
-        this.termGenerator = new TermGenerationVisitor();
+        // return iterator over trace
+        return generateCompleteTrace(programText, input, programIdentifier).iterator();
+    }
 
-        int childCount = mainTree.getChildCount();
+    /**
+     * Generates a complete trace, consisting of all the states adopted during
+     * the run of the program.
+     * 
+     * @param programText
+     *            the code of the program.
+     * @param input
+     *            the input of the program given as a list of Strings e.g.
+     *            "x=5".
+     * @param programIdentifier
+     *            the identifier of the program.
+     * @return the trace.
+     * @throws DIbuggerLogicException
+     *             if there is some syntactical or semantical error in the
+     *             program.
+     */
+    public Trace generateCompleteTrace(String programText, List<String> input, String programIdentifier)
+            throws DIbuggerLogicException {
+        MainCall main = prepareMainRoutine(programText, input);
+        InMemoryTraceSink sink = new InMemoryTraceSink(this.memoryBudget);
+        TermValue returnValue = main.run(sink);
+        return new Trace(sink.getTraceStates(), programIdentifier, returnValue);
+    }
 
-        // add names of routines and routine commands to the map "routines"
-        for (int i = 0; i < childCount; i++) {
-            ParseTree childTree = mainTree.getChild(i);
-            RoutineCommand command = (RoutineCommand) commandGenerator.visit(childTree);
-            this.routines.put(command.getName(), command);
+    /**
+     * Runs a program and passes all states adopted during the run to a sink,
+     * which decides what to keep of the trace. A program may be run by
+     * several threads at the same time, all runs share its commands.
+     * 
+     * @param programText
+     *            the code of the program.
+     * @param input
+     *            the input of the program given as a list of Strings e.g.
+     *            "x=5".
+     * @param sink
+     *            the sink receiving the states.
+     * @return the value returned by the program, null if it returns nothing.
+     * @throws DIbuggerLogicException
+     *             if there is some syntactical or semantical error in the
+     *             program or the sink fails.
+     */
+    public TermValue runProgram(String programText, List<String> input, TraceSink sink)
+            throws DIbuggerLogicException {
+        return prepareMainRoutine(programText, input).run(sink);
+    }
+
+    /**
+     * Generates a trace lazily. The program is parsed immediately, but run in
+     * a separate thread which only runs as far as the trace is iterated (plus
+     * a small lookahead). Semantical errors are thrown when the iteration
+     * reaches the point where they occur.
+     * 
+     * @param programText
+     *            the code of the program.
+     * @param input
+     *            the input of the program given as a list of Strings e.g.
+     *            "x=5".
+     * @param programIdentifier
+     *            the identifier of the program.
+     * @return the trace, filled while it is iterated.
+     * @throws DIbuggerLogicException
+     *             if there is some syntactical error in the program.
+     */
+    public Trace generateLazyTrace(String programText, List<String> input, String programIdentifier)
+            throws DIbuggerLogicException {
+        final MainCall main = prepareMainRoutine(programText, input);
+        final Trace trace = new Trace(programIdentifier, this.memoryBudget);
+        Thread generator = new Thread(() -> {
+            try {
+                trace.finish(main.run(
+                        (position, lineNumber, scope) -> trace.append(new TraceState(position, lineNumber, scope))));
+            } catch (CancellationException e) {
+                // nobody is interested in the rest of the trace
+            } catch (Throwable e) {
+                trace.fail(e);
+            }
+        }, "trace-generator-" + programIdentifier);
+        generator.setDaemon(true);
+        generator.start();
+        return trace;
+    }
+
+    /**
+     * Parses a program and prepares it for the current execution engine. The
+     * commands of a program only depend on its text, so a program which was
+     * compiled before is taken from the program cache.
+     * 
+     * @param programText
+     *            the code of the program.
+     * @return the compiled program.
+     * @throws DIbuggerLogicException
+     *             if there is some syntactical error in the program.
+     */
+    public synchronized CompiledProgram compileProgram(String programText) throws DIbuggerLogicException {
+        CompiledProgram program = this.programCache.get(programText, this.executionEngine);
+        if (program == null) {
+            program = new CompiledProgram(parseProgram(programText), this.executionEngine);
+            this.programCache.put(programText, program);
         }
+        this.routines = program.getRoutines();
+        return program;
+    }
 
-        // initialize scope stack
-        Scope firstScope = new Scope();
-        scopes.push(firstScope);
+    /**
+     * Parses the input of a program into the values of the parameters of its
+     * main routine. Parameters without input get the default value of their
+     * type.
+     * 
+     * @param program
+     *            the program.
+     * @param input
+     *            the input of the program given as a list of Strings e.g.
+     *            "x=5".
+     * @return the values of the parameters, in the order of
+     *         {@link CompiledProgram#getParameterIdentifiers()}.
+     * @throws DIbuggerLogicException
+     *             if the input has a syntactical error or can not be
+     *             evaluated.
+     */
+    public synchronized List<TermValue> parseInput(CompiledProgram program, List<String> input)
+            throws DIbuggerLogicException {
+        RoutineCommand mainRoutine = program.getMainRoutine();
+        return mainRoutine.evaluateArguments(getMainArguments(mainRoutine, input), new Scope());
+    }
 
-        
+    /**
+     * Parses a program and prepares its main routine with the given input.
+     * 
+     * @param programText
+     *            the code of the program.
+     * @param input
+     *            the input of the program.
+     * @return the call of the main routine, ready to run.
+     * @throws DIbuggerLogicException
+     *             if there is some syntactical error in the program.
+     */
+    private synchronized MainCall prepareMainRoutine(String programText, List<String> input)
+            throws DIbuggerLogicException {
+        CompiledProgram program = compileProgram(programText);
+        RoutineCommand mainRoutine = program.getMainRoutine();
+        List<Term> args = getMainArguments(mainRoutine, input);
+        return new MainCall(program.createContext(this.maxIterations, this.maxFuncCalls), mainRoutine, args);
+    }
+
+    /**
+     * Turns the input of a program into the arguments of its main routine.
+     * 
+     * @param mainRoutine
+     *            the main routine.
+     * @param input
+     *            the input of the program.
+     * @return the arguments of the main routine.
+     * @throws DIbuggerLogicException
+     *             if the input has a syntactical error.
+     */
+    private List<Term> getMainArguments(RoutineCommand mainRoutine, List<String> input)
+            throws DIbuggerLogicException {
         //remove empty strings
         if(input != null) {
         	for(int i = 0; i < input.size();++i) {
@@ -117,8 +250,6 @@ public class GenerationController {
             	}
             }
         }
-        // run main routine
-        RoutineCommand mainRoutine = routines.get("main");
         ArrayList<Term> args = new ArrayList<Term>();
         List<Type> expectedTypes = mainRoutine.getExpectedTypes();
         List<String> identifiers = mainRoutine.getIdentifiersOfArgs();
@@ -137,13 +268,54 @@ public class GenerationController {
                 args.add(getDefaultTerm(expectedTypes.get(i)));
             }
         }
+        return args;
+    }
+
+    /**
+     * Parses a program and generates the commands of its routines.
+     * 
+     * @param programText
+     *            the code of the program.
+     * @return the routines of the program by their names.
+     * @throws DIbuggerLogicException
+     *             if there is some syntactical error in the program.
+     */
+    private Map<String, RoutineCommand> parseProgram(String programText) throws DIbuggerLogicException {
+        ParseTree mainTree;
+        // create parsetree
+        try {
+        	if(programText == null || programText.equals("")) {
+        		throw new ActuallyHelpfulSyntaxException("Program is empty.");
+        	}
+            CharStream stream = CharStreams.fromString(programText);
+            WlangLexer lexer = new WlangLexer(stream);
+            // Setting our own error listener.
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(new ActuallyHelpfulErrorListener());
+            CommonTokenStream tokens = new CommonTokenStream(lexer);
+            WlangParser parser = new WlangParser(tokens);
+            parser.removeErrorListeners();
+            parser.addErrorListener(new ActuallyHelpfulErrorListener());
+            mainTree = parser.program();
+        } catch (ActuallyHelpfulSyntaxException e) {
+            throw new SyntaxException(e.getMessage());
+        }
+        this.commandGenerator = new CommandGenerationVisitor(this);
 
-        mainRoutine.setArgs(args);
-        List<TraceState> traceStates = mainRoutine.run();
-        Trace trace = new Trace(traceStates, programIdentifier);
+        int childCount = mainTree.getChildCount();
 
-        // return iterator over trace
-        return trace.iterator();
+        // add names of routines and routine commands to the map of routines
+        Map<String, RoutineCommand> program = new HashMap<String, RoutineCommand>();
+        TermCompiler compiler = new TermCompiler();
+        for (int i = 0; i < childCount; i++) {
+            ParseTree childTree = mainTree.getChild(i);
+            RoutineCommand command = (RoutineCommand) commandGenerator.visit(childTree);
+            if (this.executionEngine == ExecutionEngine.COMPILED) {
+                command.compile(compiler);
+            }
+            program.put(command.getName(), command);
+        }
+        return program;
     }
 
     /**
@@ -175,17 +347,31 @@ public class GenerationController {
     }
 
     /**
-     * Returns the current Scope during Runtime of TraceGeneration.
+     * Returns the context in which commands are run directly, i.e. not as
+     * part of a program run by this controller. It is created with the limits
+     * set at its first use.
+     * 
+     * @return the context
+     */
+    ExecutionContext getExecutionContext() {
+        if (this.context == null) {
+            this.context = new ExecutionContext(this.routines, this.maxIterations, this.maxFuncCalls);
+        }
+        return this.context;
+    }
+
+    /**
+     * Returns the current Scope of the commands run directly.
      * 
      * @return the scope.
      */
     public Scope getCurrentScope() {
-        Scope current = this.scopes.peek();
-        return current;
+        return getExecutionContext().getCurrentScope();
     }
 
     /**
-     * Pushes a scope on the top of the runtimestack.
+     * Pushes a scope on the top of the runtimestack of the commands run
+     * directly.
      * 
      * @param scope
      *            the new scope.
@@ -193,40 +379,16 @@ public class GenerationController {
      *             if the maximum functioncalls are exceeded.
      */
     public void pushScope(Scope scope) throws DIbuggerLogicException {
-        if (this.currentScopeCount < this.maxFuncCalls) {
-            this.scopes.push(scope);
-            this.currentScopeCount++;
-        } else
-            throw new ExceededMaxFuncCallException(-1);
+        getExecutionContext().pushScope(scope);
     }
 
     /**
-     * Pops a scope from the stack.
+     * Pops a scope from the stack of the commands run directly.
      * 
      * @return the top of the scopestack.
      */
     public Scope popScope() {
-        this.currentScopeCount--;
-        return this.scopes.pop();
-    }
-
-    /**
-     * Sets the return value of the last functionreturn.
-     * 
-     * @param value
-     *            the return value.
-     */
-    public void setReturnValue(TermValue value) {
-        this.returnValue = value;
-    }
-
-    /**
-     * Returns the return value of the last functionreturn.
-     * 
-     * @return the return value.
-     */
-    public TermValue getReturnValue() {
-        return this.returnValue;
+        return getExecutionContext().popScope();
     }
 
     /**
@@ -280,6 +442,57 @@ public class GenerationController {
         return this.maxFuncCalls;
     }
 
+    /**
+     * Sets the estimated size the states of a trace may take in memory. The
+     * states exceeding it are moved to a file and read again when they are
+     * stepped to. Takes effect at the next generation of a trace.
+     * 
+     * @param memoryBudget
+     *            the size in bytes, {@link Long#MAX_VALUE} to keep all states
+     *            in memory
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns the estimated size the states of a trace may take in memory.
+     * 
+     * @return the size in bytes
+     */
+    public long getMemoryBudget() {
+        return this.memoryBudget;
+    }
+
+    /**
+     * Sets the engine used to run the programs. Takes effect at the next
+     * generation of a trace.
+     * 
+     * @param executionEngine
+     *            the engine
+     */
+    public void setExecutionEngine(ExecutionEngine executionEngine) {
+        this.executionEngine = executionEngine;
+    }
+
+    /**
+     * Returns the engine used to run the programs.
+     * 
+     * @return the engine
+     */
+    public ExecutionEngine getExecutionEngine() {
+        return this.executionEngine;
+    }
+
+    /**
+     * Returns the cache holding the programs prepared by this controller.
+     * 
+     * @return the program cache
+     */
+    public ProgramCache getProgramCache() {
+        return this.programCache;
+    }
+
     /**
      * Turns an input string into a Term.
      * 
@@ -314,4 +527,25 @@ public class GenerationController {
         return termGenerator.visit(tree);
 
     }
+
+    /**
+     * The call of the main routine of a program with the input of a run.
+     */
+    private static final class MainCall {
+        private final ExecutionContext context;
+        private final RoutineCommand mainRoutine;
+        private final List<Term> args;
+
+        MainCall(ExecutionContext context, RoutineCommand mainRoutine, List<Term> args) {
+            this.context = context;
+            this.mainRoutine = mainRoutine;
+            this.args = args;
+        }
+
+        TermValue run(TraceSink sink) throws DIbuggerLogicException {
+            Scope scope = this.context.getCurrentScope();
+            List<TermValue> values = this.mainRoutine.evaluateArguments(this.args, scope);
+            return this.mainRoutine.call(this.context, values, sink);
+        }
+    }
 }
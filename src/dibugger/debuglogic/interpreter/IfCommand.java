@@ -44,29 +44,40 @@ public class IfCommand extends Command {
     }
 
     @Override
-    public List<TraceState> run() throws DIbuggerLogicException {
+    public void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
 
-        Scope scope = this.controller.getCurrentScope();
+        Scope scope = context.getCurrentScope();
 
         // check if condition is of type boolean
-        TermValue value = this.condition.evaluate(scope);
+        Slot value = scope.getRegister();
+        this.condition.evaluate(scope, value);
         if (value.getType() != Type.BOOLEAN) {
             throw new WrongTypeArgumentException(this.linenumber);
         }
+        boolean conditionTrue = value.asBoolean();
+        BranchCoverage coverage = context.getCoverage();
+        if (coverage != null) {
+            coverage.hitBranch(this.linenumber, conditionTrue);
+        }
 
-        List<TraceState> traceStateList = new ArrayList<TraceState>();
-        traceStateList.add(new TraceState(TraceStatePosition.NOTSPECIAL, this.linenumber, scope));
+        sink.add(TraceStatePosition.NOTSPECIAL, this.linenumber, scope);
         // check if condition is true
-        if (((BooleanValue) value).getValue()) {
-            for (Command child : this.children) {
-                traceStateList.addAll(child.run());
+        if (conditionTrue) {
+            for (int i = 0; i < this.children.size(); i++) {
+                this.children.get(i).run(context, sink);
             }
         }
-        return traceStateList;
     }
 
     public Command getChild(int i) {
         return this.children.get(i);
     }
 
+    @Override
+    void compile(TermCompiler compiler) {
+        this.condition = compiler.compile(this.condition);
+        for (Command child : this.children) {
+            child.compile(compiler);
+        }
+    }
 }
@@ -36,28 +36,32 @@ public class IfElseCommand extends Command {
     }
 
     @Override
-    public List<TraceState> run() throws DIbuggerLogicException {
+    public void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
 
-        Scope scope = this.controller.getCurrentScope();
+        Scope scope = context.getCurrentScope();
 
         // check if condition is of type boolean
-        TermValue value = this.condition.evaluate(scope);
+        Slot value = scope.getRegister();
+        this.condition.evaluate(scope, value);
         if (value.getType() != Type.BOOLEAN) {
             throw new WrongTypeArgumentException(this.linenumber);
         }
+        boolean conditionTrue = value.asBoolean();
+        BranchCoverage coverage = context.getCoverage();
+        if (coverage != null) {
+            coverage.hitBranch(this.linenumber, conditionTrue);
+        }
 
-        List<TraceState> traceStateList = new ArrayList<TraceState>();
-        traceStateList.add(new TraceState(TraceStatePosition.NOTSPECIAL, this.linenumber, scope));
+        sink.add(TraceStatePosition.NOTSPECIAL, this.linenumber, scope);
 
         // check if condition is true
-        if (((BooleanValue) value).getValue()) {
-        	for(Command ifChild : this.ifChilds)
-        		traceStateList.addAll(ifChild.run());
+        if (conditionTrue) {
+        	for (int i = 0; i < this.ifChilds.size(); i++)
+        		this.ifChilds.get(i).run(context, sink);
         } else {
-        	for(Command elseChild: this.elseChilds)
-        		traceStateList.addAll(elseChild.run());
+        	for (int i = 0; i < this.elseChilds.size(); i++)
+        		this.elseChilds.get(i).run(context, sink);
         }
-        return traceStateList;
     }
 
     /**
@@ -88,4 +92,15 @@ public class IfElseCommand extends Command {
 		if (this.elseChilds.size()>i) return this.elseChilds.get(i);
 		return null;
 	}
+
+    @Override
+    void compile(TermCompiler compiler) {
+        this.condition = compiler.compile(this.condition);
+        for (Command child : this.ifChilds) {
+            child.compile(compiler);
+        }
+        for (Command child : this.elseChilds) {
+            child.compile(compiler);
+        }
+    }
 }
@@ -0,0 +1,49 @@
+package dibugger.debuglogic.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sink keeping all states of a trace in memory, or in a file once they
+ * exceed a memory budget.
+ * 
+ * @author scheler
+ *
+ */
+public class InMemoryTraceSink implements TraceSink {
+
+    private List<TraceState> traceStates;
+
+    /**
+     * Constructor for an empty InMemoryTraceSink.
+     */
+    public InMemoryTraceSink() {
+        this.traceStates = new ArrayList<TraceState>();
+    }
+
+    /**
+     * Constructor for an empty InMemoryTraceSink which moves the states
+     * exceeding a memory budget to a file, see {@link SpillingStateList}.
+     * 
+     * @param memoryBudget
+     *            the estimated size in bytes the states may take in memory
+     */
+    public InMemoryTraceSink(long memoryBudget) {
+        this.traceStates = memoryBudget == Long.MAX_VALUE ? new ArrayList<TraceState>()
+                : new SpillingStateList(memoryBudget);
+    }
+
+    @Override
+    public void add(TraceStatePosition position, int lineNumber, Scope scope) {
+        this.traceStates.add(new TraceState(position, lineNumber, scope));
+    }
+
+    /**
+     * Returns the states added to the sink.
+     * 
+     * @return the states in the order they were added
+     */
+    public List<TraceState> getTraceStates() {
+        return this.traceStates;
+    }
+}
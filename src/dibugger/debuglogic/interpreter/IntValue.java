@@ -197,7 +197,7 @@ public class IntValue extends TermValue {
         return "" + this.value;
     }
 
-    public Integer getValue() {
+    public int getValue() {
         return this.value;
     }
 
@@ -0,0 +1,47 @@
+package dibugger.debuglogic.interpreter;
+
+/**
+ * Sink which only remembers the last state of a trace. The state is taken
+ * from its scope when it is requested, so a run only costs the steps of the
+ * program. Useful to check a run by the values at its end.
+ *
+ * @author scheler
+ *
+ */
+public class LastStateTraceSink implements TraceSink {
+
+    private TraceStatePosition position;
+    private int lineNumber;
+    private Scope scope;
+    private long count;
+
+    @Override
+    public void add(TraceStatePosition position, int lineNumber, Scope scope) {
+        this.position = position;
+        this.lineNumber = lineNumber;
+        this.scope = scope;
+        ++this.count;
+    }
+
+    /**
+     * Returns the last state added to the sink. The values are those of its
+     * scope now, which are the values of the state once the run is finished.
+     *
+     * @return the state, null if no state was added
+     */
+    public TraceState getLastState() {
+        if (this.scope == null) {
+            return null;
+        }
+        return new TraceState(this.position, this.lineNumber, this.scope);
+    }
+
+    /**
+     * Returns the number of states added to the sink.
+     *
+     * @return the number of states
+     */
+    public long getCount() {
+        return this.count;
+    }
+}
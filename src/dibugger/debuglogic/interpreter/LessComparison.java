@@ -25,4 +25,14 @@ public final class LessComparison extends Comparison {
         return new BooleanValue(leftOperand.evaluate(currentScope).lessThan(rightOperand.evaluate(currentScope)));
 
     }
+
+    @Override
+    public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+        leftOperand.evaluate(currentScope, result);
+        Type leftType = result.getType();
+        long leftBits = result.getBits();
+        TermValue leftReference = result.getReference();
+        rightOperand.evaluate(currentScope, result);
+        result.compare(Slot.LESS, leftType, leftBits, leftReference);
+    }
 }
@@ -0,0 +1,126 @@
+package dibugger.debuglogic.interpreter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of a trace from line numbers to the indices of the states on these
+ * lines. The states are added in the order of the trace, so the indices of a
+ * line are sorted and can be searched by binary search.
+ *
+ * @author scheler
+ *
+ */
+final class LineIndex {
+
+    private final Map<Integer, Hits> lines;
+
+    LineIndex() {
+        this.lines = new HashMap<Integer, Hits>();
+    }
+
+    /**
+     * Adds the next state of the trace.
+     *
+     * @param lineNumber
+     *            the line of the state
+     * @param index
+     *            the index of the state, greater than all indices added before
+     */
+    void add(int lineNumber, int index) {
+        Hits hits = this.lines.get(lineNumber);
+        if (hits == null) {
+            hits = new Hits();
+            this.lines.put(lineNumber, hits);
+        }
+        hits.add(index);
+    }
+
+    /**
+     * Returns the first index at or after a given index of a state on one of
+     * the given lines.
+     *
+     * @param lineNumbers
+     *            the lines
+     * @param from
+     *            the first index searched
+     * @return the index, -1 if no state after from is on one of the lines
+     */
+    int next(Collection<Integer> lineNumbers, int from) {
+        int next = -1;
+        for (Integer lineNumber : lineNumbers) {
+            Hits hits = this.lines.get(lineNumber);
+            if (hits != null) {
+                int hit = hits.next(from);
+                if (hit >= 0 && (next < 0 || hit < next)) {
+                    next = hit;
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Returns the last index at or before a given index of a state on one of
+     * the given lines.
+     *
+     * @param lineNumbers
+     *            the lines
+     * @param from
+     *            the last index searched
+     * @return the index, -1 if no state before from is on one of the lines
+     */
+    int previous(Collection<Integer> lineNumbers, int from) {
+        int previous = -1;
+        for (Integer lineNumber : lineNumbers) {
+            Hits hits = this.lines.get(lineNumber);
+            if (hits != null) {
+                previous = Math.max(previous, hits.previous(from));
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Returns the indices of all states on a line.
+     *
+     * @param lineNumber
+     *            the line
+     * @return the sorted indices, empty if no state is on the line
+     */
+    int[] get(int lineNumber) {
+        Hits hits = this.lines.get(lineNumber);
+        return hits == null ? new int[0] : Arrays.copyOf(hits.indices, hits.size);
+    }
+
+    private static final class Hits {
+        private int[] indices = new int[4];
+        private int size;
+
+        void add(int index) {
+            if (this.size == this.indices.length) {
+                this.indices = Arrays.copyOf(this.indices, this.size * 2);
+            }
+            this.indices[this.size++] = index;
+        }
+
+        int next(int from) {
+            int position = Arrays.binarySearch(this.indices, 0, this.size, from);
+            if (position < 0) {
+                position = -position - 1;
+            }
+            return position < this.size ? this.indices[position] : -1;
+        }
+
+        int previous(int from) {
+            int position = Arrays.binarySearch(this.indices, 0, this.size, from);
+            if (position >= 0) {
+                return this.indices[position];
+            }
+            position = -position - 1;
+            return position > 0 ? this.indices[position - 1] : -1;
+        }
+    }
+}
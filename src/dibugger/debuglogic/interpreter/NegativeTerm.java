@@ -21,4 +21,17 @@ public final class NegativeTerm extends Term {
     	return this.child.evaluate(currentScope).mul(new IntValue(-1));
     }
 
+    @Override
+    public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+        this.child.evaluate(currentScope, result);
+        Type childType = result.getType();
+        long childBits = result.getBits();
+        TermValue childReference = result.getReference();
+        result.setInt(-1);
+        result.combine(Slot.MUL, childType, childBits, childReference);
+    }
+
+    public Term getChild() {
+        return this.child;
+    }
 }
@@ -32,6 +32,13 @@ public final class NotCondition extends Term {
     public BooleanValue evaluate(Scope currentScope) throws DIbuggerLogicException {
         return new BooleanValue(this.child.evaluate(currentScope).not());
     }
+
+    @Override
+    public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+        this.child.evaluate(currentScope, result);
+        result.not();
+    }
+
     public Term getChild() {
     	return this.child;
     }
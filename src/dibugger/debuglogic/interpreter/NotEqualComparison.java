@@ -25,4 +25,15 @@ public final class NotEqualComparison extends Comparison {
         return new BooleanValue(!leftOperand.evaluate(currentScope).equal(rightOperand.evaluate(currentScope)));
 
     }
+
+    @Override
+    public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+        leftOperand.evaluate(currentScope, result);
+        Type leftType = result.getType();
+        long leftBits = result.getBits();
+        TermValue leftReference = result.getReference();
+        rightOperand.evaluate(currentScope, result);
+        result.compare(Slot.EQUAL, leftType, leftBits, leftReference);
+        result.not();
+    }
 }
@@ -0,0 +1,148 @@
+package dibugger.debuglogic.interpreter;
+
+/**
+ * Immutable array of values stored as a trie of chunks with
+ * {@value #WIDTH} entries. Setting an element copies only the chunks on the
+ * path to it and shares all others with the original array, so keeping old
+ * versions of an array is cheap.
+ *
+ * @author scheler
+ *
+ */
+final class PersistentArray {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    // estimated heap size of a chunk: header, length and references
+    private static final int CHUNK_SIZE = 16 + 4 * WIDTH;
+
+    private final Object[] root;
+    private final int shift;
+    private final int size;
+
+    private PersistentArray(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    /**
+     * Creates a persistent array containing the given values.
+     *
+     * @param values
+     *            the values
+     * @return the persistent array
+     */
+    static PersistentArray of(TermValue[] values) {
+        int count = (values.length + MASK) >>> BITS;
+        Object[][] nodes = new Object[Math.max(count, 1)][];
+        for (int n = 0; n < count; ++n) {
+            Object[] leaf = new Object[WIDTH];
+            System.arraycopy(values, n << BITS, leaf, 0, Math.min(WIDTH, values.length - (n << BITS)));
+            nodes[n] = leaf;
+        }
+        if (count == 0) {
+            nodes[0] = new Object[WIDTH];
+            count = 1;
+        }
+        int shift = 0;
+        while (count > 1) {
+            int parents = (count + MASK) >>> BITS;
+            Object[][] parentNodes = new Object[parents][];
+            for (int p = 0; p < parents; ++p) {
+                Object[] parent = new Object[WIDTH];
+                System.arraycopy(nodes, p << BITS, parent, 0, Math.min(WIDTH, count - (p << BITS)));
+                parentNodes[p] = parent;
+            }
+            nodes = parentNodes;
+            count = parents;
+            shift += BITS;
+        }
+        return new PersistentArray(nodes[0], shift, values.length);
+    }
+
+    /**
+     * Returns the number of elements.
+     *
+     * @return the size
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the element at the given index.
+     *
+     * @param index
+     *            the index, between 0 and size - 1
+     * @return the element
+     */
+    TermValue get(int index) {
+        Object[] node = this.root;
+        for (int level = this.shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (TermValue) node[index & MASK];
+    }
+
+    /**
+     * Returns a copy of this array with the element at the given index
+     * replaced.
+     *
+     * @param index
+     *            the index, between 0 and size - 1
+     * @param value
+     *            the new element
+     * @return the new array
+     */
+    PersistentArray set(int index, TermValue value) {
+        return new PersistentArray(set(this.root, this.shift, index, value), this.shift, this.size);
+    }
+
+    /**
+     * Estimates the memory taken by the chunks of this array which are not
+     * shared with another array, e.g. an older version of this array.
+     *
+     * @param other
+     *            the other array, null if no chunks are shared
+     * @return the estimated size in bytes
+     */
+    long estimateSizeNotIn(PersistentArray other) {
+        if (other == null || other.shift != this.shift) {
+            return CHUNK_SIZE * (long) countChunks(this.root, null, this.shift);
+        }
+        return CHUNK_SIZE * (long) countChunks(this.root, other.root, this.shift);
+    }
+
+    /**
+     * Counts the chunks below a node which are not below another node. Only
+     * the paths to chunks which differ are followed.
+     */
+    private static int countChunks(Object[] node, Object[] other, int level) {
+        if (node == other) {
+            return 0;
+        }
+        int count = 1;
+        if (level > 0) {
+            for (int i = 0; i < WIDTH; ++i) {
+                Object[] child = (Object[]) node[i];
+                if (child != null) {
+                    count += countChunks(child, other == null ? null : (Object[]) other[i], level - BITS);
+                }
+            }
+        }
+        return count;
+    }
+
+    private static Object[] set(Object[] node, int level, int index, TermValue value) {
+        Object[] copy = node.clone();
+        if (level == 0) {
+            copy[index & MASK] = value;
+        } else {
+            int slot = (index >>> level) & MASK;
+            copy[slot] = set((Object[]) node[slot], level - BITS, index, value);
+        }
+        return copy;
+    }
+}
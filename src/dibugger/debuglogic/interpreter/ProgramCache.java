@@ -0,0 +1,132 @@
+package dibugger.debuglogic.interpreter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Cache of parsed programs, so running a program again with other input does
+ * not lex, parse and generate its commands again. A program is identified by
+ * its text and the execution engine it was prepared for. The least recently used programs are evicted once the
+ * capacity is reached.
+ *
+ * @author scheler
+ *
+ */
+public class ProgramCache {
+
+    /**
+     * Number of programs a cache holds by default.
+     */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private final LinkedHashMap<String, CompiledProgram> programs;
+    private int capacity;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity
+     *            the maximal number of programs held
+     */
+    public ProgramCache(int capacity) {
+        this.programs = new LinkedHashMap<String, CompiledProgram>(16, 0.75f, true);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns a cached program.
+     *
+     * @param programText
+     *            the text of the program
+     * @param engine
+     *            the engine the program has to be prepared for
+     * @return the program, null if the program is not cached
+     */
+    synchronized CompiledProgram get(String programText, ExecutionEngine engine) {
+        CompiledProgram program = this.programs.get(programText);
+        if (program == null || program.getExecutionEngine() != engine) {
+            return null;
+        }
+        return program;
+    }
+
+    /**
+     * Adds a program to the cache, evicting the least recently used programs
+     * if the capacity is exceeded.
+     *
+     * @param programText
+     *            the text of the program
+     * @param program
+     *            the program
+     */
+    synchronized void put(String programText, CompiledProgram program) {
+        this.programs.put(programText, program);
+        evict();
+    }
+
+    /**
+     * Removes a program from the cache, e.g. because its text was changed.
+     *
+     * @param programText
+     *            the text of the program
+     */
+    public synchronized void invalidate(String programText) {
+        this.programs.remove(programText);
+    }
+
+    /**
+     * Removes all programs from the cache.
+     */
+    public synchronized void clear() {
+        this.programs.clear();
+    }
+
+    /**
+     * Returns true if a program is cached.
+     *
+     * @param programText
+     *            the text of the program
+     * @return true if the program is cached for any engine
+     */
+    public synchronized boolean contains(String programText) {
+        return this.programs.containsKey(programText);
+    }
+
+    /**
+     * Returns the number of cached programs.
+     *
+     * @return the number of programs
+     */
+    public synchronized int size() {
+        return this.programs.size();
+    }
+
+    /**
+     * Returns the maximal number of programs held.
+     *
+     * @return the capacity
+     */
+    public synchronized int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Sets the maximal number of programs held. Programs exceeding the new
+     * capacity are evicted.
+     *
+     * @param capacity
+     *            the capacity, 0 disables the cache
+     */
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<CompiledProgram> eldest = this.programs.values().iterator();
+        while (this.programs.size() > Math.max(this.capacity, 0)) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+}
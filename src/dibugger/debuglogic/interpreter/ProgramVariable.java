@@ -0,0 +1,139 @@
+package dibugger.debuglogic.interpreter;
+
+import java.util.List;
+
+/**
+ * A variable of one of the programs debugged at the same time, like A.x in a
+ * watch expression or conditional breakpoint. Once the reference is bound to
+ * the ids of the debugged programs, the state of its program is taken by its
+ * index in the list of current states, and the variable is looked up by its
+ * index in the layout of that state. Unbound references search the states
+ * for the id of their program.
+ *
+ * @author scheler
+ *
+ */
+final class ProgramVariable {
+
+    private final String programId;
+    private final String identifier;
+    private volatile boolean bound;
+    private volatile int programIndex;
+    private volatile LayoutIndex layoutIndex;
+
+    /**
+     * Creates a reference from a qualified identifier. Without a program id,
+     * the variable belongs to program A.
+     *
+     * @param qualifiedIdentifier
+     *            the identifier, like A.x
+     */
+    ProgramVariable(String qualifiedIdentifier) {
+        if (qualifiedIdentifier.contains(".")) {
+            // split into programId part and variable identifier
+            // here we must pass a regex into split(...), so we have to escape
+            // the dot
+            String[] parts = qualifiedIdentifier.split("\\.");
+            this.identifier = parts[1];
+            this.programId = parts[0];
+        } else {
+            this.programId = "A";
+            this.identifier = qualifiedIdentifier;
+        }
+        this.bound = false;
+    }
+
+    String getIdentifier() {
+        return this.identifier;
+    }
+
+    String getProgramId() {
+        return this.programId;
+    }
+
+    /**
+     * Binds the reference to the programs debugged.
+     *
+     * @param programIds
+     *            the ids of the programs, in the order of their states
+     */
+    void bind(List<String> programIds) {
+        this.programIndex = programIds.indexOf(this.programId);
+        this.layoutIndex = null;
+        this.bound = true;
+    }
+
+    /**
+     * Returns the value of the variable.
+     *
+     * @param states
+     *            the current states of the programs
+     * @return the value, null if the variable has no value
+     */
+    TermValue valueIn(List<TraceState> states) {
+        if (!this.bound) {
+            // find the state the variable belongs to
+            for (TraceState state : states) {
+                if (state.getProgramId() != null && state.getProgramId().equals(this.programId)) {
+                    TermValue value = state.getValueOf(this.identifier);
+                    if (value != null) {
+                        return value;
+                    }
+                }
+            }
+            return null;
+        }
+        int index = this.programIndex;
+        if (index < 0 || index >= states.size()) {
+            return null;
+        }
+        TraceState state = states.get(index);
+        if (state == null) {
+            return null;
+        }
+        // the layout only changes when the program enters another routine
+        LayoutIndex layoutIndex = this.layoutIndex;
+        FrameLayout layout = state.getLayout();
+        if (layoutIndex == null || layoutIndex.layout != layout) {
+            layoutIndex = new LayoutIndex(layout, layout.indexOf(this.identifier));
+            this.layoutIndex = layoutIndex;
+        }
+        return layoutIndex.index < 0 ? null : state.getValueAt(layoutIndex.index);
+    }
+
+    /**
+     * Checks whether the value of the variable is the same in two lists of
+     * states, using the changes of the variables between them.
+     *
+     * @param changes
+     *            the changes between the earlier and the current states of
+     *            the programs
+     * @return true if the variable did not change, false if it might have
+     */
+    boolean isUnchanged(StateChanges changes) {
+        if (!this.bound) {
+            // any state of the program might hold the variable
+            for (int i = 0; i < changes.size(); ++i) {
+                if (!changes.isUnchanged(i, this.identifier)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        int index = this.programIndex;
+        return index < 0 || index >= changes.size() || changes.isUnchanged(index, this.identifier);
+    }
+
+    /**
+     * The index of the variable in a layout.
+     */
+    private static final class LayoutIndex {
+        private final FrameLayout layout;
+        private final int index;
+
+        LayoutIndex(FrameLayout layout, int index) {
+            this.layout = layout;
+            this.index = index;
+        }
+    }
+}
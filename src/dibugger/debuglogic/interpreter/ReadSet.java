@@ -0,0 +1,76 @@
+package dibugger.debuglogic.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The variables read by a watch expression or conditional breakpoint,
+ * together with the states it was last evaluated on. As long as none of the
+ * variables changed since then, the last value of the expression is still
+ * valid and it does not have to be evaluated again.
+ *
+ * @author scheler
+ *
+ */
+final class ReadSet {
+
+    private final List<ProgramVariable> variables;
+    private List<TraceState> evaluatedOn;
+
+    /**
+     * Creates the read set of an expression.
+     *
+     * @param variables
+     *            the variables read by the expression
+     */
+    ReadSet(List<ProgramVariable> variables) {
+        this.variables = variables;
+    }
+
+    /**
+     * Checks whether the variables read have the same values as in the states
+     * the expression was last evaluated on.
+     *
+     * @param states
+     *            the current states of the programs
+     * @param changes
+     *            the changes computed for the current states, used if they
+     *            start at the states the expression was last evaluated on;
+     *            may be null
+     * @return true if the last value of the expression is still valid
+     */
+    boolean isUnchanged(List<TraceState> states, StateChanges changes) {
+        List<TraceState> before = this.evaluatedOn;
+        if (before == null || before.size() != states.size()) {
+            return false;
+        }
+        if (changes == null || !changes.isBetween(before, states)) {
+            // the expression was not evaluated at the last step
+            changes = new StateChanges(before, states);
+        }
+        for (ProgramVariable variable : this.variables) {
+            if (!variable.isUnchanged(changes)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records that the expression was evaluated on the given states.
+     *
+     * @param states
+     *            the current states of the programs
+     */
+    void evaluated(List<TraceState> states) {
+        this.evaluatedOn = new ArrayList<TraceState>(states);
+    }
+
+    /**
+     * Forgets the states the expression was evaluated on, so it is evaluated
+     * again next time.
+     */
+    void invalidate() {
+        this.evaluatedOn = null;
+    }
+}
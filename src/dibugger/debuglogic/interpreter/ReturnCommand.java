@@ -1,8 +1,5 @@
 package dibugger.debuglogic.interpreter;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 
 public class ReturnCommand extends Command {
@@ -15,16 +12,16 @@ public class ReturnCommand extends Command {
     }
 
     @Override
-    public List<TraceState> run() throws DIbuggerLogicException {
-        Scope scope = this.controller.getCurrentScope();
-        // set scope to finished
-        scope.routineIsFinished();
+    public void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
+        Scope scope = context.getCurrentScope();
+        // finish the routine with the return value, the routine command
+        // takes it from the scope
+        scope.finishRoutine(returnValue.evaluate(scope));
+        sink.add(TraceStatePosition.NOTSPECIAL, this.linenumber, scope);
+    }
 
-        // set return value in controller
-        // routine call will get the value from the controller later
-        controller.setReturnValue(returnValue.evaluate(scope));
-        List<TraceState> traceStateList = new ArrayList<TraceState>();
-        traceStateList.add(new TraceState(TraceStatePosition.NOTSPECIAL, this.linenumber, scope));
-        return traceStateList;
+    @Override
+    void compile(TermCompiler compiler) {
+        this.returnValue = compiler.compile(this.returnValue);
     }
 }
@@ -1,6 +1,5 @@
 package dibugger.debuglogic.interpreter;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
@@ -36,21 +35,36 @@ public class RoutineCall extends Command {
     }
 
     @Override
-    public List<TraceState> run() throws DIbuggerLogicException {
-        RoutineCommand rootCommand = this.controller.getRoutineRootCommand(calleeName);
+    public void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
+        this.call(context, sink);
+        sink.add(TraceStatePosition.AFTERRETURN, this.linenumber, context.getCurrentScope());
+    }
+
+    /**
+     * Calls the routine and stores its return value in the current scope,
+     * without adding the state after the return. Used by commands which add
+     * their own state after the call returned.
+     * 
+     * @param context
+     *            the context of the run
+     * @param sink
+     *            the sink receiving the states of the called routine
+     * @throws DIbuggerLogicException
+     *             if the routine does not exist or fails
+     */
+    void call(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
+        RoutineCommand rootCommand = context.getRoutine(calleeName);
         if (rootCommand == null) {
             throw new RoutineNotFoundException(this.linenumber);
         }
 
-        List<TraceState> traceStateList = new ArrayList<TraceState>();
-
-        rootCommand.setArgs(this.args);
-        traceStateList.addAll(rootCommand.run());
-
-        this.controller.getCurrentScope().setReturnValue(this.controller.getReturnValue());
-        this.controller.setReturnValue(null);
-        traceStateList.add(new TraceState(TraceStatePosition.AFTERRETURN, this.linenumber, this.controller.getCurrentScope()));
-        return traceStateList;
+        Scope scope = context.getCurrentScope();
+        List<TermValue> values = rootCommand.evaluateArguments(this.args, scope);
+        scope.setReturnValue(rootCommand.call(context, values, sink));
     }
 
+    @Override
+    void compile(TermCompiler compiler) {
+        this.args = compiler.compile(this.args);
+    }
 }
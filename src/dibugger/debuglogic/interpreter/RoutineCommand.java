@@ -19,10 +19,11 @@ public class RoutineCommand extends Command {
 
     private List<Type> expectedTypes;
     private List<Command> children;
-    private List<Term> args;
     private List<String> identifiers;
     private Type expectedReturnType;
     private String name;
+    private FrameLayout layout;
+    private List<VariableReference> parameters;
 
     /**
      * Constructor for a RoutineCall.
@@ -48,49 +49,64 @@ public class RoutineCommand extends Command {
         this.identifiers = identifiers;
         this.expectedReturnType = expectedReturnType;
         this.name = routinename;
-        this.args = new ArrayList<Term>();
+        // the parameters come first in the layout of the routine
+        this.layout = new FrameLayout();
+        this.parameters = new ArrayList<VariableReference>();
+        for (String identifier : identifiers) {
+            this.parameters.add(new VariableReference(identifier, this.layout));
+        }
     }
 
+    /**
+     * Runs the routine without arguments.
+     */
     @Override
-    public List<TraceState> run() throws DIbuggerLogicException {
-    	 // OLD SCOPE
-        Scope scope = this.controller.getCurrentScope();
-        // check number of arguments
-        if (this.expectedTypes.size() != this.args.size() || this.expectedTypes.size() != this.identifiers.size()) {
-            throw new WrongNumberArgumentException(this.linenumber);
-        }
+    public void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
+        call(context, new ArrayList<TermValue>(), sink);
+    }
 
-        // compare type of arguments with expected types
-        List<TermValue> values = new ArrayList<TermValue>();
-        for (int i = 0; i < expectedTypes.size(); i++) {
-            TermValue value = this.args.get(i).evaluate(scope);
-            if (this.expectedTypes.get(i) != value.getType()) {
+    /**
+     * Calls the routine. The routine itself is not changed by a call, so it
+     * can be called by several runs at the same time.
+     * 
+     * @param context
+     *            the context of the run
+     * @param args
+     *            the values of the arguments
+     * @param sink
+     *            the sink receiving the states of the routine
+     * @return the value returned by the routine, null if it returns nothing
+     * @throws DIbuggerLogicException
+     *             if the arguments do not match the parameters of the routine
+     *             or the routine fails
+     */
+    public TermValue call(ExecutionContext context, List<TermValue> args, TraceSink sink)
+            throws DIbuggerLogicException {
+        checkArgumentCount(args.size());
+        for (int i = 0; i < this.expectedTypes.size(); i++) {
+            if (this.expectedTypes.get(i) != args.get(i).getType()) {
                 throw new WrongTypeArgumentException(this.linenumber);
             }
-            values.add(value);
         }
 
         // NEW SCOPE
-        this.controller.pushScope(new Scope());
-        Scope newScope = this.controller.getCurrentScope();
+        context.pushScope(new Scope(this.layout));
+        Scope newScope = context.getCurrentScope();
 
         for (int i = 0; i < expectedTypes.size(); i++) {
-            newScope.setTypeOf(this.identifiers.get(i), this.expectedTypes.get(i));
-            newScope.setValueOf(this.identifiers.get(i), values.get(i));
+            this.parameters.get(i).declareIn(newScope, this.expectedTypes.get(i));
+            this.parameters.get(i).assignIn(newScope, args.get(i));
         }
-        // reset return value
-        this.controller.setReturnValue(null);
         // run all kids while return value not set
-        List<TraceState> traceStateList = new ArrayList<TraceState>();
         int i = 0;
-        traceStateList.add(new TraceState(TraceStatePosition.AFTERFUNCCALL, this.linenumber, newScope));
+        sink.add(TraceStatePosition.AFTERFUNCCALL, this.linenumber, newScope);
         while (i < this.children.size() && !newScope.isRoutineFinished()) {
-            traceStateList.addAll(this.children.get(i).run());
+            this.children.get(i).run(context, sink);
             i++;
         }
         
-        // check if return value of controller is set and of correct type
-        TermValue returnValue = this.controller.getReturnValue();
+        // check if return value is set and of correct type
+        TermValue returnValue = newScope.getResult();
 
         if ((returnValue == null) && (this.expectedReturnType != Type.NULL)) {
             throw new MissingReturnCallException(this.linenumber);
@@ -99,28 +115,50 @@ public class RoutineCommand extends Command {
         }
 
         // pop Scope
-        this.controller.popScope();
-        return traceStateList;
+        context.popScope();
+        return returnValue;
     }
 
     /**
-     * Adds a child to the children of the command.
+     * Evaluates the arguments of a call of the routine in the scope of the
+     * caller.
      * 
-     * @param child
-     *            the child to be added
+     * @param args
+     *            the arguments
+     * @param scope
+     *            the scope of the caller
+     * @return the values of the arguments
+     * @throws DIbuggerLogicException
+     *             if the arguments do not match the parameters of the routine
+     *             or can not be evaluated
      */
-    public void addChild(Command child) {
-        this.children.add(child);
+    List<TermValue> evaluateArguments(List<Term> args, Scope scope) throws DIbuggerLogicException {
+        checkArgumentCount(args.size());
+        List<TermValue> values = new ArrayList<TermValue>(args.size());
+        for (int i = 0; i < this.expectedTypes.size(); i++) {
+            TermValue value = args.get(i).evaluate(scope);
+            if (this.expectedTypes.get(i) != value.getType()) {
+                throw new WrongTypeArgumentException(this.linenumber);
+            }
+            values.add(value);
+        }
+        return values;
+    }
+
+    private void checkArgumentCount(int count) throws WrongNumberArgumentException {
+        if (this.expectedTypes.size() != count || this.expectedTypes.size() != this.identifiers.size()) {
+            throw new WrongNumberArgumentException(this.linenumber);
+        }
     }
 
     /**
-     * Setter for the arguments of a routine.
+     * Adds a child to the children of the command.
      * 
-     * @param args
-     *            the arguments
+     * @param child
+     *            the child to be added
      */
-    public void setArgs(List<Term> args) {
-        this.args = args;
+    public void addChild(Command child) {
+        this.children.add(child);
     }
 
     /**
@@ -148,7 +186,24 @@ public class RoutineCommand extends Command {
         return this.expectedTypes;
     }
 
+    /**
+     * Returns the layout of the variables of the routine. The variables of
+     * the commands of the routine are resolved in this layout.
+     * 
+     * @return the layout
+     */
+    FrameLayout getFrameLayout() {
+        return this.layout;
+    }
+
     public List<String> getIdentifiersOfArgs() {
         return this.identifiers;
     }
+
+    @Override
+    void compile(TermCompiler compiler) {
+        for (Command child : this.children) {
+            child.compile(compiler);
+        }
+    }
 }
@@ -7,21 +7,48 @@ package dibugger.debuglogic.interpreter;
  *
  */
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 public class Scope {
 
-    private Map<String, TermValue> values;
-    private Map<String, Type> types;
+    private FrameLayout layout;
+    private Slot[] slots;
+    private Type[] types;
+    private int valueCount;
+    private Slot register;
     private TermValue returnValue;
     private Type expectedReturnType;
     private int id;
     private boolean routineFinished;
+    private TermValue result;
+
+    // bookkeeping for delta encoded trace states
+    private TraceState lastState;
+    private boolean[] changed;
+    private int[] arrayModifications;
 
     public Scope() {
-        this.values = new HashMap<String, TermValue>();
-        this.types = new HashMap<String, Type>();
+        this(new FrameLayout());
+    }
+
+    /**
+     * Constructor for a scope of a routine. The variables resolved in the
+     * layout of the routine are held in an array indexed by the layout.
+     * 
+     * @param layout
+     *            the layout of the routine
+     */
+    public Scope(FrameLayout layout) {
+        this.layout = layout;
+        int size = layout.size();
+        this.slots = new Slot[size];
+        this.types = new Type[size];
+        this.changed = new boolean[size];
+        this.arrayModifications = new int[size];
+        Arrays.fill(this.arrayModifications, -1);
+        this.register = new Slot();
         this.routineFinished = false;
     }
 
@@ -34,19 +61,35 @@ public class Scope {
      *            the expected return type
      */
     public Scope(int id, Type expectedReturnType) {
-        this.values = new HashMap<String, TermValue>();
+        this(new FrameLayout());
         this.id = id;
         this.expectedReturnType = expectedReturnType;
-        this.routineFinished = false;
     }
 
     /**
-     * Getter for the values of the variables inside the scope.
+     * Getter for the values of the variables inside the scope. The values are
+     * held in slots while the program runs, so the map is created on every
+     * call.
      * 
      * @return a map of the values
      */
     public Map<String, TermValue> getValues() {
-        return this.values;
+        Map<String, TermValue> values = new HashMap<String, TermValue>();
+        for (int i = 0; i < this.slots.length; ++i) {
+            if (this.slots[i] != null) {
+                values.put(this.layout.getIdentifier(i), this.slots[i].toTermValue());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the number of variables which have a value.
+     * 
+     * @return the number of variables
+     */
+    public int getValueCount() {
+        return this.valueCount;
     }
 
     /**
@@ -57,7 +100,8 @@ public class Scope {
      * @return the value of the variable
      */
     public TermValue getValueOf(String identifier) {
-        return this.values.get(identifier);
+        Slot slot = getSlotOf(identifier);
+        return slot == null ? null : slot.toTermValue();
     }
 
     /**
@@ -69,7 +113,41 @@ public class Scope {
      *            the value of the variable
      */
     public void setValueOf(String identifier, TermValue value) {
-        this.values.put(identifier, value);
+        setValueAt(this.layout.resolve(identifier), value);
+    }
+
+    /**
+     * Setter for the value of a variable inside the scope, without creating
+     * an object for the value.
+     * 
+     * @param identifier
+     *            the identifier of the variable
+     * @param value
+     *            the slot holding the value
+     */
+    public void setValueOf(String identifier, Slot value) {
+        setValueAt(this.layout.resolve(identifier), value);
+    }
+
+    /**
+     * Returns the slot of a variable inside the scope.
+     * 
+     * @param identifier
+     *            the identifier of the variable
+     * @return the slot, null if the variable has no value
+     */
+    public Slot getSlotOf(String identifier) {
+        int index = this.layout.indexOf(identifier);
+        return index < 0 ? null : getSlotAt(index);
+    }
+
+    /**
+     * Returns a slot commands of this scope can evaluate terms into.
+     * 
+     * @return the register of the scope
+     */
+    public Slot getRegister() {
+        return this.register;
     }
 
     /**
@@ -80,7 +158,8 @@ public class Scope {
      * @return type the type of the variable
      */
     public Type getTypeOf(String identifier) {
-        return this.types.get(identifier);
+        int index = this.layout.indexOf(identifier);
+        return index < 0 ? null : getTypeAt(index);
     }
 
     /**
@@ -92,7 +171,82 @@ public class Scope {
      *            the type to be set
      */
     public void setTypeOf(String identifier, Type type) {
-        this.types.put(identifier, type);
+        setTypeAt(this.layout.resolve(identifier), type);
+    }
+
+    /**
+     * Returns the layout of the variables of this scope.
+     * 
+     * @return the layout
+     */
+    FrameLayout getLayout() {
+        return this.layout;
+    }
+
+    /**
+     * Returns the number of variables this scope has room for. The values of
+     * all variables are at indices below this size.
+     * 
+     * @return the size of the frame
+     */
+    int getFrameSize() {
+        return this.slots.length;
+    }
+
+    Slot getSlotAt(int index) {
+        return index < this.slots.length ? this.slots[index] : null;
+    }
+
+    TermValue getValueAt(int index) {
+        Slot slot = getSlotAt(index);
+        return slot == null ? null : slot.toTermValue();
+    }
+
+    void setValueAt(int index, TermValue value) {
+        getOrCreateSlot(index).load(value);
+        this.changed[index] = true;
+    }
+
+    void setValueAt(int index, Slot value) {
+        getOrCreateSlot(index).copyFrom(value);
+        this.changed[index] = true;
+    }
+
+    Type getTypeAt(int index) {
+        return index < this.types.length ? this.types[index] : null;
+    }
+
+    void setTypeAt(int index, Type type) {
+        ensureCapacity(index);
+        this.types[index] = type;
+    }
+
+    private Slot getOrCreateSlot(int index) {
+        ensureCapacity(index);
+        Slot slot = this.slots[index];
+        if (slot == null) {
+            slot = new Slot();
+            this.slots[index] = slot;
+            this.valueCount++;
+        }
+        return slot;
+    }
+
+    /**
+     * Grows the arrays if the layout was extended after the scope was
+     * created, e.g. by accessing a variable which was not resolved.
+     */
+    private void ensureCapacity(int index) {
+        if (index < this.slots.length) {
+            return;
+        }
+        int oldSize = this.slots.length;
+        int size = Math.max(index + 1, this.layout.size());
+        this.slots = Arrays.copyOf(this.slots, size);
+        this.types = Arrays.copyOf(this.types, size);
+        this.changed = Arrays.copyOf(this.changed, size);
+        this.arrayModifications = Arrays.copyOf(this.arrayModifications, size);
+        Arrays.fill(this.arrayModifications, oldSize, size, -1);
     }
 
     /**
@@ -147,4 +301,71 @@ public class Scope {
     public void routineIsFinished() {
         this.routineFinished = true;
     }
+
+    /**
+     * Sets the routine of the scope to finished, returning a value.
+     * 
+     * @param result
+     *            the value returned by the routine
+     */
+    void finishRoutine(TermValue result) {
+        this.result = result;
+        this.routineFinished = true;
+    }
+
+    /**
+     * Returns the value returned by the routine of the scope.
+     * 
+     * @return the value, null if the routine did not return a value (yet)
+     */
+    TermValue getResult() {
+        return this.result;
+    }
+
+    /**
+     * Returns the last trace state which was taken of this scope.
+     * 
+     * @return the last trace state, null if no state was taken so far
+     */
+    TraceState getLastState() {
+        return this.lastState;
+    }
+
+    /**
+     * Returns true if the value of a variable changed since the last trace
+     * state was taken of this scope. Arrays which were modified element-wise
+     * count as changed as well, even if the modification happened through an
+     * alias in another scope.
+     * 
+     * @param index
+     *            the index of the variable
+     * @return true if the variable changed
+     */
+    boolean isChanged(int index) {
+        if (this.changed[index]) {
+            return true;
+        }
+        Slot slot = this.slots[index];
+        TermValue value = slot == null ? null : slot.getReference();
+        return value instanceof ArrayValue
+                && ((ArrayValue) value).getModificationCount() != this.arrayModifications[index];
+    }
+
+    /**
+     * Registers a new trace state taken of this scope and resets the changes
+     * of the variables.
+     * 
+     * @param state
+     *            the new trace state
+     */
+    void stateTaken(TraceState state) {
+        this.lastState = state;
+        Arrays.fill(this.changed, false);
+        for (int i = 0; i < this.slots.length; ++i) {
+            TermValue value = this.slots[i] == null ? null : this.slots[i].getReference();
+            if (value instanceof ArrayValue) {
+                this.arrayModifications[i] = ((ArrayValue) value).getModificationCount();
+            }
+        }
+    }
 }
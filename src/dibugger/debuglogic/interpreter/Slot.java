@@ -0,0 +1,366 @@
+package dibugger.debuglogic.interpreter;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+
+/**
+ * Mutable, unboxed holder of a value during the execution of a program.
+ * Primitive values are stored as a type and the bits of the value, so
+ * evaluating terms and assigning variables does not allocate. A TermValue is
+ * only created when the value is needed as an object, e.g. for a trace state,
+ * and is reused until the slot changes.
+ *
+ * The arithmetic follows the operations of the TermValue classes. Operands for
+ * which these operations throw an exception are passed to them, so the same
+ * exceptions are thrown.
+ *
+ * @author scheler
+ *
+ */
+public final class Slot {
+
+    static final int ADD = 0;
+    static final int SUB = 1;
+    static final int MUL = 2;
+    static final int DIV = 3;
+    static final int MOD = 4;
+
+    static final int LESS = 0;
+    static final int LESS_EQUAL = 1;
+    static final int GREATER = 2;
+    static final int GREATER_EQUAL = 3;
+    static final int EQUAL = 4;
+
+    private Type type = Type.NULL;
+    private long bits;
+    private TermValue value;
+
+    /**
+     * Returns the type of the value.
+     *
+     * @return the type, NULL if the slot holds no value
+     */
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     * Returns the bits of a primitive value.
+     *
+     * @return the bits
+     */
+    long getBits() {
+        return this.bits;
+    }
+
+    /**
+     * Returns the object of a value which is no primitive, e.g. an array.
+     *
+     * @return the object, null for primitive values
+     */
+    TermValue getReference() {
+        return isPrimitive(this.type) ? null : this.value;
+    }
+
+    void set(Type type, long bits) {
+        this.type = type;
+        this.bits = bits;
+        this.value = null;
+    }
+
+    void setInt(int value) {
+        set(Type.INT, value);
+    }
+
+    void setBoolean(boolean value) {
+        set(Type.BOOLEAN, value ? 1 : 0);
+    }
+
+    /**
+     * Stores a value.
+     *
+     * @param value
+     *            the value, may be null
+     */
+    public void load(TermValue value) {
+        set(value == null ? Type.NULL : value.getType(), 0);
+        this.value = value;
+        if (value != null) {
+            switch (value.getType()) {
+                case INT:
+                    this.bits = ((IntValue) value).getValue();
+                    break;
+                case LONG:
+                    this.bits = ((LongValue) value).getValue();
+                    break;
+                case FLOAT:
+                    this.bits = Float.floatToRawIntBits(((FloatValue) value).getValue());
+                    break;
+                case DOUBLE:
+                    this.bits = Double.doubleToRawLongBits(((DoubleValue) value).getValue());
+                    break;
+                case CHAR:
+                    this.bits = ((CharValue) value).getValue();
+                    break;
+                case BOOLEAN:
+                    this.bits = ((BooleanValue) value).getValue() ? 1 : 0;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Copies the value of another slot.
+     *
+     * @param other
+     *            the slot to copy
+     */
+    public void copyFrom(Slot other) {
+        this.type = other.type;
+        this.bits = other.bits;
+        this.value = other.value;
+    }
+
+    /**
+     * Returns the value as an object. The object is created once per value.
+     *
+     * @return the value, null if the slot holds no value
+     */
+    public TermValue toTermValue() {
+        if (this.value == null && this.type != Type.NULL) {
+            this.value = valueOf(this.type, this.bits, null);
+        }
+        return this.value;
+    }
+
+    /**
+     * Returns the value as a boolean. The type has to be BOOLEAN.
+     *
+     * @return the boolean value
+     */
+    public boolean asBoolean() {
+        return this.bits != 0;
+    }
+
+    /**
+     * Returns an integral value. The type has to be INT, LONG or CHAR.
+     *
+     * @return the value
+     */
+    public long asLong() {
+        return this.bits;
+    }
+
+    /**
+     * Sets this slot to the result of an arithmetic operation with the left
+     * operand given by its parts and this slot as the right operand.
+     */
+    void combine(int operator, Type leftType, long leftBits, TermValue leftReference)
+            throws DIbuggerLogicException {
+        if (!isNumeric(leftType) || !isNumeric(this.type)) {
+            load(combine(operator, valueOf(leftType, leftBits, leftReference), toTermValue()));
+            return;
+        }
+        Type result = promote(leftType, this.type);
+        switch (result) {
+            case DOUBLE: {
+                double a = toDouble(leftType, leftBits);
+                double b = toDouble(this.type, this.bits);
+                double r;
+                switch (operator) {
+                    case ADD: r = a + b; break;
+                    case SUB: r = a - b; break;
+                    case MUL: r = a * b; break;
+                    case DIV: r = a / b; break;
+                    default: r = a % b; break;
+                }
+                set(Type.DOUBLE, Double.doubleToRawLongBits(r));
+                break;
+            }
+            case FLOAT: {
+                float a = toFloat(leftType, leftBits);
+                float b = toFloat(this.type, this.bits);
+                float r;
+                switch (operator) {
+                    case ADD: r = a + b; break;
+                    case SUB: r = a - b; break;
+                    case MUL: r = a * b; break;
+                    case DIV: r = a / b; break;
+                    default: r = a % b; break;
+                }
+                set(Type.FLOAT, Float.floatToRawIntBits(r));
+                break;
+            }
+            case LONG: {
+                long a = leftBits;
+                long b = this.bits;
+                long r;
+                switch (operator) {
+                    case ADD: r = a + b; break;
+                    case SUB: r = a - b; break;
+                    case MUL: r = a * b; break;
+                    case DIV: r = a / b; break;
+                    default: r = a % b; break;
+                }
+                set(Type.LONG, r);
+                break;
+            }
+            default: {
+                // INT, or CHAR if both operands are characters
+                int a = (int) leftBits;
+                int b = (int) this.bits;
+                int r;
+                switch (operator) {
+                    case ADD: r = a + b; break;
+                    case SUB: r = a - b; break;
+                    case MUL: r = a * b; break;
+                    case DIV: r = a / b; break;
+                    default: r = a % b; break;
+                }
+                set(result, result == Type.CHAR ? (char) r : r);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Sets this slot to the result of a comparison with the left operand given
+     * by its parts and this slot as the right operand.
+     */
+    void compare(int operator, Type leftType, long leftBits, TermValue leftReference)
+            throws DIbuggerLogicException {
+        boolean r;
+        if (isNumeric(leftType) && isNumeric(this.type)) {
+            Type common = promote(leftType, this.type);
+            int c;
+            if (common == Type.DOUBLE) {
+                double a = toDouble(leftType, leftBits);
+                double b = toDouble(this.type, this.bits);
+                c = a < b ? -1 : (a > b ? 1 : (a == b ? 0 : 2));
+            } else if (common == Type.FLOAT) {
+                float a = toFloat(leftType, leftBits);
+                float b = toFloat(this.type, this.bits);
+                c = a < b ? -1 : (a > b ? 1 : (a == b ? 0 : 2));
+            } else {
+                c = Long.compare(leftBits, this.bits);
+            }
+            // c == 2 marks an unordered comparison with NaN
+            switch (operator) {
+                case LESS: r = c == -1; break;
+                case LESS_EQUAL: r = c == -1 || c == 0; break;
+                case GREATER: r = c == 1; break;
+                case GREATER_EQUAL: r = c == 1 || c == 0; break;
+                default: r = c == 0; break;
+            }
+        } else if (operator == EQUAL && leftType == Type.BOOLEAN && this.type == Type.BOOLEAN) {
+            r = leftBits == this.bits;
+        } else {
+            TermValue left = valueOf(leftType, leftBits, leftReference);
+            TermValue right = toTermValue();
+            switch (operator) {
+                case LESS: r = left.lessThan(right); break;
+                case LESS_EQUAL: r = left.lessEqual(right); break;
+                case GREATER: r = left.greaterThan(right); break;
+                case GREATER_EQUAL: r = left.greaterEqual(right); break;
+                default: r = left.equal(right); break;
+            }
+        }
+        setBoolean(r);
+    }
+
+    /**
+     * Sets this slot to the conjunction or disjunction of a boolean left
+     * operand given by its parts and this slot as the right operand.
+     */
+    void logical(boolean and, Type leftType, long leftBits, TermValue leftReference) throws DIbuggerLogicException {
+        if (leftType == Type.BOOLEAN && this.type == Type.BOOLEAN) {
+            setBoolean(and ? (leftBits != 0 && this.bits != 0) : (leftBits != 0 || this.bits != 0));
+        } else {
+            TermValue left = valueOf(leftType, leftBits, leftReference);
+            setBoolean(and ? left.and(toTermValue()) : left.or(toTermValue()));
+        }
+    }
+
+    /**
+     * Negates the boolean value of this slot.
+     */
+    void not() throws DIbuggerLogicException {
+        if (this.type == Type.BOOLEAN) {
+            setBoolean(this.bits == 0);
+        } else {
+            setBoolean(toTermValue().not());
+        }
+    }
+
+    private static TermValue combine(int operator, TermValue left, TermValue right) throws DIbuggerLogicException {
+        switch (operator) {
+            case ADD:
+                return left.add(right);
+            case SUB:
+                return left.sub(right);
+            case MUL:
+                return left.mul(right);
+            case DIV:
+                return left.div(right);
+            default:
+                return left.mod(right);
+        }
+    }
+
+    private static TermValue valueOf(Type type, long bits, TermValue reference) {
+        switch (type) {
+            case INT:
+                return new IntValue((int) bits);
+            case LONG:
+                return new LongValue(bits);
+            case FLOAT:
+                return new FloatValue(Float.intBitsToFloat((int) bits));
+            case DOUBLE:
+                return new DoubleValue(Double.longBitsToDouble(bits));
+            case CHAR:
+                return new CharValue((char) bits);
+            case BOOLEAN:
+                return new BooleanValue(bits != 0);
+            default:
+                return reference;
+        }
+    }
+
+    private static boolean isPrimitive(Type type) {
+        return type != Type.NULL && type != Type.ARRAY;
+    }
+
+    private static boolean isNumeric(Type type) {
+        return type == Type.INT || type == Type.LONG || type == Type.FLOAT || type == Type.DOUBLE || type == Type.CHAR;
+    }
+
+    private static Type promote(Type a, Type b) {
+        if (a == Type.DOUBLE || b == Type.DOUBLE) {
+            return Type.DOUBLE;
+        } else if (a == Type.FLOAT || b == Type.FLOAT) {
+            return Type.FLOAT;
+        } else if (a == Type.LONG || b == Type.LONG) {
+            return Type.LONG;
+        } else if (a == Type.INT || b == Type.INT) {
+            return Type.INT;
+        }
+        return Type.CHAR;
+    }
+
+    private static double toDouble(Type type, long bits) {
+        if (type == Type.DOUBLE) {
+            return Double.longBitsToDouble(bits);
+        } else if (type == Type.FLOAT) {
+            return Float.intBitsToFloat((int) bits);
+        }
+        return bits;
+    }
+
+    private static float toFloat(Type type, long bits) {
+        if (type == Type.FLOAT) {
+            return Float.intBitsToFloat((int) bits);
+        }
+        return bits;
+    }
+}
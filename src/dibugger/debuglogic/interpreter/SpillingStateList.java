@@ -0,0 +1,351 @@
+package dibugger.debuglogic.interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import dibugger.debuglogic.exceptions.TraceGenerationException;
+import dibugger.debuglogic.exceptions.TraceStorageException;
+
+/**
+ * The states of a trace, kept in memory until their estimated size exceeds a
+ * memory budget. From then on the states are written to a temporary file in
+ * pages of {@value #PAGE_SIZE} states in the format of
+ * {@link TraceStateCodec} with a table of identifiers, and only the page being
+ * filled stays in memory. The states of a {@link TraceFile} are read the same
+ * way.
+ * Reading a state of the file maps its page into memory and decodes it; about
+ * {@value #HOT_PAGES} pages per processor written or read last are kept, so
+ * stepping through the trace rarely reads the file.
+ *
+ * A state read from the file is a new object each time its page is read. Its
+ * values are compared by content to find the changed variables, see
+ * {@link TraceState#getChangedIdentifiers(TraceState)}.
+ *
+ * The list can be read by several threads, but only one thread may add. The
+ * pages in the file do not change anymore, so they are read without locking
+ * the list: the searches reading a trace in parallel do not wait for each
+ * other.
+ *
+ * @author scheler
+ *
+ */
+final class SpillingStateList extends AbstractList<TraceState> implements RandomAccess, Closeable {
+
+    /**
+     * Number of states of a page of the file.
+     */
+    static final int PAGE_SIZE = 256;
+    /**
+     * Number of pages read from the file kept in memory per processor.
+     */
+    static final int HOT_PAGES = 8;
+
+    private final long memoryBudget;
+    private final int maxHotPages;
+    private long estimatedSize;
+    private List<TraceState> tail;
+    private volatile String programId;
+
+    private File file;
+    private boolean ownsFile;
+    private volatile FileChannel channel;
+    private long fileLength;
+    private long[] pageOffsets;
+    private int pageCount;
+    private int spilledCount;
+    private Map<String, Integer> indices;
+    private List<String> identifiers;
+    private ByteArrayOutputStream buffer;
+    // the pages written so far, published for the readers
+    private volatile Pages pages;
+    private final Map<Integer, TraceState[]> hotPages;
+
+    /**
+     * Creates an empty list.
+     *
+     * @param memoryBudget
+     *            the estimated size in bytes the states may take in memory
+     */
+    SpillingStateList(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        this.maxHotPages = HOT_PAGES * Runtime.getRuntime().availableProcessors();
+        this.tail = new ArrayList<TraceState>();
+        this.ownsFile = true;
+        this.indices = new HashMap<String, Integer>();
+        // pages are decoded while identifiers are added
+        this.identifiers = new CopyOnWriteArrayList<String>();
+        this.pages = new Pages(new long[0], 0, 0, 0);
+        this.hotPages = new ConcurrentHashMap<Integer, TraceState[]>();
+    }
+
+    /**
+     * Creates a list of the states stored in pages of a file. No states can be
+     * added to the list and the file is not deleted when it is closed.
+     *
+     * @param channel
+     *            the channel of the file
+     * @param pageOffsets
+     *            the offsets of the pages in the file
+     * @param end
+     *            the offset after the last page
+     * @param size
+     *            the number of states
+     * @param identifiers
+     *            the table of identifiers of the states
+     * @param programId
+     *            the id of the program of the states
+     */
+    SpillingStateList(FileChannel channel, long[] pageOffsets, long end, int size, List<String> identifiers,
+            String programId) {
+        this(Long.MAX_VALUE);
+        this.ownsFile = false;
+        this.channel = channel;
+        this.pageOffsets = pageOffsets;
+        this.pageCount = pageOffsets.length;
+        this.fileLength = end;
+        this.spilledCount = size;
+        this.identifiers = identifiers;
+        this.programId = programId;
+        this.pages = new Pages(pageOffsets, this.pageCount, size, end);
+    }
+
+    @Override
+    public synchronized boolean add(TraceState state) {
+        if (!this.ownsFile) {
+            throw new UnsupportedOperationException();
+        }
+        TraceState last = this.tail.isEmpty() ? null : this.tail.get(this.tail.size() - 1);
+        this.tail.add(state);
+        try {
+            if (this.channel == null) {
+                this.estimatedSize += state.estimateSize(last);
+                if (this.estimatedSize > this.memoryBudget && this.tail.size() >= PAGE_SIZE) {
+                    spill();
+                }
+            } else if (this.tail.size() == PAGE_SIZE) {
+                writePage(this.tail);
+                this.tail = new ArrayList<TraceState>();
+                publishPages();
+            }
+        } catch (IOException e) {
+            throw new TraceGenerationException(new TraceStorageException(e.getMessage()));
+        }
+        return true;
+    }
+
+    /**
+     * Moves the full pages of the states in memory to the file.
+     */
+    private void spill() throws IOException {
+        this.file = File.createTempFile("dibugger-trace-", ".bin");
+        this.file.deleteOnExit();
+        this.channel = new RandomAccessFile(this.file, "rw").getChannel();
+        this.pageOffsets = new long[16];
+        this.buffer = new ByteArrayOutputStream();
+        int full = this.tail.size() / PAGE_SIZE * PAGE_SIZE;
+        for (int start = 0; start < full; start += PAGE_SIZE) {
+            writePage(this.tail.subList(start, start + PAGE_SIZE));
+        }
+        this.tail = new ArrayList<TraceState>(this.tail.subList(full, this.tail.size()));
+        publishPages();
+    }
+
+    private void publishPages() {
+        // the offsets of written pages do not change, so the array is shared
+        this.pages = new Pages(this.pageOffsets, this.pageCount, this.spilledCount, this.fileLength);
+    }
+
+    private void writePage(List<TraceState> states) throws IOException {
+        if (this.programId == null) {
+            this.programId = states.get(0).getProgramId();
+        }
+        this.buffer.reset();
+        DataOutputStream out = new DataOutputStream(this.buffer);
+        for (TraceState state : states) {
+            TraceStateCodec.writeState(out, state, this.indices, this.identifiers);
+        }
+        out.flush();
+        ByteBuffer page = ByteBuffer.wrap(this.buffer.toByteArray());
+        long offset = this.fileLength;
+        while (page.hasRemaining()) {
+            offset += this.channel.write(page, offset);
+        }
+        if (this.pageCount == this.pageOffsets.length) {
+            this.pageOffsets = Arrays.copyOf(this.pageOffsets, this.pageCount * 2);
+        }
+        this.pageOffsets[this.pageCount] = this.fileLength;
+        this.fileLength = offset;
+        this.spilledCount += states.size();
+        // the states just written are likely read next, and the states after
+        // them refer to them
+        cache(this.pageCount++, states.toArray(new TraceState[states.size()]));
+    }
+
+    @Override
+    public TraceState get(int index) {
+        Pages pages = this.pages;
+        if (index < 0 || index >= pages.count) {
+            synchronized (this) {
+                pages = this.pages;
+                if (index < 0 || index >= pages.count + this.tail.size()) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+                }
+                if (index >= pages.count) {
+                    return this.tail.get(index - pages.count);
+                }
+            }
+        }
+        int page = index / PAGE_SIZE;
+        TraceState[] states = this.hotPages.get(page);
+        if (states == null) {
+            try {
+                states = readPage(pages, page);
+            } catch (IOException e) {
+                throw new TraceGenerationException(new TraceStorageException(e.getMessage()));
+            }
+            cache(page, states);
+        }
+        return states[index % PAGE_SIZE];
+    }
+
+    private void cache(int page, TraceState[] states) {
+        this.hotPages.put(page, states);
+        // evicts any other page, the pages read by several threads at the
+        // same time have no order anyway
+        Iterator<Integer> it = this.hotPages.keySet().iterator();
+        while (this.hotPages.size() > this.maxHotPages && it.hasNext()) {
+            if (it.next() != page) {
+                it.remove();
+            }
+        }
+    }
+
+    private TraceState[] readPage(Pages pages, int page) throws IOException {
+        FileChannel channel = this.channel;
+        if (channel == null || !channel.isOpen()) {
+            throw new IOException("trace storage closed");
+        }
+        long start = pages.offsets[page];
+        long end = page + 1 < pages.pageCount ? pages.offsets[page + 1] : pages.end;
+        DataInputStream in = new DataInputStream(
+                new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+        TraceState[] states = new TraceState[Math.min(PAGE_SIZE, pages.count - page * PAGE_SIZE)];
+        String programId = this.programId;
+        for (int i = 0; i < states.length; ++i) {
+            states[i] = TraceStateCodec.readState(in, this.identifiers);
+            states[i].setProgramId(programId);
+        }
+        return states;
+    }
+
+    @Override
+    public synchronized int size() {
+        return this.spilledCount + this.tail.size();
+    }
+
+    /**
+     * Returns whether states were moved to the file.
+     *
+     * @return true if the states exceeded the memory budget
+     */
+    synchronized boolean isSpilled() {
+        return this.channel != null;
+    }
+
+    /**
+     * Sets the id of the program of the states read from the file.
+     *
+     * @param programId
+     *            the id of the program
+     */
+    synchronized void setProgramId(String programId) {
+        this.programId = programId;
+        for (TraceState state : this.tail) {
+            state.setProgramId(programId);
+        }
+        for (TraceState[] states : this.hotPages.values()) {
+            for (TraceState state : states) {
+                state.setProgramId(programId);
+            }
+        }
+    }
+
+    /**
+     * Closes the file and deletes a temporary file. The states of the file
+     * cannot be read anymore.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        this.hotPages.clear();
+        if (this.channel != null) {
+            this.channel.close();
+            if (this.ownsFile) {
+                this.file.delete();
+            }
+        }
+    }
+
+    /**
+     * The pages of the file, which do not change anymore.
+     */
+    private static final class Pages {
+        private final long[] offsets;
+        private final int pageCount;
+        private final int count;
+        private final long end;
+
+        Pages(long[] offsets, int pageCount, int count, long end) {
+            this.offsets = offsets;
+            this.pageCount = pageCount;
+            this.count = count;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Reads a mapped page.
+     */
+    static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
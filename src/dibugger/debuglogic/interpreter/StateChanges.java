@@ -0,0 +1,121 @@
+package dibugger.debuglogic.interpreter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The variables changed in every program between two lists of states, like
+ * the current states of two steps. The changes are shared by all watch
+ * expressions and conditional breakpoints evaluated on the later states, so
+ * the changed identifiers of a program are computed at most once per step,
+ * and only for programs whose variables are read.
+ *
+ * @author scheler
+ *
+ */
+public final class StateChanges {
+
+    private final List<TraceState> before;
+    private final List<TraceState> now;
+    // the identifiers changed in every program once computed, null if the
+    // states cannot be compared
+    private final List<Set<String>> changed;
+    private final boolean[] computed;
+
+    /**
+     * Creates the changes between two lists of states.
+     *
+     * @param before
+     *            the earlier states of the programs
+     * @param now
+     *            the current states of the programs
+     */
+    public StateChanges(List<TraceState> before, List<TraceState> now) {
+        this.before = new ArrayList<TraceState>(before);
+        this.now = new ArrayList<TraceState>(now);
+        this.changed = new ArrayList<Set<String>>(Collections.<Set<String>> nCopies(now.size(), null));
+        this.computed = new boolean[now.size()];
+    }
+
+    /**
+     * Returns the changes from the later states of these changes to the
+     * given states.
+     *
+     * @param states
+     *            the current states of the programs
+     * @return these changes if they already end at the given states, the
+     *         changes since their later states otherwise
+     */
+    public StateChanges next(List<TraceState> states) {
+        return isSame(this.now, states) ? this : new StateChanges(this.now, states);
+    }
+
+    /**
+     * Checks whether these are the changes between the given states.
+     *
+     * @param before
+     *            the earlier states of the programs
+     * @param now
+     *            the current states of the programs
+     * @return true if the states are the same objects as the states of these
+     *         changes
+     */
+    boolean isBetween(List<TraceState> before, List<TraceState> now) {
+        return isSame(this.before, before) && isSame(this.now, now);
+    }
+
+    /**
+     * Returns the number of programs.
+     *
+     * @return the number of programs
+     */
+    int size() {
+        return this.now.size();
+    }
+
+    /**
+     * Checks whether a variable of a program has the same value in both
+     * states of the program.
+     *
+     * @param program
+     *            the index of the program
+     * @param identifier
+     *            the identifier of the variable
+     * @return true if the variable did not change, false if it might have
+     */
+    boolean isUnchanged(int program, String identifier) {
+        if (!this.computed[program]) {
+            this.changed.set(program, changedIdentifiers(program));
+            this.computed[program] = true;
+        }
+        Set<String> identifiers = this.changed.get(program);
+        return identifiers != null && !identifiers.contains(identifier);
+    }
+
+    private Set<String> changedIdentifiers(int program) {
+        TraceState earlier = program < this.before.size() ? this.before.get(program) : null;
+        TraceState state = this.now.get(program);
+        if (earlier == state) {
+            return Collections.emptySet();
+        }
+        if (earlier == null || state == null || !Objects.equals(earlier.getProgramId(), state.getProgramId())) {
+            return null;
+        }
+        return state.getChangedIdentifiers(earlier);
+    }
+
+    private static boolean isSame(List<TraceState> states, List<TraceState> other) {
+        if (states.size() != other.size()) {
+            return false;
+        }
+        for (int i = 0; i < states.size(); ++i) {
+            if (states.get(i) != other.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -25,4 +25,15 @@ public final class SubtractionTerm extends BinaryArithmeticTerm {
     public TermValue evaluate(Scope currentScope) throws DIbuggerLogicException {
         return left.evaluate(currentScope).sub(right.evaluate(currentScope));
     }
+
+    @Override
+    public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+        left.evaluate(currentScope, result);
+        Type leftType = result.getType();
+        long leftBits = result.getBits();
+        TermValue leftReference = result.getReference();
+        right.evaluate(currentScope, result);
+        result.combine(Slot.SUB, leftType, leftBits, leftReference);
+    }
+
 }
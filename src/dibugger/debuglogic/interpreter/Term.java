@@ -29,6 +29,31 @@ public abstract class Term {
      */
     public abstract TermValue evaluate(Scope currentScope) throws DIbuggerLogicException;
 
+    /**
+     * Evaluates the Term replacing the variables with information from the
+     * given Scope and stores the value in a slot. Terms on primitive values
+     * override this to evaluate without allocating objects.
+     * 
+     * @param currentScope
+     *            the scope
+     * @param result
+     *            the slot receiving the value
+     */
+    public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+        result.load(this.evaluate(currentScope));
+    }
+
+    /**
+     * Resolves the variables used by the term in the layout of the routine
+     * containing it. Called when the term is generated. Terms without
+     * variables keep everything as it is.
+     * 
+     * @param layout
+     *            the layout of the routine
+     */
+    void resolve(FrameLayout layout) {
+    }
+
     /**
      * Evaluates the Term replacing the variables with information from the
      * given TraceStates and returns a String
@@ -0,0 +1,358 @@
+package dibugger.debuglogic.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+
+/**
+ * Compiles terms of a program into closures specialised for the run of the
+ * program. Constant subterms are folded into a single value, operators are
+ * resolved once instead of being dispatched at every evaluation, and integer
+ * operands take a direct path without going through the generic arithmetic of
+ * the slots. Terms which have no compiled form, e.g. array accesses, are kept
+ * as they are.
+ *
+ * A compiled term evaluates to the same values and throws the same exceptions
+ * as the term it was compiled from.
+ *
+ * @author scheler
+ *
+ */
+final class TermCompiler {
+
+    /**
+     * Compiles a term.
+     *
+     * @param term
+     *            the term, may be null
+     * @return the compiled term, or the term itself if it has no compiled form
+     */
+    Term compile(Term term) {
+        if (term instanceof CompiledTerm || term == null) {
+            return term;
+        } else if (term instanceof ConstantTerm) {
+            return new Constant(term, ((ConstantTerm) term).getValue());
+        }
+        Term compiled = compileOperation(term);
+        if (compiled == null) {
+            return term;
+        }
+        return fold(compiled);
+    }
+
+    /**
+     * Compiles a list of terms.
+     *
+     * @param terms
+     *            the terms
+     * @return a new list with the compiled terms
+     */
+    List<Term> compile(List<Term> terms) {
+        List<Term> compiled = new ArrayList<Term>(terms.size());
+        for (Term term : terms) {
+            compiled.add(compile(term));
+        }
+        return compiled;
+    }
+
+    private Term compileOperation(Term term) {
+        if (term instanceof BinaryArithmeticTerm) {
+            BinaryArithmeticTerm binary = (BinaryArithmeticTerm) term;
+            return new Arithmetic(term, arithmeticOperator(term), compile(binary.getLeftChild()),
+                    compile(binary.getRightChild()));
+        } else if (term instanceof Comparison) {
+            Comparison comparison = (Comparison) term;
+            Term left = compile(comparison.getLeftChild());
+            Term right = compile(comparison.getRightChild());
+            if (term instanceof NotEqualComparison) {
+                return new Not(term, fold(new Compare(term, Slot.EQUAL, left, right)));
+            }
+            return new Compare(term, comparisonOperator(term), left, right);
+        } else if (term instanceof AndCondition || term instanceof OrCondition) {
+            BinaryCondition condition = (BinaryCondition) term;
+            return new Logical(term, term instanceof AndCondition, compile(condition.getLeftChild()),
+                    compile(condition.getRightChild()));
+        } else if (term instanceof NotCondition) {
+            return new Not(term, compile(((NotCondition) term).getChild()));
+        } else if (term instanceof NegativeTerm) {
+            return new Negative(term, compile(((NegativeTerm) term).getChild()));
+        }
+        return null;
+    }
+
+    private static int arithmeticOperator(Term term) {
+        if (term instanceof AdditionTerm) {
+            return Slot.ADD;
+        } else if (term instanceof SubtractionTerm) {
+            return Slot.SUB;
+        } else if (term instanceof MultiplicationTerm) {
+            return Slot.MUL;
+        } else if (term instanceof DivisionTerm) {
+            return Slot.DIV;
+        }
+        return Slot.MOD;
+    }
+
+    private static int comparisonOperator(Term term) {
+        if (term instanceof LessComparison) {
+            return Slot.LESS;
+        } else if (term instanceof LessEqualComparison) {
+            return Slot.LESS_EQUAL;
+        } else if (term instanceof MoreComparison) {
+            return Slot.GREATER;
+        } else if (term instanceof MoreEqualComparison) {
+            return Slot.GREATER_EQUAL;
+        }
+        return Slot.EQUAL;
+    }
+
+    /**
+     * Replaces an operation on constants by its value. Operations which fail
+     * are kept, so they fail when the program reaches them.
+     */
+    private static Term fold(Term compiled) {
+        for (Term operand : ((CompiledTerm) compiled).operands()) {
+            if (!(operand instanceof Constant)) {
+                return compiled;
+            }
+        }
+        Slot value = new Slot();
+        try {
+            compiled.evaluate(new Scope(), value);
+        } catch (DIbuggerLogicException | ArithmeticException e) {
+            return compiled;
+        }
+        return new Constant(((CompiledTerm) compiled).source, value.toTermValue());
+    }
+
+    private static boolean isIntConstant(Term term) {
+        return term instanceof Constant && ((Constant) term).value.getType() == Type.INT;
+    }
+
+    private static int intValueOf(Term term) {
+        return isIntConstant(term) ? (int) ((Constant) term).value.getBits() : 0;
+    }
+
+    /**
+     * A compiled term. Evaluating it with trace states evaluates the term it
+     * was compiled from.
+     */
+    private abstract static class CompiledTerm extends Term {
+        private final Term source;
+
+        CompiledTerm(Term source) {
+            this.source = source;
+        }
+
+        Term[] operands() {
+            return new Term[0];
+        }
+
+        @Override
+        public TermValue evaluate(List<TraceState> states) throws DIbuggerLogicException {
+            return this.source.evaluate(states);
+        }
+
+        @Override
+        public TermValue evaluate(Scope currentScope) throws DIbuggerLogicException {
+            Slot result = new Slot();
+            this.evaluate(currentScope, result);
+            return result.toTermValue();
+        }
+
+        @Override
+        public abstract void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException;
+    }
+
+    private static final class Constant extends CompiledTerm {
+        private final Slot value;
+
+        Constant(Term source, TermValue value) {
+            super(source);
+            this.value = new Slot();
+            this.value.load(value);
+        }
+
+        @Override
+        public void evaluate(Scope currentScope, Slot result) {
+            result.copyFrom(this.value);
+        }
+    }
+
+    private static final class Arithmetic extends CompiledTerm {
+        private final int operator;
+        private final Term left;
+        private final Term right;
+        private final boolean intRight;
+        private final int rightValue;
+
+        Arithmetic(Term source, int operator, Term left, Term right) {
+            super(source);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+            this.intRight = isIntConstant(right);
+            this.rightValue = intValueOf(right);
+        }
+
+        @Override
+        Term[] operands() {
+            return new Term[] { this.left, this.right };
+        }
+
+        @Override
+        public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+            this.left.evaluate(currentScope, result);
+            Type leftType = result.getType();
+            long leftBits = result.getBits();
+            if (leftType == Type.INT && this.intRight) {
+                result.setInt(apply((int) leftBits, this.rightValue));
+                return;
+            }
+            TermValue leftReference = result.getReference();
+            this.right.evaluate(currentScope, result);
+            if (leftType == Type.INT && result.getType() == Type.INT) {
+                result.setInt(apply((int) leftBits, (int) result.getBits()));
+            } else {
+                result.combine(this.operator, leftType, leftBits, leftReference);
+            }
+        }
+
+        private int apply(int a, int b) {
+            switch (this.operator) {
+                case Slot.ADD: return a + b;
+                case Slot.SUB: return a - b;
+                case Slot.MUL: return a * b;
+                case Slot.DIV: return a / b;
+                default: return a % b;
+            }
+        }
+    }
+
+    private static final class Compare extends CompiledTerm {
+        private final int operator;
+        private final Term left;
+        private final Term right;
+        private final boolean intRight;
+        private final int rightValue;
+
+        Compare(Term source, int operator, Term left, Term right) {
+            super(source);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+            this.intRight = isIntConstant(right);
+            this.rightValue = intValueOf(right);
+        }
+
+        @Override
+        Term[] operands() {
+            return new Term[] { this.left, this.right };
+        }
+
+        @Override
+        public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+            this.left.evaluate(currentScope, result);
+            Type leftType = result.getType();
+            long leftBits = result.getBits();
+            if (leftType == Type.INT && this.intRight) {
+                result.setBoolean(apply((int) leftBits, this.rightValue));
+                return;
+            }
+            TermValue leftReference = result.getReference();
+            this.right.evaluate(currentScope, result);
+            if (leftType == Type.INT && result.getType() == Type.INT) {
+                result.setBoolean(apply((int) leftBits, (int) result.getBits()));
+            } else {
+                result.compare(this.operator, leftType, leftBits, leftReference);
+            }
+        }
+
+        private boolean apply(int a, int b) {
+            switch (this.operator) {
+                case Slot.LESS: return a < b;
+                case Slot.LESS_EQUAL: return a <= b;
+                case Slot.GREATER: return a > b;
+                case Slot.GREATER_EQUAL: return a >= b;
+                default: return a == b;
+            }
+        }
+    }
+
+    private static final class Logical extends CompiledTerm {
+        private final boolean and;
+        private final Term left;
+        private final Term right;
+
+        Logical(Term source, boolean and, Term left, Term right) {
+            super(source);
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Term[] operands() {
+            return new Term[] { this.left, this.right };
+        }
+
+        @Override
+        public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+            this.left.evaluate(currentScope, result);
+            Type leftType = result.getType();
+            long leftBits = result.getBits();
+            TermValue leftReference = result.getReference();
+            this.right.evaluate(currentScope, result);
+            result.logical(this.and, leftType, leftBits, leftReference);
+        }
+    }
+
+    private static final class Not extends CompiledTerm {
+        private final Term child;
+
+        Not(Term source, Term child) {
+            super(source);
+            this.child = child;
+        }
+
+        @Override
+        Term[] operands() {
+            return new Term[] { this.child };
+        }
+
+        @Override
+        public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+            this.child.evaluate(currentScope, result);
+            result.not();
+        }
+    }
+
+    private static final class Negative extends CompiledTerm {
+        private final Term child;
+
+        Negative(Term source, Term child) {
+            super(source);
+            this.child = child;
+        }
+
+        @Override
+        Term[] operands() {
+            return new Term[] { this.child };
+        }
+
+        @Override
+        public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+            this.child.evaluate(currentScope, result);
+            Type childType = result.getType();
+            long childBits = result.getBits();
+            if (childType == Type.INT) {
+                result.setInt(-(int) childBits);
+                return;
+            }
+            TermValue childReference = result.getReference();
+            result.setInt(-1);
+            result.combine(Slot.MUL, childType, childBits, childReference);
+        }
+    }
+}
@@ -53,6 +53,51 @@ import dibugger.debuglogic.antlrparser.WlangParser.TwoDimArrayAccessRelContext;
  */
 
 public class TermGenerationVisitor extends WlangBaseVisitor<Term> {
+    private FrameLayout frameLayout;
+    private List<ProgramVariable> programVariables = new ArrayList<ProgramVariable>();
+
+    /**
+     * Sets the layout of the routine whose terms are generated. Variables are
+     * resolved in this layout. Without a layout, e.g. for watch expressions,
+     * variables are accessed by their identifiers.
+     * 
+     * @param frameLayout
+     *            the layout, may be null
+     */
+    void setFrameLayout(FrameLayout frameLayout) {
+        this.frameLayout = frameLayout;
+    }
+
+    /**
+     * Resolves the variables of a term in the layout of the current routine.
+     */
+    private Term resolved(Term term) {
+        if (this.frameLayout != null) {
+            term.resolve(this.frameLayout);
+        }
+        return term;
+    }
+
+    /**
+     * Returns the variables of other programs used by the terms generated so
+     * far, e.g. A.x in a watch expression.
+     * 
+     * @return the variables
+     */
+    List<ProgramVariable> getProgramVariables() {
+        return this.programVariables;
+    }
+
+    private Term related(VariableRelationalTerm term) {
+        this.programVariables.add(term.getVariable());
+        return term;
+    }
+
+    private Term related(ArrayAccessRelationalTerm term) {
+        this.programVariables.add(term.getVariable());
+        return term;
+    }
+
     // Arithmetic
     @Override
     public Term visitAddition(AdditionContext ctx) {
@@ -204,7 +249,7 @@ public class TermGenerationVisitor extends WlangBaseVisitor<Term> {
     public Term visitOneDimArrayAccessRel(OneDimArrayAccessRelContext ctx) {
         String id = ctx.id.getText();
         Term index = this.visit(ctx.index);
-        return new ArrayAccessRelationalTerm(id, index);
+        return related(new ArrayAccessRelationalTerm(id, index));
     }
 
     @Override
@@ -212,7 +257,7 @@ public class TermGenerationVisitor extends WlangBaseVisitor<Term> {
         String id = ctx.id.getText();
         Term firstIndex = this.visit(ctx.firstIndex);
         Term secondIndex = this.visit(ctx.secondIndex);
-        return new ArrayAccessRelationalTerm(id, firstIndex, secondIndex);
+        return related(new ArrayAccessRelationalTerm(id, firstIndex, secondIndex));
     }
 
     @Override
@@ -221,14 +266,14 @@ public class TermGenerationVisitor extends WlangBaseVisitor<Term> {
         Term firstIndex = this.visit(ctx.firstIndex);
         Term secondIndex = this.visit(ctx.secondIndex);
         Term thirdIndex = this.visit(ctx.thirdIndex);
-        return new ArrayAccessRelationalTerm(id, firstIndex, secondIndex, thirdIndex);
+        return related(new ArrayAccessRelationalTerm(id, firstIndex, secondIndex, thirdIndex));
     }
 
     @Override
     public Term visitOneDimArrayAccess(OneDimArrayAccessContext ctx) {
         String id = ctx.id.getText();
         Term index = this.visit(ctx.index);
-        return new ArrayAccessTerm(id, index);
+        return resolved(new ArrayAccessTerm(id, index));
     }
 
     @Override
@@ -236,7 +281,7 @@ public class TermGenerationVisitor extends WlangBaseVisitor<Term> {
         String id = ctx.id.getText();
         Term firstIndex = this.visit(ctx.firstIndex);
         Term secondIndex = this.visit(ctx.secondIndex);
-        return new ArrayAccessTerm(id, firstIndex, secondIndex);
+        return resolved(new ArrayAccessTerm(id, firstIndex, secondIndex));
     }
 
     @Override
@@ -245,7 +290,7 @@ public class TermGenerationVisitor extends WlangBaseVisitor<Term> {
         Term firstIndex = this.visit(ctx.firstIndex);
         Term secondIndex = this.visit(ctx.secondIndex);
         Term thirdIndex = this.visit(ctx.thirdIndex);
-        return new ArrayAccessTerm(id, firstIndex, secondIndex, thirdIndex);
+        return resolved(new ArrayAccessTerm(id, firstIndex, secondIndex, thirdIndex));
     }
 
     @Override
@@ -313,12 +358,12 @@ public class TermGenerationVisitor extends WlangBaseVisitor<Term> {
     // IDs and Constants
     @Override
     public Term visitId(IdContext ctx) {
-        return new VariableTerm(ctx.getText());
+        return resolved(new VariableTerm(ctx.getText()));
     }
 
     @Override
     public Term visitRelId(RelIdContext ctx) {
-        return new VariableRelationalTerm(ctx.getText());
+        return related(new VariableRelationalTerm(ctx.getText()));
     }
 
     @Override
@@ -328,12 +373,12 @@ public class TermGenerationVisitor extends WlangBaseVisitor<Term> {
 
     @Override
     public Term visitIdCondition(IdConditionContext ctx) {
-        return new VariableTerm(ctx.getText());
+        return resolved(new VariableTerm(ctx.getText()));
     }
 
     @Override
     public Term visitRelIdCondition(RelIdConditionContext ctx) {
-        return new VariableRelationalTerm(ctx.getText());
+        return related(new VariableRelationalTerm(ctx.getText()));
     }
 
 }
@@ -1,44 +1,599 @@
 package dibugger.debuglogic.interpreter;
 
-import java.util.Iterator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.exceptions.TraceGenerationException;
 
 /**
  * A trace of a program. Consists of trace states.
- * 
+ *
+ * A trace is either complete from the start or generated lazily: in the
+ * latter case the interpreter appends the states while the debugger is
+ * already stepping through the trace. The generating thread never runs more
+ * than {@value #LOOKAHEAD} states ahead of the furthest state requested.
+ *
  * @author scheler
  *
  */
 public class Trace {
 
+    /**
+     * Number of states a lazy generation may run ahead of the furthest
+     * requested state.
+     */
+    public static final int LOOKAHEAD = 256;
+
     private List<TraceState> traceStates;
+    private LineIndex lineIndex;
+    private CallIndex callIndex;
     private String programId;
+    private TermValue returnValue;
+
+    private boolean complete;
+    private boolean cancelled;
+    private Throwable failure;
+    private int requested;
 
     /**
      * Constructor for a Trace.
-     * 
+     *
      * @param programId
      *            the id of the program the TraceState corresponds to
      */
     public Trace(List<TraceState> traceStates, String programId) {
+        this(traceStates, programId, null);
+    }
+
+    /**
+     * Constructor for a complete Trace of a program which returned a value.
+     *
+     * @param traceStates
+     *            all states of the trace
+     * @param programId
+     *            the id of the program the TraceState corresponds to
+     * @param returnValue
+     *            the value returned by the program
+     */
+    public Trace(List<TraceState> traceStates, String programId, TermValue returnValue) {
         this.traceStates = traceStates;
         this.programId = programId;
+        this.returnValue = returnValue;
+        this.complete = true;
+        this.lineIndex = new LineIndex();
+        this.callIndex = new CallIndex();
+        if (traceStates instanceof SpillingStateList) {
+            ((SpillingStateList) traceStates).setProgramId(programId);
+        }
 
         // write programId into all traceStates
-        Iterator<TraceState> it = this.iterator();
-        while (it.hasNext()) {
-            it.next().setProgramId(this.programId);
+        for (int i = 0; i < this.traceStates.size(); ++i) {
+            TraceState state = this.traceStates.get(i);
+            state.setProgramId(this.programId);
+            this.lineIndex.add(state.getLineNumber(), i);
+            this.callIndex.add(state.getPosition());
+        }
+    }
+
+    /**
+     * Constructor for a complete Trace read from a {@link TraceFile}. The
+     * indexes of the trace are built from the lines and positions of the
+     * states, so no state is read to build them.
+     *
+     * @param traceStates
+     *            all states of the trace
+     * @param programId
+     *            the id of the program the TraceState corresponds to
+     * @param returnValue
+     *            the value returned by the program
+     * @param lineNumbers
+     *            the line numbers of the states
+     * @param positions
+     *            the positions of the states
+     */
+    Trace(List<TraceState> traceStates, String programId, TermValue returnValue, int[] lineNumbers,
+            TraceStatePosition[] positions) {
+        this.traceStates = traceStates;
+        this.programId = programId;
+        this.returnValue = returnValue;
+        this.complete = true;
+        this.lineIndex = new LineIndex();
+        this.callIndex = new CallIndex();
+        for (int i = 0; i < lineNumbers.length; ++i) {
+            this.lineIndex.add(lineNumbers[i], i);
+            this.callIndex.add(positions[i]);
+        }
+    }
+
+    /**
+     * Constructor for an empty Trace which is filled while it is iterated.
+     *
+     * @param programId
+     *            the id of the program the TraceState corresponds to
+     */
+    Trace(String programId) {
+        this(programId, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor for an empty Trace which is filled while it is iterated.
+     * The states exceeding a memory budget are moved to a file, see
+     * {@link SpillingStateList}.
+     *
+     * @param programId
+     *            the id of the program the TraceState corresponds to
+     * @param memoryBudget
+     *            the estimated size in bytes the states may take in memory
+     */
+    Trace(String programId, long memoryBudget) {
+        this.traceStates = memoryBudget == Long.MAX_VALUE ? new ArrayList<TraceState>()
+                : new SpillingStateList(memoryBudget);
+        this.lineIndex = new LineIndex();
+        this.callIndex = new CallIndex();
+        this.programId = programId;
+        this.complete = false;
+    }
+
+    /**
+     * Appends a state to a lazily generated trace. Blocks while the generation
+     * is too far ahead of the iteration.
+     *
+     * @param state
+     *            the next state of the trace
+     * @throws CancellationException
+     *             if the trace was cancelled
+     */
+    synchronized void append(TraceState state) {
+        if (this.cancelled) {
+            throw new CancellationException();
+        }
+        state.setProgramId(this.programId);
+        this.lineIndex.add(state.getLineNumber(), this.traceStates.size());
+        this.callIndex.add(state.getPosition());
+        this.traceStates.add(state);
+        notifyAll();
+        try {
+            while (this.traceStates.size() > this.requested + LOOKAHEAD && !this.cancelled) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            this.cancelled = true;
+        }
+        if (this.cancelled) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * Marks a lazily generated trace as complete.
+     *
+     * @param returnValue
+     *            the value returned by the program
+     */
+    synchronized void finish(TermValue returnValue) {
+        this.returnValue = returnValue;
+        this.complete = true;
+        notifyAll();
+    }
+
+    /**
+     * Marks a lazily generated trace as complete because the program failed.
+     * The failure is thrown as soon as a state after the last generated one is
+     * requested.
+     *
+     * @param failure
+     *            the reason of the failure
+     */
+    synchronized void fail(Throwable failure) {
+        this.failure = failure;
+        this.complete = true;
+        notifyAll();
+    }
+
+    /**
+     * Stops the generation of a lazily generated trace. Already generated
+     * states stay available.
+     */
+    public synchronized void cancel() {
+        this.cancelled = true;
+        notifyAll();
+    }
+
+    /**
+     * Stops the generation like {@link #cancel()} and deletes the file of the
+     * states which exceeded the memory budget. These states cannot be read
+     * anymore.
+     */
+    public synchronized void release() {
+        cancel();
+        if (this.traceStates instanceof SpillingStateList) {
+            try {
+                ((SpillingStateList) this.traceStates).close();
+            } catch (IOException e) {
+                // the file is deleted at exit
+            }
+        }
+    }
+
+    /**
+     * Returns whether states of the trace were moved to a file because they
+     * exceeded the memory budget.
+     *
+     * @return true if the trace is stored in a file
+     */
+    public synchronized boolean isSpilled() {
+        return this.traceStates instanceof SpillingStateList && ((SpillingStateList) this.traceStates).isSpilled();
+    }
+
+    /**
+     * Checks whether the state at the given index exists, generating the trace
+     * up to this state if necessary.
+     *
+     * @param index
+     *            the index of the state
+     * @return true if the state exists
+     * @throws DIbuggerLogicException
+     *             if the program failed before reaching this state
+     */
+    public synchronized boolean hasState(int index) throws DIbuggerLogicException {
+        if (index > this.requested) {
+            this.requested = index;
+            notifyAll();
+        }
+        try {
+            while (index >= this.traceStates.size() && !this.complete && !this.cancelled) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (index < this.traceStates.size()) {
+            return true;
+        }
+        if (this.failure instanceof DIbuggerLogicException) {
+            throw (DIbuggerLogicException) this.failure;
+        } else if (this.failure instanceof RuntimeException) {
+            throw (RuntimeException) this.failure;
+        } else if (this.failure instanceof Error) {
+            throw (Error) this.failure;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the state at the given index. The state has to be checked by
+     * {@link #hasState(int)} before.
+     *
+     * @param index
+     *            the index of the state
+     * @return the state
+     */
+    public synchronized TraceState get(int index) {
+        return this.traceStates.get(index);
+    }
+
+    /**
+     * Returns the states generated so far. The list can be read by several
+     * threads without locking the trace: the states of a complete trace do
+     * not change anymore, the states of an incomplete trace are copied.
+     *
+     * @return the unmodifiable list of the states
+     */
+    public synchronized List<TraceState> getStates() {
+        if (this.traceStates instanceof SpillingStateList) {
+            // a view, copying would read all states into memory
+            return Collections.unmodifiableList(this.traceStates.subList(0, this.traceStates.size()));
+        } else if (!this.complete) {
+            return Collections.unmodifiableList(new ArrayList<TraceState>(this.traceStates));
+        }
+        return Collections.unmodifiableList(this.traceStates);
+    }
+
+    /**
+     * Returns all states of the trace. A lazily generated trace is generated
+     * until it is complete, failed or cancelled first.
+     *
+     * @return the unmodifiable list of the states
+     */
+    public synchronized List<TraceState> getAllStates() {
+        if (!this.complete && !this.cancelled) {
+            // the producer stays LOOKAHEAD states ahead of the request
+            this.requested = Integer.MAX_VALUE - LOOKAHEAD;
+            notifyAll();
+            try {
+                while (!this.complete && !this.cancelled) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
+        return getStates();
+    }
+
+    /**
+     * Returns the index of the first state at or after a given index which is
+     * on one of the given lines. The states are found by binary search in an
+     * index of the trace. A lazily generated trace is generated until such a
+     * state exists or the trace is complete.
+     *
+     * @param lineNumbers
+     *            the lines
+     * @param from
+     *            the index of the first state searched
+     * @return the index of the state, -1 if there is none
+     */
+    public synchronized int findNextState(Collection<Integer> lineNumbers, int from) {
+        int next = this.lineIndex.next(lineNumbers, from);
+        try {
+            while (next < 0 && !this.complete && !this.cancelled) {
+                int size = this.traceStates.size();
+                if (size + LOOKAHEAD > this.requested) {
+                    this.requested = size + LOOKAHEAD;
+                    notifyAll();
+                }
+                while (this.traceStates.size() == size && !this.complete && !this.cancelled) {
+                    wait();
+                }
+                next = this.lineIndex.next(lineNumbers, Math.max(from, size));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return next;
+    }
+
+    /**
+     * Returns the index of the first state in a range of generated states
+     * which is on one of the given lines. Unlike
+     * {@link #findNextState(Collection, int)} no states are generated.
+     *
+     * @param lineNumbers
+     *            the lines
+     * @param from
+     *            the index of the first state searched
+     * @param to
+     *            the index of the last state searched
+     * @return the index of the state, -1 if there is none
+     */
+    public synchronized int findNextState(Collection<Integer> lineNumbers, int from, int to) {
+        int next = this.lineIndex.next(lineNumbers, from);
+        return next <= to ? next : -1;
+    }
+
+    /**
+     * Returns the index of the state after the return of a routine call. A
+     * lazily generated trace is generated until the call returns or the trace
+     * is complete.
+     *
+     * @param callIndex
+     *            the index of the first state of the call, i.e. a state at the
+     *            position {@link TraceStatePosition#AFTERFUNCCALL}
+     * @return the index of the state after the return, -1 if the call does
+     *         not return
+     */
+    public synchronized int findEndOfCall(int callIndex) {
+        int end = this.callIndex.getMatch(callIndex);
+        try {
+            while (end < 0 && !this.complete && !this.cancelled) {
+                int size = this.traceStates.size();
+                if (size + LOOKAHEAD > this.requested) {
+                    this.requested = size + LOOKAHEAD;
+                    notifyAll();
+                }
+                while (this.traceStates.size() == size && !this.complete && !this.cancelled) {
+                    wait();
+                }
+                end = this.callIndex.getMatch(callIndex);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return end;
+    }
+
+    /**
+     * Returns the index of the first state of the routine call a state belongs
+     * to, i.e. of the innermost call not returned at the state.
+     *
+     * @param index
+     *            the index of a generated state
+     * @return the index of the first state of the call, -1 if there is none
+     */
+    public synchronized int getCallOf(int index) {
+        return this.callIndex.getCall(index);
     }
 
     /**
-     * Returns a ListIterator which can move forward and back.
-     * 
+     * Returns the index of the first state of the routine call which returned
+     * at a state after a return.
+     *
+     * @param index
+     *            the index of a generated state at the position
+     *            {@link TraceStatePosition#AFTERRETURN}
+     * @return the index of the first state of the call, -1 if the state is not
+     *         after a return
+     */
+    public synchronized int getStartOfCall(int index) {
+        return this.callIndex.getMatch(index);
+    }
+
+    /**
+     * Returns the number of routine calls not returned at a state, 1 in the
+     * main routine.
+     *
+     * @param index
+     *            the index of a generated state
+     * @return the call depth
+     */
+    public synchronized int getCallDepth(int index) {
+        return this.callIndex.getDepth(index);
+    }
+
+    /**
+     * Returns the index of the last state at or before a given index which is
+     * on one of the given lines. The states are found by binary search in an
+     * index of the trace.
+     *
+     * @param lineNumbers
+     *            the lines
+     * @param from
+     *            the index of the last state searched, the state has to be
+     *            generated already
+     * @return the index of the state, -1 if there is none
+     */
+    public synchronized int findPreviousState(Collection<Integer> lineNumbers, int from) {
+        return this.lineIndex.previous(lineNumbers, from);
+    }
+
+    /**
+     * Returns the indices of all states on a line which are generated so far.
+     *
+     * @param lineNumber
+     *            the line
+     * @return the sorted indices
+     */
+    public synchronized int[] getStatesOnLine(int lineNumber) {
+        return this.lineIndex.get(lineNumber);
+    }
+
+    /**
+     * Returns the number of states generated so far.
+     *
+     * @return the number of states
+     */
+    public synchronized int size() {
+        return this.traceStates.size();
+    }
+
+    /**
+     * Returns whether the program of a lazily generated trace failed. The
+     * failure is thrown when the state after the last state is requested.
+     *
+     * @return true if the program failed
+     */
+    public synchronized boolean isFailed() {
+        return this.failure != null;
+    }
+
+    /**
+     * Returns whether all states of the trace are generated.
+     *
+     * @return true if the trace is complete
+     */
+    public synchronized boolean isComplete() {
+        return this.complete;
+    }
+
+    /**
+     * Returns the value returned by the program, or null if the program did
+     * not return yet.
+     *
+     * @return the return value
+     */
+    public synchronized TermValue getReturnValue() {
+        return this.returnValue;
+    }
+
+    /**
+     * Returns the id of the program the trace belongs to.
+     *
+     * @return the program id
+     */
+    public String getProgramId() {
+        return this.programId;
+    }
+
+    /**
+     * Returns a ListIterator which can move forward and back. A lazily
+     * generated trace is generated while the iterator moves forward, failures
+     * of the program are thrown as {@link TraceGenerationException}.
+     *
      * @return the iterator over the trace
      */
     public ListIterator<TraceState> iterator() {
-        return this.traceStates.listIterator();
+        return iterator(0);
+    }
+
+    /**
+     * Returns a ListIterator which starts at the given index, i.e. the first
+     * call of next returns the state at this index.
+     *
+     * @param index
+     *            the index of the first state returned by next
+     * @return the iterator over the trace
+     */
+    public ListIterator<TraceState> iterator(int index) {
+        return new TraceIterator(index);
     }
 
+    private class TraceIterator implements ListIterator<TraceState> {
+        private int cursor;
+
+        TraceIterator(int cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return hasState(this.cursor);
+            } catch (DIbuggerLogicException e) {
+                throw new TraceGenerationException(e);
+            }
+        }
+
+        @Override
+        public TraceState next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return get(this.cursor++);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return this.cursor > 0;
+        }
+
+        @Override
+        public TraceState previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            return get(--this.cursor);
+        }
+
+        @Override
+        public int nextIndex() {
+            return this.cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return this.cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void set(TraceState e) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(TraceState e) {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -0,0 +1,282 @@
+package dibugger.debuglogic.interpreter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.exceptions.TraceStorageException;
+
+/**
+ * File storing a complete trace, used to save a run with its configuration
+ * and to resume it without running the program again.
+ *
+ * The file starts with a header of a magic number, the version of the format,
+ * the fingerprint of the run and the id of the program. The states follow in
+ * pages of {@value SpillingStateList#PAGE_SIZE} states in the format of
+ * {@link TraceStateCodec}, written while the trace is read. A footer holds the
+ * line numbers and positions of all states, the table of identifiers, the
+ * offsets of the pages and the return value of the program. The file ends
+ * with the offset of the footer and the magic number.
+ *
+ * Reading a file reads the footer only; the pages are mapped into memory and
+ * decoded when their states are read, see {@link SpillingStateList}.
+ *
+ * @author scheler
+ *
+ */
+public final class TraceFile {
+
+    /**
+     * Version of the format written.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x44425452;
+    private static final int TRAILER_SIZE = 12;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final TraceStatePosition[] POSITIONS = TraceStatePosition.values();
+
+    private TraceFile() {
+    }
+
+    /**
+     * Writes a trace to a file. A lazily generated trace is generated until it
+     * is complete first. An existing file is replaced once the trace is
+     * written, so a trace read from it before can still be read.
+     *
+     * @param file
+     *            the file
+     * @param trace
+     *            the trace
+     * @param fingerprint
+     *            the fingerprint of the run, see
+     *            {@link #fingerprint(String, List, int, int)}
+     * @throws DIbuggerLogicException
+     *             if the file cannot be written
+     */
+    public static void write(File file, Trace trace, long fingerprint) throws DIbuggerLogicException {
+        List<TraceState> states = trace.getAllStates();
+        Map<String, Integer> indices = new HashMap<String, Integer>();
+        List<String> identifiers = new ArrayList<String>();
+        int[] lineNumbers = new int[states.size()];
+        byte[] positions = new byte[states.size()];
+        long[] pageOffsets = new long[(states.size() + SpillingStateList.PAGE_SIZE - 1) / SpillingStateList.PAGE_SIZE];
+        File written = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (CountingOutputStream counter = new CountingOutputStream(
+                new BufferedOutputStream(new FileOutputStream(written)))) {
+            DataOutputStream out = new DataOutputStream(counter);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeUTF(trace.getProgramId() != null ? trace.getProgramId() : "");
+
+            for (int i = 0; i < states.size(); ++i) {
+                TraceState state = states.get(i);
+                if (i % SpillingStateList.PAGE_SIZE == 0) {
+                    pageOffsets[i / SpillingStateList.PAGE_SIZE] = counter.getCount();
+                }
+                lineNumbers[i] = state.getLineNumber();
+                positions[i] = (byte) state.getPosition().ordinal();
+                TraceStateCodec.writeState(out, state, indices, identifiers);
+            }
+
+            long footer = counter.getCount();
+            out.writeInt(states.size());
+            for (int lineNumber : lineNumbers) {
+                out.writeInt(lineNumber);
+            }
+            out.write(positions);
+            out.writeInt(identifiers.size());
+            for (String identifier : identifiers) {
+                out.writeUTF(identifier);
+            }
+            out.writeInt(pageOffsets.length);
+            for (long offset : pageOffsets) {
+                out.writeLong(offset);
+            }
+            TermValue returnValue = trace.getReturnValue();
+            out.writeBoolean(returnValue != null);
+            if (returnValue != null) {
+                TraceStateCodec.writeValue(out, returnValue);
+            }
+            out.writeLong(footer);
+            out.writeInt(MAGIC);
+            out.flush();
+        } catch (IOException e) {
+            written.delete();
+            throw new TraceStorageException(e.getMessage());
+        }
+        try {
+            Files.move(written.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            written.delete();
+            throw new TraceStorageException(e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a trace written by {@link #write(File, Trace, long)}. The states
+     * are read from the file when they are requested, so the file must not
+     * change while the trace is used. {@link Trace#release()} closes the
+     * file.
+     *
+     * @param file
+     *            the file
+     * @param fingerprint
+     *            the fingerprint of the run the trace is read for
+     * @return the trace, null if the file was written by another version or
+     *         for another run
+     * @throws DIbuggerLogicException
+     *             if the file cannot be read or is damaged
+     */
+    public static Trace read(File file, long fingerprint) throws DIbuggerLogicException {
+        FileChannel channel = null;
+        try {
+            channel = new RandomAccessFile(file, "r").getChannel();
+            long length = channel.size();
+            if (length < TRAILER_SIZE) {
+                throw new IOException("trace file too short");
+            }
+            DataInputStream header = map(channel, 0, Math.min(length, 16));
+            if (header.readInt() != MAGIC) {
+                throw new IOException("no trace file");
+            }
+            if (header.readInt() != VERSION || header.readLong() != fingerprint) {
+                channel.close();
+                return null;
+            }
+            DataInputStream trailer = map(channel, length - TRAILER_SIZE, TRAILER_SIZE);
+            long footer = trailer.readLong();
+            if (trailer.readInt() != MAGIC || footer < 16 || footer > length - TRAILER_SIZE) {
+                throw new IOException("trace file damaged");
+            }
+            String programId = map(channel, 16, footer - 16).readUTF();
+
+            DataInputStream in = map(channel, footer, length - TRAILER_SIZE - footer);
+            int size = in.readInt();
+            if (size < 0 || size > (length - footer) / 5) {
+                throw new IOException("trace file damaged");
+            }
+            int[] lineNumbers = new int[size];
+            for (int i = 0; i < size; ++i) {
+                lineNumbers[i] = in.readInt();
+            }
+            TraceStatePosition[] positions = new TraceStatePosition[size];
+            for (int i = 0; i < size; ++i) {
+                int ordinal = in.readUnsignedByte();
+                if (ordinal >= POSITIONS.length) {
+                    throw new IOException("unknown position " + ordinal);
+                }
+                positions[i] = POSITIONS[ordinal];
+            }
+            int identifierCount = in.readInt();
+            List<String> identifiers = new ArrayList<String>(identifierCount);
+            for (int i = 0; i < identifierCount; ++i) {
+                identifiers.add(in.readUTF());
+            }
+            int pageCount = in.readInt();
+            if (pageCount != (size + SpillingStateList.PAGE_SIZE - 1) / SpillingStateList.PAGE_SIZE) {
+                throw new IOException("trace file damaged");
+            }
+            long[] pageOffsets = new long[pageCount];
+            for (int i = 0; i < pageCount; ++i) {
+                pageOffsets[i] = in.readLong();
+            }
+            TermValue returnValue = in.readBoolean() ? TraceStateCodec.readValue(in) : null;
+
+            SpillingStateList traceStates = new SpillingStateList(channel, pageOffsets, footer, size, identifiers,
+                    programId);
+            return new Trace(traceStates, programId, returnValue, lineNumbers, positions);
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // the file could not be read anyway
+                }
+            }
+            throw new TraceStorageException(e.getMessage());
+        }
+    }
+
+    /**
+     * Computes the fingerprint of a run, which identifies the traces of the
+     * run in their files.
+     *
+     * @param text
+     *            the text of the program
+     * @param input
+     *            the input values of the program
+     * @param maxIterations
+     *            the maximum number of iterations of a loop
+     * @param maxFuncCalls
+     *            the maximum number of nested routine calls
+     * @return the fingerprint
+     */
+    public static long fingerprint(String text, List<String> input, int maxIterations, int maxFuncCalls) {
+        long hash = FNV_OFFSET;
+        hash = hash(hash, text);
+        for (String value : input) {
+            hash = hash(hash, value);
+        }
+        hash = hash(hash, Integer.toString(maxIterations));
+        return hash(hash, Integer.toString(maxFuncCalls));
+    }
+
+    private static long hash(long hash, String text) {
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        // separates the texts, so "ab", "c" differs from "a", "bc"
+        return (hash ^ 0xFF) * FNV_PRIME;
+    }
+
+    private static DataInputStream map(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        return new DataInputStream(new SpillingStateList.ByteBufferInputStream(buffer));
+    }
+
+    /**
+     * Counts the bytes written, which gives the offsets of the pages.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            ++this.count;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+
+        private long getCount() {
+            return this.count;
+        }
+    }
+}
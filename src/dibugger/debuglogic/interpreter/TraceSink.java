@@ -0,0 +1,26 @@
+package dibugger.debuglogic.interpreter;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+
+/**
+ * Receives the states of a program while its commands are executed. Commands
+ * push every state into the sink as soon as it is reached, so a sink decides
+ * whether and how a state is kept.
+ */
+public interface TraceSink {
+
+    /**
+     * Adds the state reached after the execution of a command.
+     * 
+     * @param position
+     *            the position of the state
+     * @param lineNumber
+     *            the line number of the command
+     * @param scope
+     *            the current scope (= the scope wherein the command was
+     *            executed)
+     * @throws DIbuggerLogicException
+     *             if the state cannot be added
+     */
+    void add(TraceStatePosition position, int lineNumber, Scope scope) throws DIbuggerLogicException;
+}
@@ -1,6 +1,7 @@
 package dibugger.debuglogic.interpreter;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -8,12 +9,37 @@ import java.util.Set;
  * A state of trace. Part of the trace. Saves the variables after the execution
  * of a command.
  * 
+ * To keep the memory of a trace proportional to the number of writes, a state
+ * only stores the variables which changed since the previous state of the same
+ * scope and refers to that state for all other variables. Every
+ * {@value #CHECKPOINT_INTERVAL} states of a scope a full copy of all variables
+ * is stored, so rebuilding a value never has to walk far.
+ * 
  * @author scheler
  *
  */
 public class TraceState {
 
-    private Map<String, TermValue> vars;
+    /**
+     * Maximal number of delta states between two full checkpoints of a scope.
+     */
+    public static final int CHECKPOINT_INTERVAL = 32;
+
+    private static final TermValue[] NO_VALUES = new TermValue[0];
+    private static final int[] NO_INDICES = new int[0];
+
+    // the values are indexed by the layout of the scope; a checkpoint holds
+    // the values of all variables, a delta only the changed ones together with
+    // their indices
+    private FrameLayout layout;
+    private int[] indices;
+    private TermValue[] values;
+    private TraceState previous;
+    private int distanceToCheckpoint;
+    private Set<String> identifiers;
+    // restored states share no values with other states
+    private boolean restored;
+
     private TraceStatePosition position;
     private int lineNumber;
     private String programId;
@@ -31,22 +57,101 @@ public class TraceState {
     public TraceState(TraceStatePosition position, int lineNumber, Scope scope) {
         this.position = position;
         this.lineNumber = lineNumber;
-        vars = new HashMap<String, TermValue>();
-        deepCopyValues(scope);
+        this.layout = scope.getLayout();
+        TraceState last = scope.getLastState();
+        if (last == null || last.distanceToCheckpoint >= CHECKPOINT_INTERVAL - 1) {
+            storeCheckpoint(scope);
+        } else {
+            storeDelta(scope, last);
+        }
+        scope.stateTaken(this);
+    }
+
+    /**
+     * Constructor for a TraceState restored from stored values. The state is
+     * a checkpoint.
+     *
+     * @param position
+     *            the position
+     * @param lineNumber
+     *            the lineNumber of the command
+     * @param vars
+     *            the values of all variables
+     */
+    TraceState(TraceStatePosition position, int lineNumber, Map<String, TermValue> vars) {
+        this.position = position;
+        this.lineNumber = lineNumber;
+        this.layout = new FrameLayout();
+        this.values = new TermValue[vars.size()];
+        for (Map.Entry<String, TermValue> entry : vars.entrySet()) {
+            this.values[this.layout.resolve(entry.getKey())] = entry.getValue();
+        }
+        this.indices = null;
+        this.previous = null;
+        this.distanceToCheckpoint = 0;
+        this.identifiers = Collections.unmodifiableSet(new HashSet<String>(vars.keySet()));
+        this.restored = true;
+    }
+
+    private void storeCheckpoint(Scope scope) {
+        int size = scope.getFrameSize();
+        Set<String> present = new HashSet<String>();
+        this.values = new TermValue[size];
+        for (int i = 0; i < size; ++i) {
+            this.values[i] = snapshotOf(scope.getValueAt(i));
+            if (scope.getSlotAt(i) != null) {
+                present.add(this.layout.getIdentifier(i));
+            }
+        }
+        this.indices = null;
+        this.previous = null;
+        this.distanceToCheckpoint = 0;
+        this.identifiers = Collections.unmodifiableSet(present);
     }
 
-    private void deepCopyValues(Scope scope) {
-        for (Map.Entry<String, TermValue> entry : scope.getValues().entrySet()) {
-            this.vars.put(entry.getKey(), entry.getValue().clone()); // TODO
-                                                                     // besser
-                                                                     // eine
-                                                                     // clone()
-                                                                     // Methode
-                                                                     // fuer den
-                                                                     // Value
+    private void storeDelta(Scope scope, TraceState last) {
+        int size = scope.getFrameSize();
+        int count = 0;
+        for (int i = 0; i < size; ++i) {
+            if (scope.isChanged(i)) {
+                ++count;
+            }
+        }
+        if (count == 0) {
+            this.indices = NO_INDICES;
+            this.values = NO_VALUES;
+        } else {
+            this.indices = new int[count];
+            this.values = new TermValue[count];
+            int n = 0;
+            for (int i = 0; i < size && n < count; ++i) {
+                if (scope.isChanged(i)) {
+                    this.indices[n] = i;
+                    this.values[n] = snapshotOf(scope.getValueAt(i));
+                    ++n;
+                }
+            }
+        }
+        this.previous = last;
+        this.distanceToCheckpoint = last.distanceToCheckpoint + 1;
+        // variables are never removed from a scope, so the identifiers only
+        // change if new variables were added
+        if (last.identifiers.size() == scope.getValueCount()) {
+            this.identifiers = last.identifiers;
+        } else {
+            this.identifiers = Collections.unmodifiableSet(new HashSet<String>(scope.getValues().keySet()));
         }
     }
 
+    /**
+     * Returns a value which is not changed by the further run of the program.
+     * Only arrays are changed in place, all other values are immutable and
+     * can be shared.
+     */
+    private static TermValue snapshotOf(TermValue value) {
+        return value instanceof ArrayValue ? value.clone() : value;
+    }
+
     /**
      * Returns the value of a variable by its identifier.
      * 
@@ -55,7 +160,140 @@ public class TraceState {
      * @return the value of the identified variable
      */
     public TermValue getValueOf(String identifier) {
-        return vars.get(identifier);
+        int index = this.layout.indexOf(identifier);
+        if (index < 0) {
+            return null;
+        }
+        return getValueAt(index);
+    }
+
+    /**
+     * Returns the value of a variable by its index in the layout of the state.
+     * 
+     * @param index
+     *            the index of the variable
+     * @return the value of the variable, null if it has no value
+     */
+    TermValue getValueAt(int index) {
+        TraceState state = this;
+        while (state != null) {
+            if (state.indices == null) {
+                return index < state.values.length ? state.values[index] : null;
+            }
+            for (int i = 0; i < state.indices.length; ++i) {
+                if (state.indices[i] == index) {
+                    return state.values[i];
+                }
+            }
+            state = state.previous;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the identifiers of the variables whose values may differ between
+     * this state and another state. If one of the states follows the other in
+     * the same scope, only the variables written in between are returned.
+     * Otherwise the values of both states are compared, values which are not
+     * the same object count as changed. Values of states restored from stored
+     * values are compared by their content instead.
+     * 
+     * @param other
+     *            the other state
+     * @return the identifiers of the changed variables
+     */
+    public Set<String> getChangedIdentifiers(TraceState other) {
+        if (other == this) {
+            return Collections.emptySet();
+        }
+        Set<String> changed = changesSince(other);
+        if (changed == null) {
+            changed = other.changesSince(this);
+        }
+        if (changed != null) {
+            return changed;
+        }
+        changed = new HashSet<String>();
+        boolean byContent = this.restored || other.restored;
+        for (String identifier : this.identifiers) {
+            TermValue value = getValueOf(identifier);
+            TermValue otherValue = other.getValueOf(identifier);
+            if (value != otherValue && !(byContent && sameContent(value, otherValue))) {
+                changed.add(identifier);
+            }
+        }
+        for (String identifier : other.identifiers) {
+            if (!this.identifiers.contains(identifier)) {
+                changed.add(identifier);
+            }
+        }
+        return changed;
+    }
+
+    private static boolean sameContent(TermValue value, TermValue other) {
+        return value != null && other != null && value.getType() == other.getType()
+                && value.toString().equals(other.toString());
+    }
+
+    /**
+     * Collects the variables written since an earlier state of the same
+     * scope, or returns null if the earlier state is not a predecessor of
+     * this state since the last checkpoint.
+     */
+    private Set<String> changesSince(TraceState earlier) {
+        if (earlier.layout != this.layout) {
+            return null;
+        }
+        Set<String> changed = new HashSet<String>();
+        TraceState state = this;
+        while (state != earlier) {
+            if (state.indices == null) {
+                return null;
+            }
+            for (int index : state.indices) {
+                changed.add(this.layout.getIdentifier(index));
+            }
+            state = state.previous;
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the layout of the variables of the state.
+     * 
+     * @return the layout
+     */
+    FrameLayout getLayout() {
+        return this.layout;
+    }
+
+    /**
+     * Estimates the memory a state adds to the heap, not counting the states
+     * it refers to. The elements of an array are shared with the copies of the
+     * array in earlier states, so only the parts of an array which are not
+     * shared with the array of the same variable in an earlier state count.
+     * 
+     * @param earlier
+     *            the state before this state, null if there is none
+     * @return the estimated size in bytes
+     */
+    long estimateSize(TraceState earlier) {
+        long size = 64 + 16L * this.values.length;
+        if (this.indices != null) {
+            size += 4L * this.indices.length;
+        }
+        for (int n = 0; n < this.values.length; ++n) {
+            if (this.values[n] instanceof ArrayValue) {
+                TermValue before = null;
+                if (earlier != null) {
+                    int index = this.indices == null ? n : this.indices[n];
+                    before = earlier.getValueOf(this.layout.getIdentifier(index));
+                }
+                size += ((ArrayValue) this.values[n])
+                        .estimateSizeNotIn(before instanceof ArrayValue ? (ArrayValue) before : null);
+            }
+        }
+        return size;
     }
 
     /**
@@ -112,6 +350,6 @@ public class TraceState {
      * @return the identifiers of the variables
      */
     public Set<String> getAllVariableIdentifiers() {
-        return this.vars.keySet();
+        return this.identifiers;
     }
 }
@@ -0,0 +1,246 @@
+package dibugger.debuglogic.interpreter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary format of trace states, used to store traces outside of the heap.
+ *
+ * A state is stored as its position, its line number and the number of its
+ * variables, followed by the identifier and the value of every variable. A
+ * value is stored as the ordinal of its type followed by its content, arrays
+ * as their three dimensions followed by their elements. States stored in
+ * pages, see {@link SpillingStateList} and {@link TraceFile}, refer to the
+ * identifiers by their index in a table of identifiers instead.
+ *
+ * @author scheler
+ *
+ */
+public final class TraceStateCodec {
+
+    private static final TraceStatePosition[] POSITIONS = TraceStatePosition.values();
+    private static final Type[] TYPES = Type.values();
+
+    private TraceStateCodec() {
+    }
+
+    /**
+     * Writes a state.
+     *
+     * @param out
+     *            the output to write to
+     * @param position
+     *            the position of the state
+     * @param lineNumber
+     *            the line number of the state
+     * @param values
+     *            the values of all variables of the state
+     * @throws IOException
+     *             if the output fails
+     */
+    public static void writeState(DataOutput out, TraceStatePosition position, int lineNumber,
+            Map<String, TermValue> values) throws IOException {
+        out.writeByte(position.ordinal());
+        out.writeInt(lineNumber);
+        out.writeInt(values.size());
+        for (Map.Entry<String, TermValue> entry : values.entrySet()) {
+            out.writeUTF(entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    /**
+     * Writes a trace state.
+     *
+     * @param out
+     *            the output to write to
+     * @param state
+     *            the state
+     * @throws IOException
+     *             if the output fails
+     */
+    public static void writeState(DataOutput out, TraceState state) throws IOException {
+        Map<String, TermValue> values = new HashMap<String, TermValue>();
+        for (String identifier : state.getAllVariableIdentifiers()) {
+            values.put(identifier, state.getValueOf(identifier));
+        }
+        writeState(out, state.getPosition(), state.getLineNumber(), values);
+    }
+
+    /**
+     * Reads a state written by {@link #writeState(DataOutput, TraceState)}.
+     *
+     * @param in
+     *            the input to read from
+     * @return the state
+     * @throws IOException
+     *             if the input fails or is malformed
+     */
+    public static TraceState readState(DataInput in) throws IOException {
+        TraceStatePosition position = POSITIONS[in.readUnsignedByte()];
+        int lineNumber = in.readInt();
+        int size = in.readInt();
+        Map<String, TermValue> values = new HashMap<String, TermValue>();
+        for (int i = 0; i < size; ++i) {
+            String identifier = in.readUTF();
+            values.put(identifier, readValue(in));
+        }
+        return new TraceState(position, lineNumber, values);
+    }
+
+    /**
+     * Writes a state referring to the identifiers of its variables by their
+     * index in a table of identifiers. Identifiers not in the table yet are
+     * added to it.
+     *
+     * @param out
+     *            the output to write to
+     * @param state
+     *            the state
+     * @param indices
+     *            the indices of the identifiers in the table
+     * @param identifiers
+     *            the table of identifiers
+     * @throws IOException
+     *             if the output fails
+     */
+    static void writeState(DataOutput out, TraceState state, Map<String, Integer> indices, List<String> identifiers)
+            throws IOException {
+        out.writeByte(state.getPosition().ordinal());
+        out.writeInt(state.getLineNumber());
+        out.writeInt(state.getAllVariableIdentifiers().size());
+        for (String identifier : state.getAllVariableIdentifiers()) {
+            Integer index = indices.get(identifier);
+            if (index == null) {
+                index = identifiers.size();
+                indices.put(identifier, index);
+                identifiers.add(identifier);
+            }
+            out.writeInt(index);
+            writeValue(out, state.getValueOf(identifier));
+        }
+    }
+
+    /**
+     * Reads a state written by
+     * {@link #writeState(DataOutput, TraceState, Map, List)}.
+     *
+     * @param in
+     *            the input to read from
+     * @param identifiers
+     *            the table of identifiers
+     * @return the state
+     * @throws IOException
+     *             if the input fails or is malformed
+     */
+    static TraceState readState(DataInput in, List<String> identifiers) throws IOException {
+        TraceStatePosition position = POSITIONS[in.readUnsignedByte()];
+        int lineNumber = in.readInt();
+        int size = in.readInt();
+        Map<String, TermValue> values = new HashMap<String, TermValue>();
+        for (int i = 0; i < size; ++i) {
+            int index = in.readInt();
+            if (index < 0 || index >= identifiers.size()) {
+                throw new IOException("unknown identifier " + index);
+            }
+            values.put(identifiers.get(index), readValue(in));
+        }
+        return new TraceState(position, lineNumber, values);
+    }
+
+    /**
+     * Writes a value, which may be null.
+     *
+     * @param out
+     *            the output to write to
+     * @param value
+     *            the value
+     * @throws IOException
+     *             if the output fails
+     */
+    public static void writeValue(DataOutput out, TermValue value) throws IOException {
+        if (value == null) {
+            out.writeByte(Type.NULL.ordinal());
+            return;
+        }
+        out.writeByte(value.getType().ordinal());
+        switch (value.getType()) {
+            case INT:
+                out.writeInt(((IntValue) value).getValue());
+                break;
+            case LONG:
+                out.writeLong(((LongValue) value).getValue());
+                break;
+            case FLOAT:
+                out.writeFloat(((FloatValue) value).getValue());
+                break;
+            case DOUBLE:
+                out.writeDouble(((DoubleValue) value).getValue());
+                break;
+            case CHAR:
+                out.writeChar(((CharValue) value).getValue());
+                break;
+            case BOOLEAN:
+                out.writeBoolean(((BooleanValue) value).getValue());
+                break;
+            case ARRAY:
+                ArrayValue array = (ArrayValue) value;
+                out.writeInt(array.getLength(0));
+                out.writeInt(array.getLength(1));
+                out.writeInt(array.getLength(2));
+                for (int i = 0; i < array.getLength(0); ++i) {
+                    for (int j = 0; j < array.getLength(1); ++j) {
+                        for (int k = 0; k < array.getLength(2); ++k) {
+                            writeValue(out, array.get(i, j, k));
+                        }
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Reads a value written by {@link #writeValue(DataOutput, TermValue)}.
+     *
+     * @param in
+     *            the input to read from
+     * @return the value, null if a null value was written
+     * @throws IOException
+     *             if the input fails or is malformed
+     */
+    public static TermValue readValue(DataInput in) throws IOException {
+        Type type = TYPES[in.readUnsignedByte()];
+        switch (type) {
+            case INT:
+                return new IntValue(in.readInt());
+            case LONG:
+                return new LongValue(in.readLong());
+            case FLOAT:
+                return new FloatValue(in.readFloat());
+            case DOUBLE:
+                return new DoubleValue(in.readDouble());
+            case CHAR:
+                return new CharValue(in.readChar());
+            case BOOLEAN:
+                return new BooleanValue(in.readBoolean());
+            case ARRAY:
+                TermValue[][][] content = new TermValue[in.readInt()][in.readInt()][in.readInt()];
+                for (TermValue[][] plane : content) {
+                    for (TermValue[] row : plane) {
+                        for (int k = 0; k < row.length; ++k) {
+                            row[k] = readValue(in);
+                        }
+                    }
+                }
+                return new ArrayValue(content);
+            default:
+                return null;
+        }
+    }
+}
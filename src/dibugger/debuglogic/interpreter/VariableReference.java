@@ -0,0 +1,84 @@
+package dibugger.debuglogic.interpreter;
+
+/**
+ * A variable used by a command or term. If the variable was resolved in the
+ * layout of its routine, it is accessed by its index in scopes of that
+ * layout. Otherwise, or in scopes of another layout, it is accessed by its
+ * identifier.
+ *
+ * @author scheler
+ *
+ */
+final class VariableReference {
+
+    private final String identifier;
+    private final FrameLayout layout;
+    private final int index;
+
+    /**
+     * Creates an unresolved reference.
+     *
+     * @param identifier
+     *            the identifier of the variable
+     */
+    VariableReference(String identifier) {
+        this.identifier = identifier;
+        this.layout = null;
+        this.index = -1;
+    }
+
+    /**
+     * Creates a reference resolved in a layout.
+     *
+     * @param identifier
+     *            the identifier of the variable
+     * @param layout
+     *            the layout of the routine using the variable
+     */
+    VariableReference(String identifier, FrameLayout layout) {
+        this.identifier = identifier;
+        this.layout = layout;
+        this.index = layout.resolve(identifier);
+    }
+
+    String getIdentifier() {
+        return this.identifier;
+    }
+
+    Slot slotIn(Scope scope) {
+        return scope.getLayout() == this.layout ? scope.getSlotAt(this.index) : scope.getSlotOf(this.identifier);
+    }
+
+    TermValue valueIn(Scope scope) {
+        Slot slot = slotIn(scope);
+        return slot == null ? null : slot.toTermValue();
+    }
+
+    Type typeIn(Scope scope) {
+        return scope.getLayout() == this.layout ? scope.getTypeAt(this.index) : scope.getTypeOf(this.identifier);
+    }
+
+    void declareIn(Scope scope, Type type) {
+        if (scope.getLayout() == this.layout) {
+            scope.setTypeAt(this.index, type);
+        } else {
+            scope.setTypeOf(this.identifier, type);
+        }
+    }
+
+    void assignIn(Scope scope, Slot value) {
+        if (scope.getLayout() == this.layout) {
+            scope.setValueAt(this.index, value);
+        } else {
+            scope.setValueOf(this.identifier, value);
+        }
+    }
+
+    void assignIn(Scope scope, TermValue value) {
+        if (scope.getLayout() == this.layout) {
+            scope.setValueAt(this.index, value);
+        } else {
+            scope.setValueOf(this.identifier, value);
+        }
+    }
+}
@@ -11,39 +11,32 @@ import dibugger.debuglogic.exceptions.IdentifierNotFoundException;
  *
  */
 public final class VariableRelationalTerm extends Term {
-    private String identifier;
-    private String programId;
+    private ProgramVariable variable;
 
     public VariableRelationalTerm(String identifier) {
-        if (identifier.contains(".")) {
-            // split into programId part and variable identifier
-            // here we must pass a regex into split(...), so we have to escape
-            // the dot
-            String[] parts = identifier.split("\\.");
-            this.identifier = parts[1];
-            this.programId = parts[0];
-        } else {
-            this.programId = "A";
-            this.identifier = identifier;
-        }
+        this.variable = new ProgramVariable(identifier);
     }
 
     @Override
     public TermValue evaluate(List<TraceState> states) throws IdentifierNotFoundException {
-        // find the state the variable belongs to
-        for (TraceState state : states) {
-            if (state.getProgramId() != null && state.getProgramId().equals(this.programId)) {
-                TermValue value = state.getValueOf(identifier);
-                if (value != null)
-                    return value;
-            }
+        TermValue value = this.variable.valueIn(states);
+        if (value == null) {
+            throw new IdentifierNotFoundException(-1, this.variable.getIdentifier());
         }
-        throw new IdentifierNotFoundException(-1, identifier);
+        return value;
     }
 
     @Override
     public TermValue evaluate(Scope currentScope) throws IdentifierNotFoundException {
-    	throw new IdentifierNotFoundException(-1, identifier);
+    	throw new IdentifierNotFoundException(-1, this.variable.getIdentifier());
     }
 
+    /**
+     * Returns the variable of the term.
+     * 
+     * @return the variable
+     */
+    ProgramVariable getVariable() {
+        return this.variable;
+    }
 }
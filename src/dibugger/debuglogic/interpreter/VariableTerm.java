@@ -13,9 +13,11 @@ import dibugger.debuglogic.exceptions.IdentifierNotFoundException;
  */
 public final class VariableTerm extends Term {
     private String identifier;
+    private VariableReference variable;
 
     public VariableTerm(String identifier) {
         this.identifier = identifier;
+        this.variable = new VariableReference(identifier);
     }
 
     @Override
@@ -25,10 +27,22 @@ public final class VariableTerm extends Term {
 
     @Override
     public TermValue evaluate(Scope currentScope) throws DIbuggerLogicException {
-        TermValue value = currentScope.getValueOf(identifier);
+        TermValue value = this.variable.valueIn(currentScope);
         if (value == null)
             throw new IdentifierNotFoundException(-1, identifier);
         return value;
     }
 
+    @Override
+    public void evaluate(Scope currentScope, Slot result) throws DIbuggerLogicException {
+        Slot slot = this.variable.slotIn(currentScope);
+        if (slot == null || slot.getType() == Type.NULL)
+            throw new IdentifierNotFoundException(-1, identifier);
+        result.copyFrom(slot);
+    }
+
+    @Override
+    void resolve(FrameLayout layout) {
+        this.variable = new VariableReference(this.identifier, layout);
+    }
 }
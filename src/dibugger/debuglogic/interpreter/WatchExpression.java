@@ -25,6 +25,9 @@ public class WatchExpression {
 	private String specifier;
 	private List<ScopeTuple> scopes;
 	private Term expression;
+	private List<ProgramVariable> variables;
+	private ReadSet readSet;
+	private List<String> programIds;
 
 	public WatchExpression(String specifier) throws DIbuggerLogicException {
 		this.specifier = specifier;
@@ -48,26 +51,78 @@ public class WatchExpression {
 	}
 
 	public String evaluate(List<TraceState> states) throws DIbuggerLogicException {
-		boolean isValid = true;
-		// check whether #states = #scopes
-		if (states.size() != this.scopes.size())
-			isValid = false;
-		// check whether we are in the right scope
-		else if (!this.scopes.isEmpty()) {
-			for (int i = 0; i < this.scopes.size(); ++i)
-				if (!this.scopes.get(i).contains(states.get(i).getLineNumber()))
-					isValid = false;
-		}
-		if (isValid || this.scopes.isEmpty())
+		return evaluate(states, null);
+	}
+
+	/**
+	 * Evaluates the expression like {@link #evaluate(List)}, taking the
+	 * variables changed since the last step from the changes computed once
+	 * for all expressions.
+	 * 
+	 * @param states
+	 *            the current states of the programs
+	 * @param changes
+	 *            the changes of the variables up to the current states, may
+	 *            be null
+	 * @return the value of the expression
+	 * @throws DIbuggerLogicException
+	 */
+	public String evaluate(List<TraceState> states, StateChanges changes) throws DIbuggerLogicException {
+		if (isInScope(states)) {
+			// the value is only evaluated again if a variable read changed
+			if (this.readSet.isUnchanged(states, changes)) {
+				return this.value;
+			}
 			try {
 				this.value = this.expression.evaluate(states).toString();
 			} catch (DIbuggerLogicException vnfe) {
 				this.value = "?";
-				return "?";
 			}
+			this.readSet.evaluated(states);
+		}
 		return this.value;
 	}
 
+	/**
+	 * Evaluates the expression on the given states without changing its
+	 * value, so it can be evaluated on several steps by several threads at
+	 * once.
+	 * 
+	 * @param states
+	 *            the states of the programs, null for programs at the start of
+	 *            their trace
+	 * @return the value of the expression, null if the states are out of its
+	 *         scope or the expression cannot be evaluated on them
+	 */
+	public TermValue evaluateValue(List<TraceState> states) {
+		if (!isInScope(states)) {
+			return null;
+		}
+		try {
+			return this.expression.evaluate(states);
+		} catch (DIbuggerLogicException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private boolean isInScope(List<TraceState> states) {
+		if (this.scopes.isEmpty()) {
+			return true;
+		}
+		// check whether #states = #scopes
+		if (states.size() != this.scopes.size()) {
+			return false;
+		}
+		// check whether we are in the right scope
+		for (int i = 0; i < this.scopes.size(); ++i) {
+			TraceState state = states.get(i);
+			if (state == null || !this.scopes.get(i).contains(state.getLineNumber())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	private void createTerm() throws DIbuggerLogicException {
 		ParseTree tree;
 		try {
@@ -86,6 +141,28 @@ public class WatchExpression {
 		}
 		TermGenerationVisitor visitor = new TermGenerationVisitor();
 		this.expression = visitor.visit(tree);
+		this.variables = visitor.getProgramVariables();
+		this.readSet = new ReadSet(this.variables);
+		if (this.programIds != null) {
+			bind(this.programIds);
+		}
+	}
+
+	/**
+	 * Binds the variables of the expression to the programs debugged, so they
+	 * are looked up by the index of their program instead of its id. The
+	 * binding is kept when the expression is changed.
+	 * 
+	 * @param programIds
+	 *            the ids of the programs, in the order of the states the
+	 *            expression is evaluated on
+	 */
+	public void bind(List<String> programIds) {
+		this.programIds = programIds;
+		for (ProgramVariable variable : this.variables) {
+			variable.bind(programIds);
+		}
+		this.readSet.invalidate();
 	}
 
 	public String getValue() {
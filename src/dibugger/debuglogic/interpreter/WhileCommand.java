@@ -33,32 +33,39 @@ public class WhileCommand extends Command {
     }
 
     @Override
-    public List<TraceState> run() throws DIbuggerLogicException {
-        Scope scope = this.controller.getCurrentScope();
+    public void run(ExecutionContext context, TraceSink sink) throws DIbuggerLogicException {
+        Scope scope = context.getCurrentScope();
         // check if condition is of type boolean
-        TermValue value = this.condition.evaluate(scope);
+        Slot value = scope.getRegister();
+        this.condition.evaluate(scope, value);
         if (value.getType() != Type.BOOLEAN) {
             throw new WrongTypeArgumentException(this.linenumber);
         }
-        List<TraceState> traceStateList = new ArrayList<TraceState>();
-        traceStateList.add(new TraceState(TraceStatePosition.NOTSPECIAL, this.linenumber, scope));
+        sink.add(TraceStatePosition.NOTSPECIAL, this.linenumber, scope);
 
         int counter = 0;
 
         // run the loop
-        while ((((BooleanValue) this.condition.evaluate(scope)).getValue())
-                && (counter < this.controller.getMaxIterations())) {
-            for (Command child : this.children) {
-                traceStateList.addAll(child.run());
+        while (evaluateCondition(scope) && (counter < context.getMaxIterations())) {
+            for (int i = 0; i < this.children.size(); i++) {
+                this.children.get(i).run(context, sink);
             }
             counter++;
         }
+        BranchCoverage coverage = context.getCoverage();
+        if (coverage != null) {
+            coverage.hitLoop(this.linenumber, counter);
+        }
 
-        if (counter >= this.controller.getMaxIterations()) {
+        if (counter >= context.getMaxIterations()) {
             throw new ExceededMaxIterationsException(this.linenumber);
         }
+    }
 
-        return traceStateList;
+    private boolean evaluateCondition(Scope scope) throws DIbuggerLogicException {
+        Slot value = scope.getRegister();
+        this.condition.evaluate(scope, value);
+        return value.asBoolean();
     }
 
     /**
@@ -77,4 +84,11 @@ public class WhileCommand extends Command {
         return this.children.get(i);
     }
 
+    @Override
+    void compile(TermCompiler compiler) {
+        this.condition = compiler.compile(this.condition);
+        for (Command child : this.children) {
+            child.compile(compiler);
+        }
+    }
 }
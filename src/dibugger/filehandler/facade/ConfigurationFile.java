@@ -20,6 +20,7 @@ public class ConfigurationFile {
     private List<Integer> list_programStepSize;
     private List<Map<String, String>> list_inputValues;
     private List<Integer> list_lastExecLine;
+    private List<String> list_traceFile;
 
     private List<List<String>> list_varInspector;
 
@@ -37,6 +38,7 @@ public class ConfigurationFile {
         list_programStepSize = new ArrayList<Integer>();
         list_inputValues = new ArrayList<Map<String, String>>();
         list_lastExecLine = new ArrayList<Integer>();
+        list_traceFile = new ArrayList<String>();
 
         list_varInspector = new ArrayList<List<String>>();
 
@@ -116,6 +118,18 @@ public class ConfigurationFile {
         return list_lastExecLine.get(programID);
     }
 
+    /**
+     * Getter for the file of the saved trace of a given program
+     * 
+     * @param programID
+     *            the ID of the program
+     * @return the name of the file relative to the configuration, null if no
+     *         trace was saved
+     */
+    public String getTraceFile(int programID) {
+        return programID < list_traceFile.size() ? list_traceFile.get(programID) : null;
+    }
+
     /**
      * Getter for all viewed variables of the variable inspector of the given
      * program
@@ -292,6 +306,14 @@ public class ConfigurationFile {
         return list_lastExecLine;
     }
 
+    /**
+     * 
+     * @return the list object containing the files of all saved traces.
+     */
+    public List<String> getList_traceFile() {
+        return list_traceFile;
+    }
+
     /**
      * 
      * @return the list object containing all focused variables of the programs.
@@ -404,6 +426,22 @@ public class ConfigurationFile {
         list_lastExecLine.set(programID, execLine);
     }
 
+    /**
+     * Setter for the file of the saved trace of a given program
+     * 
+     * @param programID
+     *            the id of the program
+     * @param traceFile
+     *            the name of the file relative to the configuration, null if
+     *            no trace was saved
+     */
+    public void setTraceFile(int programID, String traceFile) {
+        while (list_traceFile.size() - 1 < programID) {
+            list_traceFile.add(null);
+        }
+        list_traceFile.set(programID, traceFile);
+    }
+
     /**
      * Setter for the variables of a given program
      * 
@@ -44,6 +44,8 @@ public class RDBFDBReader extends DBFileReader {
                 f.getList_programStepSize().add(getInstance().getIValue(b.getFirstDataByName("stepsize").getValue()));
                 f.getList_programNamespace().add(getInstance().getSValue(b.getFirstDataByName("name").getValue()));
                 f.getList_lastExecLine().add(getInstance().getIValue(b.getFirstDataByName("lastExecLine").getValue()));
+                RDBFData traceFile = b.getFirstDataByName("traceFile");
+                f.getList_traceFile().add(traceFile != null ? getInstance().getSValue(traceFile.getValue()) : null);
                 f.getList_programText().add(b.getFirstBlockByName("PROGRAMTEXT").getFirstDataByName("text").getValue());
                 Map<String, String> map_input = new HashMap<String, String>();
                 for (RDBFData d : b.getFirstBlockByName("INPUTVALUES").getList_data()) {
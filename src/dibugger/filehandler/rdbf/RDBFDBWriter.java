@@ -35,6 +35,10 @@ public class RDBFDBWriter extends DBFileWriter {
             block_program.addData(new RDBFData("name", "'" + f.getProgramNameID(i) + "'"));
             // Last Exec Line
             block_program.addData(new RDBFData("lastExecLine", "" + f.getLatestExecutionLine(i)));
+            // Saved Trace
+            if (f.getTraceFile(i) != null) {
+                block_program.addData(new RDBFData("traceFile", "'" + f.getTraceFile(i) + "'"));
+            }
             // Program Text
             RDBFBlock block = new RDBFBlock("PROGRAMTEXT");
             block.addData(new RDBFData("text", f.getProgramText(i), true));
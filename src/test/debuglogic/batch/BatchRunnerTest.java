@@ -0,0 +1,100 @@
+package test.debuglogic.batch;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import dibugger.debuglogic.batch.BatchResult;
+import dibugger.debuglogic.batch.BatchRunner;
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.exceptions.ExceededMaxIterationsException;
+import dibugger.debuglogic.interpreter.CompiledProgram;
+import dibugger.debuglogic.interpreter.CountingTraceSink;
+import dibugger.debuglogic.interpreter.GenerationController;
+import dibugger.debuglogic.interpreter.IntValue;
+import dibugger.debuglogic.interpreter.TermValue;
+
+public class BatchRunnerTest {
+
+    private static final String SUM = "int main(int n, int d) {\n"
+            + "int i = 0;\n"
+            + "int s = 0;\n"
+            + "while (i < n) {\n"
+            + "i = i + 1;\n"
+            + "s = s + i;\n"
+            + "}\n"
+            + "return s / d;\n"
+            + "}\n";
+
+    @Test
+    public void test_batch_resultsInInputOrder() throws DIbuggerLogicException, InterruptedException {
+        GenerationController gc = new GenerationController(100, 100);
+        CompiledProgram program = gc.compileProgram(SUM);
+        List<List<TermValue>> inputs = new ArrayList<List<TermValue>>();
+        for (int n = 0; n < 200; ++n) {
+            inputs.add(input(n % 150, n % 7));
+        }
+
+        BatchRunner runner = new BatchRunner(program, 4);
+        runner.setMaxIterations(120);
+        List<BatchResult> results = runner.run(inputs);
+
+        assertEquals(inputs.size(), results.size());
+        for (int i = 0; i < results.size(); ++i) {
+            BatchResult result = results.get(i);
+            int n = i % 150;
+            int d = i % 7;
+            assertEquals(i, result.getIndex());
+            assertSame(inputs.get(i), result.getInput());
+            if (n >= 120) {
+                assertTrue(result.getException() instanceof ExceededMaxIterationsException);
+            } else if (d == 0) {
+                assertTrue(result.getException() instanceof ArithmeticException);
+            } else {
+                assertTrue(result.isSuccessful());
+                assertEquals(n * (n + 1) / 2 / d, ((IntValue) result.getReturnValue()).getValue());
+                CountingTraceSink sink = new CountingTraceSink();
+                program.run(inputs.get(i), 120, 100, sink);
+                assertEquals(sink.getCount(), result.getSteps());
+            }
+        }
+    }
+
+    @Test
+    public void test_batch_backPressure() throws DIbuggerLogicException, InterruptedException {
+        CompiledProgram program = new GenerationController(100, 100).compileProgram(SUM);
+        BatchRunner runner = new BatchRunner(program, 2);
+        runner.setMaxPending(3);
+        final int[] taken = new int[1];
+        final int[] consumed = new int[1];
+        Iterator<List<TermValue>> inputs = new Iterator<List<TermValue>>() {
+            @Override
+            public boolean hasNext() {
+                return taken[0] < 1000;
+            }
+
+            @Override
+            public List<TermValue> next() {
+                assertTrue(taken[0] - consumed[0] < 3);
+                ++taken[0];
+                return input(taken[0] % 50, 1);
+            }
+        };
+        runner.run(inputs, result -> {
+            assertTrue(result.isSuccessful());
+            ++consumed[0];
+        });
+        assertEquals(1000, consumed[0]);
+    }
+
+    private static List<TermValue> input(int n, int d) {
+        List<TermValue> input = new ArrayList<TermValue>();
+        input.add(new IntValue(n));
+        input.add(new IntValue(d));
+        return input;
+    }
+}
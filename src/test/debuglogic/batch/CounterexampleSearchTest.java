@@ -0,0 +1,113 @@
+package test.debuglogic.batch;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import dibugger.debuglogic.batch.CounterexampleResult;
+import dibugger.debuglogic.batch.CounterexampleSearch;
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.interpreter.CompiledProgram;
+import dibugger.debuglogic.interpreter.ConditionalBreakpoint;
+import dibugger.debuglogic.interpreter.GenerationController;
+import dibugger.debuglogic.interpreter.IntValue;
+
+public class CounterexampleSearchTest {
+
+    private static final String DOUBLE = "int main(int n, int m) {\n"
+            + "int r = n * 2;\n"
+            + "return r;\n"
+            + "}\n";
+
+    private static final String DOUBLE_WITH_BUG = "int main(int n) {\n"
+            + "int r = n + n;\n"
+            + "if (n == 37) {\n"
+            + "r = r + 1;\n"
+            + "}\n"
+            + "return r;\n"
+            + "}\n";
+
+    @Test
+    public void test_search_findsDifferentReturnValues() throws DIbuggerLogicException, InterruptedException {
+        CounterexampleResult first = search(null, 1, "[0,99]");
+        assertTrue(first.isFound());
+        assertEquals(37, ((IntValue) first.getInput().get("n")).getValue());
+        assertTrue(first.getInputStrings().contains("n = 37"));
+        assertTrue(first.getCandidates() > first.getIndex());
+        assertTrue(first.getSteps() > 0);
+        assertTrue(first.getCandidatesPerSecond() > 0);
+
+        // the same seed finds the same candidate, with any parallelism
+        CounterexampleResult second = search(null, 3, "[0,99]");
+        assertEquals(first.getIndex(), second.getIndex());
+        assertEquals(first.getInputStrings(), second.getInputStrings());
+    }
+
+    @Test
+    public void test_search_firesCondition() throws DIbuggerLogicException, InterruptedException {
+        CounterexampleResult result = search(new ConditionalBreakpoint("A.r != B.r"), 4, "[0,99]");
+        assertTrue(result.isFound());
+        assertEquals(37, ((IntValue) result.getInput().get("n")).getValue());
+        assertEquals(search(null, 4, "[0,99]").getIndex(), result.getIndex());
+    }
+
+    @Test
+    public void test_search_firesConditionDuringRun() throws DIbuggerLogicException, InterruptedException {
+        GenerationController gc = new GenerationController(100, 100);
+        List<CompiledProgram> programs = new ArrayList<CompiledProgram>();
+        programs.add(gc.compileProgram("int main(int n) {\n"
+                + "int t = n;\n"
+                + "return t;\n"
+                + "}\n"));
+        // differs from the first program in the middle of the run only
+        programs.add(gc.compileProgram("int main(int n) {\n"
+                + "int t = n;\n"
+                + "if (n == 37) {\n"
+                + "t = t + 1;\n"
+                + "t = t - 1;\n"
+                + "}\n"
+                + "return t;\n"
+                + "}\n"));
+        ConditionalBreakpoint condition = new ConditionalBreakpoint("A.t != B.t");
+        for (int parallelism : new int[] { 1, 4 }) {
+            CounterexampleSearch search = new CounterexampleSearch(programs, Arrays.asList("A", "B"));
+            search.setRange("n", "[0,99]");
+            search.setSeed(42);
+            search.setMaxCandidates(2000);
+            search.setParallelism(parallelism);
+            search.setCondition(condition);
+            CounterexampleResult result = search.run();
+            assertTrue(result.isFound());
+            assertEquals(37, ((IntValue) result.getInput().get("n")).getValue());
+            assertEquals(0, result.getFailedCandidates());
+        }
+    }
+
+    @Test
+    public void test_search_noCounterexample() throws DIbuggerLogicException, InterruptedException {
+        CounterexampleResult result = search(null, 4, "[0,30]");
+        assertFalse(result.isFound());
+        assertEquals(-1, result.getIndex());
+        assertEquals(2000, result.getCandidates());
+        assertTrue(result.getInputStrings().isEmpty());
+    }
+
+    private CounterexampleResult search(ConditionalBreakpoint condition, int parallelism, String range)
+            throws DIbuggerLogicException, InterruptedException {
+        GenerationController gc = new GenerationController(100, 100);
+        List<CompiledProgram> programs = new ArrayList<CompiledProgram>();
+        programs.add(gc.compileProgram(DOUBLE));
+        programs.add(gc.compileProgram(DOUBLE_WITH_BUG));
+        CounterexampleSearch search = new CounterexampleSearch(programs, Arrays.asList("A", "B"));
+        search.setRange("n", range);
+        search.setSeed(42);
+        search.setMaxCandidates(2000);
+        search.setParallelism(parallelism);
+        search.setCondition(condition);
+        return search.run();
+    }
+}
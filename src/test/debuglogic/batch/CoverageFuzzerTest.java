@@ -0,0 +1,93 @@
+package test.debuglogic.batch;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import dibugger.debuglogic.batch.CoverageCorpus;
+import dibugger.debuglogic.batch.CoverageFuzzer;
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.interpreter.BranchCoverage;
+import dibugger.debuglogic.interpreter.CompiledProgram;
+import dibugger.debuglogic.interpreter.CountingTraceSink;
+import dibugger.debuglogic.interpreter.GenerationController;
+
+public class CoverageFuzzerTest {
+
+    // 2 outcomes per if statement, 4 buckets of iterations of the loop
+    private static final String BRANCHES = "int main(int n, int m) {\n"
+            + "int r = 0;\n"
+            + "if (n > 90) {\n"
+            + "r = 1;\n"
+            + "}\n"
+            + "if (m == 3) {\n"
+            + "r = r + 2;\n"
+            + "} else {\n"
+            + "r = r - 1;\n"
+            + "}\n"
+            + "int i = 0;\n"
+            + "while (i < n % 5) {\n"
+            + "i = i + 1;\n"
+            + "}\n"
+            + "return r;\n"
+            + "}\n";
+
+    // only the false outcome is reachable with n >= 0
+    private static final String NEGATIVE = "int main(int n) {\n"
+            + "if (n < 0) {\n"
+            + "return 0;\n"
+            + "}\n"
+            + "return n;\n"
+            + "}\n";
+
+    @Test
+    public void test_fuzzer_coversAllBranches() throws DIbuggerLogicException, InterruptedException {
+        CoverageCorpus corpus = fuzz(4);
+        assertEquals(9, corpus.getCoveredOutcomes());
+        assertTrue(corpus.size() >= 2);
+        assertTrue(corpus.size() <= corpus.getCorpusSize());
+        assertEquals(2000, corpus.getExecutions());
+        assertTrue(corpus.getExecutionsPerSecond() > 0);
+
+        // the inputs chosen cover the same outcomes as the whole corpus
+        GenerationController gc = new GenerationController(100, 100);
+        CompiledProgram program = gc.compileProgram(BRANCHES);
+        BitSet covered = new BitSet();
+        for (int i = 0; i < corpus.size(); ++i) {
+            BranchCoverage coverage = new BranchCoverage();
+            program.run(gc.parseInput(program, corpus.getInput(i)), 100, 100, new CountingTraceSink(), coverage);
+            covered.or(coverage.toBitSet());
+            int n = Integer.parseInt(corpus.getLiteral(i, "n"));
+            assertTrue(n >= 0 && n <= 100);
+        }
+        assertEquals(8, covered.cardinality());
+    }
+
+    @Test
+    public void test_fuzzer_deterministic() throws DIbuggerLogicException, InterruptedException {
+        CoverageCorpus first = fuzz(1);
+        CoverageCorpus second = fuzz(3);
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); ++i) {
+            assertEquals(first.getInput(i), second.getInput(i));
+        }
+    }
+
+    private CoverageCorpus fuzz(int parallelism) throws DIbuggerLogicException, InterruptedException {
+        GenerationController gc = new GenerationController(100, 100);
+        List<CompiledProgram> programs = new ArrayList<CompiledProgram>();
+        programs.add(gc.compileProgram(BRANCHES));
+        programs.add(gc.compileProgram(NEGATIVE));
+        CoverageFuzzer fuzzer = new CoverageFuzzer(programs);
+        fuzzer.setRange("n", "[0,100]");
+        fuzzer.setRange("m", 0, 5);
+        fuzzer.setSeed(11);
+        fuzzer.setMaxExecutions(2000);
+        fuzzer.setParallelism(parallelism);
+        return fuzzer.run();
+    }
+}
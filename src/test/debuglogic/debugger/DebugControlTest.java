@@ -1,14 +1,27 @@
 package test.debuglogic.debugger;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
+import dibugger.debuglogic.batch.CounterexampleResult;
 import dibugger.debuglogic.debugger.DebugControl;
 import dibugger.debuglogic.debugger.DebugLogicFacade;
+import dibugger.debuglogic.debugger.InputValueSuggestion;
+import dibugger.debuglogic.debugger.InvariantRelationalSuggestion;
 import dibugger.debuglogic.debugger.ProgramInput;
+import dibugger.debuglogic.debugger.WatchExpressionSeries;
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.interpreter.ConditionalBreakpoint;
+import dibugger.debuglogic.interpreter.IntValue;
+import dibugger.debuglogic.interpreter.WatchExpression;
 
 import static org.junit.Assert.*;
 
@@ -75,6 +88,73 @@ public class DebugControlTest {
         assertEquals(7, (int)facade.getCurrentExecutionLines().get("A"));
     }
 
+    @Test
+    public void test_step_back_over_out() throws DIbuggerLogicException {
+        DebugLogicFacade facade = new DebugLogicFacade();
+        ProgramInput in = new ProgramInput("void foo(){\n"
+        		+ "int y = 0;\n"
+        		+ "}\n"
+        		+ "void main() { \n"
+        		+ "int i = 2 \n;"
+        		+ "int x = 3+i; \n"
+        		+ "foo();\n"
+                + "boolean b = true; \n"
+        		+ "}",
+                new ArrayList<String>(), 0, "A");
+        List<ProgramInput> l_in = new ArrayList<ProgramInput>();
+        l_in.add(in);
+        facade.launchRun(l_in);
+        for (int i = 0; i < 3; ++i) {
+            facade.step(DebugControl.STEP_NORMAL);
+        }
+        facade.step(DebugControl.STEP_OVER);
+        assertEquals(7, (int) facade.getCurrentExecutionLines().get("A"));
+        facade.step(DebugControl.STEP_BACK_OVER);
+        assertEquals(6, (int) facade.getCurrentExecutionLines().get("A"));
+        assertEquals(3, (int) facade.getProgramCounter().get(0));
+        facade.step(DebugControl.STEP_NORMAL);
+        facade.step(DebugControl.STEP_NORMAL);
+        assertEquals(2, (int) facade.getCurrentExecutionLines().get("A"));
+        facade.step(DebugControl.STEP_BACK_OUT);
+        assertEquals(6, (int) facade.getCurrentExecutionLines().get("A"));
+        assertEquals(3, (int) facade.getProgramCounter().get(0));
+    }
+
+    @Test
+    public void test_step_back_over_spilledTrace() throws DIbuggerLogicException {
+        List<Integer> counters = new ArrayList<Integer>();
+        List<String> values = new ArrayList<String>();
+        for (long budget : new long[] { 0, 10000 }) {
+            DebugLogicFacade facade = new DebugLogicFacade();
+            facade.setMaximumIterations(10000);
+            if (budget > 0) {
+                facade.setTraceMemoryBudget(budget);
+            }
+            facade.createWatchExpression(0, "A.i");
+            List<ProgramInput> programs = new ArrayList<ProgramInput>();
+            programs.add(new ProgramInput("int main() {\n"
+                    + "int i = 0;\n"
+                    + "int s = 0;\n"
+                    + "while (i < 3000) {\n"
+                    + "s = s + i;\n"
+                    + "i = i + 1;\n"
+                    + "}\n"
+                    + "return s;\n"
+                    + "}", new ArrayList<String>(), 0, "A"));
+            facade.launchRun(programs);
+            facade.seek(0, 1001);
+            facade.step(DebugControl.STEP_BACK);
+            // reads every state, so the spilled pages of the current state
+            // are decoded again by the next step
+            facade.getWatchExpressionSeries(0, 1);
+            facade.step(DebugControl.STEP_BACK_OVER);
+            counters.add(facade.getProgramCounter().get(0));
+            values.add(facade.getValueOf("A", "i"));
+        }
+        assertEquals(counters.get(0), counters.get(1));
+        assertEquals(values.get(0), values.get(1));
+    }
+
     @Test
     public void test_breakpoint_step_normal_back() throws DIbuggerLogicException {
         DebugLogicFacade facade = new DebugLogicFacade();
@@ -123,4 +203,511 @@ public class DebugControlTest {
         facade.step(DebugControl.STEP_NORMAL);
         assertEquals("9", facade.getWEValue(0));
     }
+
+    @Test
+    public void test_launch_parallel() throws DIbuggerLogicException {
+        DebugLogicFacade facade = new DebugLogicFacade();
+        AtomicInteger launched = new AtomicInteger();
+        Executor executor = task -> {
+            launched.incrementAndGet();
+            new Thread(task).start();
+        };
+        facade.setExecutor(executor);
+        List<ProgramInput> l_in = new ArrayList<ProgramInput>();
+        l_in.add(new ProgramInput("int main() {\nint x = 1;\nreturn x;\n}", new ArrayList<String>(), 0, "A"));
+        l_in.add(new ProgramInput("int main() {\nint y = 2;\ny = y * 3;\nreturn y;\n}",
+                new ArrayList<String>(), 0, "B"));
+        facade.launchRun(l_in);
+        assertEquals(2, launched.get());
+        for (int i = 0; i < 4; ++i) {
+            facade.step(DebugControl.STEP_NORMAL);
+        }
+        assertEquals(3, (int) facade.getCurrentExecutionLines().get("A"));
+        assertEquals(4, (int) facade.getCurrentExecutionLines().get("B"));
+        assertEquals("6", facade.getValueOf("B", "y"));
+    }
+
+    @Test
+    public void test_launch_parallel_reportsFirstFailure() {
+        DebugLogicFacade facade = new DebugLogicFacade();
+        List<ProgramInput> l_in = new ArrayList<ProgramInput>();
+        l_in.add(new ProgramInput("int main() {\nreturn 1;\n}", new ArrayList<String>(), 0, "A"));
+        l_in.add(new ProgramInput("int main() {\nreturn 1\n}", new ArrayList<String>(), 0, "B"));
+        l_in.add(new ProgramInput("int main() {\nreturn\n}", new ArrayList<String>(), 0, "C"));
+        try {
+            facade.launchRun(l_in);
+            fail();
+        } catch (DIbuggerLogicException e) {
+            assertTrue(e.getMessage().startsWith("Program B: "));
+        }
+    }
+
+    @Test
+    public void test_continue_sameAsStepping() throws DIbuggerLogicException {
+        for (boolean lazy : new boolean[] { false, true }) {
+            // the conditional breakpoint never holds, but makes the control
+            // step through all states
+            DebugLogicFacade stepping = continueFacade(lazy);
+            stepping.createCondBreakpoint(0, "A.i < 0");
+            stepping.launchRun(continuePrograms());
+            DebugLogicFacade jumping = continueFacade(lazy);
+            jumping.launchRun(continuePrograms());
+            for (int i = 0; i < 12; ++i) {
+                stepping.continueDebug();
+                jumping.continueDebug();
+                assertEquals(stepping.getCurrentExecutionLines(), jumping.getCurrentExecutionLines());
+                assertEquals(stepping.getProgramCounter(), jumping.getProgramCounter());
+                assertEquals(stepping.getValueOf("A", "i"), jumping.getValueOf("A", "i"));
+                assertEquals(stepping.getValueOf("B", "k"), jumping.getValueOf("B", "k"));
+            }
+        }
+    }
+
+    @Test
+    public void test_continue_conditionalSearchSameAsStepping() throws DIbuggerLogicException {
+        // complete traces are searched in parallel, lazy traces are stepped
+        DebugLogicFacade stepping = conditionalFacade(true);
+        DebugLogicFacade searching = conditionalFacade(false);
+        for (int i = 0; i < 5; ++i) {
+            stepping.continueDebug();
+            searching.continueDebug();
+            assertEquals(stepping.getCurrentExecutionLines(), searching.getCurrentExecutionLines());
+            assertEquals(stepping.getProgramCounter(), searching.getProgramCounter());
+            assertEquals(stepping.getValueOf("A", "i"), searching.getValueOf("A", "i"));
+            assertEquals(stepping.getValueOf("B", "k"), searching.getValueOf("B", "k"));
+        }
+        assertEquals("9000", searching.getValueOf("A", "i"));
+    }
+
+    private DebugLogicFacade conditionalFacade(boolean lazy) throws DIbuggerLogicException {
+        DebugLogicFacade facade = new DebugLogicFacade();
+        facade.setLazyTraceGeneration(lazy);
+        facade.createBreakpoint(1, 6);
+        facade.setMaximumIterations(20000);
+        facade.createCondBreakpoint(0, "A.i == 9000");
+        facade.createCondBreakpoint(1, "B.k == 2");
+        List<ProgramInput> l_in = continuePrograms();
+        l_in.set(0, new ProgramInput(l_in.get(0).getText().replace("i < 8", "i < 12000"), new ArrayList<String>(),
+                0, "A"));
+        facade.launchRun(l_in);
+        return facade;
+    }
+
+    @Test
+    public void test_seek_sameAsStepping() throws DIbuggerLogicException {
+        for (boolean lazy : new boolean[] { false, true }) {
+            DebugLogicFacade stepping = new DebugLogicFacade();
+            stepping.setLazyTraceGeneration(lazy);
+            stepping.launchRun(continuePrograms());
+            DebugLogicFacade seeking = new DebugLogicFacade();
+            seeking.setLazyTraceGeneration(lazy);
+            seeking.launchRun(continuePrograms());
+            for (int step = 1; step <= 20; ++step) {
+                stepping.singleStep(0);
+                stepping.singleStep(1);
+                seeking.seekAll(new int[] { step, step });
+                assertEquals(stepping.getCurrentExecutionLines(), seeking.getCurrentExecutionLines());
+                assertEquals(stepping.getProgramCounter(), seeking.getProgramCounter());
+                if (step > 3) {
+                    // all variables are declared
+                    assertEquals(stepping.getValueOf("A", "s"), seeking.getValueOf("A", "s"));
+                    assertEquals(stepping.getValueOf("B", "k"), seeking.getValueOf("B", "k"));
+                }
+            }
+            // a step beyond the trace moves to its last state
+            seeking.seek(1, 100000);
+            int last = seeking.getProgramCounter().get(1);
+            seeking.singleStep(1);
+            assertEquals(last, (int) seeking.getProgramCounter().get(1));
+        }
+    }
+
+    @Test
+    public void test_watchExpressionSeries_sameAsSeeking() throws DIbuggerLogicException {
+        for (boolean lazy : new boolean[] { false, true }) {
+            DebugLogicFacade facade = new DebugLogicFacade();
+            facade.setLazyTraceGeneration(lazy);
+            facade.createWatchExpression(0, "A.s * 10 + B.k");
+            facade.launchRun(continuePrograms());
+            WatchExpressionSeries series = facade.getWatchExpressionSeries(0, 1);
+            assertTrue(series.size() > 20);
+            assertNotNull(series.getLongValues());
+            // the variables are not declared at the first steps
+            assertFalse(series.isValid(0));
+            for (int i = 0; i < series.size(); ++i) {
+                facade.seekAll(new int[] { series.getStep(i), series.getStep(i) });
+                String value = facade.getWEValue(0);
+                assertEquals(!"?".equals(value), series.isValid(i));
+                if (series.isValid(i)) {
+                    assertEquals(value, Long.toString(series.getLongValues()[i]));
+                    assertEquals(Long.parseLong(value), series.getValues()[i], 0);
+                }
+            }
+            // the series is kept until the step sizes change
+            assertSame(series, facade.getWatchExpressionSeries(0, 1));
+            WatchExpressionSeries sampled = facade.getWatchExpressionSeries(0, 3);
+            assertEquals(series.getValues()[6], sampled.getValues()[2], 0);
+            facade.setStepSize(1, 2);
+            WatchExpressionSeries stepped = facade.getWatchExpressionSeries(0, 1);
+            assertNotSame(series, stepped);
+            facade.seekAll(new int[] { 7, 14 });
+            assertEquals(facade.getWEValue(0), Long.toString(stepped.getLongValues()[6]));
+        }
+    }
+
+    @Test
+    public void test_suggestStepSize_alignment() throws DIbuggerLogicException {
+        DebugLogicFacade facade = new DebugLogicFacade();
+        List<ProgramInput> programs = new ArrayList<ProgramInput>();
+        programs.add(new ProgramInput("int main() {\n"
+                + "int i = 0;\n"
+                + "int s = 0;\n"
+                + "while (i < 50) {\n"
+                + "i = i + 1;\n"
+                + "s = s + i;\n"
+                + "}\n"
+                + "return s;\n"
+                + "}", new ArrayList<String>(), 0, "A"));
+        programs.add(new ProgramInput("int main() {\n"
+                + "int s = 0;\n"
+                + "int t = 0;\n"
+                + "int i = 0;\n"
+                + "while (i < 50) {\n"
+                + "t = i * 2;\n"
+                + "i = i + 1;\n"
+                + "t = t + i;\n"
+                + "t = t - 1;\n"
+                + "s = s + i;\n"
+                + "t = 0;\n"
+                + "}\n"
+                + "return s;\n"
+                + "}", new ArrayList<String>(), 0, "B"));
+        facade.launchRun(programs);
+        facade.selectStepSizeStrategy("suggest_strategy_alignment_stepsize");
+        List<String> texts = new ArrayList<String>();
+        for (ProgramInput pi : programs) {
+            texts.add(pi.getText());
+        }
+        facade.suggestStepSize(texts);
+        assertEquals(1, facade.getStepSize("A"));
+        assertEquals(3, facade.getStepSize("B"));
+    }
+
+    @Test
+    public void test_suggestRelational_invariants() throws DIbuggerLogicException {
+        DebugControl control = new DebugControl();
+        List<ProgramInput> programs = new ArrayList<ProgramInput>();
+        programs.add(new ProgramInput("int main() {\n"
+                + "int i = 0;\n"
+                + "int s = 0;\n"
+                + "while (i < 10) {\n"
+                + "i = i + 1;\n"
+                + "s = s + 2;\n"
+                + "}\n"
+                + "return s;\n"
+                + "}", new ArrayList<String>(), 0, "A"));
+        programs.add(new ProgramInput("int main() {\n"
+                + "int j = 0;\n"
+                + "int t = 1;\n"
+                + "while (j < 10) {\n"
+                + "j = j + 1;\n"
+                + "t = t + 2;\n"
+                + "}\n"
+                + "return t;\n"
+                + "}", new ArrayList<String>(), 0, "B"));
+        control.launchRun(programs);
+        InvariantRelationalSuggestion suggestion = new InvariantRelationalSuggestion(control);
+        List<String> invariants = suggestion.getInvariants();
+        assertEquals("A.i == B.j", invariants.get(0));
+        assertTrue(invariants.contains("A.s == B.t - 1"));
+        // s is 2 * i only after both assignments
+        assertFalse(invariants.contains("A.s == 2 * A.i"));
+
+        assertEquals("A.i - B.j", suggestion.suggestWatchExpression());
+        assertEquals("A.i != B.j", suggestion.suggestConditionalBreakpoint());
+        for (int i = 0; i < invariants.size(); ++i) {
+            new WatchExpression(suggestion.suggestWatchExpression());
+            new ConditionalBreakpoint(suggestion.suggestConditionalBreakpoint());
+        }
+    }
+
+    @Test
+    public void test_searchCounterexample_launchesInput() throws DIbuggerLogicException {
+        DebugLogicFacade facade = new DebugLogicFacade();
+        List<ProgramInput> programs = new ArrayList<ProgramInput>();
+        programs.add(new ProgramInput("int main(int n) {\n"
+                + "int r = n * 3;\n"
+                + "return r;\n"
+                + "}", new ArrayList<String>(), 0, "A"));
+        programs.add(new ProgramInput("int main(int n) {\n"
+                + "int r = n + n + n;\n"
+                + "if (n > 40) {\n"
+                + "r = 0;\n"
+                + "}\n"
+                + "return r;\n"
+                + "}", new ArrayList<String>(), 0, "B"));
+        facade.launchRun(programs);
+        Map<String, String> ranges = new HashMap<String, String>();
+        ranges.put("n", "[0,50]");
+        CounterexampleResult result = facade.searchCounterexample(ranges, "A.r != B.r", 7, 1000);
+        assertTrue(result.isFound());
+        int n = ((IntValue) result.getInput().get("n")).getValue();
+        assertTrue(n > 40);
+        assertEquals(result.getInputStrings(), programs.get(0).getInputValues());
+        facade.continueDebug();
+        assertEquals("0", facade.getReturnValue("B"));
+        assertEquals(Integer.toString(3 * n), facade.getReturnValue("A"));
+    }
+
+    @Test
+    public void test_suggestInputValue_coverage() throws DIbuggerLogicException {
+        DebugLogicFacade facade = new DebugLogicFacade();
+        List<ProgramInput> programs = new ArrayList<ProgramInput>();
+        programs.add(new ProgramInput("int main(int n) {\n"
+                + "int r = 0;\n"
+                + "if (n > 90) {\n"
+                + "r = 1;\n"
+                + "}\n"
+                + "return r;\n"
+                + "}", new ArrayList<String>(), 0, "A"));
+        facade.syncProgramInput(programs);
+        facade.selectInputValueStrategy("suggest_strategy_coverage_input");
+        // both outcomes of the if statement are suggested in turn
+        int first = Integer.parseInt(facade.suggestInputValue("n", "[0,100]", InputValueSuggestion.TYPE_INT));
+        int second = Integer.parseInt(facade.suggestInputValue("n", "[0,100]", InputValueSuggestion.TYPE_INT));
+        assertTrue(first > 90 != second > 90);
+        assertEquals(first, Integer.parseInt(facade.suggestInputValue("n", "[0,100]", InputValueSuggestion.TYPE_INT)));
+    }
+
+    @Test
+    public void test_launch_restoresCounter() throws DIbuggerLogicException {
+        DebugLogicFacade stepping = new DebugLogicFacade();
+        stepping.launchRun(continuePrograms());
+        for (int i = 0; i < 9; ++i) {
+            stepping.singleStep(0);
+        }
+        List<ProgramInput> programs = continuePrograms();
+        programs.get(0).setCounter(9);
+        DebugLogicFacade restored = new DebugLogicFacade();
+        restored.launchRun(programs);
+        assertEquals(stepping.getProgramCounter(), restored.getProgramCounter());
+        assertEquals(stepping.getValueOf("A", "s"), restored.getValueOf("A", "s"));
+        assertEquals(stepping.getCurrentExecutionLines(), restored.getCurrentExecutionLines());
+    }
+
+    @Test
+    public void test_launch_readsSavedTraces() throws DIbuggerLogicException, IOException {
+        DebugLogicFacade stepping = new DebugLogicFacade();
+        stepping.launchRun(continuePrograms());
+        for (int i = 0; i < 9; ++i) {
+            stepping.singleStep(0);
+        }
+        List<File> traceFiles = new ArrayList<File>();
+        for (int i = 0; i < 2; ++i) {
+            File file = File.createTempFile("dibugger-test-", ".dbtrace");
+            file.deleteOnExit();
+            assertTrue(stepping.saveTrace(i, file));
+            traceFiles.add(file);
+        }
+        assertFalse(stepping.saveTrace(2, traceFiles.get(0)));
+
+        List<ProgramInput> programs = continuePrograms();
+        programs.get(0).setCounter(9);
+        DebugLogicFacade restored = new DebugLogicFacade();
+        restored.launchRun(programs, traceFiles);
+        assertEquals(stepping.getProgramCounter(), restored.getProgramCounter());
+        assertEquals(stepping.getValueOf("A", "s"), restored.getValueOf("A", "s"));
+        assertEquals(stepping.getCurrentExecutionLines(), restored.getCurrentExecutionLines());
+        assertEquals("36", restored.getReturnValue("A"));
+
+        // a trace saved for another program is not read
+        programs = continuePrograms();
+        programs.get(0).setCounter(1);
+        programs.get(1).setCounter(1);
+        traceFiles.add(0, traceFiles.remove(1));
+        restored.launchRun(programs, traceFiles);
+        assertEquals("36", restored.getReturnValue("A"));
+        assertEquals("3", restored.getReturnValue("B"));
+    }
+
+    @Test
+    public void test_saveTrace_skipsIncompleteTrace() throws DIbuggerLogicException, IOException {
+        DebugLogicFacade facade = new DebugLogicFacade();
+        facade.setLazyTraceGeneration(true);
+        facade.setMaximumIterations(10000);
+        List<ProgramInput> programs = new ArrayList<ProgramInput>();
+        programs.add(new ProgramInput("int main() {\n"
+                + "int i = 0;\n"
+                + "while (i < 5000) {\n"
+                + "i = i + 1;\n"
+                + "}\n"
+                + "return i;\n"
+                + "}", new ArrayList<String>(), 0, "A"));
+        facade.launchRun(programs);
+        File file = File.createTempFile("dibugger-test-", ".dbtrace");
+        file.deleteOnExit();
+        // saving does not generate the rest of the trace
+        assertFalse(facade.saveTrace(0, file));
+        assertEquals(0, file.length());
+        // a complete trace is saved
+        facade.setLazyTraceGeneration(false);
+        facade.launchRun(programs);
+        assertTrue(facade.saveTrace(0, file));
+        assertTrue(file.length() > 0);
+    }
+
+    @Test
+    public void test_reverseContinue_returnsToBreakpoints() throws DIbuggerLogicException {
+        for (boolean lazy : new boolean[] { false, true }) {
+            DebugLogicFacade facade = continueFacade(lazy);
+            facade.launchRun(continuePrograms());
+            List<Integer> counters = new ArrayList<Integer>();
+            for (int i = 0; i < 4; ++i) {
+                facade.continueDebug();
+                counters.add(facade.getProgramCounter().get(0));
+            }
+            for (int i = 2; i >= 0; --i) {
+                facade.reverseContinueDebug();
+                assertEquals(counters.get(i), facade.getProgramCounter().get(0));
+                assertEquals(5, (int) facade.getCurrentExecutionLines().get("A"));
+                if (i == 2) {
+                    // program B stopped once on its breakpoint
+                    assertEquals(6, (int) facade.getCurrentExecutionLines().get("B"));
+                }
+            }
+            // without a breakpoint before, program B is at its first state
+            assertEquals(1, (int) facade.getProgramCounter().get(1));
+        }
+    }
+
+    @Test
+    public void test_reverseContinue_conditionalBreakpoint() throws DIbuggerLogicException {
+        DebugLogicFacade facade = new DebugLogicFacade();
+        facade.createCondBreakpoint(0, "A.i == 3");
+        List<ProgramInput> programs = continuePrograms();
+        programs.remove(1);
+        facade.launchRun(programs);
+        facade.seek(0, 100000);
+        assertEquals("8", facade.getValueOf("A", "i"));
+        facade.setStepSize(0, 2);
+        facade.reverseContinueDebug();
+        assertEquals("3", facade.getValueOf("A", "i"));
+        facade.singleStep(0);
+        facade.singleStep(0);
+        assertEquals("4", facade.getValueOf("A", "i"));
+    }
+
+    @Test
+    public void test_step_over_out_recursion() throws DIbuggerLogicException {
+        for (boolean lazy : new boolean[] { false, true }) {
+            DebugLogicFacade facade = new DebugLogicFacade();
+            facade.setLazyTraceGeneration(lazy);
+            facade.launchRun(fibPrograms());
+            facade.step(DebugControl.STEP_NORMAL);
+            facade.step(DebugControl.STEP_NORMAL);
+            assertEquals(11, (int) facade.getCurrentExecutionLines().get("A"));
+            // the whole recursion is skipped
+            facade.step(DebugControl.STEP_OVER);
+            assertEquals(12, (int) facade.getCurrentExecutionLines().get("A"));
+            assertEquals("55", facade.getValueOf("A", "res"));
+
+            facade.seek(0, 2);
+            facade.createBreakpoint(0, 8);
+            facade.step(DebugControl.STEP_OVER);
+            assertEquals(8, (int) facade.getCurrentExecutionLines().get("A"));
+            assertEquals("1", facade.getValueOf("A", "a"));
+            assertEquals("0", facade.getValueOf("A", "b"));
+            // back to the caller of fib(2)
+            facade.step(DebugControl.STEP_OUT);
+            assertEquals(6, (int) facade.getCurrentExecutionLines().get("A"));
+            assertEquals("1", facade.getValueOf("A", "a"));
+            // the breakpoint in fib(2) stops the step back out of fib(3)
+            facade.step(DebugControl.STEP_BACK_OUT);
+            assertEquals(8, (int) facade.getCurrentExecutionLines().get("A"));
+            facade.deleteBreakpoint(0, 8);
+            facade.step(DebugControl.STEP_BACK_OUT);
+            facade.step(DebugControl.STEP_BACK_OUT);
+            assertEquals(5, (int) facade.getCurrentExecutionLines().get("A"));
+            assertEquals("4", facade.getValueOf("A", "n"));
+        }
+    }
+
+    @Test
+    public void test_step_over_failingCall() throws DIbuggerLogicException {
+        DebugLogicFacade facade = new DebugLogicFacade();
+        facade.setLazyTraceGeneration(true);
+        List<ProgramInput> l_in = new ArrayList<ProgramInput>();
+        l_in.add(new ProgramInput("int f(int x) {\n"
+                + "int y;\n"
+                + "y = f(x);\n"
+                + "return y;\n"
+                + "}\n"
+                + "int main() {\n"
+                + "int r;\n"
+                + "r = f(1);\n"
+                + "return r;\n"
+                + "}", new ArrayList<String>(), 0, "A"));
+        facade.launchRun(l_in);
+        facade.step(DebugControl.STEP_NORMAL);
+        facade.step(DebugControl.STEP_NORMAL);
+        try {
+            facade.step(DebugControl.STEP_OVER);
+            fail("the recursion exceeds the maximum number of calls");
+        } catch (DIbuggerLogicException e) {
+            assertTrue(e.getMessage().startsWith("Program A"));
+        }
+    }
+
+    private List<ProgramInput> fibPrograms() {
+        List<String> input = new ArrayList<String>();
+        input.add("n = 10");
+        List<ProgramInput> l_in = new ArrayList<ProgramInput>();
+        l_in.add(new ProgramInput("int fib(int n) {\n"
+                + "if (n < 2)\n"
+                + "return n;\n"
+                + "int a;\n"
+                + "int b;\n"
+                + "a = fib(n - 1);\n"
+                + "b = fib(n - 2);\n"
+                + "return a + b;\n"
+                + "}\n"
+                + "int main(int n) {\n"
+                + "int res;\n"
+                + "res = fib(n);\n"
+                + "return res;\n"
+                + "}", input, 0, "A"));
+        return l_in;
+    }
+
+    private DebugLogicFacade continueFacade(boolean lazy) {
+        DebugLogicFacade facade = new DebugLogicFacade();
+        facade.setLazyTraceGeneration(lazy);
+        facade.createBreakpoint(0, 5);
+        facade.createBreakpoint(1, 6);
+        return facade;
+    }
+
+    private List<ProgramInput> continuePrograms() {
+        List<ProgramInput> l_in = new ArrayList<ProgramInput>();
+        l_in.add(new ProgramInput("int main() {\n"
+                + "int i = 0;\n"
+                + "int s = 0;\n"
+                + "while (i < 8) {\n"
+                + "i = i + 1;\n"
+                + "s = s + i;\n"
+                + "}\n"
+                + "return s;\n"
+                + "}", new ArrayList<String>(), 0, "A"));
+        l_in.add(new ProgramInput("int main() {\n"
+                + "int k = 0;\n"
+                + "while (k < 3) {\n"
+                + "k = k + 1;\n"
+                + "if (k == 2) {\n"
+                + "k = k + 0;\n"
+                + "}\n"
+                + "}\n"
+                + "return k;\n"
+                + "}", new ArrayList<String>(), 0, "B"));
+        return l_in;
+    }
 }
@@ -70,4 +70,27 @@ public class ConditionalBreakpointTest {
         breakpoint.change("A.a - 7 < -1.6", scopeTuples);
         assertTrue(breakpoint.evaluate(states));
     }
+
+    @Test
+    public void testEvaluate_boundToPrograms() throws DIbuggerLogicException {
+        List<TraceState> states = new ArrayList<TraceState>();
+        List<ScopeTuple> scopeTuples = Arrays.asList(new ScopeTuple(0, 100), new ScopeTuple(0, 100));
+        for (String programId : Arrays.asList("A", "B")) {
+            Scope scope = new Scope();
+            scope.setTypeOf("a", Type.DOUBLE);
+            scope.setValueOf("a", new DoubleValue(programId.equals("A") ? 1.5 : 2.5));
+            TraceState state = new TraceState(TraceStatePosition.NOTSPECIAL, 1, scope);
+            state.setProgramId(programId);
+            states.add(state);
+        }
+
+        breakpoint = new ConditionalBreakpoint("A.a + 1 == B.a", scopeTuples);
+        assertTrue(breakpoint.evaluate(states));
+        breakpoint.bind(Arrays.asList("A", "B"));
+        assertTrue(breakpoint.evaluate(states));
+
+        // the binding is kept when the expression changes
+        breakpoint.change("B.a - A.a > 1", scopeTuples);
+        assertFalse(breakpoint.evaluate(states));
+    }
 }
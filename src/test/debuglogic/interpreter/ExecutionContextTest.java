@@ -0,0 +1,89 @@
+package test.debuglogic.interpreter;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.interpreter.CountingTraceSink;
+import dibugger.debuglogic.interpreter.ExecutionEngine;
+import dibugger.debuglogic.interpreter.GenerationController;
+import dibugger.debuglogic.interpreter.IntValue;
+import dibugger.debuglogic.interpreter.RoutineCommand;
+import dibugger.debuglogic.interpreter.Trace;
+
+public class ExecutionContextTest {
+
+    private static final String FIB = "int fib(int n) {\n"
+            + "if (n < 2)\n"
+            + "return n;\n"
+            + "int a;\n"
+            + "int b;\n"
+            + "a = fib(n - 1);\n"
+            + "b = fib(n - 2);\n"
+            + "return a + b;\n"
+            + "}\n"
+            + "int main(int n) {\n"
+            + "int res;\n"
+            + "res = fib(n);\n"
+            + "return res;\n"
+            + "}\n";
+
+    private static final int[] FIBONACCI = { 0, 1, 1, 2, 3, 5, 8, 13, 21, 34, 55, 89, 144 };
+
+    @Test
+    public void test_context_concurrentRunsShareProgram() throws Exception {
+        for (ExecutionEngine engine : ExecutionEngine.values()) {
+            GenerationController gc = new GenerationController(1000, 1000);
+            gc.setExecutionEngine(engine);
+            assertEquals(FIBONACCI[5], run(gc, 5));
+            RoutineCommand main = gc.getRoutineRootCommand("main");
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+                for (int i = 0; i < 64; ++i) {
+                    final int n = i % FIBONACCI.length;
+                    results.add(executor.submit(new Callable<Integer>() {
+                        @Override
+                        public Integer call() throws DIbuggerLogicException {
+                            return run(gc, n);
+                        }
+                    }));
+                }
+                for (int i = 0; i < results.size(); ++i) {
+                    assertEquals(FIBONACCI[i % FIBONACCI.length], (int) results.get(i).get());
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertSame(main, gc.getRoutineRootCommand("main"));
+        }
+    }
+
+    @Test
+    public void test_context_returnValuePerRun() throws DIbuggerLogicException {
+        GenerationController gc = new GenerationController(1000, 1000);
+        Trace first = gc.generateCompleteTrace(FIB, input(7), "A");
+        Trace second = gc.generateCompleteTrace(FIB, input(8), "A");
+        assertEquals(13, ((IntValue) first.getReturnValue()).getValue());
+        assertEquals(21, ((IntValue) second.getReturnValue()).getValue());
+    }
+
+    private static List<String> input(int n) {
+        List<String> input = new ArrayList<String>();
+        input.add("n = " + n);
+        return input;
+    }
+
+    private static int run(GenerationController gc, int n) throws DIbuggerLogicException {
+        return ((IntValue) gc.runProgram(FIB, input(n), new CountingTraceSink())).getValue();
+    }
+}
@@ -0,0 +1,137 @@
+package test.debuglogic.interpreter;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.interpreter.ExecutionEngine;
+import dibugger.debuglogic.interpreter.GenerationController;
+import dibugger.debuglogic.interpreter.InMemoryTraceSink;
+import dibugger.debuglogic.interpreter.TermValue;
+import dibugger.debuglogic.interpreter.TraceState;
+
+public class ExecutionEngineTest {
+
+    private static final String FAC = "int fac(int k) {\n"
+            + "if (k <= 1)\n"
+            + "return 1;\n"
+            + "int res;\n"
+            + "res = fac(k - 1);\n"
+            + "res = res * k;\n"
+            + "return res;\n"
+            + "}\n"
+            + "int main(int k) {\n"
+            + "int res;\n"
+            + "res = fac(k);\n"
+            + "return res;\n"
+            + "}\n";
+
+    private static final String MIXED = "int main(int n, double d) {\n"
+            + "int i = 0;\n"
+            + "int s = 2 * 3 - -4;\n"
+            + "double x = d;\n"
+            + "long l = 5000000000L;\n"
+            + "boolean b = true;\n"
+            + "int[4] a = {1, 2, 3, 4};\n"
+            + "while (i < n && b) {\n"
+            + "if (i % 2 == 0) {\n"
+            + "s = s + a[i % 4];\n"
+            + "} else {\n"
+            + "x = x * 1.5 - i;\n"
+            + "}\n"
+            + "a[i % 4] = s / 3;\n"
+            + "l = l - i;\n"
+            + "if (!(s > 1000) || i != 3) {\n"
+            + "b = true;\n"
+            + "} else {\n"
+            + "b = false;\n"
+            + "}\n"
+            + "i = i + 1;\n"
+            + "}\n"
+            + "return s;\n"
+            + "}\n";
+
+    private static final String DIVISION_BY_ZERO = "int main(int n) {\n"
+            + "int i = 0;\n"
+            + "while (i < 3) {\n"
+            + "i = i + 1;\n"
+            + "}\n"
+            + "n = i / (n - n);\n"
+            + "return n;\n"
+            + "}\n";
+
+    private static final String ENDLESS = "int main(int n) {\n"
+            + "while (true) {\n"
+            + "n = n + 1;\n"
+            + "}\n"
+            + "return n;\n"
+            + "}\n";
+
+    @Test
+    public void test_compiled_sameTraceRecursion() {
+        List<String> trace = assertSameTraces(FAC, input("k = 6"), 1000, 1000);
+        assertEquals("returned 720", trace.get(trace.size() - 1));
+    }
+
+    @Test
+    public void test_compiled_sameTraceMixedTypes() {
+        List<String> trace = assertSameTraces(MIXED, input("n = 40", "d = 1.25"), 1000, 1000);
+        assertTrue(trace.get(trace.size() - 1).startsWith("returned"));
+    }
+
+    @Test
+    public void test_compiled_sameErrors() {
+        assertSameTraces(DIVISION_BY_ZERO, input("n = 1"), 1000, 1000);
+        assertSameTraces(ENDLESS, input("n = 1"), 50, 1000);
+        assertSameTraces(FAC, input("k = 20"), 1000, 5);
+        assertSameTraces(MIXED, input("n = 40", "d = 1.25"), 10, 1000);
+    }
+
+    private List<String> input(String... values) {
+        List<String> input = new ArrayList<String>();
+        for (String value : values) {
+            input.add(value);
+        }
+        return input;
+    }
+
+    private List<String> assertSameTraces(String code, List<String> input, int maxIterations, int maxFuncCalls) {
+        List<String> expected = run(code, input, maxIterations, maxFuncCalls, ExecutionEngine.TREE_WALKER);
+        List<String> actual = run(code, input, maxIterations, maxFuncCalls, ExecutionEngine.COMPILED);
+        assertTrue(expected.size() > 1);
+        assertEquals(expected, actual);
+        return actual;
+    }
+
+    private List<String> run(String code, List<String> input, int maxIterations, int maxFuncCalls,
+            ExecutionEngine engine) {
+        GenerationController gc = new GenerationController(maxIterations, maxFuncCalls);
+        gc.setExecutionEngine(engine);
+        InMemoryTraceSink sink = new InMemoryTraceSink();
+        String end;
+        try {
+            TermValue result = gc.runProgram(code, new ArrayList<String>(input), sink);
+            end = "returned " + result;
+        } catch (DIbuggerLogicException e) {
+            end = "failed " + e.getClass().getSimpleName() + " " + e.getID();
+        } catch (ArithmeticException e) {
+            end = "failed " + e.getMessage();
+        }
+        List<String> trace = new ArrayList<String>();
+        for (TraceState state : sink.getTraceStates()) {
+            StringBuilder s = new StringBuilder();
+            s.append(state.getLineNumber()).append(' ').append(state.getPosition());
+            for (String identifier : state.getAllVariableIdentifiers()) {
+                TermValue value = state.getValueOf(identifier);
+                s.append(' ').append(identifier).append('=').append(value == null ? null : value.getType() + ":" + value);
+            }
+            trace.add(s.toString());
+        }
+        trace.add(end);
+        return trace;
+    }
+}
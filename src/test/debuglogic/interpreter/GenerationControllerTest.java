@@ -10,6 +10,7 @@ import org.junit.Test;
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 import dibugger.debuglogic.exceptions.SyntaxException;
 import dibugger.debuglogic.interpreter.GenerationController;
+import dibugger.debuglogic.interpreter.Trace;
 import dibugger.debuglogic.interpreter.TraceState;
 
 public class GenerationControllerTest {
@@ -132,7 +133,8 @@ public class GenerationControllerTest {
         List<String> input = new ArrayList<String>();
         input.add(" k = 5 ");
         GenerationController gc = new GenerationController(10000, 10000);
-        ListIterator<TraceState> iterator = gc.generateTrace(code, input, "A");
+        Trace trace = gc.generateCompleteTrace(code, input, "A");
+        ListIterator<TraceState> iterator = trace.iterator();
         while (iterator.hasNext()) {
             TraceState state = iterator.next();
             System.out.println("linenumber: " + state.getLineNumber());
@@ -143,8 +145,8 @@ public class GenerationControllerTest {
         }
 
         System.out.println("####################################################");
-        System.out.println("Result of computation: " + gc.getReturnValue().toString());
-        assert (gc.getReturnValue().toString().equals("120"));
+        System.out.println("Result of computation: " + trace.getReturnValue().toString());
+        assert (trace.getReturnValue().toString().equals("120"));
     }
 
     @Test
@@ -154,9 +156,8 @@ public class GenerationControllerTest {
         List<String> input = new ArrayList<String>();
         input.add(" k = 5 ");
         GenerationController gc = new GenerationController(10000, 10000);
-        // ListIterator<TraceState> iterator =
-        gc.generateTrace(code, input, "A");
-        assert (gc.getReturnValue().toString().equals("120"));
+        Trace trace = gc.generateCompleteTrace(code, input, "A");
+        assert (trace.getReturnValue().toString().equals("120"));
     }
 
     @Test
@@ -168,7 +169,8 @@ public class GenerationControllerTest {
         List<String> input = new ArrayList<String>();
         input.add(" k = 1 ");
         GenerationController gc = new GenerationController(10000, 10000);
-        ListIterator<TraceState> iterator = gc.generateTrace(code, input, "A");
+        Trace trace = gc.generateCompleteTrace(code, input, "A");
+        ListIterator<TraceState> iterator = trace.iterator();
         while (iterator.hasNext()) {
             TraceState state = iterator.next();
             System.out.println("linenumber: " + state.getLineNumber());
@@ -180,8 +182,8 @@ public class GenerationControllerTest {
         }
 
         System.out.println("####################################################");
-        System.out.println("Result of computation: " + gc.getReturnValue().toString());
-        assert (gc.getReturnValue().toString().equals("5"));
+        System.out.println("Result of computation: " + trace.getReturnValue().toString());
+        assert (trace.getReturnValue().toString().equals("5"));
     }
 
     // unfertig
@@ -0,0 +1,82 @@
+package test.debuglogic.interpreter;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.junit.Test;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.exceptions.ExceededMaxIterationsException;
+import dibugger.debuglogic.interpreter.GenerationController;
+import dibugger.debuglogic.interpreter.Trace;
+import dibugger.debuglogic.interpreter.TraceState;
+
+public class LazyTraceTest {
+
+    private static final String LOOP = "int main(int n) {\n"
+            + "int a = 0;\n"
+            + "int i = 0;\n"
+            + "while (i < n) {\n"
+            + "a = a + i;\n"
+            + "i = i + 1;\n"
+            + "}\n"
+            + "return a;\n"
+            + "}\n";
+
+    @Test
+    public void test_lazyTrace_equalsCompleteTrace() throws DIbuggerLogicException {
+        List<String> input = new ArrayList<String>();
+        input.add("n = 500");
+        ListIterator<TraceState> complete = new GenerationController(1000, 1000).generateTrace(LOOP, input, "A");
+        Trace lazy = new GenerationController(1000, 1000).generateLazyTrace(LOOP, input, "A");
+        ListIterator<TraceState> it = lazy.iterator();
+        while (complete.hasNext()) {
+            TraceState expected = complete.next();
+            assertTrue(it.hasNext());
+            TraceState actual = it.next();
+            assertEquals(expected.getLineNumber(), actual.getLineNumber());
+            assertEquals(expected.getPosition(), actual.getPosition());
+            assertEquals("A", actual.getProgramId());
+            for (String id : expected.getAllVariableIdentifiers()) {
+                assertEquals(expected.getValueOf(id).toString(), actual.getValueOf(id).toString());
+            }
+        }
+        assertFalse(it.hasNext());
+        assertTrue(lazy.isComplete());
+        assertEquals("124750", lazy.getReturnValue().toString());
+        // stepping back works like on a complete trace
+        assertEquals(it.previous().getLineNumber(), it.next().getLineNumber());
+    }
+
+    @Test
+    public void test_lazyTrace_onlyGeneratesRequestedStates() throws DIbuggerLogicException {
+        List<String> input = new ArrayList<String>();
+        input.add("n = 1000000");
+        Trace lazy = new GenerationController(Integer.MAX_VALUE, 1000).generateLazyTrace(LOOP, input, "A");
+        assertTrue(lazy.hasState(0));
+        assertEquals(1, lazy.get(0).getLineNumber());
+        assertFalse(lazy.isComplete());
+        lazy.cancel();
+    }
+
+    @Test
+    public void test_lazyTrace_failsAtViolation() throws DIbuggerLogicException {
+        List<String> input = new ArrayList<String>();
+        input.add("n = 50");
+        Trace lazy = new GenerationController(10, 1000).generateLazyTrace(LOOP, input, "A");
+        int index = 0;
+        try {
+            while (lazy.hasState(index)) {
+                ++index;
+            }
+            fail("ExceededMaxIterationsException expected");
+        } catch (ExceededMaxIterationsException e) {
+            // all states up to the violation are available
+            assertTrue(index > 10);
+            assertTrue(lazy.hasState(index - 1));
+        }
+    }
+}
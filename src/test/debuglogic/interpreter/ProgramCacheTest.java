@@ -0,0 +1,86 @@
+package test.debuglogic.interpreter;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import dibugger.debuglogic.debugger.ProgramInput;
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.interpreter.CountingTraceSink;
+import dibugger.debuglogic.interpreter.ExecutionEngine;
+import dibugger.debuglogic.interpreter.GenerationController;
+import dibugger.debuglogic.interpreter.IntValue;
+import dibugger.debuglogic.interpreter.ProgramCache;
+import dibugger.debuglogic.interpreter.RoutineCommand;
+
+public class ProgramCacheTest {
+
+    private static final String FAC = "int fac(int k) {\n"
+            + "if (k <= 1)\n"
+            + "return 1;\n"
+            + "int res;\n"
+            + "res = fac(k - 1);\n"
+            + "return res * k;\n"
+            + "}\n"
+            + "int main(int k) {\n"
+            + "int res;\n"
+            + "res = fac(k);\n"
+            + "return res;\n"
+            + "}\n";
+
+    @Test
+    public void test_cache_relaunchWithOtherInputReusesCommands() throws DIbuggerLogicException {
+        GenerationController gc = new GenerationController(1000, 1000);
+        assertEquals(120, run(gc, FAC, "k = 5"));
+        RoutineCommand main = gc.getRoutineRootCommand("main");
+        assertEquals(720, run(gc, FAC, "k = 6"));
+        assertSame(main, gc.getRoutineRootCommand("main"));
+        assertEquals(1, gc.getProgramCache().size());
+
+        gc.setExecutionEngine(ExecutionEngine.COMPILED);
+        assertEquals(720, run(gc, FAC, "k = 6"));
+        assertNotSame(main, gc.getRoutineRootCommand("main"));
+    }
+
+    @Test
+    public void test_cache_evictsLeastRecentlyUsed() throws DIbuggerLogicException {
+        GenerationController gc = new GenerationController(1000, 1000);
+        gc.getProgramCache().setCapacity(2);
+        String first = "int main(int k) {\nreturn k;\n}\n";
+        String second = "int main(int k) {\nreturn k + 1;\n}\n";
+        String third = "int main(int k) {\nreturn k + 2;\n}\n";
+        run(gc, first, "k = 1");
+        run(gc, second, "k = 1");
+        run(gc, first, "k = 1");
+        assertEquals(3, run(gc, third, "k = 1"));
+
+        ProgramCache cache = gc.getProgramCache();
+        assertEquals(2, cache.size());
+        assertTrue(cache.contains(first));
+        assertFalse(cache.contains(second));
+        assertTrue(cache.contains(third));
+    }
+
+    @Test
+    public void test_cache_invalidatedByNewText() throws DIbuggerLogicException {
+        GenerationController gc = new GenerationController(1000, 1000);
+        ProgramInput input = new ProgramInput(FAC, new ArrayList<String>(), 0, "A");
+        input.setProgramCache(gc.getProgramCache());
+        run(gc, input.getText(), "k = 3");
+        assertTrue(gc.getProgramCache().contains(FAC));
+
+        input.setText(FAC);
+        assertTrue(gc.getProgramCache().contains(FAC));
+        input.setText(FAC.replace("k <= 1", "k < 2"));
+        assertFalse(gc.getProgramCache().contains(FAC));
+    }
+
+    private int run(GenerationController gc, String code, String value) throws DIbuggerLogicException {
+        List<String> input = new ArrayList<String>();
+        input.add(value);
+        return ((IntValue) gc.runProgram(code, input, new CountingTraceSink())).getValue();
+    }
+}
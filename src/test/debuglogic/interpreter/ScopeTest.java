@@ -4,7 +4,11 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 
+import dibugger.debuglogic.interpreter.FrameLayout;
+import dibugger.debuglogic.interpreter.IntValue;
 import dibugger.debuglogic.interpreter.Scope;
+import dibugger.debuglogic.interpreter.TraceState;
+import dibugger.debuglogic.interpreter.TraceStatePosition;
 import dibugger.debuglogic.interpreter.Type;
 
 public class ScopeTest {
@@ -19,4 +23,31 @@ public class ScopeTest {
         
     }
 
+    @Test
+    public void test_scope_sharedLayout() {
+        FrameLayout layout = new FrameLayout();
+        Scope first = new Scope(layout);
+        Scope second = new Scope(layout);
+        first.setTypeOf("x", Type.INT);
+        first.setValueOf("x", new IntValue(1));
+        // the layout grew after the second scope was created
+        second.setTypeOf("y", Type.INT);
+        second.setValueOf("y", new IntValue(2));
+        second.setValueOf("x", new IntValue(3));
+
+        assertEquals(2, layout.size());
+        assertEquals(1, first.getValues().size());
+        assertEquals(1, ((IntValue) first.getValueOf("x")).getValue());
+        assertNull(first.getValueOf("y"));
+        assertNull(first.getTypeOf("y"));
+        assertEquals(3, ((IntValue) second.getValueOf("x")).getValue());
+        assertEquals(2, second.getValueCount());
+
+        TraceState state = new TraceState(TraceStatePosition.NOTSPECIAL, 1, second);
+        first.setValueOf("y", new IntValue(4));
+        TraceState other = new TraceState(TraceStatePosition.NOTSPECIAL, 2, first);
+        assertEquals(2, ((IntValue) state.getValueOf("y")).getValue());
+        assertEquals(4, ((IntValue) other.getValueOf("y")).getValue());
+        assertEquals(2, other.getAllVariableIdentifiers().size());
+    }
 }
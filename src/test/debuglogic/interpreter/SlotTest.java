@@ -0,0 +1,120 @@
+package test.debuglogic.interpreter;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.interpreter.AdditionTerm;
+import dibugger.debuglogic.interpreter.AndCondition;
+import dibugger.debuglogic.interpreter.BooleanValue;
+import dibugger.debuglogic.interpreter.CharValue;
+import dibugger.debuglogic.interpreter.ConstantTerm;
+import dibugger.debuglogic.interpreter.CountingTraceSink;
+import dibugger.debuglogic.interpreter.DivisionTerm;
+import dibugger.debuglogic.interpreter.DoubleValue;
+import dibugger.debuglogic.interpreter.EqualComparison;
+import dibugger.debuglogic.interpreter.FloatValue;
+import dibugger.debuglogic.interpreter.GenerationController;
+import dibugger.debuglogic.interpreter.IntValue;
+import dibugger.debuglogic.interpreter.LessComparison;
+import dibugger.debuglogic.interpreter.LessEqualComparison;
+import dibugger.debuglogic.interpreter.LongValue;
+import dibugger.debuglogic.interpreter.ModuloTerm;
+import dibugger.debuglogic.interpreter.MoreComparison;
+import dibugger.debuglogic.interpreter.MoreEqualComparison;
+import dibugger.debuglogic.interpreter.MultiplicationTerm;
+import dibugger.debuglogic.interpreter.NegativeTerm;
+import dibugger.debuglogic.interpreter.NotCondition;
+import dibugger.debuglogic.interpreter.NotEqualComparison;
+import dibugger.debuglogic.interpreter.OrCondition;
+import dibugger.debuglogic.interpreter.Scope;
+import dibugger.debuglogic.interpreter.Slot;
+import dibugger.debuglogic.interpreter.SubtractionTerm;
+import dibugger.debuglogic.interpreter.Term;
+import dibugger.debuglogic.interpreter.TermValue;
+
+public class SlotTest {
+
+    private static final TermValue[] VALUES = { new IntValue(7), new IntValue(-3), new IntValue(0),
+            new LongValue(5000000000L), new FloatValue(2.5f), new DoubleValue(-1.25), new DoubleValue(Double.NaN),
+            new CharValue('a'), new BooleanValue(true), new BooleanValue(false) };
+
+    @Test
+    public void test_slot_sameResultsAsTermValues() {
+        Scope scope = new Scope();
+        for (TermValue a : VALUES) {
+            for (TermValue b : VALUES) {
+                Term l = new ConstantTerm(a);
+                Term r = new ConstantTerm(b);
+                Term[] terms = { new AdditionTerm(l, r), new SubtractionTerm(l, r), new MultiplicationTerm(l, r),
+                        new DivisionTerm(l, r), new ModuloTerm(l, r), new LessComparison(l, r),
+                        new LessEqualComparison(l, r), new MoreComparison(l, r), new MoreEqualComparison(l, r),
+                        new EqualComparison(l, r), new NotEqualComparison(l, r), new AndCondition(l, r),
+                        new OrCondition(l, r), new NotCondition(l), new NegativeTerm(l) };
+                for (Term term : terms) {
+                    String msg = term.getClass().getSimpleName() + "(" + a + ", " + b + ")";
+                    assertEquals(msg, evaluateObject(term, scope), evaluateSlot(term, scope));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_slot_tightLoopDoesNotAllocate() throws DIbuggerLogicException {
+        String code = "int main(int n) {\n"
+                + "int a = 0;\n"
+                + "int i = 0;\n"
+                + "while (i < n) {\n"
+                + "a = a + i * 2 - 1;\n"
+                + "i = i + 1;\n"
+                + "}\n"
+                + "return a;\n"
+                + "}\n";
+        // warm up
+        runLoop(code, 20000);
+        long small = runLoop(code, 20000);
+        long large = runLoop(code, 220000);
+        long perIteration = (large - small) / 200000;
+        assertTrue("allocated " + perIteration + " bytes per iteration", perIteration < 8);
+    }
+
+    private long runLoop(String code, int n) throws DIbuggerLogicException {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        List<String> input = new ArrayList<String>();
+        input.add("n = " + n);
+        GenerationController gc = new GenerationController(Integer.MAX_VALUE, 10);
+        long before = bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        TermValue result = gc.runProgram(code, input, new CountingTraceSink());
+        long after = bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        assertEquals((int) ((long) n * (n - 1) - n), ((IntValue) result).getValue());
+        return after - before;
+    }
+
+    private String evaluateObject(Term term, Scope scope) {
+        try {
+            TermValue v = term.evaluate(scope);
+            return v.getType() + ":" + v;
+        } catch (DIbuggerLogicException e) {
+            return "exception " + e.getID();
+        } catch (ArithmeticException e) {
+            return "exception " + e.getMessage();
+        }
+    }
+
+    private String evaluateSlot(Term term, Scope scope) {
+        Slot slot = new Slot();
+        try {
+            term.evaluate(scope, slot);
+            return slot.getType() + ":" + slot.toTermValue();
+        } catch (DIbuggerLogicException e) {
+            return "exception " + e.getID();
+        } catch (ArithmeticException e) {
+            return "exception " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package test.debuglogic.interpreter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.exceptions.TraceGenerationException;
+import dibugger.debuglogic.exceptions.TraceStorageException;
+import dibugger.debuglogic.interpreter.GenerationController;
+import dibugger.debuglogic.interpreter.Trace;
+import dibugger.debuglogic.interpreter.TraceFile;
+import dibugger.debuglogic.interpreter.TraceState;
+
+public class SpillingTraceTest {
+
+    private static final String LOOP = "int main(int n) {\n"
+            + "int a = 0;\n"
+            + "int i = 0;\n"
+            + "int[2] b;\n"
+            + "while (i < n) {\n"
+            + "a = a + i;\n"
+            + "b[1] = i;\n"
+            + "i = i + 1;\n"
+            + "}\n"
+            + "return a;\n"
+            + "}\n";
+
+    private static List<String> input() {
+        List<String> input = new ArrayList<String>();
+        input.add("n = 2000");
+        return input;
+    }
+
+    @Test
+    public void test_spilledTrace_equalsTraceInMemory() throws DIbuggerLogicException {
+        Trace expected = new GenerationController(10000, 100).generateCompleteTrace(LOOP, input(), "A");
+        GenerationController controller = new GenerationController(10000, 100);
+        controller.setMemoryBudget(10000);
+        Trace complete = controller.generateCompleteTrace(LOOP, input(), "A");
+        Trace lazy = controller.generateLazyTrace(LOOP, input(), "A");
+        assertFalse(expected.isSpilled());
+        assertTrue(complete.isSpilled());
+        assertEquals(expected.size(), complete.size());
+
+        ListIterator<TraceState> it = lazy.iterator();
+        for (int i = 0; i < expected.size(); ++i) {
+            assertTrue(it.hasNext());
+            assertSameState(expected.get(i), complete.get(i));
+            assertSameState(expected.get(i), it.next());
+        }
+        assertFalse(it.hasNext());
+        assertTrue(lazy.isSpilled());
+        assertEquals("1999000", complete.getReturnValue().toString());
+
+        // seeking backwards reads the pages again
+        for (int i = expected.size() - 1; i >= 0; i -= 97) {
+            assertSameState(expected.get(i), complete.get(i));
+            assertSameState(expected.get(i), lazy.get(i));
+        }
+        assertEquals(expected.findNextState(Collections.singleton(7), 1000),
+                complete.findNextState(Collections.singleton(7), 1000));
+    }
+
+    @Test
+    public void test_spilledTrace_changedIdentifiers() throws DIbuggerLogicException {
+        Trace expected = new GenerationController(10000, 100).generateCompleteTrace(LOOP, input(), "A");
+        GenerationController controller = new GenerationController(10000, 100);
+        controller.setMemoryBudget(10000);
+        Trace trace = controller.generateCompleteTrace(LOOP, input(), "A");
+        // states read from the file do not differ in more variables than the
+        // states in memory
+        for (int i = 1; i < trace.size(); ++i) {
+            Set<String> changed = trace.get(i).getChangedIdentifiers(trace.get(i - 1));
+            assertTrue(expected.get(i).getChangedIdentifiers(expected.get(i - 1)).containsAll(changed));
+            if (trace.get(i).getLineNumber() == 6 && !"0".equals(trace.get(i).getValueOf("i").toString())) {
+                assertTrue(changed.contains("a"));
+            }
+        }
+    }
+
+    @Test
+    public void test_spilledTrace_readInParallel() throws Exception {
+        Trace expected = new GenerationController(10000, 100).generateCompleteTrace(LOOP, input(), "A");
+        GenerationController controller = new GenerationController(10000, 100);
+        controller.setMemoryBudget(10000);
+        Trace trace = controller.generateCompleteTrace(LOOP, input(), "A");
+        List<TraceState> states = trace.getStates();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> readers = new ArrayList<Future<?>>();
+            for (int r = 0; r < 4; ++r) {
+                final int offset = r * states.size() / 4;
+                readers.add(executor.submit(() -> {
+                    // every reader walks the whole trace from another start
+                    for (int i = 0; i < states.size(); ++i) {
+                        int index = (offset + i) % states.size();
+                        assertSameState(expected.get(index), states.get(index));
+                    }
+                }));
+            }
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_arrayChanges_doNotSpill() throws DIbuggerLogicException {
+        // the elements of a large array are shared between the states which
+        // change single elements of it
+        String program = "int main() {\n"
+                + "int[4096] b;\n"
+                + "int i = 0;\n"
+                + "while (i < 300) {\n"
+                + "b[i] = i;\n"
+                + "i = i + 1;\n"
+                + "}\n"
+                + "return i;\n"
+                + "}\n";
+        GenerationController controller = new GenerationController(10000, 100);
+        controller.setMemoryBudget(2000000);
+        Trace trace = controller.generateCompleteTrace(program, new ArrayList<String>(), "A");
+        assertFalse(trace.isSpilled());
+    }
+
+    @Test(expected = TraceGenerationException.class)
+    public void test_releasedTrace_cannotBeRead() throws DIbuggerLogicException {
+        GenerationController controller = new GenerationController(10000, 100);
+        controller.setMemoryBudget(10000);
+        Trace trace = controller.generateCompleteTrace(LOOP, input(), "A");
+        trace.release();
+        trace.get(0);
+    }
+
+    @Test
+    public void test_traceFile_equalsTraceWritten() throws DIbuggerLogicException, IOException {
+        Trace expected = new GenerationController(10000, 100).generateLazyTrace(LOOP, input(), "A");
+        File file = tempFile();
+        long fingerprint = TraceFile.fingerprint(LOOP, input(), 10000, 100);
+        TraceFile.write(file, expected, fingerprint);
+
+        Trace read = TraceFile.read(file, fingerprint);
+        assertNotNull(read);
+        assertTrue(read.isComplete());
+        assertEquals(expected.size(), read.size());
+        assertEquals("1999000", read.getReturnValue().toString());
+        assertEquals(expected.findNextState(Collections.singleton(7), 1000),
+                read.findNextState(Collections.singleton(7), 1000));
+        assertEquals(expected.findEndOfCall(0), read.findEndOfCall(0));
+        // the states are read from the end of the file first
+        for (int i = expected.size() - 1; i >= 0; i -= 13) {
+            assertSameState(expected.get(i), read.get(i));
+        }
+        for (int i = 0; i < expected.size(); ++i) {
+            assertSameState(expected.get(i), read.get(i));
+        }
+        read.release();
+    }
+
+    @Test
+    public void test_traceFile_otherRun() throws DIbuggerLogicException, IOException {
+        Trace trace = new GenerationController(10000, 100).generateCompleteTrace(LOOP, input(), "A");
+        File file = tempFile();
+        TraceFile.write(file, trace, TraceFile.fingerprint(LOOP, input(), 10000, 100));
+        List<String> other = new ArrayList<String>();
+        other.add("n = 1999");
+        assertNotEquals(TraceFile.fingerprint(LOOP, input(), 10000, 100), TraceFile.fingerprint(LOOP, other, 10000, 100));
+        assertNull(TraceFile.read(file, TraceFile.fingerprint(LOOP, other, 10000, 100)));
+        assertNull(TraceFile.read(file, TraceFile.fingerprint(LOOP, input(), 10000, 99)));
+    }
+
+    @Test(expected = TraceStorageException.class)
+    public void test_traceFile_damaged() throws DIbuggerLogicException, IOException {
+        File file = tempFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+        }
+        TraceFile.read(file, 0);
+    }
+
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("dibugger-test-", ".dbtrace");
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static void assertSameState(TraceState expected, TraceState actual) {
+        assertEquals(expected.getLineNumber(), actual.getLineNumber());
+        assertEquals(expected.getPosition(), actual.getPosition());
+        assertEquals("A", actual.getProgramId());
+        assertEquals(expected.getAllVariableIdentifiers(), actual.getAllVariableIdentifiers());
+        for (String id : expected.getAllVariableIdentifiers()) {
+            assertEquals(String.valueOf(expected.getValueOf(id)), String.valueOf(actual.getValueOf(id)));
+        }
+    }
+}
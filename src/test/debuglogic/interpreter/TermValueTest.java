@@ -9,6 +9,7 @@ import org.junit.Test;
 
 
 import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.interpreter.ArrayValue;
 import dibugger.debuglogic.interpreter.BooleanValue;
 import dibugger.debuglogic.interpreter.CharValue;
 import dibugger.debuglogic.interpreter.DoubleValue;
@@ -285,6 +286,47 @@ public class TermValueTest {
 	}
 	
 	//Helper methods
+	@Test
+	public void test_arrayValue_cloneIsIndependent() {
+		int n = 5000;
+		TermValue[][][] content = new TermValue[n][1][1];
+		for (int i = 0; i < n; ++i) {
+			content[i][0][0] = new IntValue(i);
+		}
+		ArrayValue array = new ArrayValue(content);
+		ArrayValue copy = (ArrayValue) array.clone();
+		for (int i = 0; i < n; i += 7) {
+			array.set(i, 0, 0, new IntValue(-i));
+		}
+		for (int i = 0; i < n; ++i) {
+			assertEquals(i, ((IntValue) copy.get(i, 0, 0)).getValue());
+			assertEquals(i % 7 == 0 ? -i : i, ((IntValue) array.get(i, 0, 0)).getValue());
+		}
+		assertEquals(n / 7 + 1, array.getModificationCount());
+		assertEquals(0, copy.getModificationCount());
+	}
+
+	@Test
+	public void test_arrayValue_dimensions() {
+		TermValue[][][] content = new TermValue[2][3][1];
+		for (int i = 0; i < 2; ++i) {
+			for (int j = 0; j < 3; ++j) {
+				content[i][j][0] = new CharValue((char) ('a' + 3 * i + j));
+			}
+		}
+		ArrayValue array = new ArrayValue(content);
+		assertEquals("{{a,b,c},{d,e,f}}", array.toString());
+		assertTrue(array.isInBounds(1, 2, 0));
+		assertFalse(array.isInBounds(2, 0, 0));
+		assertFalse(array.isInBounds(0, -1, 0));
+		array.set(1, 0, 0, new CharValue('x'));
+		assertEquals("{{a,b,c},{x,e,f}}", array.toString());
+		// the content passed to the constructor and returned by getValue are copies
+		assertEquals('d', ((CharValue) content[1][0][0]).getValue());
+		array.getValue()[0][0][0] = new CharValue('y');
+		assertEquals('a', ((CharValue) array.get(0, 0, 0)).getValue());
+	}
+
 	private String[] _generate_correct_arithmetic_results(Number a, Number b){
 		String[] results = new String[10];
 		if(a instanceof Integer){
@@ -0,0 +1,88 @@
+package test.debuglogic.interpreter;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import dibugger.debuglogic.exceptions.DIbuggerLogicException;
+import dibugger.debuglogic.interpreter.CountingTraceSink;
+import dibugger.debuglogic.interpreter.FileTraceSink;
+import dibugger.debuglogic.interpreter.FilteringTraceSink;
+import dibugger.debuglogic.interpreter.GenerationController;
+import dibugger.debuglogic.interpreter.InMemoryTraceSink;
+import dibugger.debuglogic.interpreter.TraceState;
+import dibugger.debuglogic.interpreter.TraceStatePosition;
+
+public class TraceSinkTest {
+
+    private static final String CODE = "int sum(int[] a, int n) {\n"
+            + "int s = 0;\n"
+            + "int i = 0;\n"
+            + "while (i < n) {\n"
+            + "s = s + a[i];\n"
+            + "i = i + 1;\n"
+            + "}\n"
+            + "return s;\n"
+            + "}\n"
+            + "int main(int n) {\n"
+            + "int[4] a = {1, 2, 3, 4};\n"
+            + "double d = 1.5;\n"
+            + "char c = 'x';\n"
+            + "int r;\n"
+            + "r = sum(a, n);\n"
+            + "return r;\n"
+            + "}\n";
+
+    private List<String> input() {
+        List<String> input = new ArrayList<String>();
+        input.add("n = 4");
+        return input;
+    }
+
+    @Test
+    public void test_sinks_countingEqualsInMemory() throws DIbuggerLogicException {
+        InMemoryTraceSink memory = new InMemoryTraceSink();
+        CountingTraceSink counting = new CountingTraceSink();
+        assertEquals("10", new GenerationController(100, 100).runProgram(CODE, input(), memory).toString());
+        new GenerationController(100, 100).runProgram(CODE, input(), counting);
+        assertEquals(memory.getTraceStates().size(), counting.getCount());
+    }
+
+    @Test
+    public void test_sinks_filtering() throws DIbuggerLogicException {
+        InMemoryTraceSink memory = new InMemoryTraceSink();
+        new GenerationController(100, 100).runProgram(CODE, input(),
+                new FilteringTraceSink(memory, (position, lineNumber, scope) -> lineNumber == 5));
+        assertEquals(4, memory.getTraceStates().size());
+        assertEquals("10", memory.getTraceStates().get(3).getValueOf("s").toString());
+    }
+
+    @Test
+    public void test_sinks_fileRoundTrip() throws DIbuggerLogicException, IOException {
+        InMemoryTraceSink memory = new InMemoryTraceSink();
+        new GenerationController(100, 100).runProgram(CODE, input(), memory);
+        File file = File.createTempFile("trace", ".bin");
+        file.deleteOnExit();
+        try (FileTraceSink sink = new FileTraceSink(file)) {
+            new GenerationController(100, 100).runProgram(CODE, input(), sink);
+        }
+        List<TraceState> read = FileTraceSink.read(file);
+        assertEquals(memory.getTraceStates().size(), read.size());
+        for (int i = 0; i < read.size(); ++i) {
+            TraceState expected = memory.getTraceStates().get(i);
+            TraceState actual = read.get(i);
+            assertEquals(expected.getLineNumber(), actual.getLineNumber());
+            assertEquals(expected.getPosition(), actual.getPosition());
+            assertEquals(expected.getAllVariableIdentifiers(), actual.getAllVariableIdentifiers());
+            for (String id : expected.getAllVariableIdentifiers()) {
+                assertEquals(expected.getValueOf(id).toString(), actual.getValueOf(id).toString());
+            }
+        }
+        assertEquals(TraceStatePosition.AFTERRETURN, read.get(read.size() - 2).getPosition());
+    }
+}
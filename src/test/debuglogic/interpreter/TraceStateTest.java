@@ -0,0 +1,94 @@
+package test.debuglogic.interpreter;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import dibugger.debuglogic.interpreter.ArrayValue;
+import dibugger.debuglogic.interpreter.IntValue;
+import dibugger.debuglogic.interpreter.Scope;
+import dibugger.debuglogic.interpreter.TermValue;
+import dibugger.debuglogic.interpreter.TraceState;
+import dibugger.debuglogic.interpreter.TraceStatePosition;
+import dibugger.debuglogic.interpreter.Type;
+
+public class TraceStateTest {
+
+    @Test
+    public void test_traceState_valuesAcrossCheckpoints() {
+        Scope s = new Scope();
+        s.setTypeOf("i", Type.INT);
+        s.setTypeOf("c", Type.INT);
+        s.setValueOf("c", new IntValue(7));
+        List<TraceState> states = new ArrayList<TraceState>();
+        int n = 3 * TraceState.CHECKPOINT_INTERVAL + 5;
+        for (int k = 0; k < n; ++k) {
+            s.setValueOf("i", new IntValue(k));
+            states.add(new TraceState(TraceStatePosition.NOTSPECIAL, k, s));
+        }
+        for (int k = 0; k < n; ++k) {
+            assertEquals("" + k, states.get(k).getValueOf("i").toString());
+            assertEquals("7", states.get(k).getValueOf("c").toString());
+            assertEquals(2, states.get(k).getAllVariableIdentifiers().size());
+        }
+    }
+
+    @Test
+    public void test_traceState_newVariables() {
+        Scope s = new Scope();
+        s.setValueOf("a", new IntValue(1));
+        TraceState first = new TraceState(TraceStatePosition.NOTSPECIAL, 1, s);
+        s.setValueOf("b", new IntValue(2));
+        TraceState second = new TraceState(TraceStatePosition.NOTSPECIAL, 2, s);
+        assertNull(first.getValueOf("b"));
+        assertFalse(first.getAllVariableIdentifiers().contains("b"));
+        assertEquals("1", second.getValueOf("a").toString());
+        assertEquals("2", second.getValueOf("b").toString());
+        assertTrue(second.getAllVariableIdentifiers().contains("a"));
+    }
+
+    @Test
+    public void test_traceState_aliasedArrayModification() {
+        TermValue[][][] content = new TermValue[2][1][1];
+        content[0][0][0] = new IntValue(0);
+        content[1][0][0] = new IntValue(0);
+        ArrayValue array = new ArrayValue(content);
+        Scope caller = new Scope();
+        caller.setValueOf("a", array);
+        TraceState before = new TraceState(TraceStatePosition.NOTSPECIAL, 1, caller);
+
+        // modify the array through another scope, as a called routine would
+        Scope callee = new Scope();
+        callee.setValueOf("b", array);
+        array.set(1, 0, 0, new IntValue(5));
+        new TraceState(TraceStatePosition.NOTSPECIAL, 2, callee);
+
+        TraceState after = new TraceState(TraceStatePosition.AFTERRETURN, 3, caller);
+        assertEquals("{0,0}", before.getValueOf("a").toString());
+        assertEquals("{0,5}", after.getValueOf("a").toString());
+    }
+
+    @Test
+    public void test_traceState_changedIdentifiers() {
+        Scope s = new Scope();
+        s.setTypeOf("i", Type.INT);
+        s.setTypeOf("c", Type.INT);
+        s.setValueOf("c", new IntValue(7));
+        List<TraceState> states = new ArrayList<TraceState>();
+        int n = 2 * TraceState.CHECKPOINT_INTERVAL;
+        for (int k = 0; k < n; ++k) {
+            s.setValueOf("i", new IntValue(k));
+            states.add(new TraceState(TraceStatePosition.NOTSPECIAL, k, s));
+        }
+        assertTrue(states.get(3).getChangedIdentifiers(states.get(3)).isEmpty());
+        assertEquals(1, states.get(5).getChangedIdentifiers(states.get(2)).size());
+        assertTrue(states.get(2).getChangedIdentifiers(states.get(5)).contains("i"));
+        // across a checkpoint the values are compared
+        TraceState last = states.get(n - 1);
+        assertEquals(1, last.getChangedIdentifiers(states.get(1)).size());
+        assertTrue(last.getChangedIdentifiers(states.get(1)).contains("i"));
+    }
+}
@@ -3,6 +3,7 @@ package test.debuglogic.interpreter;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
@@ -11,6 +12,7 @@ import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 import dibugger.debuglogic.interpreter.DoubleValue;
 import dibugger.debuglogic.interpreter.Scope;
 import dibugger.debuglogic.interpreter.ScopeTuple;
+import dibugger.debuglogic.interpreter.StateChanges;
 import dibugger.debuglogic.interpreter.TraceState;
 import dibugger.debuglogic.interpreter.TraceStatePosition;
 import dibugger.debuglogic.interpreter.Type;
@@ -64,4 +66,62 @@ public class WatchExpressionTest {
         we.change("3<1+3", scopes);
         assertTrue(we.evaluate(states).equals("true"));
     }
+
+    @Test
+    public void testEvaluate_onlyChangedVariables() throws DIbuggerLogicException {
+        Scope s = new Scope();
+        s.setTypeOf("a", Type.DOUBLE);
+        s.setTypeOf("b", Type.DOUBLE);
+        s.setValueOf("a", new DoubleValue(1.5));
+        s.setValueOf("b", new DoubleValue(2.0));
+        we = new WatchExpression("A.a * 2");
+        we.bind(Arrays.asList("A"));
+        assertEquals("3.0", we.evaluate(statesOf(s)));
+        s.setValueOf("b", new DoubleValue(4.0));
+        assertEquals("3.0", we.evaluate(statesOf(s)));
+        s.setValueOf("a", new DoubleValue(2.5));
+        assertEquals("5.0", we.evaluate(statesOf(s)));
+        we.change("A.a + A.b", new ArrayList<ScopeTuple>());
+        assertEquals("6.5", we.evaluate(statesOf(s)));
+    }
+
+    @Test
+    public void testEvaluate_sharedChanges() throws DIbuggerLogicException {
+        Scope s = new Scope();
+        s.setTypeOf("a", Type.DOUBLE);
+        s.setTypeOf("b", Type.DOUBLE);
+        s.setValueOf("a", new DoubleValue(1.5));
+        s.setValueOf("b", new DoubleValue(2.0));
+        WatchExpression first = new WatchExpression("A.a * 2");
+        WatchExpression second = new WatchExpression("A.b + 1");
+        first.bind(Arrays.asList("A"));
+        second.bind(Arrays.asList("A"));
+        List<TraceState> states = statesOf(s);
+        StateChanges changes = new StateChanges(states, states);
+        assertEquals("3.0", first.evaluate(states, changes));
+        assertEquals("3.0", second.evaluate(states, changes));
+
+        s.setValueOf("b", new DoubleValue(4.0));
+        states = statesOf(s);
+        changes = changes.next(states);
+        assertSame(changes, changes.next(states));
+        assertEquals("3.0", first.evaluate(states, changes));
+        assertEquals("5.0", second.evaluate(states, changes));
+
+        // the second expression is not evaluated at this step
+        s.setValueOf("a", new DoubleValue(2.5));
+        states = statesOf(s);
+        changes = changes.next(states);
+        assertEquals("5.0", first.evaluate(states, changes));
+        s.setValueOf("b", new DoubleValue(5.0));
+        states = statesOf(s);
+        changes = changes.next(states);
+        assertEquals("6.0", second.evaluate(states, changes));
+    }
+
+    private static List<TraceState> statesOf(Scope s) {
+        TraceState state = new TraceState(TraceStatePosition.NOTSPECIAL, 1, s);
+        state.setProgramId("A");
+        return Arrays.asList(state);
+    }
 }
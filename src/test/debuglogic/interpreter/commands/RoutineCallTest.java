@@ -1,6 +1,7 @@
 package test.debuglogic.interpreter.commands;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 import org.junit.Test;
 
@@ -8,13 +9,14 @@ import dibugger.debuglogic.exceptions.DIbuggerLogicException;
 import dibugger.debuglogic.interpreter.BooleanValue;
 import dibugger.debuglogic.interpreter.CharValue;
 import dibugger.debuglogic.interpreter.ConstantTerm;
+import dibugger.debuglogic.interpreter.ExecutionContext;
 import dibugger.debuglogic.interpreter.GenerationController;
+import dibugger.debuglogic.interpreter.InMemoryTraceSink;
 import dibugger.debuglogic.interpreter.IntValue;
 import dibugger.debuglogic.interpreter.LongValue;
 import dibugger.debuglogic.interpreter.ReturnCommand;
 import dibugger.debuglogic.interpreter.RoutineCommand;
-import dibugger.debuglogic.interpreter.Scope;
-import dibugger.debuglogic.interpreter.Term;
+import dibugger.debuglogic.interpreter.TermValue;
 import dibugger.debuglogic.interpreter.Type;
 
 public class RoutineCallTest {
@@ -22,8 +24,7 @@ public class RoutineCallTest {
     @Test
     public void test_RoutineCall_valid() throws DIbuggerLogicException {
         GenerationController gc = new GenerationController(1000, 1000);
-        Scope s = new Scope();
-        gc.pushScope(s);
+        ExecutionContext context = new ExecutionContext(new HashMap<String, RoutineCommand>(), 1000, 1000);
         ArrayList<String> identifiers = new ArrayList<String>();
         identifiers.add("a");
         identifiers.add("b");
@@ -35,14 +36,13 @@ public class RoutineCallTest {
         expectedTypes.add(Type.INT);
         expectedTypes.add(Type.LONG);
         RoutineCommand cmd = new RoutineCommand(gc, "amIRight", 4, identifiers, expectedTypes, Type.BOOLEAN);
-        ArrayList<Term> args = new ArrayList<Term>();
-        args.add(new ConstantTerm(new BooleanValue(false)));
-        args.add(new ConstantTerm(new CharValue('x')));
-        args.add(new ConstantTerm(new IntValue(66)));
-        args.add(new ConstantTerm(new LongValue(12345)));
-        cmd.setArgs(args);
+        ArrayList<TermValue> args = new ArrayList<TermValue>();
+        args.add(new BooleanValue(false));
+        args.add(new CharValue('x'));
+        args.add(new IntValue(66));
+        args.add(new LongValue(12345));
         cmd.addChild(new ReturnCommand(gc, 5, new ConstantTerm(new BooleanValue(true))));
-        cmd.run();
+        cmd.call(context, args, new InMemoryTraceSink());
         
         
     }
@@ -1,6 +1,7 @@
 package test.debuglogic.interpreter.commands;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 import org.junit.Test;
 
@@ -12,13 +13,14 @@ import dibugger.debuglogic.exceptions.WrongTypeArgumentException;
 import dibugger.debuglogic.interpreter.BooleanValue;
 import dibugger.debuglogic.interpreter.CharValue;
 import dibugger.debuglogic.interpreter.ConstantTerm;
+import dibugger.debuglogic.interpreter.ExecutionContext;
 import dibugger.debuglogic.interpreter.GenerationController;
+import dibugger.debuglogic.interpreter.InMemoryTraceSink;
 import dibugger.debuglogic.interpreter.IntValue;
 import dibugger.debuglogic.interpreter.LongValue;
 import dibugger.debuglogic.interpreter.ReturnCommand;
 import dibugger.debuglogic.interpreter.RoutineCommand;
-import dibugger.debuglogic.interpreter.Scope;
-import dibugger.debuglogic.interpreter.Term;
+import dibugger.debuglogic.interpreter.TermValue;
 import dibugger.debuglogic.interpreter.Type;
 
 public class RoutineCommandTest {
@@ -26,8 +28,7 @@ public class RoutineCommandTest {
     @Test
     public void test_RoutineCommand_valid() throws DIbuggerLogicException {
         GenerationController gc = new GenerationController(1000, 1000);
-        Scope s = new Scope();
-        gc.pushScope(s);
+        ExecutionContext context = new ExecutionContext(new HashMap<String, RoutineCommand>(), 1000, 1000);
         ArrayList<String> identifiers = new ArrayList<String>();
         identifiers.add("a");
         identifiers.add("b");
@@ -39,21 +40,19 @@ public class RoutineCommandTest {
         expectedTypes.add(Type.INT);
         expectedTypes.add(Type.LONG);
         RoutineCommand cmd = new RoutineCommand(gc, "amIRight", 4, identifiers, expectedTypes, Type.BOOLEAN);
-        ArrayList<Term> args = new ArrayList<Term>();
-        args.add(new ConstantTerm(new BooleanValue(false)));
-        args.add(new ConstantTerm(new CharValue('x')));
-        args.add(new ConstantTerm(new IntValue(66)));
-        args.add(new ConstantTerm(new LongValue(12345)));
-        cmd.setArgs(args);
+        ArrayList<TermValue> args = new ArrayList<TermValue>();
+        args.add(new BooleanValue(false));
+        args.add(new CharValue('x'));
+        args.add(new IntValue(66));
+        args.add(new LongValue(12345));
         cmd.addChild(new ReturnCommand(gc, 5, new ConstantTerm(new BooleanValue(true))));
-        cmd.run();
+        cmd.call(context, args, new InMemoryTraceSink());
     }
     
     @Test(expected=IncompatibleTypeException.class)
     public void test_RoutineCommand_incompatibleReturnType() throws DIbuggerLogicException {
         GenerationController gc = new GenerationController(1000, 1000);
-        Scope s = new Scope();
-        gc.pushScope(s);
+        ExecutionContext context = new ExecutionContext(new HashMap<String, RoutineCommand>(), 1000, 1000);
         ArrayList<String> identifiers = new ArrayList<String>();
         identifiers.add("a");
         identifiers.add("b");
@@ -65,21 +64,19 @@ public class RoutineCommandTest {
         expectedTypes.add(Type.INT);
         expectedTypes.add(Type.LONG);
         RoutineCommand cmd = new RoutineCommand(gc, "amIRight", 4, identifiers, expectedTypes, Type.BOOLEAN);
-        ArrayList<Term> args = new ArrayList<Term>();
-        args.add(new ConstantTerm(new BooleanValue(false)));
-        args.add(new ConstantTerm(new CharValue('x')));
-        args.add(new ConstantTerm(new IntValue(66)));
-        args.add(new ConstantTerm(new LongValue(12345)));
-        cmd.setArgs(args);
+        ArrayList<TermValue> args = new ArrayList<TermValue>();
+        args.add(new BooleanValue(false));
+        args.add(new CharValue('x'));
+        args.add(new IntValue(66));
+        args.add(new LongValue(12345));
         cmd.addChild(new ReturnCommand(gc, 5, new ConstantTerm(new IntValue(1))));
-        cmd.run();
+        cmd.call(context, args, new InMemoryTraceSink());
     }
     
     @Test(expected=WrongNumberArgumentException.class)
     public void test_RoutineCommand_wrongNumberofArguments() throws DIbuggerLogicException {
         GenerationController gc = new GenerationController(1000, 1000);
-        Scope s = new Scope();
-        gc.pushScope(s);
+        ExecutionContext context = new ExecutionContext(new HashMap<String, RoutineCommand>(), 1000, 1000);
         ArrayList<String> identifiers = new ArrayList<String>();
         identifiers.add("a");
         identifiers.add("b");
@@ -90,21 +87,19 @@ public class RoutineCommandTest {
         expectedTypes.add(Type.CHAR);
         expectedTypes.add(Type.INT); // only 3 arguments expected
         RoutineCommand cmd = new RoutineCommand(gc, "amIRight", 4, identifiers, expectedTypes, Type.BOOLEAN);
-        ArrayList<Term> args = new ArrayList<Term>();
-        args.add(new ConstantTerm(new BooleanValue(false)));
-        args.add(new ConstantTerm(new CharValue('x')));
-        args.add(new ConstantTerm(new IntValue(66)));
-        args.add(new ConstantTerm(new LongValue(12345))); // but receives 4 arguments
-        cmd.setArgs(args);
+        ArrayList<TermValue> args = new ArrayList<TermValue>();
+        args.add(new BooleanValue(false));
+        args.add(new CharValue('x'));
+        args.add(new IntValue(66));
+        args.add(new LongValue(12345)); // but receives 4 arguments
         cmd.addChild(new ReturnCommand(gc, 5, new ConstantTerm(new IntValue(1))));
-        cmd.run();
+        cmd.call(context, args, new InMemoryTraceSink());
     }
     
     @Test(expected=WrongTypeArgumentException.class)
     public void test_RoutineCommand_wrongTypeofArguments() throws DIbuggerLogicException {
         GenerationController gc = new GenerationController(1000, 1000);
-        Scope s = new Scope();
-        gc.pushScope(s);
+        ExecutionContext context = new ExecutionContext(new HashMap<String, RoutineCommand>(), 1000, 1000);
         ArrayList<String> identifiers = new ArrayList<String>();
         identifiers.add("a");
         identifiers.add("b");
@@ -116,21 +111,19 @@ public class RoutineCommandTest {
         expectedTypes.add(Type.INT);
         expectedTypes.add(Type.LONG);
         RoutineCommand cmd = new RoutineCommand(gc, "amIRight", 4, identifiers, expectedTypes, Type.BOOLEAN);
-        ArrayList<Term> args = new ArrayList<Term>();
-        args.add(new ConstantTerm(new BooleanValue(false)));
-        args.add(new ConstantTerm(new CharValue('x')));
-        args.add(new ConstantTerm(new LongValue(66))); // wrong type
-        args.add(new ConstantTerm(new LongValue(12345)));
-        cmd.setArgs(args);
+        ArrayList<TermValue> args = new ArrayList<TermValue>();
+        args.add(new BooleanValue(false));
+        args.add(new CharValue('x'));
+        args.add(new LongValue(66)); // wrong type
+        args.add(new LongValue(12345));
         cmd.addChild(new ReturnCommand(gc, 5, new ConstantTerm(new IntValue(1))));
-        cmd.run();
+        cmd.call(context, args, new InMemoryTraceSink());
     }
 
     @Test(expected=MissingReturnCallException.class)
     public void test_RoutineCommand_missingReturnCall() throws DIbuggerLogicException {
         GenerationController gc = new GenerationController(1000, 1000);
-        Scope s = new Scope();
-        gc.pushScope(s);
+        ExecutionContext context = new ExecutionContext(new HashMap<String, RoutineCommand>(), 1000, 1000);
         ArrayList<String> identifiers = new ArrayList<String>();
         identifiers.add("a");
         identifiers.add("b");
@@ -142,12 +135,11 @@ public class RoutineCommandTest {
         expectedTypes.add(Type.INT);
         expectedTypes.add(Type.LONG);
         RoutineCommand cmd = new RoutineCommand(gc, "amIRight", 4, identifiers, expectedTypes, Type.BOOLEAN);
-        ArrayList<Term> args = new ArrayList<Term>();
-        args.add(new ConstantTerm(new BooleanValue(false)));
-        args.add(new ConstantTerm(new CharValue('x')));
-        args.add(new ConstantTerm(new IntValue(66)));
-        args.add(new ConstantTerm(new LongValue(12345)));
-        cmd.setArgs(args);
-        cmd.run();
+        ArrayList<TermValue> args = new ArrayList<TermValue>();
+        args.add(new BooleanValue(false));
+        args.add(new CharValue('x'));
+        args.add(new IntValue(66));
+        args.add(new LongValue(12345));
+        cmd.call(context, args, new InMemoryTraceSink());
     }
 }